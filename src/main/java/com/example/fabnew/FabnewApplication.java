@@ -1,7 +1,20 @@
 package com.example.fabnew;
 
+import com.example.fabnew.controller.AssetController;
+import com.example.fabnew.fabric.BulkImporter;
+import com.example.fabnew.fabric.FabricHealthIndicator;
+import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
 
 @SpringBootApplication
 public class FabnewApplication {
@@ -10,4 +23,49 @@ public class FabnewApplication {
 		SpringApplication.run(FabnewApplication.class, args);
 	}
 
+	/**
+	 * Runs a bulk import from the command line and exits, when started with {@code --import.file=<path>}.
+	 * Optional arguments: {@code --import.format=csv|ndjson} (default: from the file extension),
+	 * {@code --import.operation=create|update}, {@code --import.jobId=<id>} (default: the file name,
+	 * so rerunning the same command resumes an interrupted import) and {@code --import.parallelism=<n>}.
+	 * The exit code is 0 if every row committed and 1 otherwise.
+	 */
+	@Bean
+	public CommandLineRunner bulkImportRunner(ConfigurableApplicationContext context, Environment environment,
+											  AssetController assetController, BulkImporter bulkImporter,
+											  FabricHealthIndicator fabricHealthIndicator) {
+		return args -> {
+			String file = environment.getProperty("import.file");
+			if (file == null || file.isBlank()) {
+				return;
+			}
+			Path path = Path.of(file);
+			String fileName = path.getFileName().toString();
+			String format = environment.getProperty("import.format",
+					fileName.toLowerCase().endsWith(".csv") ? "csv" : "ndjson");
+			String operation = environment.getProperty("import.operation", "create");
+			String jobId = environment.getProperty("import.jobId", fileName.replaceAll("[^A-Za-z0-9._-]", "_"));
+			int parallelism = environment.getProperty("import.parallelism", Integer.class, bulkImporter.getDefaultParallelism());
+
+			// With fabric.startup.mode=background the gateway may still be connecting.
+			while (!fabricHealthIndicator.isReady()) {
+				System.out.println("Waiting for the Fabric gateway before importing " + path);
+				TimeUnit.SECONDS.sleep(2);
+			}
+
+			BulkImporter.ImportReport report;
+			try (Reader input = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+				report = assetController.importAssets(input, BulkImporter.Format.of(format), operation, jobId, parallelism);
+			}
+			for (BulkImporter.RowResult failure : report.failures) {
+				System.err.println("Row " + failure.row + " (" + failure.assetID + "): " + failure.status + " " + failure.message);
+			}
+			if (report.failed > report.failures.size()) {
+				System.err.println((report.failed - report.failures.size()) + " more failed rows are listed in the journal for job " + jobId);
+			}
+			int exitCode = report.failed == 0 ? 0 : 1;
+			System.exit(SpringApplication.exit(context, () -> exitCode));
+		};
+	}
+
 }
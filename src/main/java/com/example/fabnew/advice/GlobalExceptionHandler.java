@@ -1,7 +1,9 @@
 package com.example.fabnew.advice;
 
+import com.example.fabnew.fabric.AdmissionRejectedException;
 import io.grpc.StatusRuntimeException;
 import org.hyperledger.fabric.client.GatewayException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -20,6 +22,18 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorDetails);
     }
 
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> handleIllegalArgumentException(IllegalArgumentException e) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Bad Request: " + e.getMessage());
+    }
+
+    @ExceptionHandler(AdmissionRejectedException.class)
+    public ResponseEntity<String> handleAdmissionRejectedException(AdmissionRejectedException e) {
+        return ResponseEntity.status(e.getStatus())
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body((e.getStatus() == HttpStatus.CONFLICT ? "Conflict: " : "Overloaded: ") + e.getMessage());
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<String> handleGeneralException(Exception e) {
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -1,22 +1,60 @@
 package com.example.fabnew.controller;
 
+import com.example.fabnew.fabric.AdmissionController;
+import com.example.fabnew.fabric.AdmissionRejectedException;
+import com.example.fabnew.fabric.AssetCache;
+import com.example.fabnew.fabric.BlockArchiver;
+import com.example.fabnew.fabric.BlockCommitTracker;
+import com.example.fabnew.fabric.BulkImporter;
+import com.example.fabnew.fabric.CallDetails;
+import com.example.fabnew.fabric.CommitStatusTracker;
+import com.example.fabnew.fabric.CommitStatusTracker.TrackedTransaction;
+import com.example.fabnew.fabric.ContractRouter;
+import com.example.fabnew.fabric.EvaluateCoalescer;
+import com.example.fabnew.fabric.FabricHealthIndicator;
+import com.example.fabnew.fabric.FabricMetrics;
+import com.example.fabnew.fabric.FabricPeerProperties;
+import com.example.fabnew.fabric.IdentityRegistry;
+import com.example.fabnew.fabric.PeerPool;
+import com.example.fabnew.fabric.SlowTransactionLog;
+import com.example.fabnew.fabric.WorldStateMirror;
+import com.example.fabnew.fabric.WriteAheadLog;
+import com.example.fabnew.fabric.WriteScheduler;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
-import io.grpc.ManagedChannel;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import io.grpc.StatusRuntimeException;
-import io.grpc.netty.shaded.io.grpc.netty.GrpcSslContexts;
-import io.grpc.netty.shaded.io.grpc.netty.NettyChannelBuilder;
-import io.grpc.netty.shaded.io.netty.handler.ssl.SslContext;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.util.UriComponentsBuilder;
 import org.hyperledger.fabric.client.*;
 import org.hyperledger.fabric.client.identity.*;
+import org.hyperledger.fabric.protos.peer.TxValidationCode;
 
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.Reader;
+import java.io.Writer;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
@@ -25,6 +63,17 @@ import java.nio.file.Paths;
 import java.security.InvalidKeyException;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
 
@@ -33,26 +82,63 @@ import java.util.stream.Stream;
  * for interacting with a Hyperledger Fabric blockchain network to manage assets.
  * It uses the Hyperledger Fabric Gateway Java SDK to submit transactions and
  * evaluate queries against a chaincode (smart contract).
+ * <p>
+ * Every endpoint is served both under /api/assets, for the default channel and chaincode
+ * (fabric.channelName and fabric.chaincodeName), and under /api/{channel}/{chaincode}/assets
+ * for the other targets configured in fabric.targets.
  */
 @RestController // Marks this class as a Spring REST controller
-@RequestMapping("/api/assets") // Base path for all REST endpoints in this controller (e.g., /api/assets/all)
+// Base paths for all REST endpoints in this controller (e.g., /api/assets/all or /api/mychannel/basic/assets/all)
+@RequestMapping({"/api/assets", "/api/{channel}/{chaincode}/assets"})
 public class AssetController {
 
     // --- Configuration Constants ---
-    // The authority to override for gRPC connections, typically the peer's hostname in its TLS certificate.
-    private static final String OVERRIDE_AUTH = "peer0.org1.example.com";
-    // The name of the Hyperledger Fabric channel to connect to.
-    private static final String CHANNEL_NAME = "mychannel";
-    // The name of the chaincode (smart contract) deployed on the channel.
-    private static final String CHAINCODE_NAME = "basic";
+    // Response header stating the last block applied to the world state mirror when a read is served from it.
+    private static final String MIRROR_BLOCK_HEADER = "X-Mirror-Block";
+    // Media type of newline-delimited JSON responses (one asset per line).
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
 
     // Injects the MSP ID from Spring application properties (e.g., application.properties).
     @Value("${fabric.mspId}")
     private String mspId;
 
-    // Injects the peer endpoint from Spring application properties.
-    @Value("${fabric.peerEndpoint}")
-    private String peerEndpoint;
+    // Maximum number of batch items endorsed/submitted concurrently.
+    @Value("${fabric.batch.parallelism:16}")
+    private int batchParallelism;
+
+    // Upper bound on the number of items accepted in a single batch request.
+    @Value("${fabric.batch.maxSize:1000}")
+    private int batchMaxSize;
+
+    // How long a Server-Sent-Events subscription waits for a commit result before timing out.
+    @Value("${fabric.async.sseTimeout:PT2M}")
+    private Duration sseTimeout;
+
+    // Startup mode: "blocking" connects and probes before the application starts, "background"
+    // lets the application start at once and keeps connecting until the probe succeeds.
+    @Value("${fabric.startup.mode:blocking}")
+    private String startupMode;
+
+    // Startup probe: "evaluate" evaluates fabric.startup.probeFunction, "channel" only waits
+    // for the primary peer's gRPC channel to become READY.
+    @Value("${fabric.startup.probe:evaluate}")
+    private String startupProbe;
+
+    // The function (and arguments) evaluated by the "evaluate" startup probe: by default a single-key
+    // read, which answers (true or false) whether or not the asset exists, at a cost independent of the world state size.
+    @Value("${fabric.startup.probeFunction:AssetExists}")
+    private String probeFunction;
+
+    @Value("${fabric.startup.probeArgs:asset1}")
+    private String[] probeArgs;
+
+    // How long the "channel" startup probe waits for the channel to become READY.
+    @Value("${fabric.startup.probeTimeout:PT10S}")
+    private Duration probeTimeout;
+
+    // Delay between background startup attempts.
+    @Value("${fabric.startup.retryInterval:PT5S}")
+    private Duration startupRetryInterval;
 
     // Paths to your crypto materials (relative to the project root where certs are copied).
     // This assumes a specific directory structure for the Fabric network's crypto configuration.
@@ -61,66 +147,185 @@ public class AssetController {
     private static final Path KEY_DIR_PATH = CRYPTO_PATH.resolve(Paths.get("users", "User1@org1.example.com", "msp", "keystore"));
     // Path to the directory containing the user's signing certificate.
     private static final Path CERT_DIR_PATH = CRYPTO_PATH.resolve(Paths.get("users", "User1@org1.example.com", "msp", "signcerts"));
-    // Path to the TLS CA certificate of the peer, used to establish a secure gRPC connection.
-    private static final Path TLS_CERT_PATH = CRYPTO_PATH.resolve(Paths.get("peers", "peer0.org1.example.com", "tls", "ca.crt"));
-
-    // Hyperledger Fabric Gateway instance, the main entry point for interacting with the network.
-    private Gateway gateway;
-    // gRPC channel used for communication with the Fabric peer. Declared as a class-level field
-    // to ensure it can be properly shut down.
-    private ManagedChannel channel;
+
+    // Gateway connections to the configured Fabric peers: evaluates are load balanced, submits go to the primary peer.
+    private final PeerPool peerPool;
+    // Per-user identities selected with the X-Fabric-Identity header.
+    private final IdentityRegistry identityRegistry;
     // Gson instance for pretty-printing JSON responses.
     private final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+    // Bounded worker pool used by the batch endpoint to endorse, submit and collect commit statuses in parallel.
+    private ExecutorService batchExecutor;
+    // Tracks transactions submitted in async mode until their commit status is known.
+    private final CommitStatusTracker commitStatusTracker;
+    // Read-through cache for ReadAsset/GetAllAssets, invalidated by chaincode events.
+    private final AssetCache assetCache;
+    // Optional local copy of the world state, built from block events.
+    private final WorldStateMirror worldStateMirror;
+    // Concurrency limits for evaluate and submit calls, rejecting requests with 429/503 when overloaded.
+    private final AdmissionController admissionController;
+    // Per-phase timers, gRPC status counters and in-flight gauges for Fabric calls.
+    private final FabricMetrics fabricMetrics;
+    // Collapses concurrent identical evaluates into a single call to the peer.
+    private final EvaluateCoalescer evaluateCoalescer;
+    // Serializes writes per asset and resubmits transactions lost to MVCC conflicts.
+    private final WriteScheduler writeScheduler;
+    // Answers commit status waits from one shared block event stream (fabric.commits.mode=blocks).
+    private final BlockCommitTracker blockCommitTracker;
+    // Readiness of the Fabric gateway, reported on /actuator/health/readiness.
+    private final FabricHealthIndicator fabricHealthIndicator;
+    // Optional local archive of the channel's blocks, served by the LedgerController.
+    private final BlockArchiver blockArchiver;
+    // Streams CSV/NDJSON imports into CreateAsset/UpdateAsset transactions, journaling progress.
+    private final BulkImporter bulkImporter;
+    // Optional durable journal of write requests, submitted to Fabric in the background.
+    private final WriteAheadLog writeAheadLog;
+    // Channel and chaincode targets, with their cached contract handles, bulkheads and timeouts.
+    private final ContractRouter contractRouter;
+    // Phase breakdowns of the most recent transactions slower than fabric.slowlog.threshold.
+    private final SlowTransactionLog slowTransactionLog;
+    // Connects in the background when fabric.startup.mode=background.
+    private Thread startupThread;
+
+    public AssetController(PeerPool peerPool, IdentityRegistry identityRegistry, CommitStatusTracker commitStatusTracker,
+                           AssetCache assetCache, WorldStateMirror worldStateMirror, AdmissionController admissionController,
+                           FabricMetrics fabricMetrics, EvaluateCoalescer evaluateCoalescer, WriteScheduler writeScheduler,
+                           BlockCommitTracker blockCommitTracker, FabricHealthIndicator fabricHealthIndicator,
+                           BulkImporter bulkImporter, BlockArchiver blockArchiver, WriteAheadLog writeAheadLog,
+                           ContractRouter contractRouter, SlowTransactionLog slowTransactionLog) {
+        this.peerPool = peerPool;
+        this.identityRegistry = identityRegistry;
+        this.commitStatusTracker = commitStatusTracker;
+        this.assetCache = assetCache;
+        this.worldStateMirror = worldStateMirror;
+        this.admissionController = admissionController;
+        this.fabricMetrics = fabricMetrics;
+        this.evaluateCoalescer = evaluateCoalescer;
+        this.writeScheduler = writeScheduler;
+        this.blockCommitTracker = blockCommitTracker;
+        this.fabricHealthIndicator = fabricHealthIndicator;
+        this.bulkImporter = bulkImporter;
+        this.blockArchiver = blockArchiver;
+        this.writeAheadLog = writeAheadLog;
+        this.contractRouter = contractRouter;
+        this.slowTransactionLog = slowTransactionLog;
+    }
 
     /**
      * Initializes the Hyperledger Fabric Gateway connection after the controller
-     * bean has been constructed and properties injected. This method sets up
-     * the gRPC channel, loads identity and signer, and connects to the Fabric Gateway.
-     * It also performs an initial connection test by calling GetAllAssets.
+     * bean has been constructed and properties injected. This method loads identity
+     * and signer, and connects a Fabric Gateway to every configured peer.
+     * It also performs an initial connection test (the startup probe, by default an AssetExists point read).
+     * <p>
+     * With {@code fabric.startup.mode=background} this is done on a background thread, retried
+     * until the probe succeeds, and the application starts without waiting for it; readiness is
+     * reported by the {@link FabricHealthIndicator}.
      *
      * @throws Exception if any error occurs during connection setup or initial test.
      */
     @PostConstruct
     public void init() throws Exception {
+        this.batchExecutor = Executors.newFixedThreadPool(batchParallelism);
+        if ("background".equalsIgnoreCase(startupMode)) {
+            startupThread = new Thread(this::startInBackground, "fabric-startup");
+            startupThread.setDaemon(true);
+            startupThread.start();
+            return;
+        }
         try {
-            // Initialize the class-level channel variable by creating a new gRPC connection.
-            this.channel = newGrpcConnection();
-
-            // Build and connect the Fabric Gateway.
-            this.gateway = Gateway.newInstance()
-                    .identity(newIdentity()) // Set the client identity (User1's certificate)
-                    .signer(newSigner())     // Set the client signer (User1's private key)
-                    .connection(this.channel) // Use the established gRPC channel
-                    // Configure timeouts for different transaction phases
-                    .evaluateOptions(options -> options.withDeadlineAfter(5, TimeUnit.SECONDS))
-                    .endorseOptions(options -> options.withDeadlineAfter(15, TimeUnit.SECONDS))
-                    .submitOptions(options -> options.withDeadlineAfter(5, TimeUnit.SECONDS))
-                    .commitStatusOptions(options -> options.withDeadlineAfter(1, TimeUnit.MINUTES))
-                    .connect(); // Establish the connection to the Fabric Gateway
-
-            // Test the connection by evaluating a simple transaction.
-            Network network = gateway.getNetwork(CHANNEL_NAME);
-            Contract contract = network.getContract(CHAINCODE_NAME);
+            connectAndProbe();
+        } catch (Exception e) {
+            System.err.println("Failed to connect to Fabric Gateway: " + e.getMessage());
+            e.printStackTrace();
+            // Ensure the channels are shut down if initialization fails.
+            peerPool.shutdown();
+            throw new RuntimeException("Failed to initialize Fabric connection", e);
+        }
+    }
+
+    /**
+     * Connects and probes until successful, waiting fabric.startup.retryInterval between attempts.
+     */
+    private void startInBackground() {
+        while (!fabricHealthIndicator.isReady()) {
             try {
-                contract.evaluateTransaction("GetAllAssets");
-                System.out.println("Successfully connected to Fabric network");
+                connectAndProbe();
             } catch (Exception e) {
-                System.err.println("Initial connection test failed: " + e.getMessage());
-                throw e; // Re-throw to indicate initialization failure
+                fabricHealthIndicator.markFailed(e);
+                System.err.println("Fabric startup attempt failed, retrying in " + startupRetryInterval + ": " + e.getMessage());
+                try {
+                    TimeUnit.MILLISECONDS.sleep(startupRetryInterval.toMillis());
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
             }
+        }
+    }
+
+    /**
+     * Connects to the peers (unless already connected), runs the startup probe and starts the
+     * block and chaincode event listeners.
+     */
+    private void connectAndProbe() throws Exception {
+        if (!peerPool.isConnected()) {
+            // Open a gRPC channel to every configured peer while the client identity (User1's
+            // certificate) and signer (User1's private key) are loaded, then connect a Fabric Gateway over each.
+            peerPool.connect(loadAsync(this::newIdentity), loadAsync(this::newSigner));
+        }
+
+        // The cache, mirror, commit tracker and archive follow the default channel and chaincode.
+        String channelName = contractRouter.getDefault().getChannel();
+        String chaincodeName = contractRouter.getDefault().getChaincode();
+
+        // Test the connection with the startup probe.
+        try {
+            probe();
+            System.out.println("Successfully connected to Fabric network");
+            // Start listening for chaincode events so cached reads stay consistent with the ledger.
+            assetCache.start(() -> gateway().getNetwork(channelName), chaincodeName);
+            // Start following blocks into the local world state mirror (if enabled).
+            worldStateMirror.start(() -> gateway().getNetwork(channelName), chaincodeName);
+            // Start following block events for commit statuses (if enabled).
+            blockCommitTracker.start(() -> gateway().getNetwork(channelName));
+            // Start archiving the channel's blocks to local segment files (if enabled).
+            blockArchiver.start(() -> gateway().getNetwork(channelName), channelName);
+            // Start submitting journaled write requests (if the write-ahead log is enabled).
+            writeAheadLog.startSubmitting((assetId, function, args) -> submitAndInvalidate(contractRouter.getDefault(), assetId, function, args),
+                    transactionId -> blockCommitTracker.findStatus(gateway().getNetwork(channelName), transactionId));
+            fabricHealthIndicator.markReady();
         } catch (Exception e) {
-            System.err.println("Failed to connect to Fabric Gateway: " + e.getMessage());
-            e.printStackTrace();
-            // Ensure the channel is shut down if initialization fails.
-            if (this.channel != null) {
-                this.channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+            System.err.println("Initial connection test failed: " + e.getMessage());
+            throw e; // Re-throw to indicate initialization failure
+        }
+    }
+
+    /**
+     * Checks that the gateway is usable: either by evaluating the (ideally cheap) probe function,
+     * or only by waiting for the primary peer's gRPC channel to become READY.
+     */
+    private void probe() throws Exception {
+        if ("channel".equalsIgnoreCase(startupProbe)) {
+            if (!peerPool.awaitReady(probeTimeout)) {
+                throw new IllegalStateException("gRPC channel to " + peerPool.primary().getName() + " not READY within " + probeTimeout);
             }
-            throw new RuntimeException("Failed to initialize Fabric connection", e);
+        } else {
+            evaluate(contractRouter.getDefault(), probeFunction, probeArgs);
         }
     }
 
+    private static <T> CompletableFuture<T> loadAsync(Callable<T> loader) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return loader.call();
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
     /**
-     * Validates the configuration properties (mspId and peerEndpoint) after
+     * Validates the configuration properties (mspId and peer endpoints) after
      * the controller bean has been constructed. This ensures essential
      * configuration values are present before attempting to connect to Fabric.
      *
@@ -129,67 +334,24 @@ public class AssetController {
     @PostConstruct
     public void validateConfig() {
         System.out.println("fabric.mspId: " + mspId);
-        System.out.println("fabric.peerEndpoint: " + peerEndpoint);
+        List<FabricPeerProperties.PeerEndpoint> endpoints = peerPool.getEndpoints();
+        endpoints.forEach(endpoint -> System.out.println("fabric peer endpoint: " + endpoint.getEndpoint()));
         if (mspId == null || mspId.isEmpty()) {
             throw new IllegalStateException("fabric.mspId must be configured");
         }
-        if (peerEndpoint == null || peerEndpoint.isEmpty()) {
-            throw new IllegalStateException("fabric.peerEndpoint must be configured");
-        }
-        // Basic check for endpoint scheme. The newGrpcConnection method handles the parsing.
-        if (!peerEndpoint.startsWith("grpc://") && !peerEndpoint.startsWith("grpcs://")) {
-            throw new IllegalStateException("peerEndpoint must start with grpc:// or grpcs://");
-        }
-    }
-
-    /**
-     * Creates and configures a new gRPC ManagedChannel for connecting to the Fabric peer.
-     * It supports both plaintext (grpc://) and TLS (grpcs://) connections.
-     *
-     * @return A configured ManagedChannel instance.
-     * @throws IOException if the TLS certificate file is not found.
-     * @throws IllegalArgumentException if the peerEndpoint format is invalid.
-     */
-    private ManagedChannel newGrpcConnection() throws IOException {
-        System.out.println("Creating gRPC connection to: " + peerEndpoint);
-        System.out.println("Using TLS cert from: " + TLS_CERT_PATH.toAbsolutePath());
-
-        // Verify that the TLS certificate file exists.
-        if (!Files.exists(TLS_CERT_PATH)) {
-            throw new IOException("TLS certificate file not found at: " + TLS_CERT_PATH.toAbsolutePath());
+        if (endpoints.isEmpty()) {
+            throw new IllegalStateException("fabric.peerEndpoint or fabric.peers must be configured");
         }
-
-        // Parse the peer endpoint URI to extract host, port, and scheme.
-        URI uri = URI.create(peerEndpoint);
-        String host = uri.getHost();
-        int port = uri.getPort();
-        boolean useTls = uri.getScheme().equalsIgnoreCase("grpcs");
-
-        // Validate extracted host and port.
-        if (host == null || port == -1) {
-            throw new IllegalArgumentException("Invalid peerEndpoint format: " + peerEndpoint + ". Expected format like grpcs://host:port");
+        if (batchParallelism < 1) {
+            throw new IllegalStateException("fabric.batch.parallelism must be at least 1");
         }
-
-        // Build the NettyChannelBuilder with address and override authority.
-        NettyChannelBuilder channelBuilder = NettyChannelBuilder.forAddress(host, port)
-                .overrideAuthority(OVERRIDE_AUTH) // Important for TLS certificate validation
-                .channelType(io.grpc.netty.shaded.io.netty.channel.socket.nio.NioSocketChannel.class)
-                .eventLoopGroup(new io.grpc.netty.shaded.io.netty.channel.nio.NioEventLoopGroup())
-                .keepAliveTimeout(30, TimeUnit.SECONDS) // Configure gRPC keep-alive settings
-                .keepAliveTime(10, TimeUnit.SECONDS)
-                .keepAliveWithoutCalls(true);
-
-        // Configure TLS or plaintext based on the URI scheme.
-        if (useTls) {
-            SslContext sslContext = GrpcSslContexts.forClient()
-                    .trustManager(TLS_CERT_PATH.toFile()) // Trust the peer's TLS certificate
-                    .build();
-            channelBuilder.sslContext(sslContext);
-        } else {
-            channelBuilder.usePlaintext(); // Use unencrypted connection for grpc://
+        // Basic check for endpoint scheme. The PeerPool handles the parsing.
+        for (FabricPeerProperties.PeerEndpoint endpoint : endpoints) {
+            String url = endpoint.getEndpoint();
+            if (url == null || (!url.startsWith("grpc://") && !url.startsWith("grpcs://"))) {
+                throw new IllegalStateException("peer endpoint must start with grpc:// or grpcs://: " + url);
+            }
         }
-
-        return channelBuilder.build();
     }
 
     /**
@@ -240,6 +402,171 @@ public class AssetController {
         }
     }
 
+    /**
+     * Returns the gateway used for submitting transactions: that of the primary (first healthy) peer,
+     * signing as the identity selected by the current request.
+     *
+     * @return The gateway of the primary peer.
+     */
+    private Gateway gateway() {
+        return gatewayResolver().gatewayFor(peerPool.primary());
+    }
+
+    /**
+     * Resolves the gateways for the identity selected by the X-Fabric-Identity header of the
+     * current request, or the default identity if the header is absent.
+     *
+     * @return The gateway resolver for the current request.
+     * @throws IllegalArgumentException if the selected identity cannot be loaded.
+     */
+    private PeerPool.GatewayResolver gatewayResolver() {
+        String identityName = identityRegistry.requestedIdentity();
+        if (identityName == null) {
+            return PeerPool.Peer::getGateway;
+        }
+        IdentityRegistry.ClientIdentity identity = identityRegistry.get(identityName);
+        return identity::gatewayFor;
+    }
+
+    /**
+     * Returns the channel and chaincode addressed by the current request.
+     *
+     * @return The target of the request path.
+     * @throws IllegalArgumentException if the path names a target that is not configured.
+     */
+    private ContractRouter.Target target() {
+        return contractRouter.requestedTarget();
+    }
+
+    /**
+     * Evaluates a transaction function on the target's chaincode, routed by the PeerPool
+     * to the least loaded healthy peer. The call must first be admitted by the target's bulkhead.
+     * Concurrent identical evaluates by the same identity share a single call.
+     *
+     * @param target   The channel and chaincode to evaluate on.
+     * @param function The chaincode function to evaluate.
+     * @param args     The chaincode function arguments.
+     * @return The evaluate result.
+     * @throws GatewayException if the evaluate fails.
+     * @throws AdmissionRejectedException if too many evaluates are in progress.
+     */
+    private byte[] evaluate(ContractRouter.Target target, String function, String... args) throws GatewayException {
+        String identityName = identityRegistry.requestedIdentity();
+        PeerPool.GatewayResolver resolver = gatewayResolver();
+        return evaluateCoalescer.evaluate(target.getName(), identityName, function, args, () -> {
+            try (AdmissionController.Permit permit = target.admitEvaluate()) {
+                // The peer and transaction ID are filled in once the PeerPool has chosen the peer.
+                CallDetails details = CallDetails.of(target.getName(), null, args);
+                return fabricMetrics.time(FabricMetrics.EVALUATE, function, details,
+                        () -> peerPool.evaluate(resolver, target::contractFor, (peer, contract) -> {
+                            Proposal proposal = contract.newProposal(function).addArguments(args).build();
+                            details.setPeer(peer.getName());
+                            details.setTransactionId(proposal.getTransactionId());
+                            return proposal.evaluate(target.evaluateOptions());
+                        }));
+            }
+        });
+    }
+
+    /**
+     * Reads all assets of the target: for the default identity on the default target through the
+     * asset cache, which is invalidated by that chaincode's events; otherwise from a peer.
+     */
+    private byte[] readAll(ContractRouter.Target target) throws GatewayException {
+        AssetCache.Loader loader = () -> evaluate(target, "GetAllAssets");
+        return sharedReads(target) ? assetCache.readAll(loader) : loader.load();
+    }
+
+    /**
+     * The asset cache and the world state mirror hold one copy of the default target's assets
+     * for all callers. Requests signed as another identity (X-Fabric-Identity) bypass them, since
+     * the chaincode may answer that identity differently.
+     *
+     * @return true if reads of the target may be answered from the cache or the mirror.
+     */
+    private boolean sharedReads(ContractRouter.Target target) {
+        return target.isDefault() && identityRegistry.requestedIdentity() == null;
+    }
+
+    /**
+     * @return true if reads of the target are served by the world state mirror (which follows the default target only).
+     */
+    private boolean mirrorServes(ContractRouter.Target target) {
+        return sharedReads(target) && worldStateMirror.isServingReads();
+    }
+
+    /**
+     * Endorses a transaction and sends it to the orderer without waiting for it to commit,
+     * timing the endorse and submit phases separately.
+     *
+     * @param target   The target, whose call timeouts apply.
+     * @param contract The contract to invoke.
+     * @param details  Describes the call; its transaction ID is set once the proposal is built,
+     *                 and it is passed on to the commit wait of the transaction.
+     * @param function The chaincode function to invoke.
+     * @param args     The chaincode function arguments.
+     * @return The submitted transaction, whose commit status can be retrieved later.
+     * @throws EndorseException if endorsement fails.
+     * @throws SubmitException  if the orderer rejects the transaction.
+     */
+    private SubmittedTransaction endorseAndSubmit(ContractRouter.Target target, Contract contract, CallDetails details,
+                                                  String function, String... args) throws EndorseException, SubmitException {
+        Transaction transaction = fabricMetrics.time(FabricMetrics.ENDORSE, function, details, () -> {
+            Proposal proposal = contract.newProposal(function).addArguments(args).build();
+            details.setTransactionId(proposal.getTransactionId());
+            return proposal.endorse(target.endorseOptions());
+        });
+        return fabricMetrics.time(FabricMetrics.SUBMIT, function, details, () -> transaction.submitAsync(target.submitOptions()));
+    }
+
+    /**
+     * @return The details of a write to the target, submitted through the primary peer.
+     */
+    private CallDetails writeDetails(ContractRouter.Target target, String... args) {
+        return CallDetails.of(target.getName(), peerPool.primary().getName(), args);
+    }
+
+    /**
+     * Waits for the commit status of a submitted transaction: on the default target from the
+     * BlockCommitTracker (which follows the default channel), on other targets with a CommitStatus call.
+     */
+    private Status commitStatus(ContractRouter.Target target, SubmittedTransaction submitted) throws CommitStatusException {
+        return target.isDefault() ? blockCommitTracker.getStatus(submitted) : submitted.getStatus(target.commitStatusOptions());
+    }
+
+    /**
+     * Submits a transaction on the primary peer and waits for its commit status,
+     * timing the endorse, submit and commit phases separately. Writes to the same asset are
+     * serialized by the WriteScheduler, which also resubmits transactions lost to read conflicts;
+     * each attempt must be admitted by the target's bulkhead.
+     *
+     * @param target   The channel and chaincode to submit to.
+     * @param assetId  The asset written by the transaction.
+     * @param function The chaincode function to invoke.
+     * @param args     The chaincode function arguments.
+     * @return The commit status, which may report the transaction as invalid.
+     * @throws GatewayException if endorsement or submit fails, or the commit status cannot be obtained.
+     */
+    private Status submitTransaction(ContractRouter.Target target, String assetId, String function, String... args) throws GatewayException {
+        Contract contract = target.contractFor(gateway());
+        return writeScheduler.execute(target.lockKey(assetId), () -> {
+            try (AdmissionController.Permit permit = target.admitSubmit()) {
+                CallDetails details = writeDetails(target, args);
+                SubmittedTransaction submitted = endorseAndSubmit(target, contract, details, function, args);
+                return fabricMetrics.awaitCommit(function, details, () -> commitStatus(target, submitted));
+            }
+        });
+    }
+
+    /**
+     * Describes a transaction that committed as invalid, in the same form as a CommitException message.
+     */
+    private static String commitFailure(Status status) {
+        TxValidationCode code = status.getCode();
+        return "Error committing transaction: Commit of transaction " + status.getTransactionId()
+                + " failed with status code " + code.getNumber() + " (" + code.name() + ") Status Code: " + code;
+    }
+
     /**
      * Converts a byte array containing JSON data into a pretty-printed JSON string.
      *
@@ -272,9 +599,7 @@ public class AssetController {
     @GetMapping("/test-connection")
     public String testConnection() {
         try {
-            Network network = gateway.getNetwork(CHANNEL_NAME); // Get the network (channel) instance
-            Contract contract = network.getContract(CHAINCODE_NAME); // Get the contract (chaincode) instance
-            byte[] result = contract.evaluateTransaction("GetAllAssets"); // Evaluate the GetAllAssets transaction
+            byte[] result = evaluate(target(), "GetAllAssets"); // Evaluate the GetAllAssets transaction on a healthy peer
             return "Connection successful! Response: " + prettyJson(result);
         } catch (Exception e) {
             System.err.println("Connection test failed: " + e.getMessage());
@@ -285,16 +610,27 @@ public class AssetController {
 
     /**
      * REST endpoint to retrieve all assets from the Hyperledger Fabric ledger.
-     * This is a read-only operation.
+     * This is a read-only operation. When the world state mirror serves reads, the
+     * assets come from the mirror and the X-Mirror-Block header states the last applied block.
      *
      * @return A pretty-printed JSON string of all assets, or an error message.
      */
     @GetMapping("/all")
-    public String getAllAssets() {
+    public String getAllAssets(HttpServletResponse response) {
+        ContractRouter.Target target = target();
+        if (mirrorServes(target)) {
+            try {
+                response.setHeader(MIRROR_BLOCK_HEADER, String.valueOf(worldStateMirror.getLastAppliedBlock()));
+                return prettyJson(worldStateMirror.readAllAssets());
+            } catch (IOException e) {
+                System.err.println("Error reading all assets from mirror: " + e.getMessage());
+                response.setStatus(HttpStatus.INTERNAL_SERVER_ERROR.value());
+                return "Error getting all assets from mirror: " + e.getMessage();
+            }
+        }
         try {
-            Network network = gateway.getNetwork(CHANNEL_NAME);
-            Contract contract = network.getContract(CHAINCODE_NAME);
-            byte[] result = contract.evaluateTransaction("GetAllAssets"); // Evaluate the GetAllAssets transaction
+            // Evaluate the GetAllAssets transaction, served from the cache when possible
+            byte[] result = readAll(target);
             return prettyJson(result);
         } catch (GatewayException e) {
             System.err.println("Error getting all assets: " + e.getMessage());
@@ -308,6 +644,159 @@ public class AssetController {
         }
     }
 
+    /**
+     * Streaming variant of {@link #getAllAssets}, selected with {@code ?stream=true} or by
+     * requesting a page with {@code ?limit=}. Assets are piped one at a time from the chaincode
+     * result to the response using chunked transfer, instead of building a parsed tree and a
+     * pretty-printed copy of the whole ledger in memory.
+     * <p>
+     * With {@code format=ndjson} one asset is written per line; otherwise a JSON array is written.
+     * When {@code limit} is given, only assets whose ID sorts after {@code cursor} are returned, and
+     * the response is an object {@code {"assets": [...], "nextCursor": "..."}} (for NDJSON, a final
+     * {@code {"nextCursor": "..."}} line). nextCursor is null on the last page.
+     *
+     * @param format "json" (default) or "ndjson".
+     * @param limit  Maximum number of assets to return, or null for all.
+     * @param cursor The nextCursor of the previous page, or null to start at the beginning.
+     * @return The streamed assets.
+     */
+    @GetMapping(value = "/all", params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamAllAssets(@RequestParam(defaultValue = "json") String format,
+                                                                 @RequestParam(required = false) Integer limit,
+                                                                 @RequestParam(required = false) String cursor) throws GatewayException, IOException {
+        boolean ndjson = "ndjson".equalsIgnoreCase(format);
+        if (limit != null && limit < 1) {
+            throw new IllegalArgumentException("limit must be at least 1");
+        }
+        HttpHeaders headers = new HttpHeaders();
+        byte[] result = loadAllAssets(headers);
+        StreamingResponseBody body = out -> writeAssets(result, out, ndjson, limit, cursor);
+        return ResponseEntity.ok()
+                .headers(headers)
+                .contentType(ndjson ? NDJSON : MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    /**
+     * Paginated listing ({@code /all?limit=&cursor=}), served by the streaming implementation.
+     */
+    @GetMapping(value = "/all", params = {"limit", "!stream"})
+    public ResponseEntity<StreamingResponseBody> pageAllAssets(@RequestParam(defaultValue = "json") String format,
+                                                               @RequestParam Integer limit,
+                                                               @RequestParam(required = false) String cursor) throws GatewayException, IOException {
+        return streamAllAssets(format, limit, cursor);
+    }
+
+    /**
+     * Compact variant of {@link #getAllAssets}, selected with {@code ?compact=true}.
+     * The raw chaincode result bytes are passed through without being parsed or re-serialized.
+     *
+     * @return The GetAllAssets result exactly as returned by the chaincode.
+     */
+    @GetMapping(value = "/all", params = {"compact=true", "!stream", "!limit"})
+    public ResponseEntity<byte[]> getAllAssetsCompact() throws GatewayException, IOException {
+        HttpHeaders headers = new HttpHeaders();
+        byte[] result = loadAllAssets(headers);
+        return ResponseEntity.ok()
+                .headers(headers)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(result);
+    }
+
+    /**
+     * Loads the raw GetAllAssets result from the world state mirror (adding the X-Mirror-Block header)
+     * when it serves reads, or otherwise from the cache or the peer.
+     */
+    private byte[] loadAllAssets(HttpHeaders headers) throws GatewayException, IOException {
+        ContractRouter.Target target = target();
+        if (mirrorServes(target)) {
+            headers.set(MIRROR_BLOCK_HEADER, String.valueOf(worldStateMirror.getLastAppliedBlock()));
+            return worldStateMirror.readAllAssets();
+        }
+        return readAll(target);
+    }
+
+    /**
+     * Copies the assets of a GetAllAssets JSON array to the output stream one element at a time,
+     * applying the cursor and limit. Only a single asset is ever held as a parsed tree.
+     */
+    private void writeAssets(byte[] result, OutputStream out, boolean ndjson, Integer limit, String cursor) throws IOException {
+        boolean paged = limit != null;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        JsonWriter json = new JsonWriter(writer);
+        if (!ndjson) {
+            if (paged) {
+                json.beginObject().name("assets");
+            }
+            json.beginArray();
+        }
+
+        int written = 0;
+        String lastId = null;
+        boolean more = false;
+        if (result.length > 0) {
+            JsonReader reader = new JsonReader(new InputStreamReader(new ByteArrayInputStream(result), StandardCharsets.UTF_8));
+            reader.beginArray();
+            while (reader.hasNext()) {
+                JsonElement asset = JsonParser.parseReader(reader);
+                String id = assetId(asset);
+                if (cursor != null && id != null && id.compareTo(cursor) <= 0) {
+                    continue; // Already returned on a previous page
+                }
+                if (paged && written == limit) {
+                    more = true;
+                    break;
+                }
+                if (ndjson) {
+                    writer.write(asset.toString());
+                    writer.write('\n');
+                } else {
+                    gson.toJson(asset, json);
+                }
+                lastId = id;
+                written++;
+            }
+        }
+
+        String nextCursor = more ? lastId : null;
+        if (ndjson) {
+            if (paged) {
+                JsonObject trailer = new JsonObject();
+                trailer.addProperty("nextCursor", nextCursor);
+                writer.write(trailer.toString());
+                writer.write('\n');
+            }
+        } else {
+            json.endArray();
+            if (paged) {
+                json.name("nextCursor");
+                if (nextCursor == null) {
+                    json.nullValue();
+                } else {
+                    json.value(nextCursor);
+                }
+                json.endObject();
+            }
+        }
+        json.flush();
+    }
+
+    /**
+     * Extracts the asset ID from an asset JSON object, supporting both the Go ("ID")
+     * and Java ("assetID") asset-transfer-basic chaincode field names.
+     */
+    private static String assetId(JsonElement asset) {
+        if (asset.isJsonObject()) {
+            JsonObject object = asset.getAsJsonObject();
+            for (String field : new String[] {"ID", "assetID", "AssetID"}) {
+                if (object.has(field) && object.get(field).isJsonPrimitive()) {
+                    return object.get(field).getAsString();
+                }
+            }
+        }
+        return null;
+    }
+
     /**
      * REST endpoint to create a new asset on the Hyperledger Fabric ledger.
      * This is a transaction that modifies the ledger state.
@@ -318,13 +807,15 @@ public class AssetController {
     @PostMapping("/create")
     public String createAsset(@RequestBody AssetCreationRequest request) {
         try {
-            Network network = gateway.getNetwork(CHANNEL_NAME);
-            Contract contract = network.getContract(CHAINCODE_NAME);
-            // Submit the CreateAsset transaction with provided arguments.
+            // Submit the CreateAsset transaction with provided arguments and wait for it to commit.
             // Note: size and appraisedValue are converted to String as chaincode arguments are typically strings.
-            contract.submitTransaction("CreateAsset", request.assetID, request.color, String.valueOf(request.size), request.owner, String.valueOf(request.appraisedValue));
+            Status status = submitTransaction(target(), request.assetID, "CreateAsset", request.assetID, request.color, String.valueOf(request.size), request.owner, String.valueOf(request.appraisedValue));
+            if (!status.isSuccessful()) {
+                return commitFailure(status);
+            }
+            assetCache.invalidateAsset(request.assetID);
             return "Asset " + request.assetID + " created successfully!";
-        } catch (GatewayException | CommitException e) {
+        } catch (GatewayException e) {
             System.err.println("Error creating asset: " + e.getMessage());
             e.printStackTrace();
             // Detailed error handling for various Fabric transaction exceptions.
@@ -337,9 +828,6 @@ public class AssetController {
             } else if (e instanceof CommitStatusException) {
                 CommitStatusException cse = (CommitStatusException) e;
                 return "Error getting commit status: " + cse.getMessage() + " Status Code: " + cse.getStatus().getCode();
-            } else if (e instanceof CommitException) {
-                CommitException ce = (CommitException) e;
-                return "Error committing transaction: " + ce.getMessage() + " Status Code: " + ce.getCode();
             }
             return "Error creating asset: " + e.getMessage();
         }
@@ -349,15 +837,35 @@ public class AssetController {
      * REST endpoint to read a specific asset from the Hyperledger Fabric ledger by its ID.
      * This is a read-only operation.
      *
+     * When the world state mirror serves reads, the asset comes from the mirror and the
+     * X-Mirror-Block header states the last applied block.
+     *
      * @param assetId The ID of the asset to read, extracted from the URL path.
      * @return A pretty-printed JSON string of the asset, or an error message if not found or an error occurs.
      */
     @GetMapping("/{assetId}")
-    public String readAsset(@PathVariable String assetId) {
+    public String readAsset(@PathVariable String assetId, HttpServletResponse response) {
+        ContractRouter.Target target = target();
+        if (mirrorServes(target)) {
+            try {
+                long block = worldStateMirror.getLastAppliedBlock();
+                response.setHeader(MIRROR_BLOCK_HEADER, String.valueOf(block));
+                Optional<byte[]> asset = worldStateMirror.readAsset(assetId);
+                if (asset.isEmpty()) {
+                    response.setStatus(HttpStatus.NOT_FOUND.value());
+                    return "Asset " + assetId + " does not exist as of block " + block;
+                }
+                return prettyJson(asset.get());
+            } catch (IOException e) {
+                System.err.println("Error reading asset " + assetId + " from mirror: " + e.getMessage());
+                response.setStatus(HttpStatus.INTERNAL_SERVER_ERROR.value());
+                return "Error reading asset " + assetId + " from mirror: " + e.getMessage();
+            }
+        }
         try {
-            Network network = gateway.getNetwork(CHANNEL_NAME);
-            Contract contract = network.getContract(CHAINCODE_NAME);
-            byte[] result = contract.evaluateTransaction("ReadAsset", assetId); // Evaluate the ReadAsset transaction
+            // Evaluate the ReadAsset transaction, served from the cache when possible
+            AssetCache.Loader loader = () -> evaluate(target, "ReadAsset", assetId);
+            byte[] result = sharedReads(target) ? assetCache.readAsset(assetId, loader) : loader.load();
             return prettyJson(result);
         } catch (GatewayException e) {
             System.err.println("Error reading asset " + assetId + ": " + e.getMessage());
@@ -381,12 +889,14 @@ public class AssetController {
     @PutMapping("/update") // Using PUT for updates
     public String updateAsset(@RequestBody AssetCreationRequest request) {
         try {
-            Network network = gateway.getNetwork(CHANNEL_NAME);
-            Contract contract = network.getContract(CHAINCODE_NAME);
-            // Submit the UpdateAsset transaction with provided arguments.
-            contract.submitTransaction("UpdateAsset", request.assetID, request.color, String.valueOf(request.size), request.owner, String.valueOf(request.appraisedValue));
+            // Submit the UpdateAsset transaction with provided arguments and wait for it to commit.
+            Status status = submitTransaction(target(), request.assetID, "UpdateAsset", request.assetID, request.color, String.valueOf(request.size), request.owner, String.valueOf(request.appraisedValue));
+            if (!status.isSuccessful()) {
+                return commitFailure(status);
+            }
+            assetCache.invalidateAsset(request.assetID);
             return "Asset " + request.assetID + " updated successfully!";
-        } catch (GatewayException | CommitException e) {
+        } catch (GatewayException e) {
             System.err.println("Error updating asset: " + e.getMessage());
             e.printStackTrace();
             // Detailed error handling for various Fabric transaction exceptions.
@@ -399,9 +909,6 @@ public class AssetController {
             } else if (e instanceof CommitStatusException) {
                 CommitStatusException cse = (CommitStatusException) e;
                 return "Error getting commit status: " + cse.getMessage() + " Status Code: " + cse.getStatus().getCode();
-            } else if (e instanceof CommitException) {
-                CommitException ce = (CommitException) e;
-                return "Error committing transaction: " + ce.getMessage() + " Status Code: " + ce.getCode();
             }
             return "Error updating asset: " + e.getMessage();
         }
@@ -417,11 +924,13 @@ public class AssetController {
     @DeleteMapping("/{assetId}") // Using DELETE for deletion
     public String deleteAsset(@PathVariable String assetId) {
         try {
-            Network network = gateway.getNetwork(CHANNEL_NAME);
-            Contract contract = network.getContract(CHAINCODE_NAME);
-            contract.submitTransaction("DeleteAsset", assetId); // Submit the DeleteAsset transaction
+            Status status = submitTransaction(target(), assetId, "DeleteAsset", assetId); // Submit the DeleteAsset transaction
+            if (!status.isSuccessful()) {
+                return commitFailure(status);
+            }
+            assetCache.invalidateAsset(assetId);
             return "Asset " + assetId + " deleted successfully!";
-        } catch (GatewayException | CommitException e) {
+        } catch (GatewayException e) {
             System.err.println("Error deleting asset " + assetId + ": " + e.getMessage());
             e.printStackTrace();
             // Detailed error handling for various Fabric transaction exceptions.
@@ -434,29 +943,547 @@ public class AssetController {
             } else if (e instanceof CommitStatusException) {
                 CommitStatusException cse = (CommitStatusException) e;
                 return "Error getting commit status: " + cse.getMessage() + " Status Code: " + cse.getStatus().getCode();
-            } else if (e instanceof CommitException) {
-                CommitException ce = (CommitException) e;
-                return "Error committing transaction: " + ce.getMessage() + " Status Code: " + ce.getCode();
             }
             return "Error deleting asset " + assetId + ": " + e.getMessage();
         }
     }
 
+    /**
+     * REST endpoint exposing the hit/miss/eviction counters of the asset read cache.
+     *
+     * @return The cache statistics.
+     */
+    @GetMapping("/cache/stats")
+    public Map<String, Object> getCacheStats() {
+        return assetCache.getStats();
+    }
+
+    /**
+     * REST endpoint exposing the health and load of each Fabric peer in the pool.
+     *
+     * @return The peer pool status.
+     */
+    @GetMapping("/peers/status")
+    public Map<String, Object> getPeerStatus() {
+        return peerPool.getStatus();
+    }
+
+    /**
+     * REST endpoint exposing the state of the local world state mirror,
+     * including the last applied block (its staleness).
+     *
+     * @return The mirror status.
+     */
+    @GetMapping("/mirror/status")
+    public Map<String, Object> getMirrorStatus() {
+        return worldStateMirror.getStatus();
+    }
+
+    /**
+     * REST endpoint exposing the in-flight, queued and rejected counts of the admission controller.
+     *
+     * @return The admission status.
+     */
+    @GetMapping("/admission/status")
+    public Map<String, Object> getAdmissionStatus() {
+        return admissionController.getStatus();
+    }
+
+    /**
+     * REST endpoint exposing how many evaluates were executed and how many were coalesced
+     * into an identical call already in flight.
+     *
+     * @return The coalescer statistics.
+     */
+    @GetMapping("/coalescer/stats")
+    public Map<String, Object> getCoalescerStats() {
+        return evaluateCoalescer.getStats();
+    }
+
+    /**
+     * REST endpoint exposing the state of block event commit tracking: the mode, the last block
+     * processed and the number of transactions waiting for their status.
+     *
+     * @return The commit tracker status.
+     */
+    @GetMapping("/commits/status")
+    public Map<String, Object> getCommitTrackerStatus() {
+        return blockCommitTracker.getStatus();
+    }
+
+    /**
+     * REST endpoint listing the channel and chaincode targets with their call timeouts;
+     * their bulkheads are reported by /admission/status.
+     *
+     * @return The configured targets.
+     */
+    @GetMapping("/targets")
+    public Map<String, Object> getTargets() {
+        return contractRouter.getStatus();
+    }
+
+    /**
+     * REST endpoint listing the most recent transactions slower than fabric.slowlog.threshold,
+     * newest first, each with the timing, peer and status of its evaluate or endorse, submit and
+     * commit phases. The wall-clock start and thread names line up with a JFR recording of the
+     * com.example.fabnew.FabricCall events.
+     *
+     * @param limit Maximum number of transactions returned.
+     * @return The slow transaction log.
+     */
+    @GetMapping("/slow-transactions")
+    public Map<String, Object> getSlowTransactions(@RequestParam(defaultValue = "50") int limit) {
+        return slowTransactionLog.getStatus(limit);
+    }
+
+    /**
+     * Async variant of {@link #createAsset}, selected with {@code ?async=true}.
+     * The transaction is endorsed and sent to the orderer, and the request returns
+     * 202 Accepted with the transaction ID without waiting for the commit. While an earlier
+     * write to the same asset has not committed, the request is refused with 409 and Retry-After.
+     *
+     * @param request An AssetCreationRequest object containing the details of the asset to create.
+     * @return 202 with the transaction status, or an error message if endorsement or submit fails.
+     */
+    @PostMapping(value = "/create", params = "async=true")
+    public ResponseEntity<?> createAssetAsync(@RequestBody AssetCreationRequest request) {
+        return submitAsync(target(), request.assetID, "CreateAsset", request.assetID, request.color, String.valueOf(request.size), request.owner, String.valueOf(request.appraisedValue));
+    }
+
+    /**
+     * Async variant of {@link #updateAsset}, selected with {@code ?async=true}.
+     *
+     * @param request An AssetCreationRequest object containing the updated details of the asset.
+     * @return 202 with the transaction status, or an error message if endorsement or submit fails.
+     */
+    @PutMapping(value = "/update", params = "async=true")
+    public ResponseEntity<?> updateAssetAsync(@RequestBody AssetCreationRequest request) {
+        return submitAsync(target(), request.assetID, "UpdateAsset", request.assetID, request.color, String.valueOf(request.size), request.owner, String.valueOf(request.appraisedValue));
+    }
+
+    /**
+     * Async variant of {@link #deleteAsset}, selected with {@code ?async=true}.
+     *
+     * @param assetId The ID of the asset to delete, extracted from the URL path.
+     * @return 202 with the transaction status, or an error message if endorsement or submit fails.
+     */
+    @DeleteMapping(value = "/{assetId}", params = "async=true")
+    public ResponseEntity<?> deleteAssetAsync(@PathVariable String assetId) {
+        return submitAsync(target(), assetId, "DeleteAsset", assetId);
+    }
+
+    /**
+     * Durable variant of {@link #createAsset}, selected with {@code ?durable=true}.
+     * The request is appended to the local write-ahead log and the call returns 202 Accepted
+     * with a request ID once the log has been forced to disk; the transaction is submitted to
+     * Fabric in the background, and retried until it commits, even across restarts.
+     *
+     * @param request An AssetCreationRequest object containing the details of the asset to create.
+     * @return 202 with the journal entry status.
+     */
+    @PostMapping(value = "/create", params = "durable=true")
+    public ResponseEntity<JournalEntryResponse> createAssetDurable(@RequestBody AssetCreationRequest request) {
+        return appendDurable(request.assetID, "CreateAsset", request.assetID, request.color, String.valueOf(request.size), request.owner, String.valueOf(request.appraisedValue));
+    }
+
+    /**
+     * Durable variant of {@link #updateAsset}, selected with {@code ?durable=true}.
+     *
+     * @param request An AssetCreationRequest object containing the updated details of the asset.
+     * @return 202 with the journal entry status.
+     */
+    @PutMapping(value = "/update", params = "durable=true")
+    public ResponseEntity<JournalEntryResponse> updateAssetDurable(@RequestBody AssetCreationRequest request) {
+        return appendDurable(request.assetID, "UpdateAsset", request.assetID, request.color, String.valueOf(request.size), request.owner, String.valueOf(request.appraisedValue));
+    }
+
+    /**
+     * Durable variant of {@link #deleteAsset}, selected with {@code ?durable=true}.
+     *
+     * @param assetId The ID of the asset to delete, extracted from the URL path.
+     * @return 202 with the journal entry status.
+     */
+    @DeleteMapping(value = "/{assetId}", params = "durable=true")
+    public ResponseEntity<JournalEntryResponse> deleteAssetDurable(@PathVariable String assetId) {
+        return appendDurable(assetId, "DeleteAsset", assetId);
+    }
+
+    /**
+     * REST endpoint to poll a write request accepted in durable mode.
+     *
+     * @param requestId The request ID returned by a durable write.
+     * @return The current status (PENDING, COMMITTED or FAILED), or 404 if the request is unknown.
+     */
+    @GetMapping("/wal/{requestId}")
+    public ResponseEntity<JournalEntryResponse> getJournalEntry(@PathVariable long requestId) {
+        return writeAheadLog.lookup(requestId)
+                .map(entry -> ResponseEntity.ok(JournalEntryResponse.of(entry)))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * REST endpoint exposing the write-ahead log: pending entries, group commits and retries.
+     *
+     * @return The write-ahead log status.
+     */
+    @GetMapping("/wal/status")
+    public Map<String, Object> getWriteAheadLogStatus() {
+        return writeAheadLog.getStatus();
+    }
+
+    private ResponseEntity<JournalEntryResponse> appendDurable(String assetId, String function, String... args) {
+        if (!writeAheadLog.isEnabled()) {
+            throw new IllegalArgumentException("Durable writes require fabric.wal.enabled=true");
+        }
+        ContractRouter.Target target = target();
+        if (!target.isDefault()) {
+            throw new IllegalArgumentException("Durable writes are only supported on the default channel and chaincode");
+        }
+        WriteAheadLog.Entry entry = writeAheadLog.append(function, assetId, args);
+        return ResponseEntity.accepted()
+                .location(targetUri(target, "wal", String.valueOf(entry.getId())))
+                .body(JournalEntryResponse.of(entry));
+    }
+
+    /**
+     * Builds the URI of a resource under a target's assets path, including the servlet context path.
+     *
+     * @param target   The channel and chaincode; the default target is served at /api/assets.
+     * @param segments The path segments after the assets path.
+     * @return The URI.
+     */
+    private static URI targetUri(ContractRouter.Target target, String... segments) {
+        UriComponentsBuilder builder = ServletUriComponentsBuilder.fromCurrentContextPath().pathSegment("api");
+        if (!target.isDefault()) {
+            builder.pathSegment(target.getChannel(), target.getChaincode());
+        }
+        return builder.pathSegment("assets").pathSegment(segments).build().toUri();
+    }
+
+    /**
+     * REST endpoint to poll the commit status of a transaction submitted in async mode.
+     *
+     * @param txId The transaction ID returned by an async write.
+     * @return The current status (PENDING, COMMITTED, INVALID or UNKNOWN), or 404 if the transaction is not tracked.
+     */
+    @GetMapping("/tx/{txId}")
+    public ResponseEntity<TransactionStatusResponse> getTransactionStatus(@PathVariable String txId) {
+        return commitStatusTracker.lookup(txId)
+                .map(tracked -> ResponseEntity.ok(TransactionStatusResponse.of(tracked)))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * REST endpoint that streams the commit result of an async transaction as a Server-Sent Event.
+     * A single "commit" event is pushed when the status is known, after which the stream completes.
+     *
+     * @param txId The transaction ID returned by an async write.
+     * @return The event stream, or 404 if the transaction is not tracked.
+     */
+    @GetMapping(value = "/tx/{txId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamTransactionStatus(@PathVariable String txId) {
+        var lookup = commitStatusTracker.lookup(txId);
+        if (lookup.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        TrackedTransaction tracked = lookup.get();
+        SseEmitter emitter = new SseEmitter(sseTimeout.toMillis());
+        tracked.getFuture().whenComplete((status, error) -> {
+            try {
+                emitter.send(SseEmitter.event().name("commit").data(TransactionStatusResponse.of(tracked)));
+                emitter.complete();
+            } catch (IOException e) {
+                emitter.completeWithError(e);
+            }
+        });
+        return ResponseEntity.ok(emitter);
+    }
+
+    /**
+     * Endorses a transaction and sends it to the orderer without waiting for it to commit.
+     * The commit status is then awaited in the background by the {@link CommitStatusTracker}.
+     *
+     * @param target   The channel and chaincode to submit to.
+     * @param assetId  The asset modified by the transaction, invalidated in the cache once it commits.
+     * @param function The chaincode function to invoke.
+     * @param args     The chaincode function arguments.
+     * @return 202 with the transaction status, or 500 with an error message if endorsement or submit fails.
+     * @throws AdmissionRejectedException with 409 if an earlier write to the asset has not committed yet.
+     */
+    private ResponseEntity<?> submitAsync(ContractRouter.Target target, String assetId, String function, String... args) {
+        // The asset stays locked until the commit status is known, so the next write to it
+        // is endorsed against the committed value. A busy asset is refused at once rather than
+        // waited for, so the request thread is never parked behind another write's commit.
+        Runnable unlock = writeScheduler.tryLock(target.lockKey(assetId));
+        boolean awaitingCommit = false;
+        // The permit covers endorsement and submission only; the commit wait runs in the background.
+        try (AdmissionController.Permit permit = target.admitSubmit()) {
+            Contract contract = target.contractFor(gateway());
+            CallDetails details = writeDetails(target, args);
+            SubmittedTransaction submitted = endorseAndSubmit(target, contract, details, function, args);
+            TrackedTransaction tracked = commitStatusTracker.track(function, details, submitted, () -> commitStatus(target, submitted));
+            tracked.getFuture().whenComplete((status, error) -> unlock.run());
+            awaitingCommit = true;
+            tracked.getFuture().thenRun(() -> assetCache.invalidateAsset(assetId));
+            return ResponseEntity.accepted()
+                    .location(targetUri(target, "tx", tracked.getTransactionId()))
+                    .body(TransactionStatusResponse.of(tracked));
+        } catch (EndorseException e) {
+            System.err.println("Error endorsing " + function + ": " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Error endorsing transaction: " + e.getMessage() + " Details: " + e.getDetails());
+        } catch (SubmitException e) {
+            System.err.println("Error submitting " + function + ": " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Error submitting transaction: " + e.getMessage());
+        } finally {
+            if (!awaitingCommit) {
+                unlock.run();
+            }
+        }
+    }
+
+    /**
+     * REST endpoint to create or update many assets in one call.
+     * Instead of one blocking endorse+order+commit round trip per asset, every item is
+     * endorsed and submitted to the orderer concurrently (bounded by fabric.batch.parallelism)
+     * without waiting for commit. Once all items have been handed to the orderer, their
+     * commit statuses are collected together, so the items share the same few blocks.
+     * Each item is admitted by the target's bulkhead for its endorsement and submit, like a
+     * single write; an item that is not admitted is reported as REJECTED. Items go through the
+     * WriteScheduler like single writes: items for the same asset (within the batch or not) run
+     * one after the other, and items lost to read conflicts are resubmitted.
+     *
+     * @param requests  The assets to create or update.
+     * @param operation Either "create" (CreateAsset) or "update" (UpdateAsset). Defaults to "create".
+     * @return One result per request item, in the same order as the request.
+     */
+    @PostMapping("/batch")
+    public List<BatchItemResult> batchAssets(@RequestBody List<AssetCreationRequest> requests,
+                                             @RequestParam(defaultValue = "create") String operation) {
+        String function = writeFunction(operation);
+        if (requests.size() > batchMaxSize) {
+            throw new IllegalArgumentException("Batch contains " + requests.size() + " items, maximum is " + batchMaxSize);
+        }
+
+        ContractRouter.Target target = target();
+        Contract contract = target.contractFor(gateway());
+        return runBatch(target, contract, function, requests);
+    }
+
+    /**
+     * Maps a batch or import operation to its chaincode function.
+     *
+     * @throws IllegalArgumentException if the operation is neither create nor update.
+     */
+    private static String writeFunction(String operation) {
+        return switch (operation.toLowerCase()) {
+            case "create" -> "CreateAsset";
+            case "update" -> "UpdateAsset";
+            default -> throw new IllegalArgumentException("Unsupported operation: " + operation + ". Expected create or update");
+        };
+    }
+
+    /**
+     * Runs the two phases of each batch item: endorsement and submit on the batch worker pool,
+     * then the commit wait as a future of the CommitStatusTracker, so no batch worker is held
+     * while a block is cut. Each item is queued in the WriteScheduler behind the earlier writes
+     * to its asset, without holding a thread while it waits.
+     */
+    private List<BatchItemResult> runBatch(ContractRouter.Target target, Contract contract, String function, List<AssetCreationRequest> requests) {
+        List<CompletableFuture<BatchItemResult>> results = new ArrayList<>(requests.size());
+        for (AssetCreationRequest request : requests) {
+            String[] args = {request.assetID, request.color, String.valueOf(request.size), request.owner, String.valueOf(request.appraisedValue)};
+            results.add(writeScheduler.executeAsync(target.lockKey(request.assetID), batchExecutor, () -> {
+                        // Phase 1: endorse and submit without waiting for commit.
+                        CallDetails details = writeDetails(target, args);
+                        SubmittedTransaction submitted = submitBatchItem(target, contract, details, function, args);
+                        // Phase 2: once the item has reached the orderer, wait for its commit status.
+                        return commitFuture(target, function, details, submitted);
+                    })
+                    .handle((status, error) -> batchItemResult(request.assetID, status, error)));
+        }
+
+        return results.stream().map(CompletableFuture::join).toList();
+    }
+
+    /**
+     * Endorses a single batch item and sends it to the orderer without waiting for it to commit.
+     * The item's admission permit covers the endorsement and submit only.
+     *
+     * @return The submitted transaction, whose commit status can be retrieved later.
+     * @throws CompletionException wrapping the Fabric exception if endorsement or submit fails.
+     * @throws AdmissionRejectedException if the target's bulkhead does not admit the item.
+     */
+    private SubmittedTransaction submitBatchItem(ContractRouter.Target target, Contract contract, CallDetails details,
+                                                 String function, String... args) {
+        try (AdmissionController.Permit permit = target.admitSubmit()) {
+            return endorseAndSubmit(target, contract, details, function, args);
+        } catch (EndorseException | SubmitException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * Waits for the commit status of a submitted transaction without holding the calling thread:
+     * on the default target from the BlockCommitTracker's block events, on other targets with a
+     * CommitStatus call on the CommitStatusTracker's commit-wait pool.
+     *
+     * @return A future completed with the commit status, or exceptionally with a CommitStatusException.
+     */
+    private CompletableFuture<Status> commitFuture(ContractRouter.Target target, String function, CallDetails details,
+                                                   SubmittedTransaction submitted) {
+        return target.isDefault()
+                ? commitStatusTracker.awaitCommit(function, details, submitted)
+                : commitStatusTracker.awaitCommit(function, details, () -> submitted.getStatus(target.commitStatusOptions()));
+    }
+
+    /**
+     * Converts the outcome of a batch item to its result, invalidating the cached asset once it has committed.
+     */
+    private BatchItemResult batchItemResult(String assetId, Status status, Throwable error) {
+        if (error != null) {
+            Throwable cause = unwrap(error);
+            if (cause instanceof CommitStatusException e) {
+                System.err.println("Error getting commit status for " + e.getTransactionId() + ": " + e.getMessage());
+            }
+            return BatchItemResult.failed(assetId, cause);
+        }
+        if (status.isSuccessful()) {
+            assetCache.invalidateAsset(assetId);
+        }
+        return BatchItemResult.fromStatus(assetId, status);
+    }
+
+    /**
+     * Strips the CompletionException wrapper added by CompletableFuture.
+     */
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    /**
+     * REST endpoint to import a large number of assets from a CSV or NDJSON request body.
+     * The body is streamed rather than loaded into memory, and each row is submitted as its own
+     * CreateAsset or UpdateAsset transaction, with up to {@code parallelism} in flight.
+     * Progress is journaled under the job ID: posting the same input again with the same
+     * {@code jobId} skips the rows that were already committed, while a different input or
+     * operation under that job ID is refused with 400.
+     * Rows are submitted with the default identity.
+     * <p>
+     * The response is only sent once every row has been submitted and committed, which for a large
+     * input takes minutes to hours: a client calling this needs a read timeout at least that long.
+     * Clients with shorter timeouts should use {@code async=true} instead. If the client gives up,
+     * the import still runs to completion, and its progress can be followed at {@code /import/{jobId}}.
+     *
+     * @param format      Either "csv" (with a header row) or "ndjson". Defaults to "csv".
+     * @param operation   Either "create" (CreateAsset) or "update" (UpdateAsset). Defaults to "create".
+     * @param jobId       The job ID to resume; a new one is generated if absent.
+     * @param parallelism Maximum transactions in flight; defaults to fabric.import.parallelism.
+     * @return The import report, with throughput and the failed rows.
+     */
+    @PostMapping("/import")
+    public BulkImporter.ImportReport importAssets(HttpServletRequest request,
+                                                  @RequestParam(defaultValue = "csv") String format,
+                                                  @RequestParam(defaultValue = "create") String operation,
+                                                  @RequestParam(required = false) String jobId,
+                                                  @RequestParam(required = false) Integer parallelism) throws IOException {
+        ContractRouter.Target target = target();
+        try (Reader input = new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8)) {
+            return importAssets(target, input, BulkImporter.Format.of(format), operation,
+                    jobId != null ? jobId : UUID.randomUUID().toString(),
+                    parallelism != null ? parallelism : bulkImporter.getDefaultParallelism());
+        }
+    }
+
+    /**
+     * REST endpoint to start an import in the background, as for /import but answering as soon as
+     * the request body has been received. The body is copied to disk first, so the request thread
+     * is only held for the upload, and the import then runs on a background thread.
+     *
+     * @return 202 with the job status, with a Location header pointing to {@code /import/{jobId}}.
+     */
+    @PostMapping(value = "/import", params = "async=true")
+    public ResponseEntity<Map<String, Object>> importAssetsAsync(HttpServletRequest request,
+                                                                 @RequestParam(defaultValue = "csv") String format,
+                                                                 @RequestParam(defaultValue = "create") String operation,
+                                                                 @RequestParam(required = false) String jobId,
+                                                                 @RequestParam(required = false) Integer parallelism) throws IOException {
+        ContractRouter.Target target = target();
+        String function = writeFunction(operation);
+        String id = jobId != null ? jobId : UUID.randomUUID().toString();
+        Map<String, Object> status;
+        try (InputStream input = request.getInputStream()) {
+            status = bulkImporter.start(id, input, BulkImporter.Format.of(format), function,
+                    parallelism != null ? parallelism : bulkImporter.getDefaultParallelism(),
+                    (assetId, fn, args) -> submitAndInvalidate(target, assetId, fn, args));
+        }
+        return ResponseEntity.accepted()
+                .location(URI.create(request.getRequestURI() + "/" + id))
+                .body(status);
+    }
+
+    /**
+     * REST endpoint to follow an import started with or without {@code async=true}.
+     *
+     * @param jobId The job ID of the import.
+     * @return The state (QUEUED, RUNNING, COMPLETED or FAILED) and row counts so far, with the
+     * report once the import has finished, or 404 if the job is unknown or no longer retained.
+     */
+    @GetMapping("/import/{jobId}")
+    public ResponseEntity<Map<String, Object>> getImportStatus(@PathVariable String jobId) {
+        return bulkImporter.getJobStatus(jobId)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Imports assets from a CSV or NDJSON stream into the default channel and chaincode, as for
+     * the /import endpoint. Used by the command line import runner.
+     *
+     * @param input       The input, read line by line.
+     * @param format      The input format.
+     * @param operation   Either "create" or "update".
+     * @param jobId       Names the progress journal.
+     * @param parallelism Maximum transactions in flight.
+     * @return The import report.
+     * @throws IOException if the input or journal cannot be read or written.
+     */
+    public BulkImporter.ImportReport importAssets(Reader input, BulkImporter.Format format, String operation,
+                                                  String jobId, int parallelism) throws IOException {
+        return importAssets(contractRouter.getDefault(), input, format, operation, jobId, parallelism);
+    }
+
+    private BulkImporter.ImportReport importAssets(ContractRouter.Target target, Reader input, BulkImporter.Format format,
+                                                   String operation, String jobId, int parallelism) throws IOException {
+        String function = writeFunction(operation);
+        return bulkImporter.run(jobId, input, format, function, parallelism,
+                (assetId, fn, args) -> submitAndInvalidate(target, assetId, fn, args));
+    }
+
+    /**
+     * Submits a write as {@link #submitTransaction} does and invalidates the cached asset once it commits.
+     */
+    private Status submitAndInvalidate(ContractRouter.Target target, String assetId, String function, String... args) throws GatewayException {
+        Status status = submitTransaction(target, assetId, function, args);
+        if (status.isSuccessful()) {
+            assetCache.invalidateAsset(assetId);
+        }
+        return status;
+    }
+
     /**
      * This method is called by Spring before the bean is destroyed (e.g., when the
-     * application shuts down). It ensures that the gRPC channel to the Fabric peer
-     * is gracefully shut down to release resources.
+     * application shuts down). It releases the batch worker pool; the gRPC channels
+     * to the Fabric peers are shut down by the PeerPool.
      */
     @PreDestroy
     public void shutdown() {
-        if (channel != null && !channel.isShutdown()) {
-            try {
-                channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
-                System.out.println("gRPC channel shut down successfully.");
-            } catch (InterruptedException e) {
-                System.err.println("Failed to shut down gRPC channel: " + e.getMessage());
-                Thread.currentThread().interrupt(); // Restore the interrupted status
-            }
+        if (startupThread != null) {
+            startupThread.interrupt();
+        }
+        if (batchExecutor != null) {
+            batchExecutor.shutdownNow();
         }
     }
 
@@ -472,4 +1499,115 @@ public class AssetController {
         public String owner;
         public int appraisedValue;
     }
+
+    /**
+     * Result of a single item of a batch request.
+     * The status is one of COMMITTED, ENDORSEMENT_FAILED, SUBMIT_FAILED,
+     * COMMIT_STATUS_UNKNOWN, MVCC_CONFLICT or INVALID.
+     */
+    static class BatchItemResult {
+        public String assetID;
+        public String transactionId;
+        public String status;
+        public String message;
+
+        static BatchItemResult fromStatus(String assetId, Status status) {
+            BatchItemResult result = new BatchItemResult();
+            result.assetID = assetId;
+            result.transactionId = status.getTransactionId();
+            if (status.isSuccessful()) {
+                result.status = "COMMITTED";
+                result.message = "Committed in block " + status.getBlockNumber();
+            } else {
+                TxValidationCode code = status.getCode();
+                result.status = WriteScheduler.isReadConflict(code) ? "MVCC_CONFLICT" : "INVALID";
+                result.message = "Transaction invalidated with code " + code + " in block " + status.getBlockNumber();
+            }
+            return result;
+        }
+
+        static BatchItemResult failed(String assetId, Throwable error) {
+            BatchItemResult result = new BatchItemResult();
+            result.assetID = assetId;
+            result.message = error.getMessage();
+            if (error instanceof EndorseException ee) {
+                result.status = "ENDORSEMENT_FAILED";
+                result.transactionId = ee.getTransactionId();
+                result.message += " Details: " + ee.getDetails();
+            } else if (error instanceof SubmitException se) {
+                result.status = "SUBMIT_FAILED";
+                result.transactionId = se.getTransactionId();
+            } else if (error instanceof CommitStatusException cse) {
+                result.status = "COMMIT_STATUS_UNKNOWN";
+                result.transactionId = cse.getTransactionId();
+            } else if (error instanceof AdmissionRejectedException) {
+                result.status = "REJECTED";
+            } else {
+                result.status = "SUBMIT_FAILED";
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Status of a transaction submitted in async mode.
+     * The status is one of PENDING, COMMITTED, INVALID or UNKNOWN (commit status could not be obtained).
+     */
+    static class TransactionStatusResponse {
+        public String transactionId;
+        public String function;
+        public String submittedAt;
+        public String status;
+        public Long blockNumber;
+        public String validationCode;
+        public String message;
+
+        static TransactionStatusResponse of(TrackedTransaction tracked) {
+            TransactionStatusResponse response = new TransactionStatusResponse();
+            response.transactionId = tracked.getTransactionId();
+            response.function = tracked.getFunction();
+            response.submittedAt = tracked.getSubmittedAt().toString();
+            CompletableFuture<Status> future = tracked.getFuture();
+            if (!future.isDone()) {
+                response.status = "PENDING";
+            } else if (future.isCompletedExceptionally()) {
+                response.status = "UNKNOWN";
+                response.message = future.handle((status, error) -> unwrap(error).getMessage()).join();
+            } else {
+                Status status = future.join();
+                response.status = status.isSuccessful() ? "COMMITTED" : "INVALID";
+                response.blockNumber = status.getBlockNumber();
+                response.validationCode = status.getCode().name();
+            }
+            return response;
+        }
+    }
+
+    /**
+     * Status of a write request accepted in durable mode.
+     * The status is one of PENDING, COMMITTED or FAILED (rejected by the chaincode or invalidated).
+     */
+    static class JournalEntryResponse {
+        public long requestId;
+        public String function;
+        public String assetID;
+        public String acceptedAt;
+        public String status;
+        public int attempts;
+        public String transactionId;
+        public String message;
+
+        static JournalEntryResponse of(WriteAheadLog.Entry entry) {
+            JournalEntryResponse response = new JournalEntryResponse();
+            response.requestId = entry.getId();
+            response.function = entry.getFunction();
+            response.assetID = entry.getAssetId();
+            response.acceptedAt = entry.getAcceptedAt().toString();
+            response.status = entry.getStatus();
+            response.attempts = entry.getAttempts();
+            response.transactionId = entry.getTransactionId();
+            response.message = entry.getMessage();
+            return response;
+        }
+    }
 }
@@ -0,0 +1,140 @@
+package com.example.fabnew.controller;
+
+import com.example.fabnew.fabric.BlockArchive;
+import com.example.fabnew.fabric.BlockArchiver;
+import com.example.fabnew.fabric.BlockDecoder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.hyperledger.fabric.protos.peer.TxValidationCode;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * LedgerController serves blocks from the local block archive, so audit and history queries do
+ * not have to be answered by a peer. Archiving is enabled with {@code fabric.archive.enabled=true}.
+ */
+@RestController
+@RequestMapping("/api/ledger")
+public class LedgerController {
+
+    // Media type of newline-delimited JSON responses (one block per line).
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final BlockArchiver blockArchiver;
+
+    public LedgerController(BlockArchiver blockArchiver) {
+        this.blockArchiver = blockArchiver;
+    }
+
+    /**
+     * REST endpoint streaming a range of archived blocks.
+     * <ul>
+     *     <li>{@code format=json} (default): one JSON object per block and line, listing its endorser
+     *     transactions with their validation code and their writes to the given chaincode.</li>
+     *     <li>{@code format=raw}: the archive records exactly as stored (deflated Block protobufs),
+     *     copied from the memory-mapped segments without decoding. The result can be replayed with
+     *     {@code BlockReplay --export=<file>}.</li>
+     * </ul>
+     *
+     * @param from      The first block.
+     * @param to        The last block (inclusive); defaults to the last archived block.
+     * @param format    Either "json" or "raw".
+     * @param chaincode The chaincode whose writes are listed in the JSON format.
+     * @return The blocks, or 404 if the archive is not enabled.
+     */
+    @GetMapping("/blocks")
+    public ResponseEntity<?> getBlocks(@RequestParam long from,
+                                       @RequestParam(required = false) Long to,
+                                       @RequestParam(defaultValue = "json") String format,
+                                       @RequestParam(defaultValue = "basic") String chaincode) {
+        Optional<BlockArchive> archive = blockArchiver.getArchive();
+        if (archive.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Block archive is not enabled (fabric.archive.enabled)");
+        }
+        long last = to != null ? to : archive.get().getLastBlock();
+        if (from < 0 || from > last) {
+            throw new IllegalArgumentException("Invalid block range " + from + " to " + last);
+        }
+        BlockArchive blocks = archive.get();
+
+        if ("raw".equalsIgnoreCase(format)) {
+            StreamingResponseBody body = out -> {
+                WritableByteChannel channel = Channels.newChannel(out);
+                blocks.forEachRecord(from, last, (number, record) -> {
+                    while (record.hasRemaining()) {
+                        channel.write(record);
+                    }
+                });
+                out.flush();
+            };
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"blocks-" + from + "-" + last + ".bin\"")
+                    .body(body);
+        }
+        if (!"json".equalsIgnoreCase(format)) {
+            throw new IllegalArgumentException("Unsupported format: " + format + ". Expected json or raw");
+        }
+        StreamingResponseBody body = out -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            blocks.forEachBlock(from, last, block -> {
+                JsonObject json = new JsonObject();
+                json.addProperty("blockNumber", block.getHeader().getNumber());
+                JsonArray transactions = new JsonArray();
+                for (BlockDecoder.TransactionWrites transaction : BlockDecoder.decode(block, chaincode)) {
+                    transactions.add(toJson(transaction));
+                }
+                json.add("transactions", transactions);
+                writer.write(json.toString());
+                writer.write('\n');
+            });
+            writer.flush();
+        };
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
+    }
+
+    /**
+     * REST endpoint exposing the archived block range and the archive's size on disk.
+     *
+     * @return The archive status.
+     */
+    @GetMapping("/archive/status")
+    public Map<String, Object> getArchiveStatus() {
+        return blockArchiver.getStatus();
+    }
+
+    private static JsonObject toJson(BlockDecoder.TransactionWrites transaction) {
+        JsonObject json = new JsonObject();
+        json.addProperty("transactionId", transaction.transactionId());
+        TxValidationCode code = TxValidationCode.forNumber(transaction.validationCode());
+        json.addProperty("validationCode", code != null ? code.name() : String.valueOf(transaction.validationCode()));
+        json.addProperty("valid", transaction.isValid());
+        json.addProperty("timestamp", transaction.timestampSeconds());
+        JsonArray writes = new JsonArray();
+        for (BlockDecoder.KeyWrite write : transaction.writes()) {
+            JsonObject writeJson = new JsonObject();
+            writeJson.addProperty("key", write.key());
+            writeJson.addProperty("delete", write.delete());
+            writeJson.add("value", write.valueAsJson());
+            writes.add(writeJson);
+        }
+        json.add("writes", writes);
+        return json;
+    }
+}
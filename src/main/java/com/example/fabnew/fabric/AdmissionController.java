@@ -0,0 +1,229 @@
+package com.example.fabnew.fabric;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * AdmissionController bounds the number of concurrent Fabric calls so that a slow peer
+ * causes fast, explicit rejections instead of an unbounded pile-up of blocked threads.
+ * <p>
+ * Evaluates and submits have separate concurrency limits. A caller that cannot start
+ * immediately waits in a bounded queue for up to {@code fabric.admission.queueTimeout};
+ * if the queue is already full it is rejected straight away with 429, and if the wait
+ * times out it is rejected with 503. Both carry a Retry-After hint.
+ * <p>
+ * The {@code fabric.admission.*} limits form the default bulkhead. Each routed channel and
+ * chaincode target can get its own {@link Bulkhead}, so a slow chaincode only exhausts its own slots.
+ */
+@Component
+public class AdmissionController {
+
+    @Value("${fabric.admission.enabled:true}")
+    private boolean enabled;
+
+    @Value("${fabric.admission.retryAfter:PT1S}")
+    private Duration retryAfter;
+
+    @Value("${fabric.admission.queueTimeout:PT2S}")
+    private Duration queueTimeout;
+
+    private final Bulkhead defaultBulkhead;
+    private final Map<String, Bulkhead> targetBulkheads = new LinkedHashMap<>();
+
+    public AdmissionController(@Value("${fabric.admission.evaluate.maxConcurrent:64}") int evaluateMaxConcurrent,
+                               @Value("${fabric.admission.evaluate.maxQueued:256}") int evaluateMaxQueued,
+                               @Value("${fabric.admission.submit.maxConcurrent:32}") int submitMaxConcurrent,
+                               @Value("${fabric.admission.submit.maxQueued:128}") int submitMaxQueued) {
+        this.defaultBulkhead = new Bulkhead(null, evaluateMaxConcurrent, evaluateMaxQueued, submitMaxConcurrent, submitMaxQueued);
+    }
+
+    /**
+     * A granted admission; closing it releases the slot.
+     */
+    public interface Permit extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    /**
+     * Admits an evaluate (query) call.
+     *
+     * @return The permit, to be closed when the call completes.
+     * @throws AdmissionRejectedException if the evaluate lane is overloaded.
+     */
+    public Permit admitEvaluate() {
+        return defaultBulkhead.admitEvaluate();
+    }
+
+    /**
+     * Admits a submit (endorse, order and commit) call.
+     *
+     * @return The permit, to be closed when the call completes.
+     * @throws AdmissionRejectedException if the submit lane is overloaded.
+     */
+    public Permit admitSubmit() {
+        return defaultBulkhead.admitSubmit();
+    }
+
+    /**
+     * @return The bulkhead made of the fabric.admission.* lanes, used by {@link #admitEvaluate} and {@link #admitSubmit}.
+     */
+    public Bulkhead getDefaultBulkhead() {
+        return defaultBulkhead;
+    }
+
+    /**
+     * Creates a separate pair of evaluate and submit lanes for one channel and chaincode target.
+     *
+     * @param name                  The target, used in rejection messages and the status.
+     * @param evaluateMaxConcurrent Concurrent evaluates.
+     * @param evaluateMaxQueued     Evaluates waiting for a slot.
+     * @param submitMaxConcurrent   Concurrent submits.
+     * @param submitMaxQueued       Submits waiting for a slot.
+     * @return The bulkhead.
+     */
+    public synchronized Bulkhead newBulkhead(String name, int evaluateMaxConcurrent, int evaluateMaxQueued,
+                                             int submitMaxConcurrent, int submitMaxQueued) {
+        Bulkhead bulkhead = new Bulkhead(name, evaluateMaxConcurrent, evaluateMaxQueued, submitMaxConcurrent, submitMaxQueued);
+        targetBulkheads.put(name, bulkhead);
+        return bulkhead;
+    }
+
+    private Permit admit(Lane lane) {
+        if (!enabled) {
+            return () -> { };
+        }
+        if (!lane.slots.tryAcquire()) {
+            if (lane.queued.incrementAndGet() > lane.maxQueued) {
+                lane.queued.decrementAndGet();
+                lane.rejectedQueueFull.incrementAndGet();
+                throw new AdmissionRejectedException("Too many " + lane.description + " requests queued", HttpStatus.TOO_MANY_REQUESTS, retryAfterSeconds());
+            }
+            try {
+                if (!lane.slots.tryAcquire(queueTimeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                    lane.rejectedTimeout.incrementAndGet();
+                    throw new AdmissionRejectedException("Timed out waiting for a " + lane.description + " slot", HttpStatus.SERVICE_UNAVAILABLE, retryAfterSeconds());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AdmissionRejectedException("Interrupted waiting for a " + lane.description + " slot", HttpStatus.SERVICE_UNAVAILABLE, retryAfterSeconds());
+            } finally {
+                lane.queued.decrementAndGet();
+            }
+        }
+        lane.admitted.incrementAndGet();
+        return new Permit() {
+            private boolean released;
+
+            @Override
+            public void close() {
+                if (!released) {
+                    released = true;
+                    lane.slots.release();
+                }
+            }
+        };
+    }
+
+    private long retryAfterSeconds() {
+        return Math.max(1, (retryAfter.toMillis() + 999) / 1000);
+    }
+
+    /**
+     * @return In-flight, queued, admitted and rejected counts per lane, for the default and every target bulkhead.
+     */
+    public synchronized Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", enabled);
+        status.putAll(defaultBulkhead.status());
+        if (!targetBulkheads.isEmpty()) {
+            Map<String, Object> targets = new LinkedHashMap<>();
+            targetBulkheads.forEach((name, bulkhead) -> targets.put(name, bulkhead.status()));
+            status.put("targets", targets);
+        }
+        return status;
+    }
+
+    /**
+     * An isolated pair of evaluate and submit lanes.
+     */
+    public class Bulkhead {
+        private final Lane evaluateLane;
+        private final Lane submitLane;
+
+        private Bulkhead(String target, int evaluateMaxConcurrent, int evaluateMaxQueued, int submitMaxConcurrent, int submitMaxQueued) {
+            this.evaluateLane = new Lane("evaluate", target, evaluateMaxConcurrent, evaluateMaxQueued);
+            this.submitLane = new Lane("submit", target, submitMaxConcurrent, submitMaxQueued);
+        }
+
+        /**
+         * Admits an evaluate (query) call.
+         *
+         * @return The permit, to be closed when the call completes.
+         * @throws AdmissionRejectedException if the evaluate lane is overloaded.
+         */
+        public Permit admitEvaluate() {
+            return admit(evaluateLane);
+        }
+
+        /**
+         * Admits a submit (endorse, order and commit) call.
+         *
+         * @return The permit, to be closed when the call completes.
+         * @throws AdmissionRejectedException if the submit lane is overloaded.
+         */
+        public Permit admitSubmit() {
+            return admit(submitLane);
+        }
+
+        private Map<String, Object> status() {
+            Map<String, Object> status = new LinkedHashMap<>();
+            status.put(evaluateLane.name, evaluateLane.status());
+            status.put(submitLane.name, submitLane.status());
+            return status;
+        }
+    }
+
+    /**
+     * Concurrency limit and wait queue for one kind of call.
+     */
+    private static class Lane {
+        private final String name;
+        private final String description;
+        private final int maxConcurrent;
+        private final int maxQueued;
+        private final Semaphore slots;
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicLong admitted = new AtomicLong();
+        private final AtomicLong rejectedQueueFull = new AtomicLong();
+        private final AtomicLong rejectedTimeout = new AtomicLong();
+
+        Lane(String name, String target, int maxConcurrent, int maxQueued) {
+            this.name = name;
+            this.description = target != null ? target + " " + name : name;
+            this.maxConcurrent = maxConcurrent;
+            this.maxQueued = maxQueued;
+            this.slots = new Semaphore(maxConcurrent, true);
+        }
+
+        Map<String, Object> status() {
+            Map<String, Object> status = new LinkedHashMap<>();
+            status.put("maxConcurrent", maxConcurrent);
+            status.put("inFlight", maxConcurrent - slots.availablePermits());
+            status.put("queued", queued.get());
+            status.put("admitted", admitted.get());
+            status.put("rejectedQueueFull", rejectedQueueFull.get());
+            status.put("rejectedTimeout", rejectedTimeout.get());
+            return status;
+        }
+    }
+}
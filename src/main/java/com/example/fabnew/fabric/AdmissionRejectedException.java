@@ -0,0 +1,28 @@
+package com.example.fabnew.fabric;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * Thrown when the {@link AdmissionController} rejects a Fabric call because the service is
+ * overloaded. Mapped to 429 (wait queue full) or 503 (queue wait timed out) with a
+ * Retry-After header; also thrown with 409 when an async write finds its asset still being written.
+ */
+public class AdmissionRejectedException extends RuntimeException {
+
+    private final HttpStatus status;
+    private final long retryAfterSeconds;
+
+    public AdmissionRejectedException(String message, HttpStatus status, long retryAfterSeconds) {
+        super(message);
+        this.status = status;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public HttpStatus getStatus() {
+        return status;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,284 @@
+package com.example.fabnew.fabric;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import jakarta.annotation.PreDestroy;
+import org.hyperledger.fabric.client.ChaincodeEvent;
+import org.hyperledger.fabric.client.CloseableIterator;
+import org.hyperledger.fabric.client.GatewayException;
+import org.hyperledger.fabric.client.Network;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * AssetCache is a bounded read-through cache for the results of the ReadAsset and
+ * GetAllAssets chaincode queries.
+ * <p>
+ * Entries are evicted least-recently-used once {@code fabric.cache.maxEntries} is reached,
+ * and expire after {@code fabric.cache.ttl}. The cache is kept correct by listening to the
+ * chaincode events of the asset chaincode: an event whose payload identifies an asset
+ * (a JSON object with an ID field, or a plain asset ID) invalidates that asset and the
+ * cached GetAllAssets result; any other event invalidates everything. Writes made through
+ * this service also invalidate the affected asset immediately.
+ * <p>
+ * While the event listener is not connected the cache is bypassed, because changes made
+ * in that window would not be seen.
+ */
+@Component
+public class AssetCache {
+
+    // Cache key used for the GetAllAssets result.
+    private static final String ALL_ASSETS_KEY = "\u0000all";
+
+    @Value("${fabric.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${fabric.cache.maxEntries:10000}")
+    private int maxEntries;
+
+    @Value("${fabric.cache.ttl:PT5M}")
+    private Duration ttl;
+
+    // Counters exposed through getStats().
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    // Incremented on every invalidation. A loaded value is only stored if no invalidation
+    // happened while it was being fetched, so a stale read can never overwrite a newer one.
+    private final AtomicLong generation = new AtomicLong();
+
+    // Access-ordered map, guarded by its own monitor.
+    private final LinkedHashMap<String, CacheEntry> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+            if (size() > maxEntries) {
+                evictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    private volatile boolean listening;
+    private volatile boolean running;
+    private volatile CloseableIterator<ChaincodeEvent> events;
+    private Thread listenerThread;
+
+    /**
+     * Loads a value from the ledger on a cache miss.
+     */
+    @FunctionalInterface
+    public interface Loader {
+        byte[] load() throws GatewayException;
+    }
+
+    /**
+     * Returns the cached ReadAsset result for an asset, loading it from the ledger on a miss.
+     */
+    public byte[] readAsset(String assetId, Loader loader) throws GatewayException {
+        return readThrough(assetId, loader);
+    }
+
+    /**
+     * Returns the cached GetAllAssets result, loading it from the ledger on a miss.
+     */
+    public byte[] readAll(Loader loader) throws GatewayException {
+        return readThrough(ALL_ASSETS_KEY, loader);
+    }
+
+    private byte[] readThrough(String key, Loader loader) throws GatewayException {
+        if (!enabled || !listening) {
+            return loader.load();
+        }
+        synchronized (entries) {
+            CacheEntry entry = entries.get(key);
+            if (entry != null) {
+                if (entry.expiresAtNanos - System.nanoTime() > 0) {
+                    hits.incrementAndGet();
+                    return entry.value;
+                }
+                entries.remove(key);
+                evictions.incrementAndGet();
+            }
+        }
+        misses.incrementAndGet();
+        long loadGeneration = generation.get();
+        byte[] value = loader.load();
+        synchronized (entries) {
+            if (generation.get() == loadGeneration) {
+                entries.put(key, new CacheEntry(value, System.nanoTime() + ttl.toNanos()));
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Invalidates a single asset together with the cached GetAllAssets result.
+     */
+    public void invalidateAsset(String assetId) {
+        synchronized (entries) {
+            generation.incrementAndGet();
+            entries.remove(assetId);
+            entries.remove(ALL_ASSETS_KEY);
+        }
+        invalidations.incrementAndGet();
+    }
+
+    /**
+     * Invalidates every cached entry.
+     */
+    public void invalidateAll() {
+        synchronized (entries) {
+            generation.incrementAndGet();
+            entries.clear();
+        }
+        invalidations.incrementAndGet();
+    }
+
+    /**
+     * Starts the background chaincode event listener that keeps the cache consistent with the ledger.
+     * Until the listener is connected, reads bypass the cache.
+     *
+     * @param network       Supplies the network (channel) the chaincode is deployed on, resolved again on every reconnect.
+     * @param chaincodeName The name of the asset chaincode whose events invalidate the cache.
+     */
+    public synchronized void start(Supplier<Network> network, String chaincodeName) {
+        if (!enabled || running) {
+            return;
+        }
+        running = true;
+        listenerThread = new Thread(() -> listen(network, chaincodeName), "asset-cache-events");
+        listenerThread.setDaemon(true);
+        listenerThread.start();
+    }
+
+    /**
+     * Reads chaincode events until stopped, reconnecting from the last seen block on failure.
+     */
+    private void listen(Supplier<Network> network, String chaincodeName) {
+        long nextBlock = -1;
+        while (running) {
+            try {
+                var request = network.get().newChaincodeEventsRequest(chaincodeName);
+                if (nextBlock >= 0) {
+                    request.startBlock(nextBlock);
+                }
+                events = request.build().getEvents();
+                // Anything may have changed while disconnected.
+                invalidateAll();
+                listening = true;
+                System.out.println("Asset cache listening for chaincode events of " + chaincodeName);
+                while (events.hasNext()) {
+                    ChaincodeEvent event = events.next();
+                    nextBlock = event.getBlockNumber();
+                    onEvent(event);
+                }
+            } catch (RuntimeException e) {
+                if (running) {
+                    System.err.println("Asset cache event stream failed, reconnecting: " + e.getMessage());
+                }
+            } finally {
+                listening = false;
+                closeEvents();
+            }
+            sleepBeforeReconnect();
+        }
+    }
+
+    private void onEvent(ChaincodeEvent event) {
+        String assetId = assetIdFromPayload(event.getPayload());
+        if (assetId != null) {
+            invalidateAsset(assetId);
+        } else {
+            invalidateAll();
+        }
+    }
+
+    /**
+     * Extracts the asset ID from a chaincode event payload, which is either the asset JSON
+     * or the plain asset ID.
+     *
+     * @return The asset ID, or null if it cannot be determined.
+     */
+    private static String assetIdFromPayload(byte[] payload) {
+        String text = new String(payload, StandardCharsets.UTF_8).trim();
+        if (text.isEmpty()) {
+            return null;
+        }
+        try {
+            JsonElement json = JsonParser.parseString(text);
+            if (json.isJsonObject()) {
+                JsonObject object = json.getAsJsonObject();
+                for (String field : new String[] {"ID", "AssetID", "assetID", "id"}) {
+                    if (object.has(field) && object.get(field).isJsonPrimitive()) {
+                        return object.get(field).getAsString();
+                    }
+                }
+                return null;
+            }
+            return json.isJsonPrimitive() ? json.getAsString() : null;
+        } catch (RuntimeException e) {
+            return text;
+        }
+    }
+
+    private void sleepBeforeReconnect() {
+        if (!running) {
+            return;
+        }
+        try {
+            TimeUnit.SECONDS.sleep(5);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    private void closeEvents() {
+        CloseableIterator<ChaincodeEvent> current = events;
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    /**
+     * @return Hit, miss, eviction and invalidation counters, plus the current size.
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("listening", listening);
+        synchronized (entries) {
+            stats.put("size", entries.size());
+        }
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("evictions", evictions.get());
+        stats.put("invalidations", invalidations.get());
+        return stats;
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        running = false;
+        listening = false;
+        closeEvents();
+        if (listenerThread != null) {
+            listenerThread.interrupt();
+        }
+    }
+
+    private record CacheEntry(byte[] value, long expiresAtNanos) {
+    }
+}
@@ -0,0 +1,253 @@
+package com.example.fabnew.fabric;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+
+/**
+ * AssetStore is a small on-disk key/value store holding the latest value of every asset key.
+ * <p>
+ * Values are appended to a single log file as records of
+ * {@code [int keyLength][int valueLength][key][value]}, where a value length of -1 marks a
+ * delete. An in-memory, key-ordered index maps each live key to the offset of its latest
+ * record; it is rebuilt at open time by scanning the log through memory-mapped windows. Reads are
+ * positional, so they never contend with the single appending writer.
+ * <p>
+ * When more than half of the log is made up of overwritten or deleted records, the log is
+ * compacted into a new file containing only the live records.
+ */
+public class AssetStore implements Closeable {
+
+    private static final String LOG_FILE = "assets.log";
+    private static final int RECORD_HEADER_SIZE = 8;
+    // Logs smaller than this are never compacted.
+    private static final long MIN_COMPACTION_SIZE = 16L * 1024 * 1024;
+    // Size of the memory-mapped window used to scan the log when rebuilding the index.
+    private static final long SCAN_WINDOW_SIZE = 64L * 1024 * 1024;
+
+    private final Path directory;
+    private final NavigableMap<String, Long> index = new ConcurrentSkipListMap<>();
+    // Guards swapping the log file during compaction; appends and reads share the lock.
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private FileChannel log;
+    private long liveBytes;
+
+    /**
+     * Opens (or creates) the store in the given directory and rebuilds the index from the log.
+     *
+     * @param directory The directory holding the store files.
+     * @throws IOException if the log cannot be opened or read.
+     */
+    public AssetStore(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+        this.log = FileChannel.open(directory.resolve(LOG_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        rebuildIndex();
+    }
+
+    /**
+     * Scans the log and records the offset of the latest record for every key.
+     * A truncated record at the end of the log (from a crash mid-append) is discarded.
+     */
+    private void rebuildIndex() throws IOException {
+        long size = log.size();
+        long position = 0;
+        long windowStart = 0;
+        MappedByteBuffer window = null;
+        while (position + RECORD_HEADER_SIZE <= size) {
+            if (window == null || position + RECORD_HEADER_SIZE > windowStart + window.limit()) {
+                windowStart = position;
+                window = log.map(FileChannel.MapMode.READ_ONLY, windowStart, Math.min(SCAN_WINDOW_SIZE, size - windowStart));
+            }
+            window.position((int) (position - windowStart));
+            int keyLength = window.getInt();
+            int valueLength = window.getInt();
+            long recordSize = RECORD_HEADER_SIZE + (long) keyLength + Math.max(valueLength, 0);
+            if (keyLength <= 0 || position + recordSize > size) {
+                break;
+            }
+            if (window.remaining() < keyLength) {
+                // The key straddles the end of the mapped window; remap starting at this record.
+                windowStart = position;
+                window = log.map(FileChannel.MapMode.READ_ONLY, windowStart, Math.min(SCAN_WINDOW_SIZE, size - windowStart));
+                window.position(RECORD_HEADER_SIZE);
+            }
+            byte[] key = new byte[keyLength];
+            window.get(key);
+            applyToIndex(new String(key, StandardCharsets.UTF_8), valueLength < 0, position, recordSize);
+            position += recordSize;
+        }
+        if (position < size) {
+            System.err.println("Discarding " + (size - position) + " trailing bytes of incomplete record in " + directory.resolve(LOG_FILE));
+            log.truncate(position);
+        }
+    }
+
+    private void applyToIndex(String key, boolean delete, long offset, long recordSize) {
+        Long previous = delete ? index.remove(key) : index.put(key, offset);
+        if (previous != null) {
+            liveBytes -= recordSizeAt(previous);
+        }
+        if (!delete) {
+            liveBytes += recordSize;
+        }
+    }
+
+    /**
+     * Appends a batch of writes and forces them to disk.
+     *
+     * @param writes The key writes to apply, in order.
+     * @throws IOException if the writes cannot be persisted.
+     */
+    public void apply(List<BlockDecoder.KeyWrite> writes) throws IOException {
+        if (writes.isEmpty()) {
+            return;
+        }
+        lock.readLock().lock();
+        try {
+            long position = log.size();
+            for (BlockDecoder.KeyWrite write : writes) {
+                byte[] key = write.key().getBytes(StandardCharsets.UTF_8);
+                byte[] value = write.delete() ? new byte[0] : write.value();
+                ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + key.length + value.length);
+                record.putInt(key.length).putInt(write.delete() ? -1 : value.length).put(key).put(value).flip();
+                long offset = position;
+                while (record.hasRemaining()) {
+                    position += log.write(record, position);
+                }
+                applyToIndex(write.key(), write.delete(), offset, position - offset);
+            }
+            log.force(false);
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (shouldCompact()) {
+            compact();
+        }
+    }
+
+    /**
+     * Reads the latest value of a key.
+     *
+     * @return The value, or empty if the key does not exist or was deleted.
+     */
+    public Optional<byte[]> get(String key) throws IOException {
+        lock.readLock().lock();
+        try {
+            Long offset = index.get(key);
+            return offset == null ? Optional.empty() : Optional.of(readValue(offset));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Visits every live key and value in key order.
+     */
+    public void forEach(BiConsumer<String, byte[]> consumer) throws IOException {
+        lock.readLock().lock();
+        try {
+            for (Map.Entry<String, Long> entry : index.entrySet()) {
+                consumer.accept(entry.getKey(), readValue(entry.getValue()));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return The number of live keys.
+     */
+    public int size() {
+        return index.size();
+    }
+
+    private byte[] readValue(long offset) throws IOException {
+        ByteBuffer header = readFully(offset, RECORD_HEADER_SIZE);
+        int keyLength = header.getInt();
+        int valueLength = header.getInt();
+        return readFully(offset + RECORD_HEADER_SIZE + keyLength, valueLength).array();
+    }
+
+    private long recordSizeAt(long offset) {
+        try {
+            ByteBuffer header = readFully(offset, RECORD_HEADER_SIZE);
+            return RECORD_HEADER_SIZE + header.getInt() + Math.max(header.getInt(), 0);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private ByteBuffer readFully(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (log.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of " + directory.resolve(LOG_FILE) + " at offset " + position);
+            }
+        }
+        return buffer.flip();
+    }
+
+    private boolean shouldCompact() throws IOException {
+        long size = log.size();
+        return size > MIN_COMPACTION_SIZE && liveBytes < size / 2;
+    }
+
+    /**
+     * Rewrites the log with only the live records and atomically replaces the old one.
+     */
+    private void compact() throws IOException {
+        lock.writeLock().lock();
+        try {
+            Path compactedPath = directory.resolve(LOG_FILE + ".compact");
+            NavigableMap<String, Long> compactedIndex = new ConcurrentSkipListMap<>();
+            try (FileChannel compacted = FileChannel.open(compactedPath, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                long position = 0;
+                for (Map.Entry<String, Long> entry : index.entrySet()) {
+                    ByteBuffer record = readFully(entry.getValue(), (int) recordSizeAt(entry.getValue()));
+                    compactedIndex.put(entry.getKey(), position);
+                    while (record.hasRemaining()) {
+                        position += compacted.write(record, position);
+                    }
+                }
+                compacted.force(true);
+            }
+            log.close();
+            Files.move(compactedPath, directory.resolve(LOG_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log = FileChannel.open(directory.resolve(LOG_FILE), StandardOpenOption.READ, StandardOpenOption.WRITE);
+            index.clear();
+            index.putAll(compactedIndex);
+            liveBytes = log.size();
+            System.out.println("Compacted asset store to " + liveBytes + " bytes (" + index.size() + " keys)");
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            log.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
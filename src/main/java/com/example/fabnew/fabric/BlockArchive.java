@@ -0,0 +1,379 @@
+package com.example.fabnew.fabric;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import org.hyperledger.fabric.protos.common.Block;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * BlockArchive is an append-only, compressed, on-disk archive of a channel's blocks.
+ * <p>
+ * Blocks are stored in order in segment files ({@code segment-NNNNNN.blk}) as records of
+ * {@code [int compressedLength][int rawLength][deflated Block protobuf]}. A new segment is started
+ * once the current one would exceed the configured segment size. The index file
+ * ({@code blocks.idx}) holds the number of the first archived block followed by one fixed-size
+ * entry per block, {@code [int segment][int recordLength][long offset]}, so the location of any
+ * block is found with a single positional read and a range of blocks is read by memory-mapping
+ * the span of the segment holding it.
+ * <p>
+ * There is a single appending writer; readers may run concurrently. At open time a record or
+ * index entry torn by a crash mid-append is discarded, so the archive ends at the last complete block.
+ */
+public class BlockArchive implements Closeable {
+
+    private static final String INDEX_FILE = "blocks.idx";
+    private static final int INDEX_HEADER_SIZE = 8;
+    private static final int INDEX_ENTRY_SIZE = 16;
+    private static final int RECORD_HEADER_SIZE = 8;
+    // Index entries read at a time by range reads, so a long range does not load its whole index span.
+    private static final int INDEX_CHUNK_ENTRIES = 4096;
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final int compressionLevel;
+    private final boolean readOnly;
+    private final FileChannel index;
+    private final Map<Integer, FileChannel> segments = new ConcurrentHashMap<>();
+    private volatile long firstBlock = -1;
+    private volatile long blockCount;
+    private volatile int activeSegment;
+
+    /**
+     * Opens (or creates) the archive in the given directory, discarding any incomplete last block.
+     *
+     * @param directory        The directory holding the archive files.
+     * @param segmentBytes     Size after which a new segment file is started.
+     * @param compressionLevel Deflate level, 0-9.
+     * @throws IOException if the archive cannot be opened or recovered.
+     */
+    public BlockArchive(Path directory, long segmentBytes, int compressionLevel) throws IOException {
+        this(directory, segmentBytes, compressionLevel, false);
+    }
+
+    private BlockArchive(Path directory, long segmentBytes, int compressionLevel, boolean readOnly) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.compressionLevel = compressionLevel;
+        this.readOnly = readOnly;
+        if (readOnly) {
+            this.index = FileChannel.open(directory.resolve(INDEX_FILE), StandardOpenOption.READ);
+        } else {
+            Files.createDirectories(directory);
+            this.index = FileChannel.open(directory.resolve(INDEX_FILE),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+        recover();
+    }
+
+    /**
+     * Opens an existing archive for reading only, as used by offline tools. Nothing is modified,
+     * so this is safe while the service is still appending to the archive.
+     *
+     * @throws IOException if there is no archive in the directory.
+     */
+    public static BlockArchive openReadOnly(Path directory) throws IOException {
+        if (!Files.exists(directory.resolve(INDEX_FILE))) {
+            throw new IOException("No block archive in " + directory.toAbsolutePath());
+        }
+        return new BlockArchive(directory, Long.MAX_VALUE, Deflater.DEFAULT_COMPRESSION, true);
+    }
+
+    private void recover() throws IOException {
+        long size = index.size();
+        if (size < INDEX_HEADER_SIZE) {
+            if (!readOnly) {
+                index.truncate(0);
+            }
+            return;
+        }
+        ByteBuffer header = ByteBuffer.allocate(INDEX_HEADER_SIZE);
+        readFully(index, header, 0);
+        firstBlock = header.getLong(0);
+
+        long count = (size - INDEX_HEADER_SIZE) / INDEX_ENTRY_SIZE;
+        IndexEntry last = null;
+        while (count > 0) {
+            IndexEntry entry = readEntry(count - 1);
+            Path segmentPath = segmentPath(entry.segment);
+            if (Files.exists(segmentPath) && entry.offset + entry.length <= Files.size(segmentPath)) {
+                last = entry;
+                break;
+            }
+            count--;
+        }
+        blockCount = count;
+        activeSegment = last != null ? last.segment : 0;
+        if (!readOnly) {
+            // Drop a partly written record after the last indexed block, and any segment started after it.
+            index.truncate(INDEX_HEADER_SIZE + count * INDEX_ENTRY_SIZE);
+            segment(activeSegment).truncate(last != null ? last.offset + last.length : 0);
+            for (int next = activeSegment + 1; Files.exists(segmentPath(next)); next++) {
+                Files.delete(segmentPath(next));
+            }
+        }
+        if (count > 0) {
+            System.out.println("Block archive " + directory + " holds blocks " + firstBlock + " to " + getLastBlock());
+        }
+    }
+
+    /**
+     * @return The number of the first archived block, or -1 if the archive is empty.
+     */
+    public long getFirstBlock() {
+        return blockCount > 0 ? firstBlock : -1;
+    }
+
+    /**
+     * @return The number of the last archived block, or -1 if the archive is empty.
+     */
+    public long getLastBlock() {
+        long count = blockCount;
+        return count > 0 ? firstBlock + count - 1 : -1;
+    }
+
+    /**
+     * Appends the next block. A block that is already archived (redelivered after a reconnect) is ignored.
+     *
+     * @param block The block.
+     * @return true if the block was appended.
+     * @throws IOException if the block cannot be written.
+     * @throws IllegalStateException if the block does not follow the last archived block.
+     */
+    public synchronized boolean append(Block block) throws IOException {
+        if (readOnly) {
+            throw new IllegalStateException("Block archive " + directory + " is open read-only");
+        }
+        long number = block.getHeader().getNumber();
+        long last = getLastBlock();
+        if (blockCount > 0 && number <= last) {
+            return false;
+        }
+        if (blockCount > 0 && number != last + 1) {
+            throw new IllegalStateException("Block " + number + " does not follow archived block " + last);
+        }
+        if (blockCount == 0) {
+            ByteBuffer header = ByteBuffer.allocate(INDEX_HEADER_SIZE).putLong(0, number);
+            writeFully(index, header, 0);
+            firstBlock = number;
+        }
+
+        ByteBuffer record = compress(block.toByteArray());
+        FileChannel segment = segment(activeSegment);
+        if (segment.size() > 0 && segment.size() + record.remaining() > segmentBytes) {
+            segment.force(false);
+            activeSegment++;
+            segment = segment(activeSegment);
+        }
+        long offset = segment.size();
+        int length = record.remaining();
+        writeFully(segment, record, offset);
+        segment.force(false);
+
+        ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY_SIZE)
+                .putInt(0, activeSegment).putInt(4, length).putLong(8, offset);
+        writeFully(index, entry, INDEX_HEADER_SIZE + blockCount * INDEX_ENTRY_SIZE);
+        index.force(false);
+        blockCount++;
+        return true;
+    }
+
+    /**
+     * Receives archive records: one compressed block, as stored in a segment.
+     */
+    @FunctionalInterface
+    public interface RecordConsumer {
+        void accept(long blockNumber, ByteBuffer record) throws IOException;
+    }
+
+    /**
+     * Receives decoded blocks.
+     */
+    @FunctionalInterface
+    public interface BlockConsumer {
+        void accept(Block block) throws IOException;
+    }
+
+    /**
+     * Reads the stored records of a range of blocks, in order. The index is read in chunks of
+     * {@value #INDEX_CHUNK_ENTRIES} entries, and each contiguous run of blocks in a segment within a
+     * chunk is read through a single read-only memory mapping.
+     *
+     * @param from     The first block, clamped to the first archived block.
+     * @param to       The last block (inclusive), clamped to the last archived block.
+     * @param consumer Receives each record; the buffer is only valid during the call.
+     * @throws IOException if the archive cannot be read.
+     */
+    public void forEachRecord(long from, long to, RecordConsumer consumer) throws IOException {
+        long first = Math.max(from, getFirstBlock());
+        long last = Math.min(to, getLastBlock());
+        if (blockCount == 0 || first > last) {
+            return;
+        }
+        ByteBuffer entries = ByteBuffer.allocate((int) Math.min(INDEX_CHUNK_ENTRIES, last - first + 1) * INDEX_ENTRY_SIZE);
+        for (long chunkStart = first; chunkStart <= last; chunkStart += INDEX_CHUNK_ENTRIES) {
+            int total = (int) Math.min(INDEX_CHUNK_ENTRIES, last - chunkStart + 1);
+            entries.clear().limit(total * INDEX_ENTRY_SIZE);
+            readFully(index, entries, INDEX_HEADER_SIZE + (chunkStart - firstBlock) * INDEX_ENTRY_SIZE);
+
+            int runStart = 0;
+            while (runStart < total) {
+                int segment = entries.getInt(runStart * INDEX_ENTRY_SIZE);
+                int runEnd = runStart;
+                while (runEnd + 1 < total && entries.getInt((runEnd + 1) * INDEX_ENTRY_SIZE) == segment) {
+                    runEnd++;
+                }
+                long spanStart = entries.getLong(runStart * INDEX_ENTRY_SIZE + 8);
+                long spanEnd = entries.getLong(runEnd * INDEX_ENTRY_SIZE + 8) + entries.getInt(runEnd * INDEX_ENTRY_SIZE + 4);
+                MappedByteBuffer span = segment(segment).map(FileChannel.MapMode.READ_ONLY, spanStart, spanEnd - spanStart);
+                for (int i = runStart; i <= runEnd; i++) {
+                    long offset = entries.getLong(i * INDEX_ENTRY_SIZE + 8);
+                    int length = entries.getInt(i * INDEX_ENTRY_SIZE + 4);
+                    consumer.accept(chunkStart + i, span.slice((int) (offset - spanStart), length));
+                }
+                runStart = runEnd + 1;
+            }
+        }
+    }
+
+    /**
+     * Reads and decodes a range of blocks, in order.
+     *
+     * @see #forEachRecord(long, long, RecordConsumer)
+     */
+    public void forEachBlock(long from, long to, BlockConsumer consumer) throws IOException {
+        forEachRecord(from, to, (number, record) -> consumer.accept(decode(record)));
+    }
+
+    /**
+     * Compresses a serialized block into an archive record.
+     */
+    private ByteBuffer compress(byte[] raw) {
+        Deflater deflater = new Deflater(compressionLevel);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            byte[] buffer = new byte[Math.max(64, raw.length / 2)];
+            int length = 0;
+            while (!deflater.finished()) {
+                if (length == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+                length += deflater.deflate(buffer, length, buffer.length - length);
+            }
+            ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + length);
+            record.putInt(length).putInt(raw.length).put(buffer, 0, length).flip();
+            return record;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Decodes an archive record (as passed to a {@link RecordConsumer}, or read from an export) into a block.
+     *
+     * @param record The record, positioned at its header.
+     * @return The block.
+     * @throws IOException if the record is corrupt.
+     */
+    public static Block decode(ByteBuffer record) throws IOException {
+        int compressedLength = record.getInt(record.position());
+        int rawLength = record.getInt(record.position() + 4);
+        ByteBuffer compressed = record.slice(record.position() + RECORD_HEADER_SIZE, compressedLength);
+        byte[] raw = new byte[rawLength];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            int length = 0;
+            while (length < rawLength && !inflater.finished()) {
+                int inflated = inflater.inflate(raw, length, rawLength - length);
+                if (inflated == 0 && inflater.needsInput()) {
+                    break;
+                }
+                length += inflated;
+            }
+            if (length != rawLength) {
+                throw new IOException("Truncated block record: " + length + " of " + rawLength + " bytes");
+            }
+            return Block.parseFrom(raw);
+        } catch (DataFormatException | InvalidProtocolBufferException e) {
+            throw new IOException("Corrupt block record", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * @return The total size of the segment files in bytes.
+     */
+    public long getSizeBytes() throws IOException {
+        long size = 0;
+        for (int segment = 0; segment <= activeSegment; segment++) {
+            size += segment(segment).size();
+        }
+        return size;
+    }
+
+    private IndexEntry readEntry(long position) throws IOException {
+        ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY_SIZE);
+        readFully(index, entry, INDEX_HEADER_SIZE + position * INDEX_ENTRY_SIZE);
+        return new IndexEntry(entry.getInt(0), entry.getInt(4), entry.getLong(8));
+    }
+
+    private FileChannel segment(int segment) {
+        return segments.computeIfAbsent(segment, id -> {
+            try {
+                return readOnly
+                        ? FileChannel.open(segmentPath(id), StandardOpenOption.READ)
+                        : FileChannel.open(segmentPath(id), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private Path segmentPath(int segment) {
+        return directory.resolve(String.format("segment-%06d.blk", segment));
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("Unexpected end of block archive file");
+            }
+        }
+        buffer.flip();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long written = 0;
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer, position + written);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        for (FileChannel segment : segments.values()) {
+            segment.close();
+        }
+        index.close();
+    }
+
+    private record IndexEntry(int segment, int length, long offset) {
+    }
+}
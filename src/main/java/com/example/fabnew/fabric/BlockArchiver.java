@@ -0,0 +1,156 @@
+package com.example.fabnew.fabric;
+
+import jakarta.annotation.PreDestroy;
+import org.hyperledger.fabric.client.CloseableIterator;
+import org.hyperledger.fabric.client.Network;
+import org.hyperledger.fabric.protos.common.Block;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * BlockArchiver follows {@code Network.getBlockEvents()} and appends every block of the channel
+ * to a local {@link BlockArchive}, so block ranges and asset history can be served from local
+ * files instead of querying the peer.
+ * <p>
+ * Enabled with {@code fabric.archive.enabled=true}. The first run archives from
+ * {@code fabric.archive.startBlock} (genesis by default); afterwards, and after every reconnect,
+ * it resumes from the block after the last archived one.
+ */
+@Component
+public class BlockArchiver {
+
+    @Value("${fabric.archive.enabled:false}")
+    private boolean enabled;
+
+    @Value("${fabric.archive.directory:data/archive}")
+    private String directory;
+
+    @Value("${fabric.archive.startBlock:0}")
+    private long startBlock;
+
+    @Value("${fabric.archive.segmentBytes:268435456}")
+    private long segmentBytes;
+
+    @Value("${fabric.archive.compressionLevel:6}")
+    private int compressionLevel;
+
+    private volatile BlockArchive archive;
+    private volatile Instant lastArchivedAt;
+    private volatile boolean running;
+    private volatile CloseableIterator<Block> blocks;
+    private Thread archiverThread;
+
+    /**
+     * Opens the archive for the channel and starts following its blocks. Does nothing unless archiving is enabled.
+     *
+     * @param network     Supplies the network (channel) to follow, resolved again on every reconnect.
+     * @param channelName The channel, which names the archive directory.
+     * @throws IOException if the archive cannot be opened.
+     */
+    public synchronized void start(Supplier<Network> network, String channelName) throws IOException {
+        if (!enabled || running) {
+            return;
+        }
+        archive = new BlockArchive(Paths.get(directory).resolve(channelName), segmentBytes, compressionLevel);
+        running = true;
+        archiverThread = new Thread(() -> follow(network), "block-archiver");
+        archiverThread.setDaemon(true);
+        archiverThread.start();
+    }
+
+    /**
+     * Appends blocks until stopped, reconnecting from the block after the last archived one on failure.
+     */
+    private void follow(Supplier<Network> network) {
+        while (running) {
+            try {
+                long last = archive.getLastBlock();
+                blocks = network.get().newBlockEventsRequest()
+                        .startBlock(last >= 0 ? last + 1 : startBlock)
+                        .build()
+                        .getEvents();
+                while (blocks.hasNext()) {
+                    if (archive.append(blocks.next())) {
+                        lastArchivedAt = Instant.now();
+                    }
+                }
+            } catch (Exception e) {
+                if (running) {
+                    System.err.println("Block archiver stream failed, reconnecting: " + e.getMessage());
+                }
+            } finally {
+                closeBlocks();
+            }
+            if (running) {
+                try {
+                    TimeUnit.SECONDS.sleep(5);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    running = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The archive, or empty if archiving is disabled or has not started.
+     */
+    public Optional<BlockArchive> getArchive() {
+        return Optional.ofNullable(archive);
+    }
+
+    /**
+     * @return The archive's state: enabled flag, archived block range and size on disk.
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", enabled);
+        BlockArchive current = archive;
+        status.put("firstBlock", current != null ? current.getFirstBlock() : -1);
+        status.put("lastBlock", current != null ? current.getLastBlock() : -1);
+        status.put("lastArchivedAt", lastArchivedAt != null ? lastArchivedAt.toString() : null);
+        try {
+            status.put("sizeBytes", current != null ? current.getSizeBytes() : 0);
+        } catch (IOException e) {
+            status.put("sizeBytes", null);
+        }
+        return status;
+    }
+
+    private void closeBlocks() {
+        CloseableIterator<Block> current = blocks;
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        running = false;
+        closeBlocks();
+        if (archiverThread != null) {
+            archiverThread.interrupt();
+            try {
+                archiverThread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            if (archive != null) {
+                archive.close();
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to close block archive: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,379 @@
+package com.example.fabnew.fabric;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.hyperledger.fabric.client.CloseableIterator;
+import org.hyperledger.fabric.client.CommitStatusException;
+import org.hyperledger.fabric.client.FilteredBlockEventsRequest;
+import org.hyperledger.fabric.client.GatewayException;
+import org.hyperledger.fabric.client.Network;
+import org.hyperledger.fabric.client.Status;
+import org.hyperledger.fabric.client.SubmittedTransaction;
+import org.hyperledger.fabric.protos.common.Block;
+import org.hyperledger.fabric.protos.peer.FilteredBlock;
+import org.hyperledger.fabric.protos.peer.FilteredTransaction;
+import org.hyperledger.fabric.protos.peer.TxValidationCode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * BlockCommitTracker learns the commit status of submitted transactions from a single shared
+ * filtered block event stream, instead of one CommitStatus call (a long-lived server stream on
+ * the peer) per transaction.
+ * <p>
+ * Enabled with {@code fabric.commits.mode=blocks}. A follower thread records the validation code
+ * of every transaction ID in each block and completes the future registered for it, if any.
+ * Outcomes are retained for the last {@code fabric.commits.lookbackTransactions} transactions, so
+ * a transaction that commits before its submitter registers for it (a late registration) is still
+ * answered. After a stream failure the follower reconnects from the block after the last one it
+ * processed, so no transaction is missed across reconnects.
+ * <p>
+ * If no outcome arrives within {@code fabric.commits.blockEventTimeout}, or the stream has not
+ * been established yet, the status is requested with a CommitStatus call as before.
+ */
+@Component
+public class BlockCommitTracker {
+
+    @Value("${fabric.commits.mode:rpc}")
+    private String mode;
+
+    @Value("${fabric.commits.lookbackTransactions:50000}")
+    private int lookbackTransactions;
+
+    @Value("${fabric.commits.blockEventTimeout:PT30S}")
+    private Duration blockEventTimeout;
+
+    private final Map<String, CompletableFuture<Status>> pending = new ConcurrentHashMap<>();
+    private final Map<String, Status> seen = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Status> eldest) {
+            return size() > lookbackTransactions;
+        }
+    };
+    private final Counter fallbacks;
+    private volatile long lastBlock = -1;
+    private volatile Instant lastBlockAt;
+    private volatile boolean connected;
+    private volatile boolean running;
+    private volatile CloseableIterator<FilteredBlock> blocks;
+    private Thread followerThread;
+
+    public BlockCommitTracker(MeterRegistry registry) {
+        Gauge.builder("fabric.client.commits.pending", pending, Map::size)
+                .description("Submitted transactions waiting for their commit status from block events")
+                .register(registry);
+        this.fallbacks = Counter.builder("fabric.client.commits.fallback")
+                .description("Commit statuses requested with a CommitStatus call because no block event answered them")
+                .register(registry);
+    }
+
+    /**
+     * Starts following filtered block events for the channel. Does nothing unless block tracking is enabled.
+     *
+     * @param network Supplies the network (channel) to follow, resolved again on every reconnect.
+     */
+    public synchronized void start(Supplier<Network> network) {
+        if (!isEnabled() || running) {
+            return;
+        }
+        running = true;
+        followerThread = new Thread(() -> follow(network), "block-commit-tracker");
+        followerThread.setDaemon(true);
+        followerThread.start();
+    }
+
+    /**
+     * Waits for the commit status of a submitted transaction, from block events if they are being
+     * followed and otherwise (or if they do not answer in time) with a CommitStatus call.
+     *
+     * @param submitted The submitted transaction.
+     * @return The commit status.
+     * @throws CommitStatusException if the commit status cannot be obtained.
+     */
+    public Status getStatus(SubmittedTransaction submitted) throws CommitStatusException {
+        if (!isActive()) {
+            return submitted.getStatus();
+        }
+        String transactionId = submitted.getTransactionId();
+        CompletableFuture<Status> future = register(transactionId);
+        try {
+            return future.get(blockEventTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            System.err.println("No block event for transaction " + transactionId + " within " + blockEventTimeout
+                    + ", requesting its commit status");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            pending.remove(transactionId, future);
+        }
+        fallbacks.increment();
+        return submitted.getStatus();
+    }
+
+    /**
+     * Obtains the commit status of a submitted transaction as {@link #getStatus} does, without
+     * holding a thread while block events answer it: only the CommitStatus call made when they
+     * are not followed (or do not answer in time) runs on the given executor.
+     *
+     * @param submitted The submitted transaction.
+     * @param executor  Runs CommitStatus calls, which block until the transaction commits.
+     * @return A future completed with the commit status, or exceptionally with a CommitStatusException.
+     */
+    public CompletableFuture<Status> getStatusAsync(SubmittedTransaction submitted, Executor executor) {
+        if (!isActive()) {
+            return requestStatus(submitted, executor);
+        }
+        String transactionId = submitted.getTransactionId();
+        CompletableFuture<Status> future = register(transactionId);
+        return future.copy()
+                .orTimeout(blockEventTimeout.toNanos(), TimeUnit.NANOSECONDS)
+                .handle((status, error) -> {
+                    if (status != null) {
+                        return CompletableFuture.completedFuture(status);
+                    }
+                    pending.remove(transactionId, future);
+                    System.err.println("No block event for transaction " + transactionId + " within " + blockEventTimeout
+                            + ", requesting its commit status");
+                    fallbacks.increment();
+                    return requestStatus(submitted, executor);
+                })
+                .thenCompose(Function.identity());
+    }
+
+    private static CompletableFuture<Status> requestStatus(SubmittedTransaction submitted, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return submitted.getStatus();
+            } catch (CommitStatusException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Registers interest in a transaction's commit status.
+     *
+     * @param transactionId The transaction ID.
+     * @return A future completed with the status when the transaction is seen in a block, or
+     * immediately if it has already been seen.
+     */
+    public CompletableFuture<Status> register(String transactionId) {
+        CompletableFuture<Status> future = pending.computeIfAbsent(transactionId, id -> new CompletableFuture<>());
+        // The follower records a status before completing its future, so checking here after
+        // registering cannot miss a transaction that commits concurrently.
+        Status status = lookup(transactionId);
+        if (status != null) {
+            pending.remove(transactionId, future);
+            future.complete(status);
+        }
+        return future;
+    }
+
+    /**
+     * Looks up a transaction on the ledger, e.g. one whose commit status wait failed: from the
+     * retained block events if it was seen, otherwise with the query system chaincode
+     * ({@code qscc GetBlockByTxID}).
+     *
+     * @param network       The channel the transaction was submitted to.
+     * @param transactionId The transaction ID.
+     * @return The commit status, or empty if the ledger has no such transaction.
+     * @throws GatewayException if the query fails for another reason.
+     */
+    public Optional<Status> findStatus(Network network, String transactionId) throws GatewayException {
+        Status seenStatus = lookup(transactionId);
+        if (seenStatus != null) {
+            return Optional.of(seenStatus);
+        }
+        byte[] block;
+        try {
+            block = network.getContract("qscc").evaluateTransaction("GetBlockByTxID", network.getName(), transactionId);
+        } catch (GatewayException e) {
+            if (isNotFound(e)) {
+                return Optional.empty();
+            }
+            throw e;
+        }
+        try {
+            for (BlockDecoder.TransactionWrites transaction : BlockDecoder.decode(Block.parseFrom(block), "")) {
+                if (transaction.transactionId().equals(transactionId)) {
+                    TxValidationCode code = TxValidationCode.forNumber(transaction.validationCode());
+                    return Optional.of(new BlockStatus(transactionId, transaction.blockNumber(),
+                            code != null ? code : TxValidationCode.UNRECOGNIZED));
+                }
+            }
+        } catch (InvalidProtocolBufferException e) {
+            throw new IllegalStateException("Cannot decode the block of transaction " + transactionId, e);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * @return true if qscc failed because the ledger has no such transaction.
+     */
+    private static boolean isNotFound(GatewayException e) {
+        StringBuilder messages = new StringBuilder(String.valueOf(e.getMessage()));
+        e.getDetails().forEach(detail -> messages.append(' ').append(detail.getMessage()));
+        String text = messages.toString().toLowerCase(Locale.ROOT);
+        return text.contains("no such transaction id") || text.contains("not found");
+    }
+
+    private Status lookup(String transactionId) {
+        synchronized (seen) {
+            return seen.get(transactionId);
+        }
+    }
+
+    /**
+     * Processes blocks until stopped, reconnecting from the block after the last processed one on failure.
+     */
+    private void follow(Supplier<Network> network) {
+        while (running) {
+            try {
+                FilteredBlockEventsRequest.Builder builder = network.get().newFilteredBlockEventsRequest();
+                if (lastBlock >= 0) {
+                    builder = builder.startBlock(lastBlock + 1);
+                }
+                blocks = builder.build().getEvents();
+                connected = true;
+                System.out.println("Following block events for commit status from block "
+                        + (lastBlock >= 0 ? String.valueOf(lastBlock + 1) : "(next)"));
+                while (blocks.hasNext()) {
+                    processBlock(blocks.next());
+                }
+            } catch (Exception e) {
+                if (running) {
+                    System.err.println("Commit tracking block stream failed, reconnecting: " + e.getMessage());
+                }
+            } finally {
+                connected = false;
+                closeBlocks();
+            }
+            if (running) {
+                try {
+                    TimeUnit.SECONDS.sleep(1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    running = false;
+                }
+            }
+        }
+    }
+
+    private void processBlock(FilteredBlock block) {
+        long blockNumber = block.getNumber();
+        for (FilteredTransaction transaction : block.getFilteredTransactionsList()) {
+            String transactionId = transaction.getTxid();
+            if (transactionId.isEmpty()) {
+                continue;
+            }
+            Status status = new BlockStatus(transactionId, blockNumber, transaction.getTxValidationCode());
+            synchronized (seen) {
+                seen.put(transactionId, status);
+            }
+            CompletableFuture<Status> future = pending.remove(transactionId);
+            if (future != null) {
+                future.complete(status);
+            }
+        }
+        lastBlock = blockNumber;
+        lastBlockAt = Instant.now();
+    }
+
+    /**
+     * @return true if block tracking is configured.
+     */
+    public boolean isEnabled() {
+        return "blocks".equalsIgnoreCase(mode);
+    }
+
+    /**
+     * @return true if commit statuses are currently answered from block events: the stream is
+     * open, or is being reopened from a known block so no transaction will be missed.
+     */
+    private boolean isActive() {
+        return running && (connected || lastBlock >= 0);
+    }
+
+    /**
+     * @return The tracker's state: mode, stream state, last processed block and pending registrations.
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("mode", isEnabled() ? "blocks" : "rpc");
+        status.put("connected", connected);
+        status.put("lastBlock", lastBlock);
+        status.put("lastBlockAt", lastBlockAt != null ? lastBlockAt.toString() : null);
+        status.put("pending", pending.size());
+        synchronized (seen) {
+            status.put("retained", seen.size());
+        }
+        status.put("fallbacks", (long) fallbacks.count());
+        return status;
+    }
+
+    private void closeBlocks() {
+        CloseableIterator<FilteredBlock> current = blocks;
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        running = false;
+        closeBlocks();
+        if (followerThread != null) {
+            followerThread.interrupt();
+            try {
+                followerThread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * The commit status of a transaction as recorded in a filtered block.
+     */
+    private record BlockStatus(String transactionId, long blockNumber, TxValidationCode code) implements Status {
+
+        @Override
+        public String getTransactionId() {
+            return transactionId;
+        }
+
+        @Override
+        public long getBlockNumber() {
+            return blockNumber;
+        }
+
+        @Override
+        public TxValidationCode getCode() {
+            return code;
+        }
+
+        @Override
+        public boolean isSuccessful() {
+            return code == TxValidationCode.VALID;
+        }
+    }
+}
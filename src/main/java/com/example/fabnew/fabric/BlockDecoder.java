@@ -0,0 +1,128 @@
+package com.example.fabnew.fabric;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+import org.hyperledger.fabric.protos.common.Block;
+import org.hyperledger.fabric.protos.common.BlockMetadataIndex;
+import org.hyperledger.fabric.protos.common.ChannelHeader;
+import org.hyperledger.fabric.protos.common.Envelope;
+import org.hyperledger.fabric.protos.common.HeaderType;
+import org.hyperledger.fabric.protos.common.Payload;
+import org.hyperledger.fabric.protos.ledger.rwset.NsReadWriteSet;
+import org.hyperledger.fabric.protos.ledger.rwset.TxReadWriteSet;
+import org.hyperledger.fabric.protos.ledger.rwset.kvrwset.KVRWSet;
+import org.hyperledger.fabric.protos.ledger.rwset.kvrwset.KVWrite;
+import org.hyperledger.fabric.protos.peer.ChaincodeAction;
+import org.hyperledger.fabric.protos.peer.ChaincodeActionPayload;
+import org.hyperledger.fabric.protos.peer.ProposalResponsePayload;
+import org.hyperledger.fabric.protos.peer.Transaction;
+import org.hyperledger.fabric.protos.peer.TransactionAction;
+import org.hyperledger.fabric.protos.peer.TxValidationCode;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * BlockDecoder extracts the transactions and their key/value write sets from a full
+ * (unfiltered) block delivered by {@code Network.getBlockEvents()}.
+ * <p>
+ * Only endorser transactions are decoded; configuration transactions are skipped.
+ * The validation code of each transaction is taken from the block's transaction
+ * filter metadata, so callers can ignore writes of invalidated transactions.
+ */
+public final class BlockDecoder {
+
+    private BlockDecoder() {
+    }
+
+    /**
+     * Decodes the endorser transactions in a block, keeping only writes to the given chaincode namespace.
+     *
+     * @param block     The block to decode.
+     * @param namespace The chaincode name whose writes should be returned.
+     * @return The transactions in block order.
+     * @throws InvalidProtocolBufferException if the block content cannot be parsed.
+     */
+    public static List<TransactionWrites> decode(Block block, String namespace) throws InvalidProtocolBufferException {
+        long blockNumber = block.getHeader().getNumber();
+        ByteString validationFlags = block.getMetadata().getMetadata(BlockMetadataIndex.TRANSACTIONS_FILTER_VALUE);
+        List<ByteString> envelopes = block.getData().getDataList();
+
+        List<TransactionWrites> transactions = new ArrayList<>(envelopes.size());
+        for (int i = 0; i < envelopes.size(); i++) {
+            Envelope envelope = Envelope.parseFrom(envelopes.get(i));
+            Payload payload = Payload.parseFrom(envelope.getPayload());
+            ChannelHeader channelHeader = ChannelHeader.parseFrom(payload.getHeader().getChannelHeader());
+            if (channelHeader.getType() != HeaderType.ENDORSER_TRANSACTION_VALUE) {
+                continue;
+            }
+
+            int validationCode = i < validationFlags.size()
+                    ? Byte.toUnsignedInt(validationFlags.byteAt(i))
+                    : TxValidationCode.NOT_VALIDATED_VALUE;
+            List<KeyWrite> writes = new ArrayList<>();
+            Transaction transaction = Transaction.parseFrom(payload.getData());
+            for (TransactionAction action : transaction.getActionsList()) {
+                ChaincodeActionPayload actionPayload = ChaincodeActionPayload.parseFrom(action.getPayload());
+                ProposalResponsePayload responsePayload = ProposalResponsePayload.parseFrom(actionPayload.getAction().getProposalResponsePayload());
+                ChaincodeAction chaincodeAction = ChaincodeAction.parseFrom(responsePayload.getExtension());
+                TxReadWriteSet readWriteSet = TxReadWriteSet.parseFrom(chaincodeAction.getResults());
+                for (NsReadWriteSet nsReadWriteSet : readWriteSet.getNsRwsetList()) {
+                    if (!nsReadWriteSet.getNamespace().equals(namespace)) {
+                        continue;
+                    }
+                    KVRWSet kvReadWriteSet = KVRWSet.parseFrom(nsReadWriteSet.getRwset());
+                    for (KVWrite write : kvReadWriteSet.getWritesList()) {
+                        writes.add(new KeyWrite(write.getKey(), write.getIsDelete(), write.getValue().toByteArray()));
+                    }
+                }
+            }
+            transactions.add(new TransactionWrites(blockNumber, channelHeader.getTxId(), validationCode,
+                    channelHeader.getTimestamp().getSeconds(), writes));
+        }
+        return transactions;
+    }
+
+    /**
+     * An endorser transaction and the writes it made to the decoded namespace.
+     *
+     * @param blockNumber      The block containing the transaction.
+     * @param transactionId    The transaction ID.
+     * @param validationCode   The TxValidationCode number assigned by the committing peer.
+     * @param timestampSeconds The client timestamp of the transaction, in epoch seconds.
+     * @param writes           The key writes, in the order they appear in the write set.
+     */
+    public record TransactionWrites(long blockNumber, String transactionId, int validationCode,
+                                    long timestampSeconds, List<KeyWrite> writes) {
+        public boolean isValid() {
+            return validationCode == TxValidationCode.VALID_VALUE;
+        }
+    }
+
+    /**
+     * A single key write. Deletes carry an empty value.
+     */
+    public record KeyWrite(String key, boolean delete, byte[] value) {
+        /**
+         * @return The value as JSON: parsed if it is a JSON document (as asset values are),
+         * otherwise a string, and JSON null for deletes.
+         */
+        public JsonElement valueAsJson() {
+            if (delete) {
+                return JsonNull.INSTANCE;
+            }
+            String text = new String(value, StandardCharsets.UTF_8);
+            try {
+                return JsonParser.parseString(text);
+            } catch (JsonParseException e) {
+                return new JsonPrimitive(text);
+            }
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.fabnew.fabric;
+
+import com.google.gson.JsonObject;
+import org.hyperledger.fabric.protos.common.Block;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * BlockReplay is an offline tool that rebuilds the history of every asset from a local block
+ * archive, or from a raw export of one ({@code /api/ledger/blocks?format=raw}), without a peer.
+ * <p>
+ * It writes one JSON line per key write, in commit order: assetID, blockNumber, transactionId,
+ * timestamp, valid, delete and value (the asset JSON). A summary is printed to stderr. Run it from
+ * the application jar with
+ * <pre>
+ * java -cp fabnew.jar -Dloader.main=com.example.fabnew.fabric.BlockReplay \
+ *     org.springframework.boot.loader.launch.PropertiesLauncher \
+ *     --archive=data/archive/mychannel --chaincode=basic --out=history.ndjson
+ * </pre>
+ * Options: {@code --archive=<dir>} or {@code --export=<file>}, {@code --chaincode=<name>}
+ * (default basic), {@code --from=<block>}, {@code --to=<block>}, {@code --asset=<id>} to follow a
+ * single asset, {@code --validOnly=true} to skip invalidated transactions, and {@code --out=<file>}
+ * (default stdout). The archive is opened read-only, so it can be replayed while the service runs.
+ */
+public final class BlockReplay {
+
+    private final String chaincode;
+    private final String asset;
+    private final boolean validOnly;
+    private final Writer out;
+    private final Set<String> liveAssets = new HashSet<>();
+    private long blocks;
+    private long transactions;
+    private long writes;
+
+    private BlockReplay(String chaincode, String asset, boolean validOnly, Writer out) {
+        this.chaincode = chaincode;
+        this.asset = asset;
+        this.validOnly = validOnly;
+        this.out = out;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        if (options.containsKey("archive") == options.containsKey("export")) {
+            System.err.println("Usage: BlockReplay --archive=<dir> | --export=<file> [--chaincode=basic] [--from=N] [--to=N]"
+                    + " [--asset=ID] [--validOnly=true] [--out=<file>]");
+            System.exit(2);
+        }
+        long from = Long.parseLong(options.getOrDefault("from", "0"));
+        long to = Long.parseLong(options.getOrDefault("to", String.valueOf(Long.MAX_VALUE)));
+        String outFile = options.get("out");
+        Writer out = outFile != null
+                ? Files.newBufferedWriter(Path.of(outFile), StandardCharsets.UTF_8)
+                : new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+
+        long start = System.nanoTime();
+        BlockReplay replay = new BlockReplay(options.getOrDefault("chaincode", "basic"), options.get("asset"),
+                Boolean.parseBoolean(options.getOrDefault("validOnly", "false")), out);
+        try (out) {
+            if (options.containsKey("archive")) {
+                try (BlockArchive archive = BlockArchive.openReadOnly(Path.of(options.get("archive")))) {
+                    archive.forEachBlock(from, to, replay::apply);
+                }
+            } else {
+                replay.replayExport(Path.of(options.get("export")), from, to);
+            }
+        }
+        System.err.printf("Replayed %d blocks, %d transactions, %d writes (%d assets live at the end) in %.1fs%n",
+                replay.blocks, replay.transactions, replay.writes, replay.liveAssets.size(), (System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * Reads the records of a raw export, as written by {@code /api/ledger/blocks?format=raw}.
+     */
+    private void replayExport(Path export, long from, long to) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(export), 1 << 16))) {
+            while (true) {
+                int compressedLength;
+                try {
+                    compressedLength = in.readInt();
+                } catch (EOFException e) {
+                    return;
+                }
+                int rawLength = in.readInt();
+                ByteBuffer record = ByteBuffer.allocate(8 + compressedLength).putInt(compressedLength).putInt(rawLength);
+                in.readFully(record.array(), 8, compressedLength);
+                Block block = BlockArchive.decode(record.rewind());
+                long number = block.getHeader().getNumber();
+                if (number >= from && number <= to) {
+                    apply(block);
+                }
+            }
+        }
+    }
+
+    private void apply(Block block) throws IOException {
+        blocks++;
+        for (BlockDecoder.TransactionWrites transaction : BlockDecoder.decode(block, chaincode)) {
+            transactions++;
+            if (validOnly && !transaction.isValid()) {
+                continue;
+            }
+            for (BlockDecoder.KeyWrite write : transaction.writes()) {
+                if (transaction.isValid()) {
+                    if (write.delete()) {
+                        liveAssets.remove(write.key());
+                    } else {
+                        liveAssets.add(write.key());
+                    }
+                }
+                if (asset != null && !asset.equals(write.key())) {
+                    continue;
+                }
+                writes++;
+                JsonObject line = new JsonObject();
+                line.addProperty("assetID", write.key());
+                line.addProperty("blockNumber", transaction.blockNumber());
+                line.addProperty("transactionId", transaction.transactionId());
+                line.addProperty("timestamp", transaction.timestampSeconds());
+                line.addProperty("valid", transaction.isValid());
+                line.addProperty("delete", write.delete());
+                line.add("value", write.valueAsJson());
+                out.write(line.toString());
+                out.write('\n');
+            }
+        }
+    }
+}
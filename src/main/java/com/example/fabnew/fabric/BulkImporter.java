@@ -0,0 +1,751 @@
+package com.example.fabnew.fabric;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.hyperledger.fabric.client.CommitStatusException;
+import org.hyperledger.fabric.client.EndorseException;
+import org.hyperledger.fabric.client.GatewayException;
+import org.hyperledger.fabric.client.Status;
+import org.hyperledger.fabric.client.SubmitException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * BulkImporter streams assets from a CSV or NDJSON source and submits one CreateAsset or
+ * UpdateAsset transaction per row, with up to {@code parallelism} transactions in flight.
+ * <p>
+ * Rows are read one at a time, never all at once: the reader only runs ahead of the submitters
+ * by a bounded number of rows. CSV input needs a header row naming the columns assetID, color,
+ * size, owner and appraisedValue (in any order); NDJSON input has one JSON object with those
+ * fields per line, as accepted by {@code /api/assets/create}.
+ * <p>
+ * The outcome of every row is appended to a progress journal under
+ * {@code fabric.import.journalDirectory}, named after the import's job ID. Running an import
+ * again with the same job ID skips the rows the journal records as committed, so an interrupted
+ * import resumes where it stopped; rows that failed are attempted again. Rows are skipped by line
+ * number, so the journal also records a fingerprint of the start of the input and the assetID of
+ * each row: a resumed import whose input or function differs is refused, and one whose input
+ * differs further on stops at the first line that no longer holds the asset committed there.
+ * <p>
+ * Every import, whether run in the caller's thread or started in the background with
+ * {@link #start}, is listed under its job ID with live row counts until it finishes, and the
+ * last {@code fabric.import.retainedJobs} finished imports are kept with their reports.
+ */
+@Component
+public class BulkImporter {
+
+    private static final List<String> COLUMNS = List.of("assetID", "color", "size", "owner", "appraisedValue");
+    // Characters at the start of the input hashed into the fingerprint checked on resume.
+    private static final int FINGERPRINT_CHARS = 64 * 1024;
+
+    @Value("${fabric.import.parallelism:16}")
+    private int defaultParallelism;
+
+    @Value("${fabric.import.journalDirectory:data/import}")
+    private String journalDirectory;
+
+    // Rows listed individually in the report; further failures are only counted (and journaled).
+    @Value("${fabric.import.maxReportedFailures:1000}")
+    private int maxReportedFailures;
+
+    // Attempts at a row rejected by admission control (429/503) before it is recorded as failed.
+    @Value("${fabric.import.maxAttempts:5}")
+    private int maxAttempts;
+
+    // Background imports (POST /api/assets/import?async=true) run at once; further ones are queued.
+    @Value("${fabric.import.maxConcurrentJobs:2}")
+    private int maxConcurrentJobs;
+
+    // Finished imports whose status and report stay available at /api/assets/import/{jobId}.
+    @Value("${fabric.import.retainedJobs:100}")
+    private int retainedJobs;
+
+    private final FabricExecutors fabricExecutors;
+    // Imports by job ID, oldest first; guarded by itself.
+    private final Map<String, Job> jobs = new LinkedHashMap<>();
+    private ExecutorService jobExecutor;
+
+    public BulkImporter(FabricExecutors fabricExecutors) {
+        this.fabricExecutors = fabricExecutors;
+    }
+
+    @PostConstruct
+    public void init() {
+        jobExecutor = fabricExecutors.newExecutor("bulk-import-job", maxConcurrentJobs);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobExecutor.shutdownNow();
+    }
+
+    /**
+     * The input format.
+     */
+    public enum Format {
+        CSV, NDJSON;
+
+        /**
+         * @throws IllegalArgumentException if the format is neither csv nor ndjson.
+         */
+        public static Format of(String format) {
+            return switch (format.toLowerCase(Locale.ROOT)) {
+                case "csv" -> CSV;
+                case "ndjson", "jsonl" -> NDJSON;
+                default -> throw new IllegalArgumentException("Unsupported import format: " + format + ". Expected csv or ndjson");
+            };
+        }
+    }
+
+    /**
+     * Submits one row's transaction and waits for its commit status.
+     */
+    @FunctionalInterface
+    public interface Submitter {
+        Status submit(String assetId, String function, String... args) throws GatewayException;
+    }
+
+    /**
+     * @return The parallelism used when an import does not specify one.
+     */
+    public int getDefaultParallelism() {
+        return defaultParallelism;
+    }
+
+    /**
+     * Imports all rows of the input, skipping rows already committed by an earlier run of the same job.
+     *
+     * @param jobId       Names the progress journal; reuse it to resume an interrupted import.
+     * @param input       The CSV or NDJSON input, read line by line.
+     * @param format      The input format.
+     * @param function    CreateAsset or UpdateAsset.
+     * @param parallelism The maximum number of transactions in flight.
+     * @param submitter   Submits each row's transaction.
+     * @return The import report.
+     * @throws IOException if the input or the journal cannot be read or written.
+     * @throws IllegalArgumentException if the job's journal was written for a different input or function.
+     * @throws AdmissionRejectedException with 409 if the job is already running.
+     */
+    public ImportReport run(String jobId, Reader input, Format format, String function, int parallelism, Submitter submitter) throws IOException {
+        checkJob(jobId, parallelism);
+        return run(register(jobId, function, "RUNNING"), input, format, function, parallelism, submitter);
+    }
+
+    /**
+     * Starts an import in the background. The input is first copied to
+     * {@code <journalDirectory>/<jobId>.input} in the caller's thread, so the caller's stream can
+     * be closed once this returns; the copy is deleted when the import finishes. At most
+     * {@code fabric.import.maxConcurrentJobs} imports run at once, later ones are queued.
+     *
+     * @return The job status, as returned by {@link #getJobStatus}.
+     * @throws IOException if the input cannot be copied.
+     * @throws AdmissionRejectedException with 409 if the job is already running.
+     * @see #run(String, Reader, Format, String, int, Submitter)
+     */
+    public Map<String, Object> start(String jobId, InputStream input, Format format, String function, int parallelism, Submitter submitter) throws IOException {
+        checkJob(jobId, parallelism);
+        Job job = register(jobId, function, "QUEUED");
+        Path spooled = Paths.get(journalDirectory).resolve(jobId + ".input");
+        try {
+            Files.createDirectories(spooled.getParent());
+            Files.copy(input, spooled, StandardCopyOption.REPLACE_EXISTING);
+            jobExecutor.execute(() -> {
+                try (Reader reader = new InputStreamReader(Files.newInputStream(spooled), StandardCharsets.UTF_8)) {
+                    run(job, reader, format, function, parallelism, submitter);
+                } catch (IOException | RuntimeException e) {
+                    job.finish(null, e);
+                    System.err.println("Import " + jobId + " failed: " + e.getMessage());
+                } finally {
+                    try {
+                        Files.deleteIfExists(spooled);
+                    } catch (IOException e) {
+                        System.err.println("Failed to delete import input " + spooled + ": " + e.getMessage());
+                    }
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            job.finish(null, e);
+            throw e;
+        }
+        return job.status();
+    }
+
+    /**
+     * @return The state (QUEUED, RUNNING, COMPLETED or FAILED), row counts so far, and the report
+     * or error once finished, of a running or recently finished import.
+     */
+    public Optional<Map<String, Object>> getJobStatus(String jobId) {
+        Job job;
+        synchronized (jobs) {
+            job = jobs.get(jobId);
+        }
+        return Optional.ofNullable(job).map(Job::status);
+    }
+
+    private static void checkJob(String jobId, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Import parallelism must be at least 1");
+        }
+        if (!jobId.matches("[A-Za-z0-9._-]+")) {
+            throw new IllegalArgumentException("Import job ID may only contain letters, digits, '.', '_' and '-': " + jobId);
+        }
+    }
+
+    /**
+     * Lists a new import, refusing a job ID whose import is still queued or running: two runs
+     * would append to the same journal.
+     */
+    private Job register(String jobId, String function, String state) {
+        synchronized (jobs) {
+            Job previous = jobs.get(jobId);
+            if (previous != null && !previous.isFinished()) {
+                throw new AdmissionRejectedException("Import job " + jobId + " is already " + previous.state.toLowerCase(Locale.ROOT),
+                        HttpStatus.CONFLICT, 60);
+            }
+            Job job = new Job(jobId, function, state);
+            // Re-inserted so the map stays ordered by start time.
+            jobs.remove(jobId);
+            jobs.put(jobId, job);
+            return job;
+        }
+    }
+
+    private ImportReport run(Job job, Reader input, Format format, String function, int parallelism, Submitter submitter) throws IOException {
+        job.state = "RUNNING";
+        try {
+            ImportReport report = execute(job, input, format, function, parallelism, submitter);
+            job.finish(report, null);
+            return report;
+        } catch (IOException | RuntimeException e) {
+            job.finish(null, e);
+            throw e;
+        } finally {
+            pruneJobs();
+        }
+    }
+
+    /**
+     * Drops the oldest finished imports beyond {@code fabric.import.retainedJobs}.
+     */
+    private void pruneJobs() {
+        synchronized (jobs) {
+            long finished = jobs.values().stream().filter(Job::isFinished).count();
+            Iterator<Job> iterator = jobs.values().iterator();
+            while (finished > retainedJobs && iterator.hasNext()) {
+                if (iterator.next().isFinished()) {
+                    iterator.remove();
+                    finished--;
+                }
+            }
+        }
+    }
+
+    private ImportReport execute(Job job, Reader input, Format format, String function, int parallelism, Submitter submitter) throws IOException {
+        String jobId = job.jobId;
+        ImportReport report = new ImportReport();
+        report.jobId = jobId;
+        report.function = function;
+        long start = System.nanoTime();
+
+        BufferedReader reader = new BufferedReader(input);
+        String fingerprint = fingerprint(reader, function);
+        RowParser parser = format == Format.CSV ? new CsvRowParser(reader.readLine()) : new NdjsonRowParser();
+        long lineNumber = format == Format.CSV ? 1 : 0;
+
+        ExecutorService executor = fabricExecutors.newExecutor("bulk-import", parallelism);
+        // Bounds both the transactions in flight and how far the reader runs ahead of them.
+        Semaphore inFlight = new Semaphore(parallelism);
+        Counters counters = job.counters;
+        String changed = null;
+        try (Journal journal = new Journal(Paths.get(journalDirectory).resolve(jobId + ".journal"), jobId, fingerprint)) {
+            report.resumed = journal.committedCount() > 0;
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    long row = ++lineNumber;
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    counters.read.incrementAndGet();
+                    String[] args;
+                    try {
+                        args = parser.parse(line);
+                    } catch (RuntimeException e) {
+                        if (journal.isCommitted(row)) {
+                            changed = "line " + row + " no longer holds a valid row: " + e.getMessage();
+                            break;
+                        }
+                        record(journal, report, counters, new RowResult(row, null, "PARSE_ERROR", null, e.getMessage()));
+                        continue;
+                    }
+                    if (journal.isCommitted(row)) {
+                        if (!journal.isCommitted(row, args[0])) {
+                            changed = "line " + row + " no longer holds the asset committed there";
+                            break;
+                        }
+                        counters.skipped.incrementAndGet();
+                        continue;
+                    }
+                    acquire(inFlight);
+                    try {
+                        executor.execute(() -> {
+                            try {
+                                record(journal, report, counters, submit(row, function, args, submitter));
+                            } finally {
+                                inFlight.release();
+                            }
+                        });
+                    } catch (RuntimeException e) {
+                        inFlight.release();
+                        throw e;
+                    }
+                }
+            } finally {
+                // Rows still in flight are journaled, so the journal is only closed once they have
+                // finished, even if reading the input failed. An interrupted import interrupts them first.
+                if (Thread.currentThread().isInterrupted()) {
+                    executor.shutdownNow();
+                }
+                inFlight.acquireUninterruptibly(parallelism);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        if (changed != null) {
+            // The rows submitted so far are journaled; nothing past the changed line was submitted.
+            throw new IllegalArgumentException("Input of import job " + jobId + " differs from the run it resumes: "
+                    + changed + ". Use a new job ID for a different input");
+        }
+
+        report.rowsRead = counters.read.get();
+        report.skipped = counters.skipped.get();
+        report.committed = counters.committed.get();
+        report.failed = counters.failed.get();
+        report.elapsedSeconds = (System.nanoTime() - start) / 1e9;
+        report.rowsPerSecond = report.elapsedSeconds > 0 ? (report.committed + report.failed) / report.elapsedSeconds : 0;
+        System.out.println("Import " + jobId + ": " + report.committed + " committed, " + report.failed + " failed, "
+                + report.skipped + " skipped in " + String.format(Locale.ROOT, "%.1f", report.elapsedSeconds) + "s ("
+                + String.format(Locale.ROOT, "%.1f", report.rowsPerSecond) + " rows/s)");
+        return report;
+    }
+
+    /**
+     * Submits a row, retrying it after the advertised delay while admission control rejects it.
+     */
+    private RowResult submit(long row, String function, String[] args, Submitter submitter) {
+        String assetId = args[0];
+        for (int attempt = 1; ; attempt++) {
+            try {
+                Status status = submitter.submit(assetId, function, args);
+                if (status.isSuccessful()) {
+                    return new RowResult(row, assetId, "COMMITTED", status.getTransactionId(), null);
+                }
+                String outcome = WriteScheduler.isReadConflict(status.getCode()) ? "MVCC_CONFLICT" : "INVALID";
+                return new RowResult(row, assetId, outcome, status.getTransactionId(),
+                        "Transaction invalidated with code " + status.getCode() + " in block " + status.getBlockNumber());
+            } catch (AdmissionRejectedException e) {
+                if (attempt >= maxAttempts) {
+                    return new RowResult(row, assetId, "REJECTED", null, e.getMessage());
+                }
+                try {
+                    TimeUnit.SECONDS.sleep(Math.max(1, e.getRetryAfterSeconds()));
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return new RowResult(row, assetId, "REJECTED", null, "Interrupted");
+                }
+            } catch (EndorseException e) {
+                return new RowResult(row, assetId, "ENDORSEMENT_FAILED", e.getTransactionId(), e.getMessage() + " Details: " + e.getDetails());
+            } catch (SubmitException e) {
+                return new RowResult(row, assetId, "SUBMIT_FAILED", e.getTransactionId(), e.getMessage());
+            } catch (CommitStatusException e) {
+                return new RowResult(row, assetId, "COMMIT_STATUS_UNKNOWN", e.getTransactionId(), e.getMessage());
+            } catch (GatewayException | RuntimeException e) {
+                return new RowResult(row, assetId, "SUBMIT_FAILED", null, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Hashes the function and the start of the input, leaving the reader where it was.
+     */
+    private static String fingerprint(BufferedReader reader, String function) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        digest.update(function.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        reader.mark(FINGERPRINT_CHARS);
+        char[] buffer = new char[FINGERPRINT_CHARS];
+        int length = 0;
+        int read;
+        while (length < buffer.length && (read = reader.read(buffer, length, buffer.length - length)) >= 0) {
+            length += read;
+        }
+        reader.reset();
+        digest.update(new String(buffer, 0, length).getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private void record(Journal journal, ImportReport report, Counters counters, RowResult result) {
+        try {
+            journal.append(result);
+        } catch (IOException e) {
+            System.err.println("Failed to journal import row " + result.row + ": " + e.getMessage());
+        }
+        if ("COMMITTED".equals(result.status)) {
+            counters.committed.incrementAndGet();
+            return;
+        }
+        counters.failed.incrementAndGet();
+        synchronized (report) {
+            if (report.failures.size() < maxReportedFailures) {
+                report.failures.add(result);
+            }
+        }
+    }
+
+    private static void acquire(Semaphore semaphore) throws IOException {
+        try {
+            semaphore.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted", e);
+        }
+    }
+
+    /**
+     * A running or finished import, as listed at {@code /api/assets/import/{jobId}}.
+     */
+    private static final class Job {
+        private final String jobId;
+        private final String function;
+        private final Instant startedAt = Instant.now();
+        private final Counters counters = new Counters();
+        private volatile String state;
+        private volatile ImportReport report;
+        private volatile String error;
+
+        Job(String jobId, String function, String state) {
+            this.jobId = jobId;
+            this.function = function;
+            this.state = state;
+        }
+
+        boolean isFinished() {
+            return "COMPLETED".equals(state) || "FAILED".equals(state);
+        }
+
+        /**
+         * Records the outcome; only the first call counts.
+         */
+        synchronized void finish(ImportReport report, Throwable error) {
+            if (isFinished()) {
+                return;
+            }
+            this.report = report;
+            this.error = error != null ? String.valueOf(error.getMessage()) : null;
+            state = error == null ? "COMPLETED" : "FAILED";
+        }
+
+        Map<String, Object> status() {
+            Map<String, Object> status = new LinkedHashMap<>();
+            status.put("jobId", jobId);
+            status.put("function", function);
+            status.put("state", state);
+            status.put("startedAt", startedAt.toString());
+            status.put("rowsRead", counters.read.get());
+            status.put("skipped", counters.skipped.get());
+            status.put("committed", counters.committed.get());
+            status.put("failed", counters.failed.get());
+            if (error != null) {
+                status.put("error", error);
+            }
+            if (report != null) {
+                status.put("report", report);
+            }
+            return status;
+        }
+    }
+
+    private static class Counters {
+        private final AtomicLong read = new AtomicLong();
+        private final AtomicLong skipped = new AtomicLong();
+        private final AtomicLong committed = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+    }
+
+    /**
+     * Maps one input line to the CreateAsset/UpdateAsset arguments: assetID, color, size, owner, appraisedValue.
+     */
+    private interface RowParser {
+        String[] parse(String line);
+    }
+
+    private static class NdjsonRowParser implements RowParser {
+        @Override
+        public String[] parse(String line) {
+            JsonObject asset = JsonParser.parseString(line).getAsJsonObject();
+            String[] args = new String[COLUMNS.size()];
+            for (int i = 0; i < args.length; i++) {
+                JsonElement value = asset.get(COLUMNS.get(i));
+                if (value == null || value.isJsonNull()) {
+                    throw new IllegalArgumentException("Missing field " + COLUMNS.get(i));
+                }
+                args[i] = value.getAsString();
+            }
+            return validate(args);
+        }
+    }
+
+    private static class CsvRowParser implements RowParser {
+        private final int[] columnIndexes = new int[COLUMNS.size()];
+
+        CsvRowParser(String header) {
+            if (header == null) {
+                throw new IllegalArgumentException("CSV input is empty, expected a header row");
+            }
+            Map<String, Integer> positions = new HashMap<>();
+            List<String> names = split(header);
+            for (int i = 0; i < names.size(); i++) {
+                positions.put(names.get(i).toLowerCase(Locale.ROOT), i);
+            }
+            for (int i = 0; i < COLUMNS.size(); i++) {
+                Integer position = positions.get(COLUMNS.get(i).toLowerCase(Locale.ROOT));
+                if (position == null) {
+                    throw new IllegalArgumentException("CSV header has no " + COLUMNS.get(i) + " column: " + header);
+                }
+                columnIndexes[i] = position;
+            }
+        }
+
+        @Override
+        public String[] parse(String line) {
+            List<String> fields = split(line);
+            String[] args = new String[COLUMNS.size()];
+            for (int i = 0; i < args.length; i++) {
+                if (columnIndexes[i] >= fields.size()) {
+                    throw new IllegalArgumentException("Missing column " + COLUMNS.get(i));
+                }
+                args[i] = fields.get(columnIndexes[i]);
+            }
+            return validate(args);
+        }
+
+        /**
+         * Splits a CSV line on commas, honouring double-quoted fields ("" being an escaped quote).
+         * Fields spanning several lines are not supported.
+         */
+        private static List<String> split(String line) {
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (quoted) {
+                    if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else if (c == '"') {
+                        quoted = false;
+                    } else {
+                        field.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString().trim());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+            if (quoted) {
+                throw new IllegalArgumentException("Unterminated quoted field");
+            }
+            fields.add(field.toString().trim());
+            return fields;
+        }
+    }
+
+    /**
+     * Checks a row's arguments the way the create/update endpoints would bind them.
+     */
+    private static String[] validate(String[] args) {
+        if (args[0].isEmpty()) {
+            throw new IllegalArgumentException("Empty assetID");
+        }
+        for (int i : new int[]{2, 4}) {
+            try {
+                Integer.parseInt(args[i]);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(COLUMNS.get(i) + " is not an integer: " + args[i]);
+            }
+        }
+        return args;
+    }
+
+    /**
+     * Append-only journal of row outcomes. The first line is {@code #input}, a tab and the input
+     * fingerprint; it is followed by one tab-separated line per row: row number, status, assetID,
+     * transaction ID and message. A journal without the first line is refused, since the input it
+     * belongs to cannot be checked.
+     */
+    private static class Journal implements AutoCloseable {
+        private static final String FINGERPRINT_PREFIX = "#input\t";
+
+        private final BitSet committed = new BitSet();
+        // Hash of the assetID committed at each row, indexed by row number.
+        private int[] committedAssets = new int[0];
+        private final BufferedWriter writer;
+
+        Journal(Path path, String jobId, String fingerprint) throws IOException {
+            Files.createDirectories(path.getParent());
+            boolean resumed = Files.exists(path) && Files.size(path) > 0;
+            if (resumed) {
+                try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                    String line = reader.readLine();
+                    if (line == null || !line.startsWith(FINGERPRINT_PREFIX)) {
+                        throw new IllegalArgumentException("The journal of import job " + jobId + " has no input fingerprint."
+                                + " Use a new job ID");
+                    }
+                    if (!line.substring(FINGERPRINT_PREFIX.length()).equals(fingerprint)) {
+                        throw new IllegalArgumentException("Import job " + jobId + " was started with a different input or function."
+                                + " Post the same input to resume it, or use a new job ID");
+                    }
+                    while ((line = reader.readLine()) != null) {
+                        String[] fields = line.split("\t", 4);
+                        // A torn last line from an interrupted run is ignored, so its row is retried.
+                        if (fields.length == 4 && "COMMITTED".equals(fields[1])) {
+                            try {
+                                markCommitted(Math.toIntExact(Long.parseLong(fields[0])), fields[2]);
+                            } catch (NumberFormatException | ArithmeticException e) {
+                                // Not a journal line.
+                            }
+                        }
+                    }
+                }
+                System.out.println("Resuming import from journal " + path + " with " + committed.cardinality() + " committed rows");
+            }
+            writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            if (!resumed) {
+                writer.write(FINGERPRINT_PREFIX + fingerprint);
+                writer.newLine();
+                writer.flush();
+            }
+        }
+
+        private void markCommitted(int row, String assetId) {
+            committed.set(row);
+            if (row >= committedAssets.length) {
+                committedAssets = Arrays.copyOf(committedAssets, Math.max(row + 1, committedAssets.length * 2));
+            }
+            committedAssets[row] = assetId.hashCode();
+        }
+
+        int committedCount() {
+            return committed.cardinality();
+        }
+
+        boolean isCommitted(long row) {
+            return row <= Integer.MAX_VALUE && committed.get((int) row);
+        }
+
+        /**
+         * @return true if the row was committed by an earlier run with the same assetID.
+         */
+        boolean isCommitted(long row, String assetId) {
+            return isCommitted(row) && committedAssets[(int) row] == clean(assetId).hashCode();
+        }
+
+        synchronized void append(RowResult result) throws IOException {
+            writer.write(result.row + "\t" + result.status + "\t" + clean(result.assetID) + "\t"
+                    + clean(result.transactionId) + "\t" + clean(result.message));
+            writer.newLine();
+            // Flushed per row so the journal survives the process being killed.
+            writer.flush();
+        }
+
+        private static String clean(String value) {
+            return value == null ? "" : value.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            writer.close();
+        }
+    }
+
+    /**
+     * The outcome of one imported row. The status is one of COMMITTED, PARSE_ERROR,
+     * ENDORSEMENT_FAILED, SUBMIT_FAILED, COMMIT_STATUS_UNKNOWN, MVCC_CONFLICT, INVALID or REJECTED.
+     */
+    public static class RowResult {
+        public long row;
+        public String assetID;
+        public String status;
+        public String transactionId;
+        public String message;
+
+        RowResult(long row, String assetID, String status, String transactionId, String message) {
+            this.row = row;
+            this.assetID = assetID;
+            this.status = status;
+            this.transactionId = transactionId;
+            this.message = message;
+        }
+    }
+
+    /**
+     * Summary of an import: row counts, throughput, and the failed rows (line numbers in the input).
+     */
+    public static class ImportReport {
+        public String jobId;
+        public String function;
+        public boolean resumed;
+        public long rowsRead;
+        public long skipped;
+        public long committed;
+        public long failed;
+        public double elapsedSeconds;
+        public double rowsPerSecond;
+        public final List<RowResult> failures = new ArrayList<>();
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.fabnew.fabric;
+
+/**
+ * Describes a Fabric call for the flight recorder events and the slow transaction log: the
+ * target, the peer called, the transaction ID and the size of the request. Filled in by the
+ * caller, partly while the call runs (the transaction ID is known once the proposal is built).
+ */
+public final class CallDetails {
+
+    private final String target;
+    private final long payloadBytes;
+    private volatile String peer;
+    private volatile String transactionId;
+
+    private CallDetails(String target, String peer, long payloadBytes) {
+        this.target = target;
+        this.peer = peer;
+        this.payloadBytes = payloadBytes;
+    }
+
+    /**
+     * @param target The channel and chaincode called.
+     * @param peer   The peer called, or null if it is only chosen when the call is made.
+     * @param args   The chaincode function arguments, whose UTF-8 size is the payload size.
+     */
+    public static CallDetails of(String target, String peer, String... args) {
+        long bytes = 0;
+        for (String arg : args) {
+            bytes += utf8Length(arg);
+        }
+        return new CallDetails(target, peer, bytes);
+    }
+
+    public String getTarget() {
+        return target;
+    }
+
+    public long getPayloadBytes() {
+        return payloadBytes;
+    }
+
+    public String getPeer() {
+        return peer;
+    }
+
+    public void setPeer(String peer) {
+        this.peer = peer;
+    }
+
+    public String getTransactionId() {
+        return transactionId;
+    }
+
+    public void setTransactionId(String transactionId) {
+        this.transactionId = transactionId;
+    }
+
+    private static long utf8Length(String value) {
+        long length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+}
@@ -0,0 +1,217 @@
+package com.example.fabnew.fabric;
+
+import jakarta.annotation.PreDestroy;
+import org.hyperledger.fabric.client.CommitStatusException;
+import org.hyperledger.fabric.client.Status;
+import org.hyperledger.fabric.client.SubmittedTransaction;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CommitStatusTracker keeps track of transactions that were submitted asynchronously
+ * (submitted to the orderer, but not yet known to be committed).
+ * <p>
+ * Waiting for the commit status is done on a small dedicated pool instead of on the
+ * HTTP request thread, so the REST layer can answer with the transaction ID as soon
+ * as the orderer has accepted the transaction. Callers can later look up the outcome
+ * by transaction ID, or register a callback to be notified when it arrives.
+ * <p>
+ * Completed entries are retained for {@code fabric.async.retention} so clients have
+ * time to poll for them, and the number of tracked entries is capped at
+ * {@code fabric.async.maxTracked}.
+ */
+@Component
+public class CommitStatusTracker {
+
+    // Number of platform threads blocking on CommitStatus calls for asynchronously submitted transactions and batch items
+    // (ignored when virtual threads are enabled).
+    @Value("${fabric.async.commitWaiters:8}")
+    private int commitWaiters;
+
+    // Upper bound on the number of tracked (pending and completed) transactions.
+    @Value("${fabric.async.maxTracked:10000}")
+    private int maxTracked;
+
+    // How long a completed transaction remains available for status lookups.
+    @Value("${fabric.async.retention:PT10M}")
+    private Duration retention;
+
+    private final FabricExecutors fabricExecutors;
+    private final FabricMetrics fabricMetrics;
+    private final BlockCommitTracker blockCommitTracker;
+    private final Map<String, TrackedTransaction> tracked = new ConcurrentHashMap<>();
+    private ExecutorService commitWaitExecutor;
+    private ScheduledExecutorService cleaner;
+
+    public CommitStatusTracker(FabricExecutors fabricExecutors, FabricMetrics fabricMetrics, BlockCommitTracker blockCommitTracker) {
+        this.fabricExecutors = fabricExecutors;
+        this.fabricMetrics = fabricMetrics;
+        this.blockCommitTracker = blockCommitTracker;
+    }
+
+    /**
+     * Lazily starts the worker pools so the tracker costs nothing when async mode is never used.
+     */
+    private synchronized ExecutorService commitWaitExecutor() {
+        if (commitWaitExecutor == null) {
+            commitWaitExecutor = fabricExecutors.newExecutor("commit-wait", commitWaiters);
+            cleaner = Executors.newSingleThreadScheduledExecutor();
+            cleaner.scheduleWithFixedDelay(this::evictExpired, 30, 30, TimeUnit.SECONDS);
+        }
+        return commitWaitExecutor;
+    }
+
+    /**
+     * Starts tracking a transaction that has been accepted by the orderer.
+     *
+     * @param function  The chaincode function that was invoked, for reporting.
+     * @param details   The details of the submit call, reported with the commit wait, or null.
+     * @param submitted The submitted transaction.
+     * @return The tracked transaction entry.
+     * @throws IllegalStateException if too many transactions are already being tracked.
+     */
+    public TrackedTransaction track(String function, CallDetails details, SubmittedTransaction submitted) {
+        return track(function, details, submitted, () -> blockCommitTracker.getStatus(submitted));
+    }
+
+    /**
+     * Starts tracking a transaction as {@link #track(String, CallDetails, SubmittedTransaction)} does,
+     * obtaining its commit status with the given call (e.g. for a channel the BlockCommitTracker does not follow).
+     *
+     * @param function  The chaincode function that was invoked, for reporting.
+     * @param details   The details of the submit call, reported with the commit wait, or null.
+     * @param submitted The submitted transaction.
+     * @param wait      Waits for the commit status.
+     * @return The tracked transaction entry.
+     * @throws IllegalStateException if too many transactions are already being tracked.
+     */
+    public TrackedTransaction track(String function, CallDetails details, SubmittedTransaction submitted,
+                                    FabricMetrics.Call<Status, CommitStatusException> wait) {
+        if (tracked.size() >= maxTracked) {
+            evictExpired();
+            if (tracked.size() >= maxTracked) {
+                throw new IllegalStateException("Too many transactions awaiting commit status (" + maxTracked + ")");
+            }
+        }
+        TrackedTransaction transaction = new TrackedTransaction(submitted.getTransactionId(), function);
+        tracked.put(transaction.transactionId, transaction);
+        commitWaitExecutor().execute(() -> {
+            try {
+                Status status = fabricMetrics.awaitCommit(function, details, wait);
+                transaction.completedAt = Instant.now();
+                transaction.future.complete(status);
+            } catch (CommitStatusException e) {
+                System.err.println("Error getting commit status for " + transaction.transactionId + ": " + e.getMessage());
+                transaction.completedAt = Instant.now();
+                transaction.future.completeExceptionally(e);
+            }
+        });
+        return transaction;
+    }
+
+    /**
+     * Waits for the commit status of a transaction on the default channel without tracking it for
+     * lookups (e.g. a batch item). No thread is held while the BlockCommitTracker's block events
+     * answer it; CommitStatus calls run on the commit-wait pool.
+     *
+     * @param function  The chaincode function that was invoked, for reporting.
+     * @param details   The details of the submit call, reported with the commit wait, or null.
+     * @param submitted The submitted transaction.
+     * @return A future completed with the commit status, or exceptionally with a CommitStatusException.
+     */
+    public CompletableFuture<Status> awaitCommit(String function, CallDetails details, SubmittedTransaction submitted) {
+        return fabricMetrics.awaitCommit(function, details, () -> blockCommitTracker.getStatusAsync(submitted, commitWaitExecutor()));
+    }
+
+    /**
+     * Waits for the commit status of a transaction as {@link #awaitCommit(String, CallDetails, SubmittedTransaction)}
+     * does, with the given call run on the commit-wait pool (e.g. for a channel the BlockCommitTracker does not follow).
+     *
+     * @param function The chaincode function that was invoked, for reporting.
+     * @param details  The details of the submit call, reported with the commit wait, or null.
+     * @param wait     Waits for the commit status.
+     * @return A future completed with the commit status, or exceptionally with a CommitStatusException.
+     */
+    public CompletableFuture<Status> awaitCommit(String function, CallDetails details, FabricMetrics.Call<Status, CommitStatusException> wait) {
+        return fabricMetrics.awaitCommit(function, details, () -> CompletableFuture.supplyAsync(() -> {
+            try {
+                return wait.call();
+            } catch (CommitStatusException e) {
+                throw new CompletionException(e);
+            }
+        }, commitWaitExecutor()));
+    }
+
+    /**
+     * Looks up a tracked transaction by its ID.
+     *
+     * @param transactionId The transaction ID returned when the transaction was submitted.
+     * @return The tracked transaction, or empty if it is unknown or has expired.
+     */
+    public Optional<TrackedTransaction> lookup(String transactionId) {
+        return Optional.ofNullable(tracked.get(transactionId));
+    }
+
+    /**
+     * Removes completed entries that are older than the retention period.
+     */
+    private void evictExpired() {
+        Instant cutoff = Instant.now().minus(retention);
+        tracked.values().removeIf(t -> t.completedAt != null && t.completedAt.isBefore(cutoff));
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (commitWaitExecutor != null) {
+            commitWaitExecutor.shutdownNow();
+            cleaner.shutdownNow();
+        }
+    }
+
+    /**
+     * A transaction awaiting (or having received) its commit status.
+     */
+    public static class TrackedTransaction {
+        private final String transactionId;
+        private final String function;
+        private final Instant submittedAt = Instant.now();
+        private final CompletableFuture<Status> future = new CompletableFuture<>();
+        private volatile Instant completedAt;
+
+        TrackedTransaction(String transactionId, String function) {
+            this.transactionId = transactionId;
+            this.function = function;
+        }
+
+        public String getTransactionId() {
+            return transactionId;
+        }
+
+        public String getFunction() {
+            return function;
+        }
+
+        public Instant getSubmittedAt() {
+            return submittedAt;
+        }
+
+        /**
+         * @return A future completed with the commit status, or exceptionally with a CommitStatusException.
+         */
+        public CompletableFuture<Status> getFuture() {
+            return future;
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.example.fabnew.fabric;
+
+import io.grpc.CallOptions;
+import jakarta.annotation.PostConstruct;
+import org.hyperledger.fabric.client.Contract;
+import org.hyperledger.fabric.client.Gateway;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+/**
+ * ContractRouter resolves the channel and chaincode a request is addressed to, so one service
+ * can front several asset ledgers.
+ * <p>
+ * Requests under {@code /api/assets} go to the default target ({@code fabric.channelName} and
+ * {@code fabric.chaincodeName}); requests under {@code /api/{channel}/{chaincode}/assets} go to
+ * the matching entry of {@code fabric.targets}. Each target caches its Contract handle per
+ * gateway, so networks and contracts are resolved once instead of on every request, and has its
+ * own {@link AdmissionController.Bulkhead} and call timeouts, so a slow chaincode on one channel
+ * cannot take the slots of the others.
+ */
+@Component
+public class ContractRouter {
+
+    // Upper bound on cached contract handles per target (one per peer and identity).
+    private static final int MAX_CACHED_CONTRACTS = 1024;
+
+    @Value("${fabric.channelName:mychannel}")
+    private String defaultChannel;
+
+    @Value("${fabric.chaincodeName:basic}")
+    private String defaultChaincode;
+
+    private final FabricTargetProperties properties;
+    private final AdmissionController admissionController;
+    private final Map<String, Target> targets = new LinkedHashMap<>();
+    private Target defaultTarget;
+
+    public ContractRouter(FabricTargetProperties properties, AdmissionController admissionController) {
+        this.properties = properties;
+        this.admissionController = admissionController;
+    }
+
+    @PostConstruct
+    public void init() {
+        for (FabricTargetProperties.TargetConfig config : properties.getTargets()) {
+            if (config.getChannel() == null || config.getChaincode() == null) {
+                throw new IllegalStateException("fabric.targets entries need a channel and a chaincode");
+            }
+            String name = name(config.getChannel(), config.getChaincode());
+            AdmissionController.Bulkhead bulkhead = admissionController.newBulkhead(name,
+                    config.getEvaluateMaxConcurrent(), config.getEvaluateMaxQueued(),
+                    config.getSubmitMaxConcurrent(), config.getSubmitMaxQueued());
+            boolean isDefault = config.getChannel().equals(defaultChannel) && config.getChaincode().equals(defaultChaincode);
+            targets.put(name, new Target(config.getChannel(), config.getChaincode(), isDefault, bulkhead,
+                    config.getEvaluateTimeout(), config.getEndorseTimeout(), config.getSubmitTimeout(), config.getCommitStatusTimeout()));
+        }
+        defaultTarget = targets.computeIfAbsent(name(defaultChannel, defaultChaincode),
+                name -> new Target(defaultChannel, defaultChaincode, true, admissionController.getDefaultBulkhead(), null, null, null, null));
+    }
+
+    /**
+     * @return The target of {@code /api/assets}.
+     */
+    public Target getDefault() {
+        return defaultTarget;
+    }
+
+    /**
+     * @return The configured target for the channel and chaincode.
+     * @throws IllegalArgumentException if the target is not configured.
+     */
+    public Target get(String channel, String chaincode) {
+        Target target = targets.get(name(channel, chaincode));
+        if (target == null) {
+            throw new IllegalArgumentException("Unknown channel/chaincode " + name(channel, chaincode) + " (see fabric.targets)");
+        }
+        return target;
+    }
+
+    /**
+     * Returns the target addressed by the current HTTP request.
+     *
+     * @return The target named by the {channel} and {chaincode} path variables, or the default
+     * target if the path has none (or this is not a request thread).
+     * @throws IllegalArgumentException if the addressed target is not configured.
+     */
+    @SuppressWarnings("unchecked")
+    public Target requestedTarget() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null) {
+            Object variables = attributes.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+            if (variables instanceof Map<?, ?> map && map.containsKey("channel") && map.containsKey("chaincode")) {
+                Map<String, String> path = (Map<String, String>) map;
+                return get(path.get("channel"), path.get("chaincode"));
+            }
+        }
+        return defaultTarget;
+    }
+
+    /**
+     * @return The configured targets with their call timeouts and cached contract handles.
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("default", defaultTarget.getName());
+        Map<String, Object> byName = new LinkedHashMap<>();
+        targets.forEach((name, target) -> byName.put(name, target.status()));
+        status.put("targets", byName);
+        return status;
+    }
+
+    private static String name(String channel, String chaincode) {
+        return channel + "/" + chaincode;
+    }
+
+    /**
+     * A chaincode on a channel, with its cached contract handles, bulkhead and call timeouts.
+     * Null timeouts leave the gateway's defaults in place.
+     */
+    public static class Target {
+        private final String channel;
+        private final String chaincode;
+        private final boolean defaultTarget;
+        private final AdmissionController.Bulkhead bulkhead;
+        private final Duration evaluateTimeout;
+        private final Duration endorseTimeout;
+        private final Duration submitTimeout;
+        private final Duration commitStatusTimeout;
+        private final Map<Gateway, Contract> contracts = new ConcurrentHashMap<>();
+
+        Target(String channel, String chaincode, boolean defaultTarget, AdmissionController.Bulkhead bulkhead,
+               Duration evaluateTimeout, Duration endorseTimeout, Duration submitTimeout, Duration commitStatusTimeout) {
+            this.channel = channel;
+            this.chaincode = chaincode;
+            this.defaultTarget = defaultTarget;
+            this.bulkhead = bulkhead;
+            this.evaluateTimeout = evaluateTimeout;
+            this.endorseTimeout = endorseTimeout;
+            this.submitTimeout = submitTimeout;
+            this.commitStatusTimeout = commitStatusTimeout;
+        }
+
+        public String getName() {
+            return name(channel, chaincode);
+        }
+
+        public String getChannel() {
+            return channel;
+        }
+
+        public String getChaincode() {
+            return chaincode;
+        }
+
+        /**
+         * @return true for the target of {@code /api/assets}, the one followed by the cache, mirror and block listeners.
+         */
+        public boolean isDefault() {
+            return defaultTarget;
+        }
+
+        /**
+         * @return The contract handle for this target on the given gateway, resolved on first use.
+         */
+        public Contract contractFor(Gateway gateway) {
+            Contract contract = contracts.get(gateway);
+            if (contract != null) {
+                return contract;
+            }
+            if (contracts.size() >= MAX_CACHED_CONTRACTS) {
+                // Gateways of evicted identities are not reused; start over rather than track them.
+                contracts.clear();
+            }
+            return contracts.computeIfAbsent(gateway, g -> g.getNetwork(channel).getContract(chaincode));
+        }
+
+        public AdmissionController.Permit admitEvaluate() {
+            return bulkhead.admitEvaluate();
+        }
+
+        public AdmissionController.Permit admitSubmit() {
+            return bulkhead.admitSubmit();
+        }
+
+        /**
+         * @return The key serializing writes to an asset: asset IDs are only unique within a target.
+         */
+        public String lockKey(String assetId) {
+            return defaultTarget ? assetId : getName() + "/" + assetId;
+        }
+
+        public UnaryOperator<CallOptions> evaluateOptions() {
+            return deadline(evaluateTimeout);
+        }
+
+        public UnaryOperator<CallOptions> endorseOptions() {
+            return deadline(endorseTimeout);
+        }
+
+        public UnaryOperator<CallOptions> submitOptions() {
+            return deadline(submitTimeout);
+        }
+
+        public UnaryOperator<CallOptions> commitStatusOptions() {
+            return deadline(commitStatusTimeout);
+        }
+
+        private static UnaryOperator<CallOptions> deadline(Duration timeout) {
+            if (timeout == null) {
+                return UnaryOperator.identity();
+            }
+            return options -> options.withDeadlineAfter(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        private Map<String, Object> status() {
+            Map<String, Object> status = new LinkedHashMap<>();
+            status.put("channel", channel);
+            status.put("chaincode", chaincode);
+            status.put("evaluateTimeout", evaluateTimeout != null ? evaluateTimeout.toString() : "gateway default");
+            status.put("endorseTimeout", endorseTimeout != null ? endorseTimeout.toString() : "gateway default");
+            status.put("submitTimeout", submitTimeout != null ? submitTimeout.toString() : "gateway default");
+            status.put("commitStatusTimeout", commitStatusTimeout != null ? commitStatusTimeout.toString() : "gateway default");
+            status.put("cachedContracts", contracts.size());
+            return status;
+        }
+    }
+}
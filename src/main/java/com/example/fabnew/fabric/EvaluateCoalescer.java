@@ -0,0 +1,112 @@
+package com.example.fabnew.fabric;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hyperledger.fabric.client.GatewayException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * EvaluateCoalescer collapses concurrent identical evaluate calls into a single call to the peer
+ * ("single flight").
+ * <p>
+ * Calls are keyed by target, identity, function and arguments. The first caller for a key makes the
+ * call; callers arriving while it is in flight wait for it and receive the same result or
+ * exception. The key is released as soon as the call completes, so unlike {@link AssetCache}
+ * no result is ever served after the fact: a caller arriving later makes a fresh call.
+ * <p>
+ * The numbers of executed and coalesced calls are exported as the
+ * {@code fabric.client.evaluate.executed} and {@code fabric.client.evaluate.coalesced} counters.
+ */
+@Component
+public class EvaluateCoalescer {
+
+    @Value("${fabric.coalesce.enabled:true}")
+    private boolean enabled;
+
+    private final Map<Key, CompletableFuture<byte[]>> inFlight = new ConcurrentHashMap<>();
+    private final Counter executed;
+    private final Counter coalesced;
+
+    public EvaluateCoalescer(MeterRegistry registry) {
+        this.executed = Counter.builder("fabric.client.evaluate.executed")
+                .description("Evaluate calls sent to a peer by the coalescer")
+                .register(registry);
+        this.coalesced = Counter.builder("fabric.client.evaluate.coalesced")
+                .description("Evaluate calls answered by joining an identical call already in flight")
+                .register(registry);
+    }
+
+    /**
+     * Evaluates a query, joining an identical query that is already in flight if there is one.
+     *
+     * @param target   The channel and chaincode evaluated.
+     * @param identity The identity signing the call, or null for the default identity.
+     * @param function The chaincode function.
+     * @param args     The chaincode function arguments.
+     * @param loader   Makes the evaluate call if none is in flight.
+     * @return The evaluate result.
+     * @throws GatewayException if the (shared) evaluate fails.
+     */
+    public byte[] evaluate(String target, String identity, String function, String[] args, AssetCache.Loader loader) throws GatewayException {
+        if (!enabled) {
+            return loader.load();
+        }
+        Key key = new Key(target, identity, function, List.of(args));
+        CompletableFuture<byte[]> call = new CompletableFuture<>();
+        CompletableFuture<byte[]> existing = inFlight.putIfAbsent(key, call);
+        if (existing != null) {
+            coalesced.increment();
+            return await(existing);
+        }
+
+        executed.increment();
+        try {
+            byte[] result = loader.load();
+            inFlight.remove(key, call);
+            call.complete(result);
+            return result;
+        } catch (GatewayException | RuntimeException | Error e) {
+            inFlight.remove(key, call);
+            call.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private static byte[] await(CompletableFuture<byte[]> call) throws GatewayException {
+        try {
+            return call.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof GatewayException gatewayException) {
+                throw gatewayException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @return The number of executed and coalesced evaluate calls, and the calls in flight.
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("inFlight", inFlight.size());
+        stats.put("executed", (long) executed.count());
+        stats.put("coalesced", (long) coalesced.count());
+        return stats;
+    }
+
+    private record Key(String target, String identity, String function, List<String> args) {
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.fabnew.fabric;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder event for one Fabric call (evaluate, endorse, submit or commit wait),
+ * committed by {@link FabricMetrics}. Recorded with any JFR recording, e.g.
+ * {@code -XX:StartFlightRecording} or {@code jcmd <pid> JFR.start}, and shown in JDK Mission
+ * Control next to GC pauses and thread activity. Costs almost nothing when no recording runs.
+ */
+@Name("com.example.fabnew.FabricCall")
+@Label("Fabric Call")
+@Category({"Fabric", "Client"})
+@Description("A call from the REST service to a Fabric Gateway peer")
+@StackTrace(false)
+class FabricCallEvent extends Event {
+
+    @Label("Phase")
+    @Description("evaluate, endorse, submit or commit (the wait for the commit status)")
+    String phase;
+
+    @Label("Function")
+    String function;
+
+    @Label("Transaction ID")
+    String transactionId;
+
+    @Label("Target")
+    @Description("The channel and chaincode called")
+    String target;
+
+    @Label("Peer")
+    String peer;
+
+    @Label("Request Size")
+    @Description("Size of the chaincode function arguments")
+    @DataAmount
+    long payloadBytes;
+
+    @Label("Response Size")
+    @DataAmount
+    long responseBytes;
+
+    @Label("Status")
+    @Description("OK, the gRPC status code of a failure, or the validation code of a committed transaction")
+    String status;
+}
@@ -0,0 +1,81 @@
+package com.example.fabnew.fabric;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * FabricExecutors creates the executors that run blocking Fabric calls in the background
+ * (commit-status waits, hedged evaluates).
+ * <p>
+ * With {@code fabric.execution.virtualThreads=true} and a JVM that supports virtual threads
+ * (Java 21+), every task gets its own virtual thread, so thousands of calls blocked on gRPC
+ * deadlines cost almost nothing. Otherwise a pool of named daemon platform threads is used.
+ * Request handling itself moves to virtual threads with Spring Boot's
+ * {@code spring.threads.virtual.enabled=true} on the same JVMs.
+ * <p>
+ * The build targets Java 17, so on the supported JDK the setting has no effect and platform
+ * threads are always used. Virtual threads are only picked up if the jar is run on a Java 21+ JVM.
+ */
+@Component
+public class FabricExecutors {
+
+    // Executors.newVirtualThreadPerTaskExecutor(), looked up reflectively so the service still runs on Java 17.
+    private static final Method NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = findVirtualThreadFactoryMethod();
+
+    @Value("${fabric.execution.virtualThreads:false}")
+    private boolean virtualThreads;
+
+    private static Method findVirtualThreadFactoryMethod() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return true if background Fabric calls run on virtual threads.
+     */
+    public boolean isUsingVirtualThreads() {
+        return virtualThreads && NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null;
+    }
+
+    /**
+     * Creates an executor for blocking Fabric calls.
+     *
+     * @param name            Prefix for platform thread names.
+     * @param platformThreads Size of the platform thread pool when virtual threads are not used,
+     *                        or 0 for an unbounded cached pool.
+     * @return The executor.
+     */
+    public ExecutorService newExecutor(String name, int platformThreads) {
+        if (isUsingVirtualThreads()) {
+            try {
+                return (ExecutorService) NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                System.err.println("Cannot create virtual thread executor, using platform threads: " + e.getMessage());
+            }
+        } else if (virtualThreads) {
+            System.out.println("Virtual threads need Java 21+, using platform threads for " + name);
+        }
+        ThreadFactory threadFactory = namedDaemonThreads(name);
+        return platformThreads > 0
+                ? Executors.newFixedThreadPool(platformThreads, threadFactory)
+                : Executors.newCachedThreadPool(threadFactory);
+    }
+
+    private static ThreadFactory namedDaemonThreads(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.fabnew.fabric;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * FabricHealthIndicator reports whether the Fabric gateway is usable, as the {@code fabric}
+ * component of {@code /actuator/health}.
+ * <p>
+ * It is DOWN (OUT_OF_SERVICE) until the startup probe has succeeded and UP afterwards. Included in
+ * the readiness group ({@code /actuator/health/readiness}) it keeps traffic away from an instance
+ * that is still connecting in the background, while liveness ({@code /actuator/health/liveness})
+ * stays UP so the instance is not restarted during that time.
+ * <p>
+ * It is DOWN if the write-ahead log's background submitter has stopped, since durable writes
+ * would then be accepted but never submitted.
+ */
+@Component
+public class FabricHealthIndicator implements HealthIndicator {
+
+    private final WriteAheadLog writeAheadLog;
+    private final AtomicInteger attempts = new AtomicInteger();
+    private volatile boolean ready;
+    private volatile Instant readySince;
+    private volatile String lastError;
+
+    public FabricHealthIndicator(WriteAheadLog writeAheadLog) {
+        this.writeAheadLog = writeAheadLog;
+    }
+
+    /**
+     * Records a successful startup probe: the gateway is usable from now on.
+     */
+    public void markReady() {
+        attempts.incrementAndGet();
+        readySince = Instant.now();
+        lastError = null;
+        ready = true;
+    }
+
+    /**
+     * Records a failed startup attempt, which will be retried.
+     *
+     * @param error The failure.
+     */
+    public void markFailed(Throwable error) {
+        attempts.incrementAndGet();
+        lastError = error.getClass().getSimpleName() + ": " + error.getMessage();
+    }
+
+    /**
+     * @return true once the startup probe has succeeded.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public Health health() {
+        boolean submitterStopped = writeAheadLog.isSubmitterStopped();
+        Health.Builder health = !ready ? Health.outOfService() : submitterStopped ? Health.down() : Health.up();
+        health.withDetail("attempts", attempts.get());
+        if (submitterStopped) {
+            health.withDetail("writeAheadLog", String.valueOf(writeAheadLog.getLastError()));
+        }
+        if (readySince != null) {
+            health.withDetail("readySince", readySince.toString());
+        }
+        if (lastError != null) {
+            health.withDetail("lastError", lastError);
+        }
+        return health.build();
+    }
+}
@@ -0,0 +1,351 @@
+package com.example.fabnew.fabric;
+
+import io.grpc.ConnectivityState;
+import io.grpc.StatusRuntimeException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.hyperledger.fabric.client.Commit;
+import org.hyperledger.fabric.client.CommitException;
+import org.hyperledger.fabric.client.CommitStatusException;
+import org.hyperledger.fabric.client.EndorseException;
+import org.hyperledger.fabric.client.GatewayException;
+import org.hyperledger.fabric.client.Status;
+import org.hyperledger.fabric.client.SubmitException;
+import org.hyperledger.fabric.client.Transaction;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * FabricMetrics records Micrometer metrics for every Fabric call, exported on the actuator
+ * {@code /actuator/prometheus} endpoint.
+ * <ul>
+ *     <li>{@code fabric.client.calls} (timer): duration of each phase of a transaction, tagged with
+ *     {@code phase} (evaluate, endorse, submit or commit, the latter being the wait for the commit
+ *     status), {@code function} and {@code outcome} (success, error or invalid).</li>
+ *     <li>{@code fabric.client.grpc.status} (counter): completed calls per gRPC status {@code code}
+ *     (OK for successful calls). For failures the {@code phase} is taken from the exception type
+ *     (EndorseException, SubmitException, CommitStatusException, CommitException).</li>
+ *     <li>{@code fabric.client.commits.invalid} (counter): transactions that committed as invalid,
+ *     per validation {@code code} (for example MVCC_READ_CONFLICT).</li>
+ *     <li>{@code fabric.client.inflight} (gauge): calls currently in progress per phase.</li>
+ *     <li>{@code fabric.client.channel.state} (gauge): the connectivity state of each peer's gRPC
+ *     channel, as the ordinal of {@link ConnectivityState} (IDLE=0, CONNECTING=1, READY=2,
+ *     TRANSIENT_FAILURE=3, SHUTDOWN=4).</li>
+ * </ul>
+ * Every call is also committed as a {@link FabricCallEvent} to any running Java Flight Recorder
+ * recording, and reported to the {@link SlowTransactionLog}.
+ */
+@Component
+public class FabricMetrics {
+
+    public static final String EVALUATE = "evaluate";
+    public static final String ENDORSE = "endorse";
+    public static final String SUBMIT = "submit";
+    public static final String COMMIT = "commit";
+
+    private final MeterRegistry registry;
+    private final SlowTransactionLog slowTransactionLog;
+    private final Map<String, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+
+    public FabricMetrics(MeterRegistry registry, SlowTransactionLog slowTransactionLog) {
+        this.registry = registry;
+        this.slowTransactionLog = slowTransactionLog;
+        for (String phase : List.of(EVALUATE, ENDORSE, SUBMIT, COMMIT)) {
+            inFlight(phase);
+        }
+    }
+
+    /**
+     * A Fabric call to be timed.
+     */
+    @FunctionalInterface
+    public interface Call<T, E extends Exception> {
+        T call() throws E;
+    }
+
+    /**
+     * Times a Fabric call, tracking it as in flight while it runs and counting its failure, if any.
+     *
+     * @param phase    The phase: evaluate, endorse or submit.
+     * @param function The chaincode function.
+     * @param call     The call.
+     * @return The result of the call.
+     */
+    public <T, E extends Exception> T time(String phase, String function, Call<T, E> call) throws E {
+        return time(phase, function, null, call);
+    }
+
+    /**
+     * Times a Fabric call as {@link #time(String, String, Call)} does, describing it in the flight
+     * recorder event and the slow transaction log with the given details.
+     *
+     * @param phase    The phase: evaluate, endorse or submit.
+     * @param function The chaincode function.
+     * @param details  The target, peer, transaction ID and payload size of the call, or null.
+     * @param call     The call.
+     * @return The result of the call.
+     */
+    public <T, E extends Exception> T time(String phase, String function, CallDetails details, Call<T, E> call) throws E {
+        AtomicInteger current = inFlight(phase);
+        current.incrementAndGet();
+        FabricCallEvent event = new FabricCallEvent();
+        event.begin();
+        long start = System.nanoTime();
+        Timer.Sample sample = Timer.start(registry);
+        String outcome = "error";
+        String status = null;
+        Object completed = null;
+        try {
+            T result = call.call();
+            outcome = "success";
+            status = "OK";
+            completed = result;
+            statusCounter(phase, "OK").increment();
+            return result;
+        } catch (Exception e) {
+            status = recordError(phase, e);
+            completed = e;
+            throw e;
+        } finally {
+            current.decrementAndGet();
+            sample.stop(timer(phase, function, outcome));
+            record(event, phase, function, details, start, completed, status);
+        }
+    }
+
+    /**
+     * Waits for the commit status of a submitted transaction, timing the wait as the commit phase.
+     * A transaction that commits as invalid is recorded with outcome "invalid" and its validation code.
+     *
+     * @param function The chaincode function.
+     * @param details  The details of the submit call (target, peer, transaction ID and payload size), or null.
+     * @param wait     Waits for the commit status, for example {@link BlockCommitTracker#getStatus}.
+     * @return The commit status.
+     * @throws CommitStatusException if the commit status cannot be obtained.
+     */
+    public Status awaitCommit(String function, CallDetails details, Call<Status, CommitStatusException> wait) throws CommitStatusException {
+        CommitWait commitWait = new CommitWait(function, details);
+        Status status = null;
+        Throwable error = null;
+        try {
+            status = wait.call();
+            return status;
+        } catch (CommitStatusException | RuntimeException e) {
+            error = e;
+            throw e;
+        } finally {
+            commitWait.complete(status, error);
+        }
+    }
+
+    /**
+     * Times the commit wait of a submitted transaction as {@link #awaitCommit(String, CallDetails, Call)}
+     * does, for a wait that completes a future instead of blocking the calling thread.
+     *
+     * @param function The chaincode function.
+     * @param details  The details of the submit call, or null.
+     * @param wait     Starts waiting for the commit status, for example {@link BlockCommitTracker#getStatusAsync}.
+     * @return A future completed with the commit status, or exceptionally if it cannot be obtained.
+     */
+    public CompletableFuture<Status> awaitCommit(String function, CallDetails details, Supplier<CompletableFuture<Status>> wait) {
+        CommitWait commitWait = new CommitWait(function, details);
+        CompletableFuture<Status> future;
+        try {
+            future = wait.get();
+        } catch (RuntimeException e) {
+            commitWait.complete(null, e);
+            throw e;
+        }
+        return future.whenComplete((status, error) -> commitWait.complete(status, unwrap(error)));
+    }
+
+    /**
+     * A commit wait in progress: tracked as in flight until it completes, then timed, counted and recorded.
+     */
+    private final class CommitWait {
+        private final String function;
+        private final CallDetails details;
+        private final AtomicInteger current = inFlight(COMMIT);
+        private final FabricCallEvent event = new FabricCallEvent();
+        private final long start;
+        private final Timer.Sample sample;
+
+        CommitWait(String function, CallDetails details) {
+            this.function = function;
+            this.details = details;
+            current.incrementAndGet();
+            event.begin();
+            this.start = System.nanoTime();
+            this.sample = Timer.start(registry);
+        }
+
+        /**
+         * @param status The commit status, or null if the wait failed.
+         * @param error  The failure, or null.
+         */
+        void complete(Status status, Throwable error) {
+            String outcome = "error";
+            String code = null;
+            Object completed = error;
+            if (status != null) {
+                code = status.getCode().name();
+                completed = status;
+                statusCounter(COMMIT, "OK").increment();
+                if (status.isSuccessful()) {
+                    outcome = "success";
+                } else {
+                    outcome = "invalid";
+                    Counter.builder("fabric.client.commits.invalid")
+                            .description("Transactions committed as invalid per validation code")
+                            .tag("code", status.getCode().name())
+                            .register(registry)
+                            .increment();
+                }
+            } else if (error instanceof CommitStatusException) {
+                code = recordError(COMMIT, error);
+            }
+            current.decrementAndGet();
+            sample.stop(timer(COMMIT, function, outcome));
+            record(event, COMMIT, function, details, start, completed, code);
+        }
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    /**
+     * Commits the flight recorder event of a completed call (if a recording wants it) and reports
+     * the call to the slow transaction log.
+     *
+     * @param completed The result of the call, or the exception it threw.
+     */
+    private void record(FabricCallEvent event, String phase, String function, CallDetails details,
+                        long startNanos, Object completed, String status) {
+        long durationNanos = System.nanoTime() - startNanos;
+        String transactionId = details != null && details.getTransactionId() != null
+                ? details.getTransactionId()
+                : transactionId(completed);
+        long responseBytes = completed instanceof byte[] bytes ? bytes.length : 0;
+        event.end();
+        if (event.shouldCommit()) {
+            event.phase = phase;
+            event.function = function;
+            event.transactionId = transactionId;
+            if (details != null) {
+                event.target = details.getTarget();
+                event.peer = details.getPeer();
+                event.payloadBytes = details.getPayloadBytes();
+            }
+            event.responseBytes = responseBytes;
+            event.status = status;
+            event.commit();
+        }
+        slowTransactionLog.record(phase, function, details, transactionId, startNanos, durationNanos, responseBytes, status);
+    }
+
+    /**
+     * @return The transaction ID carried by a call result or exception, or null if it has none.
+     */
+    private static String transactionId(Object completed) {
+        if (completed instanceof Transaction transaction) {
+            return transaction.getTransactionId();
+        } else if (completed instanceof Commit commit) {
+            return commit.getTransactionId();
+        } else if (completed instanceof Status status) {
+            return status.getTransactionId();
+        } else if (completed instanceof EndorseException e) {
+            return e.getTransactionId();
+        } else if (completed instanceof SubmitException e) {
+            return e.getTransactionId();
+        } else if (completed instanceof CommitStatusException e) {
+            return e.getTransactionId();
+        }
+        return null;
+    }
+
+    /**
+     * Counts a failed Fabric call by gRPC status code, attributing it to the phase given by the
+     * exception type where the exception identifies one.
+     *
+     * @param phase The phase the call was made in.
+     * @param error The failure.
+     * @return The status code counted.
+     */
+    public String recordError(String phase, Throwable error) {
+        String code;
+        if (error instanceof GatewayException gatewayException) {
+            code = gatewayException.getStatus().getCode().name();
+        } else if (error instanceof CommitException commitException) {
+            code = commitException.getCode().name();
+        } else if (error instanceof StatusRuntimeException statusException) {
+            code = statusException.getStatus().getCode().name();
+        } else {
+            code = error.getClass().getSimpleName();
+        }
+        statusCounter(phaseOf(error, phase), code).increment();
+        return code;
+    }
+
+    /**
+     * @return The Fabric phase an exception belongs to, or the given default for other exceptions.
+     */
+    public static String phaseOf(Throwable error, String defaultPhase) {
+        if (error instanceof EndorseException) {
+            return ENDORSE;
+        } else if (error instanceof SubmitException) {
+            return SUBMIT;
+        } else if (error instanceof CommitStatusException || error instanceof CommitException) {
+            return COMMIT;
+        }
+        return defaultPhase;
+    }
+
+    /**
+     * Registers a connectivity state gauge for each peer's gRPC channel.
+     *
+     * @param peers The connected peers.
+     */
+    public void bindPeers(List<PeerPool.Peer> peers) {
+        for (PeerPool.Peer peer : peers) {
+            Gauge.builder("fabric.client.channel.state", peer, p -> p.getChannel().getState(false).ordinal())
+                    .description("gRPC channel connectivity state (IDLE=0, CONNECTING=1, READY=2, TRANSIENT_FAILURE=3, SHUTDOWN=4)")
+                    .tag("peer", peer.getName())
+                    .register(registry);
+            Gauge.builder("fabric.client.peer.healthy", peer, p -> p.isHealthy() ? 1 : 0)
+                    .description("Whether the peer is currently used for routing")
+                    .tag("peer", peer.getName())
+                    .register(registry);
+        }
+    }
+
+    private AtomicInteger inFlight(String phase) {
+        return inFlight.computeIfAbsent(phase, p -> registry.gauge("fabric.client.inflight",
+                Tags.of("phase", p), new AtomicInteger()));
+    }
+
+    private Timer timer(String phase, String function, String outcome) {
+        return Timer.builder("fabric.client.calls")
+                .description("Duration of Fabric calls per transaction phase")
+                .tags("phase", phase, "function", function, "outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private Counter statusCounter(String phase, String code) {
+        return Counter.builder("fabric.client.grpc.status")
+                .description("Completed Fabric calls per phase and gRPC status code")
+                .tags("phase", phase, "code", code)
+                .register(registry);
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.fabnew.fabric;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * FabricPeerProperties binds the list of gateway peers the service connects to, e.g.
+ * <pre>
+ * fabric.peers[0].endpoint=grpcs://localhost:7051
+ * fabric.peers[0].overrideAuthority=peer0.org1.example.com
+ * fabric.peers[0].tlsCertPath=fabric-network-certs/.../peers/peer0.org1.example.com/tls/ca.crt
+ * </pre>
+ * When no peers are listed, the single {@code fabric.peerEndpoint} is used instead.
+ */
+@Component
+@ConfigurationProperties(prefix = "fabric")
+public class FabricPeerProperties {
+
+    private List<PeerEndpoint> peers = new ArrayList<>();
+
+    public List<PeerEndpoint> getPeers() {
+        return peers;
+    }
+
+    public void setPeers(List<PeerEndpoint> peers) {
+        this.peers = peers;
+    }
+
+    /**
+     * Connection details of a single gateway peer.
+     */
+    public static class PeerEndpoint {
+        // grpc:// or grpcs:// URL of the peer.
+        private String endpoint;
+        // Host name in the peer's TLS certificate, used as the gRPC authority.
+        private String overrideAuthority;
+        // TLS CA certificate used to verify the peer.
+        private String tlsCertPath;
+
+        public PeerEndpoint() {
+        }
+
+        public PeerEndpoint(String endpoint, String overrideAuthority, String tlsCertPath) {
+            this.endpoint = endpoint;
+            this.overrideAuthority = overrideAuthority;
+            this.tlsCertPath = tlsCertPath;
+        }
+
+        public String getEndpoint() {
+            return endpoint;
+        }
+
+        public void setEndpoint(String endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        public String getOverrideAuthority() {
+            return overrideAuthority;
+        }
+
+        public void setOverrideAuthority(String overrideAuthority) {
+            this.overrideAuthority = overrideAuthority;
+        }
+
+        public String getTlsCertPath() {
+            return tlsCertPath;
+        }
+
+        public void setTlsCertPath(String tlsCertPath) {
+            this.tlsCertPath = tlsCertPath;
+        }
+    }
+}
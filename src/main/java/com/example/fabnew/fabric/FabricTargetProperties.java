@@ -0,0 +1,135 @@
+package com.example.fabnew.fabric;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * FabricTargetProperties binds the channel and chaincode targets served under
+ * {@code /api/{channel}/{chaincode}/assets}, each with its own concurrency limits and timeouts, e.g.
+ * <pre>
+ * fabric.targets[0].channel=mychannel
+ * fabric.targets[0].chaincode=basic
+ * fabric.targets[1].channel=otherchannel
+ * fabric.targets[1].chaincode=basic
+ * fabric.targets[1].submitMaxConcurrent=8
+ * fabric.targets[1].endorseTimeout=PT30S
+ * </pre>
+ * The default channel and chaincode ({@code fabric.channelName}/{@code fabric.chaincodeName}) are
+ * always served under {@code /api/assets}; unless listed here they use the fabric.admission limits.
+ */
+@Component
+@ConfigurationProperties(prefix = "fabric")
+public class FabricTargetProperties {
+
+    private List<TargetConfig> targets = new ArrayList<>();
+
+    public List<TargetConfig> getTargets() {
+        return targets;
+    }
+
+    public void setTargets(List<TargetConfig> targets) {
+        this.targets = targets;
+    }
+
+    /**
+     * A chaincode on a channel, with its bulkhead limits and per-phase call timeouts.
+     */
+    public static class TargetConfig {
+        private String channel;
+        private String chaincode;
+        // Concurrent and queued calls admitted for this target alone.
+        private int evaluateMaxConcurrent = 64;
+        private int evaluateMaxQueued = 256;
+        private int submitMaxConcurrent = 32;
+        private int submitMaxQueued = 128;
+        // gRPC deadlines of the calls to this target.
+        private Duration evaluateTimeout = Duration.ofSeconds(5);
+        private Duration endorseTimeout = Duration.ofSeconds(15);
+        private Duration submitTimeout = Duration.ofSeconds(5);
+        private Duration commitStatusTimeout = Duration.ofMinutes(1);
+
+        public String getChannel() {
+            return channel;
+        }
+
+        public void setChannel(String channel) {
+            this.channel = channel;
+        }
+
+        public String getChaincode() {
+            return chaincode;
+        }
+
+        public void setChaincode(String chaincode) {
+            this.chaincode = chaincode;
+        }
+
+        public int getEvaluateMaxConcurrent() {
+            return evaluateMaxConcurrent;
+        }
+
+        public void setEvaluateMaxConcurrent(int evaluateMaxConcurrent) {
+            this.evaluateMaxConcurrent = evaluateMaxConcurrent;
+        }
+
+        public int getEvaluateMaxQueued() {
+            return evaluateMaxQueued;
+        }
+
+        public void setEvaluateMaxQueued(int evaluateMaxQueued) {
+            this.evaluateMaxQueued = evaluateMaxQueued;
+        }
+
+        public int getSubmitMaxConcurrent() {
+            return submitMaxConcurrent;
+        }
+
+        public void setSubmitMaxConcurrent(int submitMaxConcurrent) {
+            this.submitMaxConcurrent = submitMaxConcurrent;
+        }
+
+        public int getSubmitMaxQueued() {
+            return submitMaxQueued;
+        }
+
+        public void setSubmitMaxQueued(int submitMaxQueued) {
+            this.submitMaxQueued = submitMaxQueued;
+        }
+
+        public Duration getEvaluateTimeout() {
+            return evaluateTimeout;
+        }
+
+        public void setEvaluateTimeout(Duration evaluateTimeout) {
+            this.evaluateTimeout = evaluateTimeout;
+        }
+
+        public Duration getEndorseTimeout() {
+            return endorseTimeout;
+        }
+
+        public void setEndorseTimeout(Duration endorseTimeout) {
+            this.endorseTimeout = endorseTimeout;
+        }
+
+        public Duration getSubmitTimeout() {
+            return submitTimeout;
+        }
+
+        public void setSubmitTimeout(Duration submitTimeout) {
+            this.submitTimeout = submitTimeout;
+        }
+
+        public Duration getCommitStatusTimeout() {
+            return commitStatusTimeout;
+        }
+
+        public void setCommitStatusTimeout(Duration commitStatusTimeout) {
+            this.commitStatusTimeout = commitStatusTimeout;
+        }
+    }
+}
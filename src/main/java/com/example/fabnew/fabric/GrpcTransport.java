@@ -0,0 +1,113 @@
+package com.example.fabnew.fabric;
+
+import io.grpc.netty.shaded.io.grpc.netty.NettyChannelBuilder;
+import io.grpc.netty.shaded.io.netty.channel.Channel;
+import io.grpc.netty.shaded.io.netty.channel.EventLoopGroup;
+import io.grpc.netty.shaded.io.netty.channel.epoll.Epoll;
+import io.grpc.netty.shaded.io.netty.channel.epoll.EpollEventLoopGroup;
+import io.grpc.netty.shaded.io.netty.channel.epoll.EpollSocketChannel;
+import io.grpc.netty.shaded.io.netty.channel.nio.NioEventLoopGroup;
+import io.grpc.netty.shaded.io.netty.channel.socket.nio.NioSocketChannel;
+import io.grpc.netty.shaded.io.netty.util.concurrent.DefaultThreadFactory;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GrpcTransport holds the Netty transport settings shared by all gRPC channels to Fabric peers,
+ * configured through the {@code fabric.grpc.*} properties.
+ * <p>
+ * A single event loop group is shared by every channel and shut down with the application.
+ * The native epoll transport is used when {@code fabric.grpc.nativeTransport=true} and it is
+ * available (Linux), otherwise NIO. Maximum inbound message size, the initial HTTP/2 flow
+ * control window and keepalive are configurable.
+ * <p>
+ * Calls are not compressed. Proposals are small, and gzip on a call only compresses the
+ * request. Compressing responses is up to the peer: grpc-java already advertises gzip in
+ * {@code grpc-accept-encoding} on every call, so a peer that enables response compression
+ * sends large evaluate results gzipped without any client setting.
+ */
+@Component
+public class GrpcTransport {
+
+    // Use the native epoll transport when available.
+    @Value("${fabric.grpc.nativeTransport:true}")
+    private boolean nativeTransport;
+
+    // Event loop threads shared by all channels; 0 means one per available processor.
+    @Value("${fabric.grpc.eventLoopThreads:0}")
+    private int eventLoopThreads;
+
+    // Largest response accepted from a peer (GetAllAssets grows with the ledger).
+    @Value("${fabric.grpc.maxInboundMessageSize:64MB}")
+    private DataSize maxInboundMessageSize;
+
+    // Initial HTTP/2 flow control window; gRPC still auto-tunes it from the measured bandwidth-delay product.
+    @Value("${fabric.grpc.flowControlWindow:1MB}")
+    private DataSize flowControlWindow;
+
+    @Value("${fabric.grpc.keepAliveTime:PT10S}")
+    private Duration keepAliveTime;
+
+    @Value("${fabric.grpc.keepAliveTimeout:PT30S}")
+    private Duration keepAliveTimeout;
+
+    @Value("${fabric.grpc.keepAliveWithoutCalls:true}")
+    private boolean keepAliveWithoutCalls;
+
+    private EventLoopGroup eventLoopGroup;
+    private Class<? extends Channel> channelType;
+
+    /**
+     * Creates the shared event loop group, preferring epoll when enabled and available.
+     */
+    @PostConstruct
+    public void init() {
+        int threads = eventLoopThreads > 0 ? eventLoopThreads : Runtime.getRuntime().availableProcessors();
+        DefaultThreadFactory threadFactory = new DefaultThreadFactory("fabric-grpc", true);
+        if (nativeTransport && Epoll.isAvailable()) {
+            eventLoopGroup = new EpollEventLoopGroup(threads, threadFactory);
+            channelType = EpollSocketChannel.class;
+        } else {
+            if (nativeTransport) {
+                System.out.println("Native epoll transport unavailable, using NIO: " + Epoll.unavailabilityCause());
+            }
+            eventLoopGroup = new NioEventLoopGroup(threads, threadFactory);
+            channelType = NioSocketChannel.class;
+        }
+        System.out.println("gRPC transport: " + channelType.getSimpleName() + " with " + threads + " event loop threads");
+    }
+
+    /**
+     * Applies the shared event loop, channel type, message size, flow control and keepalive settings.
+     *
+     * @param builder The channel builder for a peer.
+     * @return The same builder, for chaining.
+     */
+    public NettyChannelBuilder configure(NettyChannelBuilder builder) {
+        return builder
+                .channelType(channelType)
+                .eventLoopGroup(eventLoopGroup)
+                .maxInboundMessageSize((int) maxInboundMessageSize.toBytes())
+                .initialFlowControlWindow((int) flowControlWindow.toBytes())
+                .keepAliveTime(keepAliveTime.toMillis(), TimeUnit.MILLISECONDS)
+                .keepAliveTimeout(keepAliveTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                .keepAliveWithoutCalls(keepAliveWithoutCalls);
+    }
+
+    /**
+     * Shuts down the shared event loop group once all channels have been closed.
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (eventLoopGroup != null) {
+            eventLoopGroup.shutdownGracefully(0, 5, TimeUnit.SECONDS).awaitUninterruptibly(10, TimeUnit.SECONDS);
+            System.out.println("gRPC event loop group shut down successfully.");
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package com.example.fabnew.fabric;
+
+import jakarta.annotation.PreDestroy;
+import org.hyperledger.fabric.client.Gateway;
+import org.hyperledger.fabric.client.identity.Identities;
+import org.hyperledger.fabric.client.identity.Identity;
+import org.hyperledger.fabric.client.identity.Signer;
+import org.hyperledger.fabric.client.identity.Signers;
+import org.hyperledger.fabric.client.identity.X509Identity;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.InvalidKeyException;
+import java.security.PrivateKey;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * IdentityRegistry lets requests be signed as individual end users from the
+ * {@code fabric-network-certs} MSP tree instead of the shared default identity.
+ * <p>
+ * The caller selects an identity per request with the {@code X-Fabric-Identity} header
+ * (for example {@code User2@org1.example.com}). On first use the user's certificate and
+ * private key are read from
+ * {@code <fabric.identities.root>/<org domain>/users/<name>/msp/{signcerts,keystore}},
+ * and a {@link Gateway} is created lazily for each peer over the peer's shared gRPC channel.
+ * Loaded identities are kept in an LRU of {@code fabric.identities.maxCached} entries and
+ * evicted after {@code fabric.identities.idleTimeout} without use; eviction closes their
+ * gateways but never the shared channels. Looking up a loaded identity takes no lock, and
+ * loading one only holds up the requests for that same identity.
+ * <p>
+ * Only the identities listed in {@code fabric.identities.allowed} can be selected, so a caller
+ * cannot sign as an arbitrary user of the MSP tree, such as an organization's Admin.
+ */
+@Component
+public class IdentityRegistry {
+
+    // Request header used to select the identity that signs a request.
+    public static final String IDENTITY_HEADER = "X-Fabric-Identity";
+
+    // Identity names look like User1@org1.example.com; anything else is rejected before touching the file system.
+    private static final Pattern IDENTITY_NAME = Pattern.compile("[A-Za-z0-9_-]+@[A-Za-z0-9-]+(\\.[A-Za-z0-9-]+)+");
+
+    // Root of the peer organizations in the MSP tree.
+    @Value("${fabric.identities.root:fabric-network-certs/test-network/organizations/peerOrganizations}")
+    private String root;
+
+    // MSP ID of the service's own organization, used for users of the default organization.
+    @Value("${fabric.mspId}")
+    private String defaultMspId;
+
+    // MSP IDs of other organizations, as a comma-separated list of domain=MSPID pairs.
+    @Value("${fabric.identities.mspIds:org1.example.com=Org1MSP,org2.example.com=Org2MSP}")
+    private String mspIds;
+
+    // Identity names that requests may select, as a comma-separated list. Empty allows none.
+    @Value("${fabric.identities.allowed:}")
+    private Set<String> allowed;
+
+    @Value("${fabric.identities.maxCached:256}")
+    private int maxCached;
+
+    @Value("${fabric.identities.idleTimeout:PT10M}")
+    private Duration idleTimeout;
+
+    private final PeerPool peerPool;
+    private final Map<String, String> mspIdsByDomain = new HashMap<>();
+    private final ScheduledExecutorService idleSweeper;
+
+    // Identities loaded or being loaded; the least recently used is evicted once there are more than maxCached.
+    private final Map<String, CompletableFuture<ClientIdentity>> identities = new ConcurrentHashMap<>();
+
+    public IdentityRegistry(PeerPool peerPool) {
+        this.peerPool = peerPool;
+        this.idleSweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "identity-idle-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        idleSweeper.scheduleWithFixedDelay(this::evictIdle, 1, 1, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Returns the identity selected by the current HTTP request.
+     *
+     * @return The identity name from the X-Fabric-Identity header, or null if the request
+     * does not select one (or this is not a request thread).
+     */
+    public String requestedIdentity() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes instanceof ServletRequestAttributes servletAttributes) {
+            String name = servletAttributes.getRequest().getHeader(IDENTITY_HEADER);
+            return name == null || name.isBlank() ? null : name.trim();
+        }
+        return null;
+    }
+
+    /**
+     * Returns a loaded client identity, reading its certificate and key on first use.
+     *
+     * @param name The identity name, e.g. User1@org1.example.com.
+     * @return The client identity.
+     * @throws IllegalArgumentException if the name is invalid, not allowed, or its crypto material cannot be loaded.
+     */
+    public ClientIdentity get(String name) {
+        if (!allowed.contains(name)) {
+            throw new IllegalArgumentException("Identity " + name + " is not allowed");
+        }
+        CompletableFuture<ClientIdentity> future = identities.get(name);
+        if (future == null) {
+            // Concurrent requests for the same identity wait for a single load; the files are read
+            // outside the map, so requests for other identities are not held up.
+            CompletableFuture<ClientIdentity> loading = new CompletableFuture<>();
+            future = identities.putIfAbsent(name, loading);
+            if (future == null) {
+                future = loading;
+                try {
+                    loading.complete(load(name));
+                } catch (RuntimeException e) {
+                    identities.remove(name, loading);
+                    loading.completeExceptionally(e);
+                    throw e;
+                }
+                evictLeastRecentlyUsed(name);
+            }
+        }
+        ClientIdentity identity;
+        try {
+            identity = future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        identity.lastUsedNanos = System.nanoTime();
+        return identity;
+    }
+
+    /**
+     * @return The loaded identity, or null while it is still loading or if its load failed.
+     */
+    private static ClientIdentity loaded(CompletableFuture<ClientIdentity> future) {
+        return future.isDone() && !future.isCompletedExceptionally() ? future.join() : null;
+    }
+
+    /**
+     * Evicts the least recently used identities (other than the one just loaded) while more than maxCached are loaded.
+     */
+    private void evictLeastRecentlyUsed(String loaded) {
+        while (identities.size() > maxCached) {
+            ClientIdentity eldest = null;
+            CompletableFuture<ClientIdentity> eldestFuture = null;
+            for (CompletableFuture<ClientIdentity> future : identities.values()) {
+                ClientIdentity identity = loaded(future);
+                if (identity != null && !identity.name.equals(loaded)
+                        && (eldest == null || identity.lastUsedNanos - eldest.lastUsedNanos < 0)) {
+                    eldest = identity;
+                    eldestFuture = future;
+                }
+            }
+            if (eldest == null) {
+                return;
+            }
+            if (identities.remove(eldest.name, eldestFuture)) {
+                eldest.close();
+            }
+        }
+    }
+
+    private ClientIdentity load(String name) {
+        if (!IDENTITY_NAME.matcher(name).matches()) {
+            throw new IllegalArgumentException("Invalid identity name: " + name);
+        }
+        String domain = name.substring(name.indexOf('@') + 1);
+        String mspId = mspIdsByDomain().getOrDefault(domain, defaultMspId);
+        Path mspPath = Paths.get(root, domain, "users", name, "msp");
+        try {
+            X509Certificate certificate;
+            try (Reader certReader = Files.newBufferedReader(firstFile(mspPath.resolve("signcerts")))) {
+                certificate = Identities.readX509Certificate(certReader);
+            }
+            PrivateKey privateKey;
+            try (Reader keyReader = Files.newBufferedReader(firstFile(mspPath.resolve("keystore")))) {
+                privateKey = Identities.readPrivateKey(keyReader);
+            }
+            System.out.println("Loaded Fabric identity " + name + " (" + mspId + ")");
+            return new ClientIdentity(name, new X509Identity(mspId, certificate), Signers.newPrivateKeySigner(privateKey));
+        } catch (IOException | CertificateException | InvalidKeyException e) {
+            throw new IllegalArgumentException("Cannot load identity " + name + ": " + e.getMessage(), e);
+        }
+    }
+
+    private synchronized Map<String, String> mspIdsByDomain() {
+        if (mspIdsByDomain.isEmpty()) {
+            for (String pair : mspIds.split(",")) {
+                String[] parts = pair.trim().split("=", 2);
+                if (parts.length == 2) {
+                    mspIdsByDomain.put(parts[0].trim(), parts[1].trim());
+                }
+            }
+        }
+        return mspIdsByDomain;
+    }
+
+    private static Path firstFile(Path directory) throws IOException {
+        try (Stream<Path> walk = Files.walk(directory, 1)) {
+            return walk.filter(Files::isRegularFile)
+                    .findFirst()
+                    .orElseThrow(() -> new IOException(String.format("Directory '%s' contains no files", directory)));
+        }
+    }
+
+    /**
+     * Evicts identities that have not been used within the idle timeout.
+     */
+    private void evictIdle() {
+        long cutoff = System.nanoTime() - idleTimeout.toNanos();
+        identities.values().removeIf(future -> {
+            ClientIdentity identity = loaded(future);
+            if (identity != null && identity.lastUsedNanos - cutoff < 0) {
+                identity.close();
+                return true;
+            }
+            return false;
+        });
+    }
+
+    /**
+     * @return The number of identities currently loaded.
+     */
+    public int size() {
+        return identities.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        idleSweeper.shutdownNow();
+        identities.values().forEach(future -> {
+            ClientIdentity identity = loaded(future);
+            if (identity != null) {
+                identity.close();
+            }
+        });
+        identities.clear();
+    }
+
+    /**
+     * A loaded end-user identity with its lazily created per-peer gateways.
+     */
+    public class ClientIdentity {
+        private final String name;
+        private final Identity identity;
+        private final Signer signer;
+        private final Map<PeerPool.Peer, Gateway> gateways = new ConcurrentHashMap<>();
+        private volatile long lastUsedNanos = System.nanoTime();
+
+        ClientIdentity(String name, Identity identity, Signer signer) {
+            this.name = name;
+            this.identity = identity;
+            this.signer = signer;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return This identity's gateway to the given peer, created over the peer's shared channel on first use.
+         */
+        public Gateway gatewayFor(PeerPool.Peer peer) {
+            return gateways.computeIfAbsent(peer, p -> peerPool.newGateway(p.getChannel(), identity, signer));
+        }
+
+        private void close() {
+            gateways.values().forEach(Gateway::close);
+            gateways.clear();
+        }
+    }
+}
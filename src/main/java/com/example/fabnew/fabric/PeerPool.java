@@ -0,0 +1,688 @@
+package com.example.fabnew.fabric;
+
+import io.grpc.ConnectivityState;
+import io.grpc.ManagedChannel;
+import io.grpc.netty.shaded.io.grpc.netty.GrpcSslContexts;
+import io.grpc.netty.shaded.io.grpc.netty.NettyChannelBuilder;
+import io.grpc.netty.shaded.io.netty.handler.ssl.SslContext;
+import jakarta.annotation.PreDestroy;
+import org.hyperledger.fabric.client.Contract;
+import org.hyperledger.fabric.client.Gateway;
+import org.hyperledger.fabric.client.GatewayException;
+import org.hyperledger.fabric.client.identity.Identity;
+import org.hyperledger.fabric.client.identity.Signer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * PeerPool manages the connections to one or more Fabric gateway peers.
+ * <p>
+ * Each configured peer gets its own gRPC channel (with its own TLS authority) and its own
+ * {@link Gateway}. Evaluate (query) calls are routed to the healthy peer with the fewest
+ * outstanding requests; submits go to the first healthy peer in configuration order.
+ * <p>
+ * A peer is ejected from routing after {@code fabric.health.failureThreshold} consecutive
+ * {@code UNAVAILABLE} failures, and is re-admitted by the background health check once its
+ * channel reports {@code READY} again. With {@code fabric.hedge.enabled=true}, an evaluate
+ * that has not answered within the recent p95 evaluate latency is also sent to a second peer,
+ * and whichever answers first wins. The losing call is cancelled, which frees its peer's
+ * outstanding slot.
+ */
+@Component
+public class PeerPool {
+
+    // The authority to override for gRPC connections when a peer does not configure one,
+    // typically the peer's hostname in its TLS certificate.
+    private static final String DEFAULT_OVERRIDE_AUTH = "peer0.org1.example.com";
+    // TLS CA certificate used when a peer does not configure one.
+    private static final Path DEFAULT_TLS_CERT_PATH = Paths.get("fabric-network-certs", "test-network", "organizations",
+            "peerOrganizations", "org1.example.com", "peers", "peer0.org1.example.com", "tls", "ca.crt");
+
+    // Single peer endpoint, used when fabric.peers is not configured.
+    @Value("${fabric.peerEndpoint:}")
+    private String peerEndpoint;
+
+    // Consecutive UNAVAILABLE failures after which a peer is ejected from routing.
+    @Value("${fabric.health.failureThreshold:3}")
+    private int failureThreshold;
+
+    // Minimum time an ejected peer stays out of routing.
+    @Value("${fabric.health.ejectFor:PT30S}")
+    private Duration ejectFor;
+
+    // Interval of the background health check.
+    @Value("${fabric.health.checkInterval:PT10S}")
+    private Duration checkInterval;
+
+    // Whether slow evaluates are hedged to a second peer.
+    @Value("${fabric.hedge.enabled:false}")
+    private boolean hedgingEnabled;
+
+    // Lower bound on the hedge delay, used until enough latencies have been observed.
+    @Value("${fabric.hedge.minDelay:PT0.02S}")
+    private Duration minHedgeDelay;
+
+    private final FabricPeerProperties properties;
+    private final GrpcTransport transport;
+    private final FabricExecutors fabricExecutors;
+    private final FabricMetrics fabricMetrics;
+    private final LatencyWindow evaluateLatencies = new LatencyWindow(512);
+    private final AtomicLong hedgedEvaluates = new AtomicLong();
+    private final AtomicInteger roundRobin = new AtomicInteger();
+    private volatile List<Peer> peers = List.of();
+    private ExecutorService hedgeExecutor;
+    private ScheduledExecutorService healthChecker;
+
+    public PeerPool(FabricPeerProperties properties, GrpcTransport transport, FabricExecutors fabricExecutors, FabricMetrics fabricMetrics) {
+        this.properties = properties;
+        this.transport = transport;
+        this.fabricExecutors = fabricExecutors;
+        this.fabricMetrics = fabricMetrics;
+    }
+
+    /**
+     * A call made against a contract on a specific peer.
+     */
+    @FunctionalInterface
+    public interface ContractCall<T> {
+        T call(Contract contract) throws GatewayException;
+    }
+
+    /**
+     * A call made against a contract on a specific peer, which is passed to the call as well.
+     */
+    @FunctionalInterface
+    public interface PeerCall<T> {
+        T call(Peer peer, Contract contract) throws GatewayException;
+    }
+
+    /**
+     * Selects the gateway (and therefore the signing identity) used to call a given peer.
+     */
+    @FunctionalInterface
+    public interface GatewayResolver {
+        Gateway gatewayFor(Peer peer);
+    }
+
+    /**
+     * @return The configured peer endpoints, falling back to the single fabric.peerEndpoint.
+     */
+    public List<FabricPeerProperties.PeerEndpoint> getEndpoints() {
+        if (!properties.getPeers().isEmpty()) {
+            return properties.getPeers();
+        }
+        if (peerEndpoint == null || peerEndpoint.isEmpty()) {
+            return List.of();
+        }
+        return List.of(new FabricPeerProperties.PeerEndpoint(peerEndpoint, null, null));
+    }
+
+    /**
+     * Opens a channel and connects a gateway to every configured peer, using the given client identity.
+     *
+     * @param identity The client identity.
+     * @param signer   The client signer.
+     * @throws IOException if a TLS certificate cannot be read.
+     */
+    public void connect(Identity identity, Signer signer) throws IOException {
+        connect(CompletableFuture.completedFuture(identity), CompletableFuture.completedFuture(signer));
+    }
+
+    /**
+     * Opens a channel to every configured peer, in parallel and while the client identity is
+     * still being loaded, then connects a gateway over each channel once the identity is available.
+     *
+     * @param identity Completes with the client identity.
+     * @param signer   Completes with the client signer.
+     * @throws IOException if a TLS certificate, or the identity or signer, cannot be read.
+     */
+    public synchronized void connect(CompletableFuture<Identity> identity, CompletableFuture<Signer> signer) throws IOException {
+        List<CompletableFuture<ManagedChannel>> channels = new ArrayList<>();
+        for (FabricPeerProperties.PeerEndpoint endpoint : getEndpoints()) {
+            channels.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return newGrpcConnection(endpoint);
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+            }));
+        }
+        List<Peer> connected = new ArrayList<>();
+        try {
+            List<FabricPeerProperties.PeerEndpoint> endpoints = getEndpoints();
+            for (int i = 0; i < channels.size(); i++) {
+                ManagedChannel channel = join(channels.get(i));
+                connected.add(new Peer(endpoints.get(i).getEndpoint(), channel, newGateway(channel, join(identity), join(signer))));
+            }
+        } catch (IOException | RuntimeException e) {
+            connected.forEach(Peer::close);
+            // Channels that were opened but not yet wrapped in a peer.
+            channels.stream().skip(connected.size())
+                    .filter(channel -> channel.isDone() && !channel.isCompletedExceptionally())
+                    .forEach(channel -> channel.join().shutdownNow());
+            throw e;
+        }
+        if (connected.isEmpty()) {
+            throw new IllegalStateException("No Fabric peers configured (fabric.peers or fabric.peerEndpoint)");
+        }
+        this.peers = List.copyOf(connected);
+        fabricMetrics.bindPeers(peers);
+        this.hedgeExecutor = fabricExecutors.newExecutor("peer-hedge", 0);
+        this.healthChecker = Executors.newSingleThreadScheduledExecutor();
+        healthChecker.scheduleWithFixedDelay(this::checkHealth, checkInterval.toMillis(), checkInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Waits for a connection setup step, unwrapping its IOException.
+     */
+    private static <T> T join(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Waits until the primary peer's gRPC channel is READY, as a cheap connectivity probe that
+     * does not call the chaincode.
+     *
+     * @param timeout How long to wait.
+     * @return true if the channel became READY within the timeout.
+     */
+    public boolean awaitReady(Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        ManagedChannel channel = primary().getChannel();
+        while (channel.getState(true) != ConnectivityState.READY) { // Request a connection if idle
+            if (System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+            TimeUnit.MILLISECONDS.sleep(50);
+        }
+        return true;
+    }
+
+    /**
+     * @return true once {@link #connect} has succeeded.
+     */
+    public boolean isConnected() {
+        return !peers.isEmpty();
+    }
+
+    /**
+     * Builds and connects a Fabric Gateway over an existing gRPC channel.
+     *
+     * @param channel  The gRPC channel to the peer.
+     * @param identity The client identity.
+     * @param signer   The client signer.
+     * @return The connected gateway.
+     */
+    public Gateway newGateway(ManagedChannel channel, Identity identity, Signer signer) {
+        return Gateway.newInstance()
+                .identity(identity) // Set the client identity (certificate)
+                .signer(signer)     // Set the client signer (private key)
+                .connection(channel) // Use the established gRPC channel
+                // Configure timeouts for different transaction phases
+                .evaluateOptions(options -> options.withDeadlineAfter(5, TimeUnit.SECONDS))
+                .endorseOptions(options -> options.withDeadlineAfter(15, TimeUnit.SECONDS))
+                .submitOptions(options -> options.withDeadlineAfter(5, TimeUnit.SECONDS))
+                .commitStatusOptions(options -> options.withDeadlineAfter(1, TimeUnit.MINUTES))
+                .connect(); // Establish the connection to the Fabric Gateway
+    }
+
+    /**
+     * Creates and configures a new gRPC ManagedChannel for connecting to a Fabric peer.
+     * It supports both plaintext (grpc://) and TLS (grpcs://) connections.
+     *
+     * @param endpoint The peer to connect to.
+     * @return A configured ManagedChannel instance.
+     * @throws IOException if the TLS certificate file is not found.
+     * @throws IllegalArgumentException if the endpoint format is invalid.
+     */
+    private ManagedChannel newGrpcConnection(FabricPeerProperties.PeerEndpoint endpoint) throws IOException {
+        Path tlsCertPath = endpoint.getTlsCertPath() != null ? Paths.get(endpoint.getTlsCertPath()) : DEFAULT_TLS_CERT_PATH;
+        String overrideAuthority = endpoint.getOverrideAuthority() != null ? endpoint.getOverrideAuthority() : DEFAULT_OVERRIDE_AUTH;
+        System.out.println("Creating gRPC connection to: " + endpoint.getEndpoint() + " (" + overrideAuthority + ")");
+
+        // Parse the peer endpoint URI to extract host, port, and scheme.
+        URI uri = URI.create(endpoint.getEndpoint());
+        String host = uri.getHost();
+        int port = uri.getPort();
+        boolean useTls = "grpcs".equalsIgnoreCase(uri.getScheme());
+
+        // Validate extracted host and port.
+        if (host == null || port == -1) {
+            throw new IllegalArgumentException("Invalid peer endpoint format: " + endpoint.getEndpoint() + ". Expected format like grpcs://host:port");
+        }
+
+        // Build the NettyChannelBuilder with address and override authority, on the shared transport
+        // (event loop group, channel type, message size, flow control and keep-alive settings).
+        NettyChannelBuilder channelBuilder = transport.configure(NettyChannelBuilder.forAddress(host, port)
+                .overrideAuthority(overrideAuthority)); // Important for TLS certificate validation
+
+        // Configure TLS or plaintext based on the URI scheme.
+        if (useTls) {
+            // Verify that the TLS certificate file exists.
+            if (!Files.exists(tlsCertPath)) {
+                throw new IOException("TLS certificate file not found at: " + tlsCertPath.toAbsolutePath());
+            }
+            System.out.println("Using TLS cert from: " + tlsCertPath.toAbsolutePath());
+            SslContext sslContext = GrpcSslContexts.forClient()
+                    .trustManager(tlsCertPath.toFile()) // Trust the peer's TLS certificate
+                    .build();
+            channelBuilder.sslContext(sslContext);
+        } else {
+            channelBuilder.usePlaintext(); // Use unencrypted connection for grpc://
+        }
+
+        return channelBuilder.build();
+    }
+
+    /**
+     * @return All connected peers, in configuration order.
+     */
+    public List<Peer> getPeers() {
+        return peers;
+    }
+
+    /**
+     * @return The peer used for submits: the first healthy peer in configuration order,
+     * or the first peer if none is healthy.
+     */
+    public Peer primary() {
+        List<Peer> current = peers;
+        if (current.isEmpty()) {
+            throw new AdmissionRejectedException("Not connected to any Fabric peer yet", HttpStatus.SERVICE_UNAVAILABLE, 5);
+        }
+        return current.stream().filter(Peer::isHealthy).findFirst().orElse(current.get(0));
+    }
+
+    /**
+     * Evaluates a query on the healthy peer with the fewest outstanding requests,
+     * hedging to a second peer if enabled and the first is slow.
+     *
+     * @param channelName   The channel the chaincode is deployed on.
+     * @param chaincodeName The chaincode to query.
+     * @param call          The evaluate call to make against the peer's contract.
+     * @return The result of the call.
+     * @throws GatewayException if the evaluate fails.
+     */
+    public <T> T evaluate(String channelName, String chaincodeName, ContractCall<T> call) throws GatewayException {
+        return evaluate(Peer::getGateway, channelName, chaincodeName, call);
+    }
+
+    /**
+     * Evaluates a query as described in {@link #evaluate(String, String, ContractCall)}, using the
+     * gateways (identity) chosen by the resolver.
+     *
+     * @param resolver      Selects the gateway to use for the chosen peer.
+     * @param channelName   The channel the chaincode is deployed on.
+     * @param chaincodeName The chaincode to query.
+     * @param call          The evaluate call to make against the peer's contract.
+     * @return The result of the call.
+     * @throws GatewayException if the evaluate fails.
+     */
+    public <T> T evaluate(GatewayResolver resolver, String channelName, String chaincodeName, ContractCall<T> call) throws GatewayException {
+        return evaluate(resolver, gateway -> gateway.getNetwork(channelName).getContract(chaincodeName), call);
+    }
+
+    /**
+     * Evaluates a query as described in {@link #evaluate(String, String, ContractCall)}, against
+     * the contract the given function selects on the chosen peer's gateway (typically a cached handle).
+     *
+     * @param resolver  Selects the gateway to use for the chosen peer.
+     * @param contracts Selects the contract on that gateway.
+     * @param call      The evaluate call to make against the peer's contract.
+     * @return The result of the call.
+     * @throws GatewayException if the evaluate fails.
+     */
+    public <T> T evaluate(GatewayResolver resolver, Function<Gateway, Contract> contracts, ContractCall<T> call) throws GatewayException {
+        return evaluate(resolver, contracts, (PeerCall<T>) (peer, contract) -> call.call(contract));
+    }
+
+    /**
+     * Evaluates a query as described in {@link #evaluate(GatewayResolver, Function, ContractCall)},
+     * telling the call which peer it is made on.
+     *
+     * @param resolver  Selects the gateway to use for the chosen peer.
+     * @param contracts Selects the contract on that gateway.
+     * @param call      The evaluate call to make against the peer's contract.
+     * @return The result of the call.
+     * @throws GatewayException if the evaluate fails.
+     */
+    public <T> T evaluate(GatewayResolver resolver, Function<Gateway, Contract> contracts, PeerCall<T> call) throws GatewayException {
+        Peer first = leastOutstanding(null);
+        if (!hedgingEnabled || peers.size() < 2) {
+            return invoke(first, resolver, contracts, call);
+        }
+
+        CompletableFuture<T> firstCall = invokeAsync(first, resolver, contracts, call);
+        long hedgeDelayNanos = Math.max(minHedgeDelay.toNanos(), evaluateLatencies.getP95Nanos());
+        try {
+            return firstCall.get(hedgeDelayNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            // Slower than usual: hedge to another peer below.
+        } catch (ExecutionException e) {
+            throw rethrow(e.getCause());
+        } catch (InterruptedException e) {
+            firstCall.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        }
+
+        Peer second = leastOutstanding(first);
+        if (second == null) {
+            return await(firstCall);
+        }
+        hedgedEvaluates.incrementAndGet();
+        CompletableFuture<T> hedgeCall = invokeAsync(second, resolver, contracts, call);
+        try {
+            return await(firstSuccessful(firstCall, hedgeCall));
+        } finally {
+            // Cancelling a call that has already completed does nothing, so this only stops the loser.
+            firstCall.cancel(true);
+            hedgeCall.cancel(true);
+        }
+    }
+
+    private <T> T invoke(Peer peer, GatewayResolver resolver, Function<Gateway, Contract> contracts, PeerCall<T> call) throws GatewayException {
+        peer.outstanding.incrementAndGet();
+        long start = System.nanoTime();
+        try {
+            T result = call.call(peer, contracts.apply(resolver.gatewayFor(peer)));
+            evaluateLatencies.record(System.nanoTime() - start);
+            peer.consecutiveFailures.set(0);
+            return result;
+        } catch (GatewayException e) {
+            if (e.getStatus().getCode() == io.grpc.Status.Code.UNAVAILABLE) {
+                markUnavailable(peer);
+            }
+            throw e;
+        } finally {
+            peer.outstanding.decrementAndGet();
+        }
+    }
+
+    /**
+     * Starts a call on the hedge executor. Cancelling the returned future interrupts the call's
+     * thread, and a blocking gRPC call cancels itself when its thread is interrupted, so the
+     * peer's outstanding count is released without waiting for the peer to answer.
+     */
+    private <T> CompletableFuture<T> invokeAsync(Peer peer, GatewayResolver resolver, Function<Gateway, Contract> contracts, PeerCall<T> call) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Future<?> task = hedgeExecutor.submit(() -> {
+            try {
+                result.complete(invoke(peer, resolver, contracts, call));
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        });
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                task.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Completes with the first successful result, or with the last failure if both calls fail.
+     */
+    private static <T> CompletableFuture<T> firstSuccessful(CompletableFuture<T> a, CompletableFuture<T> b) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        BiConsumer<T, Throwable> handler = (value, error) -> {
+            if (error == null) {
+                result.complete(value);
+            } else if (failures.incrementAndGet() == 2) {
+                result.completeExceptionally(error);
+            }
+        };
+        a.whenComplete(handler);
+        b.whenComplete(handler);
+        return result;
+    }
+
+    private static <T> T await(CompletableFuture<T> future) throws GatewayException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw rethrow(e.getCause());
+        }
+    }
+
+    /**
+     * Rethrows the GatewayException raised by an asynchronous call, or wraps any other failure.
+     */
+    private static GatewayException rethrow(Throwable cause) throws GatewayException {
+        if (cause instanceof GatewayException gatewayException) {
+            throw gatewayException;
+        }
+        if (cause instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+        }
+        throw new CompletionException(cause);
+    }
+
+    /**
+     * Picks the healthy peer with the fewest outstanding requests, rotating between equally loaded peers.
+     * If no peer is healthy, all peers are considered.
+     *
+     * @param exclude A peer to skip, or null.
+     * @return The chosen peer, or null if there is no peer other than the excluded one.
+     */
+    private Peer leastOutstanding(Peer exclude) {
+        List<Peer> current = peers;
+        if (current.isEmpty()) {
+            throw new AdmissionRejectedException("Not connected to any Fabric peer yet", HttpStatus.SERVICE_UNAVAILABLE, 5);
+        }
+        Peer best = pick(current, exclude, true);
+        return best != null ? best : pick(current, exclude, false);
+    }
+
+    private Peer pick(List<Peer> current, Peer exclude, boolean healthyOnly) {
+        int offset = Math.floorMod(roundRobin.getAndIncrement(), current.size());
+        Peer best = null;
+        for (int i = 0; i < current.size(); i++) {
+            Peer peer = current.get((offset + i) % current.size());
+            if (peer == exclude || (healthyOnly && !peer.isHealthy())) {
+                continue;
+            }
+            if (best == null || peer.outstanding.get() < best.outstanding.get()) {
+                best = peer;
+            }
+        }
+        return best;
+    }
+
+    private void markUnavailable(Peer peer) {
+        if (peer.consecutiveFailures.incrementAndGet() >= failureThreshold && peer.healthy) {
+            peer.healthy = false;
+            peer.ejectedUntilNanos = System.nanoTime() + ejectFor.toNanos();
+            System.err.println("Ejecting Fabric peer " + peer.name + " after " + peer.consecutiveFailures.get() + " consecutive UNAVAILABLE failures");
+        }
+    }
+
+    /**
+     * Background health check: counts channels in TRANSIENT_FAILURE as failures and re-admits
+     * ejected peers whose channel is READY once their ejection period is over.
+     */
+    private void checkHealth() {
+        for (Peer peer : peers) {
+            try {
+                ConnectivityState state = peer.channel.getState(true); // Request a connection if idle
+                if (peer.healthy) {
+                    if (state == ConnectivityState.TRANSIENT_FAILURE) {
+                        markUnavailable(peer);
+                    }
+                } else if (System.nanoTime() - peer.ejectedUntilNanos >= 0) {
+                    if (state == ConnectivityState.READY) {
+                        peer.consecutiveFailures.set(0);
+                        peer.healthy = true;
+                        System.out.println("Re-admitting Fabric peer " + peer.name);
+                    } else {
+                        peer.ejectedUntilNanos = System.nanoTime() + ejectFor.toNanos();
+                    }
+                }
+            } catch (RuntimeException e) {
+                System.err.println("Health check of Fabric peer " + peer.name + " failed: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * @return Per-peer health and load, plus the number of hedged evaluates.
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        List<Map<String, Object>> peerStatus = new ArrayList<>();
+        for (Peer peer : peers) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("endpoint", peer.name);
+            entry.put("healthy", peer.healthy);
+            entry.put("state", peer.channel.getState(false).name());
+            entry.put("outstanding", peer.outstanding.get());
+            entry.put("consecutiveFailures", peer.consecutiveFailures.get());
+            peerStatus.add(entry);
+        }
+        status.put("peers", peerStatus);
+        status.put("hedgingEnabled", hedgingEnabled);
+        status.put("hedgedEvaluates", hedgedEvaluates.get());
+        status.put("evaluateP95Millis", evaluateLatencies.getP95Nanos() / 1_000_000.0);
+        return status;
+    }
+
+    /**
+     * Closes all gateways and shuts down the gRPC channels.
+     */
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (healthChecker != null) {
+            healthChecker.shutdownNow();
+        }
+        if (hedgeExecutor != null) {
+            hedgeExecutor.shutdownNow();
+        }
+        peers.forEach(Peer::close);
+        peers = List.of();
+    }
+
+    /**
+     * A connected gateway peer.
+     */
+    public static class Peer {
+        private final String name;
+        private final ManagedChannel channel;
+        private final Gateway gateway;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+        private volatile boolean healthy = true;
+        private volatile long ejectedUntilNanos;
+
+        Peer(String name, ManagedChannel channel, Gateway gateway) {
+            this.name = name;
+            this.channel = channel;
+            this.gateway = gateway;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public ManagedChannel getChannel() {
+            return channel;
+        }
+
+        public Gateway getGateway() {
+            return gateway;
+        }
+
+        public boolean isHealthy() {
+            return healthy;
+        }
+
+        private void close() {
+            gateway.close();
+            try {
+                channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+                System.out.println("gRPC channel to " + name + " shut down successfully.");
+            } catch (InterruptedException e) {
+                System.err.println("Failed to shut down gRPC channel to " + name + ": " + e.getMessage());
+                Thread.currentThread().interrupt(); // Restore the interrupted status
+            }
+        }
+    }
+
+    /**
+     * Fixed-size ring of recent latencies, used to estimate the hedge delay. The p95 is read on
+     * every hedged evaluate, so it is recomputed every {@link #RECOMPUTE_INTERVAL} samples
+     * instead of being sorted on each read; it stays 0 until that many have been recorded.
+     */
+    static class LatencyWindow {
+        static final int RECOMPUTE_INTERVAL = 64;
+
+        private final long[] samples;
+        private int next;
+        private int count;
+        private int sinceRecompute;
+        private volatile long p95Nanos;
+
+        LatencyWindow(int size) {
+            this.samples = new long[size];
+        }
+
+        void record(long nanos) {
+            long[] snapshot = null;
+            synchronized (this) {
+                samples[next] = nanos;
+                next = (next + 1) % samples.length;
+                count = Math.min(count + 1, samples.length);
+                if (++sinceRecompute >= RECOMPUTE_INTERVAL) {
+                    sinceRecompute = 0;
+                    snapshot = Arrays.copyOf(samples, count);
+                }
+            }
+            // Sorted outside the lock, so recording threads are not held up by it.
+            if (snapshot != null) {
+                Arrays.sort(snapshot);
+                p95Nanos = snapshot[(int) Math.min(snapshot.length - 1, Math.ceil(0.95 * snapshot.length) - 1)];
+            }
+        }
+
+        long getP95Nanos() {
+            return p95Nanos;
+        }
+    }
+}
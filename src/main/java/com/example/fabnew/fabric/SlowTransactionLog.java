@@ -0,0 +1,213 @@
+package com.example.fabnew.fabric;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * SlowTransactionLog keeps the full phase breakdown of the most recent transactions that took
+ * longer than {@code fabric.slowlog.threshold}, in a ring buffer of {@code fabric.slowlog.capacity}
+ * entries served at {@code /api/assets/slow-transactions}.
+ * <p>
+ * It is always on and cheap: {@link FabricMetrics} reports every completed phase, the phases of a
+ * write (endorse, submit, commit) are collected under their transaction ID, and only when the
+ * last phase completes is the total compared with the threshold; fast transactions are dropped
+ * there. Each phase carries the peer, status, sizes, thread and wall-clock start, so a slow
+ * transaction can be lined up with GC pauses and thread activity in a JFR recording.
+ */
+@Component
+public class SlowTransactionLog {
+
+    // Open transactions older than this (e.g. whose commit status was never awaited) are discarded.
+    private static final long STALE_NANOS = TimeUnit.MINUTES.toNanos(10);
+
+    @Value("${fabric.slowlog.enabled:true}")
+    private boolean enabled;
+
+    @Value("${fabric.slowlog.threshold:PT1S}")
+    private Duration threshold;
+
+    @Value("${fabric.slowlog.capacity:256}")
+    private int capacity;
+
+    // Upper bound on transactions whose phases are being collected.
+    @Value("${fabric.slowlog.maxOpen:10000}")
+    private int maxOpen;
+
+    private final Map<String, Trace> open = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private AtomicReferenceArray<SlowTransaction> ring;
+
+    @PostConstruct
+    public void init() {
+        ring = new AtomicReferenceArray<>(Math.max(1, capacity));
+    }
+
+    /**
+     * Records a completed phase of a Fabric call. Evaluates, commit waits and failed phases
+     * complete their transaction; endorse and submit phases wait for the rest of it.
+     *
+     * @param phase         The phase: evaluate, endorse, submit or commit.
+     * @param function      The chaincode function.
+     * @param details       The target, peer and payload size, or null if unknown.
+     * @param transactionId The transaction ID, or null if unknown.
+     * @param startNanos    System.nanoTime() at the start of the phase.
+     * @param durationNanos Duration of the phase.
+     * @param responseBytes Size of the response, or 0.
+     * @param status        OK, a gRPC status code or a validation code.
+     */
+    void record(String phase, String function, CallDetails details, String transactionId,
+                long startNanos, long durationNanos, long responseBytes, String status) {
+        if (!enabled) {
+            return;
+        }
+        boolean last = FabricMetrics.EVALUATE.equals(phase) || FabricMetrics.COMMIT.equals(phase) || !"OK".equals(status);
+        Trace trace;
+        if (transactionId == null) {
+            trace = new Trace(function, startNanos);
+        } else if (last) {
+            trace = open.remove(transactionId);
+            if (trace == null) {
+                trace = new Trace(function, startNanos);
+            }
+        } else {
+            trace = open.get(transactionId);
+            if (trace == null) {
+                if (open.size() >= maxOpen) {
+                    long now = System.nanoTime();
+                    open.values().removeIf(t -> now - t.startNanos > STALE_NANOS);
+                    if (open.size() >= maxOpen) {
+                        dropped.incrementAndGet();
+                        return;
+                    }
+                }
+                trace = open.computeIfAbsent(transactionId, id -> new Trace(function, startNanos));
+            }
+        }
+        Phase completed = new Phase(phase, details, status, startNanos, durationNanos, responseBytes, Thread.currentThread().getName());
+        synchronized (trace) {
+            trace.phases.add(completed);
+            if (details != null && details.getTarget() != null) {
+                trace.target = details.getTarget();
+            }
+        }
+        if (last && startNanos + durationNanos - trace.startNanos >= threshold.toNanos()) {
+            SlowTransaction slow = trace.toSlowTransaction(transactionId, startNanos + durationNanos);
+            ring.set((int) (sequence.getAndIncrement() % ring.length()), slow);
+        }
+    }
+
+    /**
+     * @param limit Maximum number of transactions returned.
+     * @return The threshold, counters and the captured transactions, newest first.
+     */
+    public Map<String, Object> getStatus(int limit) {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", enabled);
+        status.put("thresholdMillis", threshold.toMillis());
+        status.put("capacity", ring.length());
+        long captured = sequence.get();
+        status.put("captured", captured);
+        status.put("openTransactions", open.size());
+        status.put("dropped", dropped.get());
+        List<SlowTransaction> transactions = new ArrayList<>();
+        for (long i = captured - 1; i >= 0 && i >= captured - ring.length() && transactions.size() < limit; i--) {
+            SlowTransaction slow = ring.get((int) (i % ring.length()));
+            if (slow != null) {
+                transactions.add(slow);
+            }
+        }
+        status.put("transactions", transactions);
+        return status;
+    }
+
+    /**
+     * The phases of one transaction collected so far.
+     */
+    private static final class Trace {
+        private final String function;
+        private final long startNanos;
+        private final Instant startedAt;
+        private final List<Phase> phases = new ArrayList<>(3);
+        private String target;
+
+        Trace(String function, long startNanos) {
+            this.function = function;
+            this.startNanos = startNanos;
+            this.startedAt = Instant.now().minusNanos(System.nanoTime() - startNanos);
+        }
+
+        synchronized SlowTransaction toSlowTransaction(String transactionId, long endNanos) {
+            SlowTransaction slow = new SlowTransaction();
+            slow.transactionId = transactionId;
+            slow.function = function;
+            slow.target = target;
+            slow.startedAt = startedAt.toString();
+            slow.totalMillis = millis(endNanos - startNanos);
+            for (Phase phase : phases) {
+                slow.phases.add(phase.toTiming(startNanos));
+            }
+            return slow;
+        }
+    }
+
+    private record Phase(String phase, CallDetails details, String status, long startNanos, long durationNanos,
+                         long responseBytes, String thread) {
+
+        PhaseTiming toTiming(long traceStartNanos) {
+            PhaseTiming timing = new PhaseTiming();
+            timing.phase = phase;
+            timing.peer = details != null ? details.getPeer() : null;
+            timing.status = status;
+            timing.payloadBytes = details != null ? details.getPayloadBytes() : 0;
+            timing.responseBytes = responseBytes;
+            timing.offsetMillis = millis(startNanos - traceStartNanos);
+            timing.durationMillis = millis(durationNanos);
+            timing.thread = thread;
+            return timing;
+        }
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    /**
+     * A transaction slower than the threshold. The total runs from the start of the first phase
+     * to the end of the last, so gaps between phases (e.g. admission or lock waits) are included.
+     */
+    public static class SlowTransaction {
+        public String transactionId;
+        public String function;
+        public String target;
+        public String startedAt;
+        public double totalMillis;
+        public List<PhaseTiming> phases = new ArrayList<>(3);
+    }
+
+    /**
+     * One phase of a slow transaction, with its start relative to the first phase.
+     */
+    public static class PhaseTiming {
+        public String phase;
+        public String peer;
+        public String status;
+        public long payloadBytes;
+        public long responseBytes;
+        public double offsetMillis;
+        public double durationMillis;
+        public String thread;
+    }
+}
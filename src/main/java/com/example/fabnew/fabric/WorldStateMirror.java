@@ -0,0 +1,215 @@
+package com.example.fabnew.fabric;
+
+import jakarta.annotation.PreDestroy;
+import org.hyperledger.fabric.client.CloseableIterator;
+import org.hyperledger.fabric.client.FileCheckpointer;
+import org.hyperledger.fabric.client.Network;
+import org.hyperledger.fabric.protos.common.Block;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * WorldStateMirror maintains a local, on-disk copy of the asset chaincode's world state.
+ * <p>
+ * It follows {@code Network.getBlockEvents()} starting from the block recorded in a
+ * {@link FileCheckpointer}, decodes the write sets of valid transactions for the asset
+ * chaincode and applies them to an {@link AssetStore}. The checkpoint is only advanced
+ * after a block's writes have been forced to disk, so a restart resumes from the next
+ * unapplied block rather than rescanning from genesis (re-applying a block is harmless,
+ * as writes are idempotent).
+ * <p>
+ * Enabled with {@code fabric.mirror.enabled=true}. When {@code fabric.mirror.serveReads=true}
+ * the asset read endpoints are answered from the mirror, together with the number of the
+ * last applied block so clients know how stale the answer may be.
+ */
+@Component
+public class WorldStateMirror {
+
+    @Value("${fabric.mirror.enabled:false}")
+    private boolean enabled;
+
+    @Value("${fabric.mirror.serveReads:false}")
+    private boolean serveReads;
+
+    @Value("${fabric.mirror.directory:data/mirror}")
+    private String directory;
+
+    private AssetStore store;
+    private FileCheckpointer checkpointer;
+    private volatile long lastAppliedBlock = -1;
+    private volatile Instant lastAppliedAt;
+    private volatile boolean running;
+    private volatile CloseableIterator<Block> blocks;
+    private Thread followerThread;
+
+    /**
+     * Opens the local store and checkpoint, and starts following block events for the chaincode.
+     * Does nothing unless the mirror is enabled.
+     *
+     * @param network       Supplies the network (channel) to follow, resolved again on every reconnect.
+     * @param chaincodeName The chaincode whose world state is mirrored.
+     * @throws IOException if the local store or checkpoint cannot be opened.
+     */
+    public synchronized void start(Supplier<Network> network, String chaincodeName) throws IOException {
+        if (!enabled || running) {
+            return;
+        }
+        Path root = Paths.get(directory);
+        Files.createDirectories(root);
+        store = new AssetStore(root.resolve(chaincodeName));
+        checkpointer = new FileCheckpointer(root.resolve(chaincodeName + ".checkpoint"));
+        checkpointer.getBlockNumber().ifPresent(next -> lastAppliedBlock = next - 1);
+        System.out.println("World state mirror for " + chaincodeName + " resuming after block " + lastAppliedBlock
+                + " with " + store.size() + " keys");
+
+        running = true;
+        followerThread = new Thread(() -> follow(network, chaincodeName), "world-state-mirror");
+        followerThread.setDaemon(true);
+        followerThread.start();
+    }
+
+    /**
+     * Applies blocks until stopped, reconnecting from the checkpoint on failure.
+     */
+    private void follow(Supplier<Network> network, String chaincodeName) {
+        while (running) {
+            try {
+                blocks = network.get().newBlockEventsRequest()
+                        .startBlock(0) // Used only when there is no checkpoint yet
+                        .checkpoint(checkpointer)
+                        .build()
+                        .getEvents();
+                while (blocks.hasNext()) {
+                    applyBlock(blocks.next(), chaincodeName);
+                }
+            } catch (Exception e) {
+                if (running) {
+                    System.err.println("World state mirror block stream failed, reconnecting: " + e.getMessage());
+                }
+            } finally {
+                closeBlocks();
+            }
+            if (running) {
+                try {
+                    TimeUnit.SECONDS.sleep(5);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    running = false;
+                }
+            }
+        }
+    }
+
+    private void applyBlock(Block block, String chaincodeName) throws Exception {
+        List<BlockDecoder.KeyWrite> writes = new ArrayList<>();
+        for (BlockDecoder.TransactionWrites transaction : BlockDecoder.decode(block, chaincodeName)) {
+            if (transaction.isValid()) {
+                writes.addAll(transaction.writes());
+            }
+        }
+        store.apply(writes);
+        long blockNumber = block.getHeader().getNumber();
+        checkpointer.checkpointBlock(blockNumber);
+        lastAppliedBlock = blockNumber;
+        lastAppliedAt = Instant.now();
+    }
+
+    /**
+     * @return true if reads should be answered from the mirror.
+     */
+    public boolean isServingReads() {
+        return enabled && serveReads && store != null && lastAppliedBlock >= 0;
+    }
+
+    /**
+     * @return The number of the last block applied to the mirror, or -1 if none.
+     */
+    public long getLastAppliedBlock() {
+        return lastAppliedBlock;
+    }
+
+    /**
+     * Reads an asset from the mirror.
+     *
+     * @return The asset JSON as written by the chaincode, or empty if it does not exist.
+     */
+    public Optional<byte[]> readAsset(String assetId) throws IOException {
+        return store.get(assetId);
+    }
+
+    /**
+     * Reads all assets from the mirror, in key order, as a JSON array (the same shape as GetAllAssets).
+     */
+    public byte[] readAllAssets() throws IOException {
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+        json.write('[');
+        boolean[] first = {true};
+        store.forEach((key, value) -> {
+            if (!first[0]) {
+                json.write(',');
+            }
+            first[0] = false;
+            json.writeBytes(value);
+        });
+        json.write(']');
+        return json.toByteArray();
+    }
+
+    /**
+     * @return The mirror's state: enabled flags, last applied block and number of keys.
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", enabled);
+        status.put("servingReads", isServingReads());
+        status.put("lastAppliedBlock", lastAppliedBlock);
+        status.put("lastAppliedAt", lastAppliedAt != null ? lastAppliedAt.toString() : null);
+        status.put("keys", store != null ? store.size() : 0);
+        return status;
+    }
+
+    private void closeBlocks() {
+        CloseableIterator<Block> current = blocks;
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        running = false;
+        closeBlocks();
+        if (followerThread != null) {
+            followerThread.interrupt();
+            try {
+                followerThread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            if (checkpointer != null) {
+                checkpointer.close();
+            }
+            if (store != null) {
+                store.close();
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to close world state mirror: " + e.getMessage());
+        }
+    }
+}
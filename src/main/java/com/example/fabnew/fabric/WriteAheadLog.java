@@ -0,0 +1,857 @@
+package com.example.fabnew.fabric;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.hyperledger.fabric.client.CommitStatusException;
+import org.hyperledger.fabric.client.GatewayException;
+import org.hyperledger.fabric.client.Status;
+import org.hyperledger.fabric.client.SubmitException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * WriteAheadLog accepts write requests into a local, fsync'd journal and submits them to Fabric
+ * in the background, so writes can be accepted at disk speed and survive orderer or peer outages.
+ * <p>
+ * Enabled with {@code fabric.wal.enabled=true}. An accepted request is appended to
+ * {@code <fabric.wal.directory>/wal.log} as a CRC-checked record and acknowledged once the record
+ * has been forced to disk. A single writer thread performs the appends with group commit: every
+ * request that arrives while one fsync is in progress is written and forced by the next one, so
+ * one fsync covers many requests.
+ * <p>
+ * A submitter thread drains pending entries in the order they were accepted, in batches of up to
+ * {@code fabric.wal.batchSize} entries for distinct assets, whose transactions run concurrently and
+ * so share blocks. A batch never holds two entries for the same asset, so the writes to each asset
+ * are applied in order. When an entry commits, or fails permanently (for example the chaincode
+ * rejects it), a done record is appended. Transient failures (peer or orderer unavailable, read
+ * conflicts, admission rejections) leave the entry pending, and it is retried after a jittered
+ * backoff of up to {@code fabric.wal.retryBackoffMax}. An entry still invalidated by read conflicts
+ * after {@code fabric.wal.maxConflictAttempts} attempts fails.
+ * <p>
+ * A transaction whose commit status could not be obtained may still commit, so it is not simply
+ * resubmitted: its ID is kept and looked up on the ledger on the next attempts. The entry is
+ * resubmitted only once that transaction is known to be invalid, or has not appeared on the
+ * ledger within {@code fabric.wal.unknownStatusGrace}.
+ * <p>
+ * On startup the journal is replayed: entries without a done record are pending again, so nothing
+ * accepted is lost by a crash or restart. Delivery is at least once: an entry that committed just
+ * before a crash, but whose done record was not yet written, is submitted again. Once the journal
+ * exceeds {@code fabric.wal.compactBytes}, it is rewritten with only the pending entries.
+ */
+@Component
+public class WriteAheadLog {
+
+    private static final String LOG_FILE = "wal.log";
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final byte ENTRY = 1;
+    private static final byte DONE = 2;
+    // Written by compaction: the last request ID issued, so IDs stay unique once completed entries are dropped.
+    private static final byte ID_MARK = 3;
+    public static final String PENDING = "PENDING";
+    public static final String COMMITTED = "COMMITTED";
+    public static final String FAILED = "FAILED";
+
+    @Value("${fabric.wal.enabled:false}")
+    private boolean enabled;
+
+    @Value("${fabric.wal.directory:data/wal}")
+    private String directory;
+
+    // Most records written and forced together by one group commit.
+    @Value("${fabric.wal.groupMaxRecords:1024}")
+    private int groupMaxRecords;
+
+    // How long an accepting request waits for its record to be forced to disk.
+    @Value("${fabric.wal.ackTimeout:PT10S}")
+    private Duration ackTimeout;
+
+    // Entries (for distinct assets) submitted concurrently by the background submitter.
+    @Value("${fabric.wal.batchSize:64}")
+    private int batchSize;
+
+    @Value("${fabric.wal.retryBackoffBase:PT0.5S}")
+    private Duration retryBackoffBase;
+
+    @Value("${fabric.wal.retryBackoffMax:PT30S}")
+    private Duration retryBackoffMax;
+
+    // Attempts invalidated by a read conflict (each after the WriteScheduler's own retries) before an entry fails.
+    @Value("${fabric.wal.maxConflictAttempts:5}")
+    private int maxConflictAttempts;
+
+    // How long a transaction with an unknown commit status may take to appear on the ledger before its entry is resubmitted.
+    @Value("${fabric.wal.unknownStatusGrace:PT1M}")
+    private Duration unknownStatusGrace;
+
+    @Value("${fabric.wal.compactBytes:67108864}")
+    private long compactBytes;
+
+    // Completed entries kept in memory for status lookups.
+    @Value("${fabric.wal.maxRetained:10000}")
+    private int maxRetained;
+
+    private final FabricExecutors fabricExecutors;
+    private final NavigableMap<Long, Entry> pending = new ConcurrentSkipListMap<>();
+    private final Map<Long, Entry> completed = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+            return size() > maxRetained;
+        }
+    };
+    private final BlockingQueue<Append> queue = new LinkedBlockingQueue<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final AtomicLong groupCommits = new AtomicLong();
+    private final AtomicLong recordsWritten = new AtomicLong();
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final Object pendingSignal = new Object();
+    private FileChannel log;
+    private long position;
+    // Set when a failed group may have left bytes after position that are not yet truncated.
+    private boolean tornTail;
+    private volatile boolean running;
+    private volatile String lastError;
+    private Thread writerThread;
+    private Thread submitterThread;
+
+    public WriteAheadLog(FabricExecutors fabricExecutors) {
+        this.fabricExecutors = fabricExecutors;
+    }
+
+    /**
+     * Submits one journaled write and waits for its commit status.
+     */
+    @FunctionalInterface
+    public interface Submitter {
+        Status submit(String assetId, String function, String... args) throws GatewayException;
+    }
+
+    /**
+     * Looks up the commit status of a transaction submitted earlier, e.g. on the ledger.
+     */
+    @FunctionalInterface
+    public interface StatusLookup {
+        /**
+         * @return The commit status, or empty if the transaction is not on the ledger.
+         */
+        Optional<Status> lookup(String transactionId) throws GatewayException;
+    }
+
+    /**
+     * Opens the journal and recovers the pending entries. Writes are accepted from now on, even
+     * before Fabric is reachable; they are submitted once {@link #startSubmitting} is called.
+     */
+    @PostConstruct
+    public synchronized void open() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        Path root = Paths.get(directory);
+        Files.createDirectories(root);
+        log = FileChannel.open(root.resolve(LOG_FILE), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        recover();
+        System.out.println("Write-ahead log " + root.resolve(LOG_FILE) + " recovered " + pending.size() + " pending entries");
+        running = true;
+        writerThread = new Thread(this::writeLoop, "wal-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * @return true if write requests are journaled.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Journals a write request, returning once it is durable.
+     *
+     * @param function The chaincode function.
+     * @param assetId  The asset written.
+     * @param args     The chaincode function arguments.
+     * @return The accepted entry, whose ID identifies the request.
+     * @throws IllegalArgumentException if the request is too large to journal.
+     * @throws AdmissionRejectedException if the journal cannot be written in time.
+     */
+    public Entry append(String function, String assetId, String... args) {
+        if (!running) {
+            throw new AdmissionRejectedException("Write-ahead log is not open", HttpStatus.SERVICE_UNAVAILABLE, 1);
+        }
+        Entry entry = new Entry(nextId.getAndIncrement(), function, assetId, args, Instant.now());
+        try {
+            entry.record = encodeEntry(entry);
+        } catch (UTFDataFormatException e) {
+            throw new IllegalArgumentException("Write request too large to journal");
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        await(enqueue(new Append(entry.record, entry, null)));
+        return entry;
+    }
+
+    /**
+     * @return The entry with the given request ID, if it is pending or was completed recently.
+     */
+    public Optional<Entry> lookup(long id) {
+        Entry entry = pending.get(id);
+        if (entry != null) {
+            return Optional.of(entry);
+        }
+        synchronized (completed) {
+            return Optional.ofNullable(completed.get(id));
+        }
+    }
+
+    /**
+     * Starts draining pending entries to Fabric. Does nothing unless the log is enabled.
+     *
+     * @param submitter Submits a write and waits for its commit status.
+     * @param lookup    Looks up transactions whose commit status could not be obtained.
+     */
+    public synchronized void startSubmitting(Submitter submitter, StatusLookup lookup) {
+        if (!running || submitterThread != null) {
+            return;
+        }
+        submitterThread = new Thread(() -> submitLoop(submitter, lookup), "wal-submitter");
+        submitterThread.setDaemon(true);
+        submitterThread.start();
+    }
+
+    /**
+     * Replays the journal: entries without a done record are pending. A torn or corrupt record
+     * at the end (from a crash mid-append) ends the journal and is truncated.
+     */
+    private void recover() throws IOException {
+        long valid = 0;
+        long maxId = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(log.position(0)), 1 << 16))) {
+            while (true) {
+                int length;
+                int checksum;
+                byte[] payload;
+                try {
+                    length = in.readInt();
+                    checksum = in.readInt();
+                    if (length <= 0 || length > (1 << 24)) {
+                        break;
+                    }
+                    payload = new byte[length];
+                    in.readFully(payload);
+                } catch (EOFException e) {
+                    break;
+                }
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+                byte type = record.readByte();
+                long id = record.readLong();
+                maxId = Math.max(maxId, id);
+                if (type == ENTRY) {
+                    Instant acceptedAt = Instant.ofEpochMilli(record.readLong());
+                    String function = record.readUTF();
+                    String assetId = record.readUTF();
+                    String[] args = new String[record.readInt()];
+                    for (int i = 0; i < args.length; i++) {
+                        args[i] = record.readUTF();
+                    }
+                    Entry entry = new Entry(id, function, assetId, args, acceptedAt);
+                    entry.record = frame(payload);
+                    pending.put(id, entry);
+                } else if (type == DONE) {
+                    Entry entry = pending.remove(id);
+                    if (entry != null) {
+                        entry.status = record.readUTF();
+                        entry.transactionId = emptyToNull(record.readUTF());
+                        entry.message = emptyToNull(record.readUTF());
+                        retain(entry);
+                    }
+                }
+                // An ID_MARK record only advances maxId.
+                valid += RECORD_HEADER_SIZE + length;
+            }
+        }
+        if (valid < log.size()) {
+            System.err.println("Write-ahead log: discarding " + (log.size() - valid) + " bytes of incomplete records");
+            log.truncate(valid);
+        }
+        position = valid;
+        nextId.set(maxId + 1);
+    }
+
+    /**
+     * Writes queued records in groups, forcing each group to disk with a single fsync.
+     */
+    private void writeLoop() {
+        List<Append> group = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            group.clear();
+            try {
+                Append first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+            } catch (InterruptedException e) {
+                if (queue.isEmpty()) {
+                    break;
+                }
+                continue;
+            }
+            queue.drainTo(group, groupMaxRecords - 1);
+            long groupStart = position;
+            try {
+                if (tornTail) {
+                    log.truncate(position);
+                    tornTail = false;
+                }
+                int size = 0;
+                for (Append append : group) {
+                    size += append.record.length;
+                }
+                ByteBuffer buffer = ByteBuffer.allocate(size);
+                for (Append append : group) {
+                    buffer.put(append.record);
+                }
+                buffer.flip();
+                long written = groupStart;
+                while (buffer.hasRemaining()) {
+                    written += log.write(buffer, written);
+                }
+                log.force(false);
+                position = written;
+            } catch (IOException e) {
+                lastError = "Journal write failed: " + e.getMessage();
+                System.err.println("Write-ahead log: " + lastError);
+                discardTail(groupStart);
+                group.forEach(append -> append.durable.completeExceptionally(e));
+                continue;
+            }
+            groupCommits.incrementAndGet();
+            recordsWritten.addAndGet(group.size());
+            for (Append append : group) {
+                apply(append);
+            }
+            synchronized (pendingSignal) {
+                pendingSignal.notifyAll();
+            }
+            group.forEach(append -> append.durable.complete(null));
+            try {
+                compactIfNeeded();
+            } catch (IOException e) {
+                lastError = "Journal compaction failed: " + e.getMessage();
+                System.err.println("Write-ahead log: " + lastError);
+            }
+        }
+    }
+
+    /**
+     * Drops whatever part of a failed group reached the file, so records the caller was told
+     * failed are not replayed after a restart. If the truncate fails too, it is retried before
+     * the next group is written.
+     */
+    private void discardTail(long groupStart) {
+        position = groupStart;
+        tornTail = true;
+        try {
+            log.truncate(groupStart);
+            log.force(false);
+            tornTail = false;
+        } catch (IOException e) {
+            System.err.println("Write-ahead log: could not truncate a failed write: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Updates the in-memory state once a record is durable.
+     */
+    private void apply(Append append) {
+        if (append.done == null) {
+            pending.put(append.entry.id, append.entry);
+        } else {
+            Entry entry = pending.remove(append.entry.id);
+            if (entry != null) {
+                retain(entry);
+            }
+        }
+    }
+
+    private void retain(Entry entry) {
+        synchronized (completed) {
+            completed.put(entry.id, entry);
+        }
+    }
+
+    /**
+     * Rewrites the journal with only the pending entries once it has grown past compactBytes and
+     * is mostly made up of completed entries. Runs on the writer thread, between groups.
+     */
+    private void compactIfNeeded() throws IOException {
+        if (position < compactBytes) {
+            return;
+        }
+        long liveBytes = 0;
+        for (Entry entry : pending.values()) {
+            liveBytes += entry.record.length;
+        }
+        if (liveBytes > position / 2) {
+            return;
+        }
+        Path path = Paths.get(directory).resolve(LOG_FILE);
+        Path compacted = Paths.get(directory).resolve(LOG_FILE + ".compact");
+        try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            long written = 0;
+            List<byte[]> records = new ArrayList<>();
+            for (Entry entry : pending.values()) {
+                records.add(entry.record);
+            }
+            // The completed entries are dropped, so the last ID issued is recorded to keep IDs unique after a restart.
+            records.add(encodeIdMark(nextId.get() - 1));
+            for (byte[] record : records) {
+                ByteBuffer buffer = ByteBuffer.wrap(record);
+                while (buffer.hasRemaining()) {
+                    written += out.write(buffer, written);
+                }
+            }
+            out.force(true);
+        }
+        log.close();
+        Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        position = log.size();
+        System.out.println("Write-ahead log compacted to " + pending.size() + " pending entries (" + position + " bytes)");
+    }
+
+    /**
+     * Submits pending entries in batches until stopped. A batch that fails unexpectedly leaves its
+     * entries pending and is retried after a backoff; only shutdown ends the loop.
+     */
+    private void submitLoop(Submitter submitter, StatusLookup lookup) {
+        ExecutorService executor = fabricExecutors.newExecutor("wal-submit", batchSize);
+        int failedRounds = 0;
+        try {
+            while (running) {
+                boolean transientFailure;
+                try {
+                    List<Entry> batch = nextBatch();
+                    if (batch.isEmpty()) {
+                        synchronized (pendingSignal) {
+                            if (pending.isEmpty()) {
+                                pendingSignal.wait(1000);
+                            }
+                        }
+                        continue;
+                    }
+                    transientFailure = submitBatch(batch, executor, submitter, lookup);
+                } catch (ExecutionException | IOException | RuntimeException e) {
+                    lastError = "Submitting a batch failed: " + e;
+                    System.err.println("Write-ahead log: " + lastError);
+                    transientFailure = true;
+                }
+                if (transientFailure) {
+                    sleepBackoff(failedRounds++);
+                } else {
+                    failedRounds = 0;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+            if (running) {
+                lastError = "Submitter stopped: " + lastError;
+                System.err.println("Write-ahead log: " + lastError);
+            }
+        }
+    }
+
+    /**
+     * Submits a batch of entries concurrently and journals the done records of those that completed.
+     *
+     * @return true if an entry failed transiently and stays pending.
+     */
+    private boolean submitBatch(List<Entry> batch, ExecutorService executor, Submitter submitter, StatusLookup lookup)
+            throws InterruptedException, ExecutionException, IOException {
+        List<Future<Outcome>> outcomes = new ArrayList<>(batch.size());
+        for (Entry entry : batch) {
+            outcomes.add(executor.submit(() -> attempt(entry, submitter, lookup)));
+        }
+        boolean transientFailure = false;
+        List<CompletableFuture<Void>> done = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            Entry entry = batch.get(i);
+            Outcome outcome = outcomes.get(i).get();
+            entry.attempts++;
+            entry.transactionId = outcome.transactionId;
+            entry.message = outcome.message;
+            if (outcome.status == null) {
+                transientFailure = true;
+                retries.incrementAndGet();
+            } else {
+                entry.status = outcome.status;
+                submitted.incrementAndGet();
+                done.add(enqueue(new Append(encodeDone(entry), entry, outcome.status)));
+            }
+        }
+        for (CompletableFuture<Void> record : done) {
+            try {
+                record.get(ackTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (ExecutionException | TimeoutException e) {
+                // The entry stays pending and is submitted again (delivery is at least once).
+                lastError = "Done record not written: " + e.getMessage();
+            }
+        }
+        return transientFailure;
+    }
+
+    /**
+     * Takes pending entries in acceptance order, skipping any entry for an asset already in the batch.
+     */
+    private List<Entry> nextBatch() {
+        List<Entry> batch = new ArrayList<>();
+        Set<String> assets = new HashSet<>();
+        int scanned = 0;
+        for (Entry entry : pending.values()) {
+            if (batch.size() >= batchSize || ++scanned > batchSize * 16) {
+                break;
+            }
+            if (assets.add(entry.assetId)) {
+                batch.add(entry);
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Submits an entry once, unless the transaction of an earlier attempt has to be looked up
+     * first. A null outcome status means the failure is transient and the entry stays pending.
+     */
+    private Outcome attempt(Entry entry, Submitter submitter, StatusLookup lookup) {
+        try {
+            if (entry.unresolvedTransactionId != null) {
+                Outcome earlier = resolve(entry, lookup);
+                if (earlier != null) {
+                    return earlier;
+                }
+            }
+            return outcome(entry, submitter.submit(entry.assetId, entry.function, entry.args));
+        } catch (CommitStatusException e) {
+            // The transaction reached the orderer and may still commit: look it up before resubmitting.
+            if (e.getTransactionId() != null) {
+                entry.unresolvedTransactionId = e.getTransactionId();
+                entry.unresolvedSince = Instant.now();
+            }
+            return new Outcome(null, e.getTransactionId(), e.getMessage());
+        } catch (AdmissionRejectedException | SubmitException e) {
+            return new Outcome(null, null, e.getMessage());
+        } catch (GatewayException e) {
+            io.grpc.Status.Code code = e.getStatus().getCode();
+            boolean retryable = code == io.grpc.Status.Code.UNAVAILABLE || code == io.grpc.Status.Code.DEADLINE_EXCEEDED
+                    || code == io.grpc.Status.Code.RESOURCE_EXHAUSTED;
+            return new Outcome(retryable ? null : FAILED, null, e.getMessage());
+        } catch (RuntimeException e) {
+            return new Outcome(FAILED, null, e.getMessage());
+        }
+    }
+
+    /**
+     * Looks up the transaction of an earlier attempt whose commit status was unknown.
+     *
+     * @return The outcome if that transaction settles the entry or is still unknown, or null if the
+     * entry is to be resubmitted (the transaction lost a read conflict, or never reached the ledger).
+     */
+    private Outcome resolve(Entry entry, StatusLookup lookup) {
+        String transactionId = entry.unresolvedTransactionId;
+        Optional<Status> status;
+        try {
+            status = lookup.lookup(transactionId);
+        } catch (GatewayException | RuntimeException e) {
+            return new Outcome(null, transactionId, "Cannot look up transaction " + transactionId + ": " + e.getMessage());
+        }
+        if (status.isEmpty()) {
+            if (entry.unresolvedSince.plus(unknownStatusGrace).isAfter(Instant.now())) {
+                return new Outcome(null, transactionId, "Transaction " + transactionId + " is not on the ledger yet");
+            }
+            System.out.println("Write-ahead log: transaction " + transactionId + " of request " + entry.id
+                    + " not on the ledger after " + unknownStatusGrace + ", resubmitting");
+            entry.unresolvedTransactionId = null;
+            entry.unresolvedSince = null;
+            return null;
+        }
+        entry.unresolvedTransactionId = null;
+        entry.unresolvedSince = null;
+        Outcome outcome = outcome(entry, status.get());
+        return outcome.status != null ? outcome : null;
+    }
+
+    /**
+     * Maps a commit status to an outcome: committed, failed, or pending again after a read
+     * conflict (until maxConflictAttempts conflicts).
+     */
+    private Outcome outcome(Entry entry, Status status) {
+        if (status.isSuccessful()) {
+            return new Outcome(COMMITTED, status.getTransactionId(), "Committed in block " + status.getBlockNumber());
+        }
+        String message = "Transaction invalidated with code " + status.getCode() + " in block " + status.getBlockNumber();
+        if (!WriteScheduler.isReadConflict(status.getCode())) {
+            return new Outcome(FAILED, status.getTransactionId(), message);
+        }
+        if (++entry.conflicts >= maxConflictAttempts) {
+            return new Outcome(FAILED, status.getTransactionId(), message + " (" + entry.conflicts + " attempts lost to read conflicts)");
+        }
+        return new Outcome(null, status.getTransactionId(), message);
+    }
+
+    private void sleepBackoff(int failedRounds) throws InterruptedException {
+        long cap = Math.min(retryBackoffMax.toNanos(), retryBackoffBase.toNanos() << Math.min(failedRounds, 20));
+        TimeUnit.NANOSECONDS.sleep(cap / 2 + ThreadLocalRandom.current().nextLong(cap / 2 + 1));
+    }
+
+    private CompletableFuture<Void> enqueue(Append append) {
+        queue.add(append);
+        return append.durable;
+    }
+
+    private void await(CompletableFuture<Void> durable) {
+        try {
+            durable.get(ackTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AdmissionRejectedException("Interrupted waiting for the write-ahead log", HttpStatus.SERVICE_UNAVAILABLE, 1);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new AdmissionRejectedException("Write-ahead log unavailable: " + e.getMessage(), HttpStatus.SERVICE_UNAVAILABLE, 1);
+        }
+    }
+
+    private static byte[] encodeEntry(Entry entry) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(ENTRY);
+        out.writeLong(entry.id);
+        out.writeLong(entry.acceptedAt.toEpochMilli());
+        out.writeUTF(entry.function);
+        out.writeUTF(entry.assetId);
+        out.writeInt(entry.args.length);
+        for (String arg : entry.args) {
+            out.writeUTF(arg);
+        }
+        return frame(bytes.toByteArray());
+    }
+
+    private static byte[] encodeDone(Entry entry) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(DONE);
+        out.writeLong(entry.id);
+        out.writeUTF(entry.status);
+        out.writeUTF(entry.transactionId != null ? entry.transactionId : "");
+        String message = entry.message != null ? entry.message : "";
+        out.writeUTF(message.length() > 1000 ? message.substring(0, 1000) : message);
+        return frame(bytes.toByteArray());
+    }
+
+    /**
+     * A record of the last request ID issued: replay only resumes issuing IDs after it.
+     */
+    private static byte[] encodeIdMark(long id) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(ID_MARK);
+        out.writeLong(id);
+        return frame(bytes.toByteArray());
+    }
+
+    /**
+     * Prefixes a record payload with its length and CRC32.
+     */
+    private static byte[] frame(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return ByteBuffer.allocate(RECORD_HEADER_SIZE + payload.length)
+                .putInt(payload.length)
+                .putInt((int) crc.getValue())
+                .put(payload)
+                .array();
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+
+    /**
+     * @return true if submission was started and the submitter has stopped while the log is still open.
+     */
+    public boolean isSubmitterStopped() {
+        Thread thread = submitterThread;
+        return running && thread != null && !thread.isAlive();
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    /**
+     * @return The journal's state: pending entries, group commit and submission counters.
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", enabled);
+        status.put("pending", pending.size());
+        status.put("oldestPending", pending.isEmpty() ? null : pending.firstEntry().getValue().acceptedAt.toString());
+        status.put("journalBytes", position);
+        long commits = groupCommits.get();
+        status.put("groupCommits", commits);
+        status.put("recordsWritten", recordsWritten.get());
+        status.put("recordsPerGroupCommit", commits > 0 ? (double) recordsWritten.get() / commits : 0);
+        status.put("completed", submitted.get());
+        status.put("retries", retries.get());
+        status.put("submitting", submitterThread != null && submitterThread.isAlive());
+        status.put("lastError", lastError);
+        return status;
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        running = false;
+        for (Thread thread : new Thread[]{submitterThread, writerThread}) {
+            if (thread != null) {
+                thread.interrupt();
+                try {
+                    thread.join(TimeUnit.SECONDS.toMillis(5));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+        try {
+            if (log != null) {
+                log.close();
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to close write-ahead log: " + e.getMessage());
+        }
+    }
+
+    /**
+     * A record queued for the writer thread: a new entry, or the done record of an entry.
+     */
+    private static class Append {
+        private final byte[] record;
+        private final Entry entry;
+        private final String done;
+        private final CompletableFuture<Void> durable = new CompletableFuture<>();
+
+        Append(byte[] record, Entry entry, String done) {
+            this.record = record;
+            this.entry = entry;
+            this.done = done;
+        }
+    }
+
+    private record Outcome(String status, String transactionId, String message) {
+    }
+
+    /**
+     * A journaled write request. The status is PENDING until the write commits (COMMITTED) or
+     * fails permanently (FAILED).
+     */
+    public static class Entry {
+        private final long id;
+        private final String function;
+        private final String assetId;
+        private final String[] args;
+        private final Instant acceptedAt;
+        private byte[] record;
+        private volatile String status = PENDING;
+        private volatile int attempts;
+        private volatile String transactionId;
+        private volatile String message;
+        // Only used by the submitter: the transaction to look up before resubmitting, and conflicts so far.
+        private String unresolvedTransactionId;
+        private Instant unresolvedSince;
+        private int conflicts;
+
+        Entry(long id, String function, String assetId, String[] args, Instant acceptedAt) {
+            this.id = id;
+            this.function = function;
+            this.assetId = assetId;
+            this.args = args;
+            this.acceptedAt = acceptedAt;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public String getFunction() {
+            return function;
+        }
+
+        public String getAssetId() {
+            return assetId;
+        }
+
+        public Instant getAcceptedAt() {
+            return acceptedAt;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        public int getAttempts() {
+            return attempts;
+        }
+
+        public String getTransactionId() {
+            return transactionId;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package com.example.fabnew.fabric;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hyperledger.fabric.client.GatewayException;
+import org.hyperledger.fabric.client.Status;
+import org.hyperledger.fabric.protos.peer.TxValidationCode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * WriteScheduler serializes writes to the same asset and retries writes lost to MVCC conflicts.
+ * <p>
+ * Two transactions endorsed concurrently against the same key read the same version, so at most
+ * one of them can commit; the others are invalidated with MVCC_READ_CONFLICT. To avoid this, a
+ * write holds a lock on its asset key from endorsement until its commit status is known, so the
+ * next write to that key is endorsed against the committed value. Keys map onto
+ * {@code fabric.writes.stripes} striped locks, so writes to different keys still run in parallel
+ * (barring an occasional shared stripe).
+ * <p>
+ * A stripe is a queue of futures rather than a thread-owned lock: each holder's release completes
+ * the future the next writer chained onto, in arrival order. A waiting writer holds no thread
+ * while it is queued behind a commit it can be notified of, and an async write can refuse a busy
+ * key at once ({@link #tryLock}) instead of parking its request thread.
+ * <p>
+ * Conflicts can still occur with writers outside this service. A transaction invalidated with
+ * MVCC_READ_CONFLICT or PHANTOM_READ_CONFLICT is resubmitted up to {@code fabric.writes.maxRetries}
+ * times, after a backoff with full jitter between zero and
+ * {@code min(backoffMax, backoffBase * 2^attempt)}.
+ */
+@Component
+public class WriteScheduler {
+
+    @Value("${fabric.writes.lockTimeout:PT30S}")
+    private Duration lockTimeout;
+
+    @Value("${fabric.writes.maxRetries:3}")
+    private int maxRetries;
+
+    @Value("${fabric.writes.backoffBase:PT0.05S}")
+    private Duration backoffBase;
+
+    @Value("${fabric.writes.backoffMax:PT2S}")
+    private Duration backoffMax;
+
+    // The release future of the last writer queued on each stripe, or null if the stripe is free.
+    private final AtomicReference<CompletableFuture<Void>>[] stripes;
+    private final MeterRegistry registry;
+    private final Counter exhausted;
+
+    public WriteScheduler(@Value("${fabric.writes.stripes:1024}") int stripeCount, MeterRegistry registry) {
+        if (stripeCount < 1) {
+            throw new IllegalStateException("fabric.writes.stripes must be at least 1");
+        }
+        @SuppressWarnings("unchecked")
+        AtomicReference<CompletableFuture<Void>>[] tails = new AtomicReference[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            tails[i] = new AtomicReference<>();
+        }
+        this.stripes = tails;
+        this.registry = registry;
+        this.exhausted = Counter.builder("fabric.client.writes.conflicts.exhausted")
+                .description("Writes still invalidated by a read conflict after all retries")
+                .register(registry);
+    }
+
+    /**
+     * One attempt at a write: endorse, submit and wait for the commit status.
+     */
+    @FunctionalInterface
+    public interface Attempt {
+        Status run() throws GatewayException;
+    }
+
+    /**
+     * One attempt at a write whose commit is awaited asynchronously: endorse and submit, then
+     * return the future of the commit status.
+     */
+    @FunctionalInterface
+    public interface AsyncAttempt {
+        CompletableFuture<Status> start();
+    }
+
+    /**
+     * Runs a write while holding the lock of its key, resubmitting it if it is invalidated by a read conflict.
+     *
+     * @param key     The asset key written by the transaction.
+     * @param attempt Endorses, submits and awaits the commit of the transaction.
+     * @return The commit status of the last attempt.
+     * @throws GatewayException if an attempt fails before its commit status is known.
+     * @throws AdmissionRejectedException if the key's lock is not acquired within the lock timeout.
+     */
+    public Status execute(String key, Attempt attempt) throws GatewayException {
+        Runnable unlock = lock(key);
+        try {
+            for (int retry = 0; ; retry++) {
+                Status status = attempt.run();
+                if (!shouldRetry(key, status, retry) || !sleep(backoff(retry))) {
+                    return status;
+                }
+            }
+        } finally {
+            unlock.run();
+        }
+    }
+
+    /**
+     * Runs a write as {@link #execute} does without holding a thread while it waits: it is queued
+     * behind the earlier writes to its key, its attempts are started on the executor once the lock
+     * is handed over, and the backoff before a retry is a delay rather than a sleep. The lock is
+     * released when the returned future completes.
+     *
+     * @param key      The asset key written by the transaction.
+     * @param executor Runs the attempts (endorsement and submit block their thread).
+     * @param attempt  Endorses and submits the transaction, returning the future of its commit status.
+     * @return A future completed with the commit status of the last attempt, or exceptionally if an
+     * attempt fails before its commit status is known.
+     */
+    public CompletableFuture<Status> executeAsync(String key, Executor executor, AsyncAttempt attempt) {
+        CompletableFuture<Runnable> acquired = acquire(key);
+        CompletableFuture<Status> result = acquired.thenComposeAsync(unlock -> attemptAsync(key, executor, attempt, 0), executor);
+        // Released however the write ends, including a rejected task.
+        result.whenComplete((status, error) -> acquired.thenAccept(Runnable::run));
+        return result;
+    }
+
+    private CompletableFuture<Status> attemptAsync(String key, Executor executor, AsyncAttempt attempt, int retry) {
+        return attempt.start().thenCompose(status -> {
+            if (!shouldRetry(key, status, retry)) {
+                return CompletableFuture.completedFuture(status);
+            }
+            Executor delayed = CompletableFuture.delayedExecutor(backoff(retry), TimeUnit.NANOSECONDS, executor);
+            return CompletableFuture.supplyAsync(() -> attemptAsync(key, executor, attempt, retry + 1), delayed)
+                    .thenCompose(Function.identity());
+        });
+    }
+
+    /**
+     * Decides whether a write is resubmitted, counting the retry or the exhausted retries.
+     *
+     * @param retry The number of retries already made.
+     * @return true if the status is a read conflict and retries remain.
+     */
+    private boolean shouldRetry(String key, Status status, int retry) {
+        if (status.isSuccessful() || !isReadConflict(status.getCode())) {
+            return false;
+        }
+        if (retry >= maxRetries) {
+            exhausted.increment();
+            return false;
+        }
+        Counter.builder("fabric.client.writes.retries")
+                .description("Writes resubmitted after a read conflict")
+                .tag("code", status.getCode().name())
+                .register(registry)
+                .increment();
+        System.out.println("Transaction " + status.getTransactionId() + " on " + key + " invalidated with "
+                + status.getCode() + ", retry " + (retry + 1) + " of " + maxRetries);
+        return true;
+    }
+
+    /**
+     * Acquires the lock of a key, waiting for earlier writes to it for up to the lock timeout.
+     *
+     * @param key The asset key.
+     * @return Releases the lock; may be called from any thread, and more than once.
+     * @throws AdmissionRejectedException if the lock is not acquired within the lock timeout.
+     */
+    public Runnable lock(String key) {
+        CompletableFuture<Runnable> acquired = acquire(key);
+        try {
+            return acquired.get(lockTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            abandon(acquired);
+            throw new AdmissionRejectedException("Timed out waiting for earlier writes to " + key, HttpStatus.SERVICE_UNAVAILABLE, 1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abandon(acquired);
+            throw new AdmissionRejectedException("Interrupted waiting for earlier writes to " + key, HttpStatus.SERVICE_UNAVAILABLE, 1);
+        } catch (ExecutionException e) {
+            // acquire() never completes exceptionally.
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Acquires the lock of a key if no earlier write to it is in progress, for writes whose commit
+     * is awaited asynchronously: the request thread is never parked behind another write's commit.
+     *
+     * @param key The asset key.
+     * @return Releases the lock; may be called from any thread, and more than once.
+     * @throws AdmissionRejectedException with 409 if an earlier write to the key (or its stripe) has not committed yet.
+     */
+    public Runnable tryLock(String key) {
+        AtomicReference<CompletableFuture<Void>> stripe = stripe(key);
+        CompletableFuture<Void> released = new CompletableFuture<>();
+        if (!stripe.compareAndSet(null, released)) {
+            throw new AdmissionRejectedException("An earlier write to " + key + " has not committed yet", HttpStatus.CONFLICT, 1);
+        }
+        return unlocker(stripe, released);
+    }
+
+    /**
+     * Queues for the lock of a key behind the writes already queued for it.
+     *
+     * @param key The asset key.
+     * @return A future completed with the lock's release once the earlier writes have released it;
+     * already completed if the key is free.
+     */
+    public CompletableFuture<Runnable> acquire(String key) {
+        AtomicReference<CompletableFuture<Void>> stripe = stripe(key);
+        CompletableFuture<Void> released = new CompletableFuture<>();
+        CompletableFuture<Void> previous = stripe.getAndSet(released);
+        Runnable unlock = unlocker(stripe, released);
+        return previous == null ? CompletableFuture.completedFuture(unlock) : previous.thenApply(v -> unlock);
+    }
+
+    private AtomicReference<CompletableFuture<Void>> stripe(String key) {
+        return stripes[Math.floorMod(key.hashCode(), stripes.length)];
+    }
+
+    /**
+     * @return Hands the lock to the next queued writer, or frees the stripe if there is none.
+     */
+    private static Runnable unlocker(AtomicReference<CompletableFuture<Void>> stripe, CompletableFuture<Void> released) {
+        return () -> {
+            if (released.complete(null)) {
+                stripe.compareAndSet(released, null);
+            }
+        };
+    }
+
+    /**
+     * Gives up a queued acquisition: the lock is released as soon as it is handed over, so the
+     * writers queued behind it are not blocked.
+     */
+    private static void abandon(CompletableFuture<Runnable> acquired) {
+        acquired.thenAccept(Runnable::run);
+    }
+
+    /**
+     * @return true if the validation code means the transaction lost a read conflict and may succeed if resubmitted.
+     */
+    public static boolean isReadConflict(TxValidationCode code) {
+        return code == TxValidationCode.MVCC_READ_CONFLICT || code == TxValidationCode.PHANTOM_READ_CONFLICT;
+    }
+
+    private long backoff(int retry) {
+        long cap = Math.min(backoffMax.toNanos(), backoffBase.toNanos() << Math.min(retry, 20));
+        return ThreadLocalRandom.current().nextLong(cap + 1);
+    }
+
+    private static boolean sleep(long nanos) {
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.fabnew.controller;
+
+import com.example.fabnew.perf.FakeGatewayPeer;
+import com.example.fabnew.perf.FakeNetwork;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Benchmarks the AssetController read and write paths end to end through the Fabric Gateway
+ * client, against a {@link FakeGatewayPeer} on a local port, plus the JSON pretty-printing of
+ * the GetAllAssets result on its own.
+ * <p>
+ * With the default zero latencies the scores measure the client-side cost (proposal building,
+ * signing, gRPC, JSON); set the latency parameters to see how the paths behave against a slow peer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AssetControllerBenchmark {
+
+    @Param({"0"})
+    public long evaluateLatencyMicros;
+
+    @Param({"0"})
+    public long endorseLatencyMicros;
+
+    @Param({"0"})
+    public long commitLatencyMicros;
+
+    @Param({"100", "10000"})
+    public int assetCount;
+
+    @Param({"256"})
+    public int payloadBytes;
+
+    private FakeNetwork network;
+    private AssetController controller;
+    private MethodHandle prettyJson;
+    private byte[] allAssets;
+    private final AtomicLong nextAssetId = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        FakeGatewayPeer.Options options = new FakeGatewayPeer.Options();
+        options.evaluateLatency = Duration.ofNanos(TimeUnit.MICROSECONDS.toNanos(evaluateLatencyMicros));
+        options.endorseLatency = Duration.ofNanos(TimeUnit.MICROSECONDS.toNanos(endorseLatencyMicros));
+        options.commitLatency = Duration.ofNanos(TimeUnit.MICROSECONDS.toNanos(commitLatencyMicros));
+        options.assetCount = assetCount;
+        options.payloadBytes = payloadBytes;
+        network = FakeNetwork.start(options, false);
+        controller = network.getContext().getBean(AssetController.class);
+        prettyJson = MethodHandles.privateLookupIn(AssetController.class, MethodHandles.lookup())
+                .findVirtual(AssetController.class, "prettyJson", MethodType.methodType(String.class, byte[].class));
+        allAssets = controller.getAllAssetsCompact().getBody();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        network.close();
+    }
+
+    @Benchmark
+    public String readAsset() {
+        return controller.readAsset("asset1", new MockHttpServletResponse());
+    }
+
+    @Benchmark
+    public String getAllAssets() {
+        return controller.getAllAssets(new MockHttpServletResponse());
+    }
+
+    @Benchmark
+    public byte[] getAllAssetsCompact() throws Exception {
+        return controller.getAllAssetsCompact().getBody();
+    }
+
+    @Benchmark
+    public byte[] streamAllAssetsNdjson() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        controller.streamAllAssets("ndjson", null, null).getBody().writeTo(out);
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public String createAsset() {
+        AssetController.AssetCreationRequest request = new AssetController.AssetCreationRequest();
+        request.assetID = "bench" + nextAssetId.incrementAndGet();
+        request.color = "red";
+        request.size = 10;
+        request.owner = "Bench";
+        request.appraisedValue = 500;
+        return controller.createAsset(request);
+    }
+
+    @Benchmark
+    public String prettyJson() throws Throwable {
+        return (String) prettyJson.invokeExact(controller, allAssets);
+    }
+}
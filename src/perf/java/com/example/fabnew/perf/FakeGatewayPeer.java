@@ -0,0 +1,396 @@
+package com.example.fabnew.perf;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+import io.grpc.stub.StreamObserver;
+import org.hyperledger.fabric.protos.common.ChannelHeader;
+import org.hyperledger.fabric.protos.common.Envelope;
+import org.hyperledger.fabric.protos.common.Header;
+import org.hyperledger.fabric.protos.common.HeaderType;
+import org.hyperledger.fabric.protos.common.Payload;
+import org.hyperledger.fabric.protos.gateway.ChaincodeEventsResponse;
+import org.hyperledger.fabric.protos.gateway.CommitStatusRequest;
+import org.hyperledger.fabric.protos.gateway.CommitStatusResponse;
+import org.hyperledger.fabric.protos.gateway.EndorseRequest;
+import org.hyperledger.fabric.protos.gateway.EndorseResponse;
+import org.hyperledger.fabric.protos.gateway.EvaluateRequest;
+import org.hyperledger.fabric.protos.gateway.EvaluateResponse;
+import org.hyperledger.fabric.protos.gateway.GatewayGrpc;
+import org.hyperledger.fabric.protos.gateway.SignedChaincodeEventsRequest;
+import org.hyperledger.fabric.protos.gateway.SignedCommitStatusRequest;
+import org.hyperledger.fabric.protos.gateway.SubmitRequest;
+import org.hyperledger.fabric.protos.gateway.SubmitResponse;
+import org.hyperledger.fabric.protos.peer.ChaincodeAction;
+import org.hyperledger.fabric.protos.peer.ChaincodeActionPayload;
+import org.hyperledger.fabric.protos.peer.ChaincodeEndorsedAction;
+import org.hyperledger.fabric.protos.peer.ChaincodeInvocationSpec;
+import org.hyperledger.fabric.protos.peer.ChaincodeProposalPayload;
+import org.hyperledger.fabric.protos.peer.Proposal;
+import org.hyperledger.fabric.protos.peer.ProposalResponsePayload;
+import org.hyperledger.fabric.protos.peer.Response;
+import org.hyperledger.fabric.protos.peer.SignedProposal;
+import org.hyperledger.fabric.protos.peer.Transaction;
+import org.hyperledger.fabric.protos.peer.TransactionAction;
+import org.hyperledger.fabric.protos.peer.TxValidationCode;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * FakeGatewayPeer is a stand-in for a Fabric peer's Gateway gRPC service, served on a local
+ * plaintext Netty port, so the service's client paths can be benchmarked and load tested
+ * without a Fabric network.
+ * <p>
+ * It implements the asset-transfer-basic functions (ReadAsset, GetAllAssets, AssetExists,
+ * CreateAsset, UpdateAsset, DeleteAsset) over an in-memory world state seeded with
+ * {@code assetCount} assets of roughly {@code payloadBytes} JSON each. Evaluate, endorse and
+ * submit responses are delayed by the configured latencies, and a commit status is only
+ * returned once {@code commitLatency} has passed since the transaction was submitted
+ * (standing in for block cutting). Signatures are not verified. Chaincode event requests are
+ * accepted and left open without events.
+ * <p>
+ * Run standalone with
+ * {@code java -cp ... com.example.fabnew.perf.FakeGatewayPeer --port=7051 --commitLatency=PT2S}
+ * and point {@code fabric.peerEndpoint} at {@code grpc://localhost:7051}.
+ */
+public class FakeGatewayPeer implements Closeable {
+
+    /**
+     * Latency and payload settings of the fake peer.
+     */
+    public static class Options {
+        public Duration evaluateLatency = Duration.ZERO;
+        public Duration endorseLatency = Duration.ZERO;
+        public Duration submitLatency = Duration.ZERO;
+        public Duration commitLatency = Duration.ZERO;
+        public int assetCount = 100;
+        public int payloadBytes = 256;
+
+        /**
+         * Parses {@code --name=value} arguments; durations use the ISO-8601 form (PT0.5S).
+         */
+        public static Options parse(String[] args) {
+            Options options = new Options();
+            for (String arg : args) {
+                String[] parts = arg.replaceFirst("^--", "").split("=", 2);
+                if (parts.length != 2) {
+                    continue;
+                }
+                switch (parts[0]) {
+                    case "evaluateLatency" -> options.evaluateLatency = Duration.parse(parts[1]);
+                    case "endorseLatency" -> options.endorseLatency = Duration.parse(parts[1]);
+                    case "submitLatency" -> options.submitLatency = Duration.parse(parts[1]);
+                    case "commitLatency" -> options.commitLatency = Duration.parse(parts[1]);
+                    case "assetCount" -> options.assetCount = Integer.parseInt(parts[1]);
+                    case "payloadBytes" -> options.payloadBytes = Integer.parseInt(parts[1]);
+                    default -> { }
+                }
+            }
+            return options;
+        }
+    }
+
+    private final Options options;
+    private final Server server;
+    private final ScheduledExecutorService scheduler;
+    // World state: asset ID -> asset JSON, kept sorted like a CouchDB/LevelDB range query.
+    private final ConcurrentSkipListMap<String, byte[]> assets = new ConcurrentSkipListMap<>();
+    // Writes of endorsed transactions, applied when the transaction is submitted.
+    private final Map<String, Consumer<Map<String, byte[]>>> pendingWrites = new ConcurrentHashMap<>();
+    // Transaction ID -> time (nanos) at which its commit status becomes available.
+    private final Map<String, Long> commitTimes = new ConcurrentHashMap<>();
+    private final Map<String, Long> blockNumbers = new ConcurrentHashMap<>();
+    private final AtomicLong blockNumber = new AtomicLong();
+
+    private FakeGatewayPeer(int port, Options options) throws IOException {
+        this.options = options;
+        this.scheduler = Executors.newScheduledThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()), runnable -> {
+            Thread thread = new Thread(runnable, "fake-peer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 1; i <= options.assetCount; i++) {
+            String id = "asset" + i;
+            assets.put(id, assetJson(id, "blue", 5, "Tomoko", 300));
+        }
+        this.server = NettyServerBuilder.forPort(port)
+                .addService(new GatewayService())
+                .maxInboundMessageSize(64 * 1024 * 1024)
+                .build()
+                .start();
+    }
+
+    /**
+     * Starts a fake peer.
+     *
+     * @param port    The port to listen on, or 0 for any free port.
+     * @param options Latency and payload settings.
+     * @return The running peer.
+     */
+    public static FakeGatewayPeer start(int port, Options options) throws IOException {
+        return new FakeGatewayPeer(port, options);
+    }
+
+    public int getPort() {
+        return server.getPort();
+    }
+
+    /**
+     * @return The endpoint to configure as {@code fabric.peerEndpoint}.
+     */
+    public String getEndpoint() {
+        return "grpc://localhost:" + getPort();
+    }
+
+    @Override
+    public void close() {
+        server.shutdownNow();
+        scheduler.shutdownNow();
+        try {
+            server.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Builds an asset JSON document in the Go asset-transfer-basic format, padding the owner
+     * so the document is roughly payloadBytes long.
+     */
+    private byte[] assetJson(String id, String color, int size, String owner, int appraisedValue) {
+        JsonObject asset = new JsonObject();
+        asset.addProperty("AppraisedValue", appraisedValue);
+        asset.addProperty("Color", color);
+        asset.addProperty("ID", id);
+        StringBuilder paddedOwner = new StringBuilder(owner);
+        int padding = options.payloadBytes - asset.toString().length() - owner.length() - 30;
+        paddedOwner.append(".".repeat(Math.max(0, padding)));
+        asset.addProperty("Owner", paddedOwner.toString());
+        asset.addProperty("Size", size);
+        return asset.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private byte[] allAssetsJson() {
+        JsonArray array = new JsonArray();
+        assets.values().forEach(asset -> array.add(JsonParser.parseString(new String(asset, StandardCharsets.UTF_8))));
+        return array.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Decodes the chaincode function name and arguments from a signed proposal.
+     */
+    private static List<String> chaincodeArgs(SignedProposal signedProposal) throws InvalidProtocolBufferException {
+        Proposal proposal = Proposal.parseFrom(signedProposal.getProposalBytes());
+        ChaincodeProposalPayload payload = ChaincodeProposalPayload.parseFrom(proposal.getPayload());
+        ChaincodeInvocationSpec spec = ChaincodeInvocationSpec.parseFrom(payload.getInput());
+        return spec.getChaincodeSpec().getInput().getArgsList().stream()
+                .map(ByteString::toStringUtf8)
+                .toList();
+    }
+
+    /**
+     * Result of simulating a chaincode function: the response and the writes to apply on commit.
+     */
+    private record Simulation(Response response, Consumer<Map<String, byte[]>> writes) {
+    }
+
+    private Simulation simulate(List<String> args) {
+        String function = args.isEmpty() ? "" : args.get(0);
+        List<String> params = args.subList(Math.min(1, args.size()), args.size());
+        switch (function) {
+            case "GetAllAssets":
+                return ok(allAssetsJson(), null);
+            case "ReadAsset": {
+                byte[] asset = assets.get(param(params, 0));
+                return asset != null ? ok(asset, null) : error("the asset " + param(params, 0) + " does not exist");
+            }
+            case "AssetExists":
+                return ok(String.valueOf(assets.containsKey(param(params, 0))).getBytes(StandardCharsets.UTF_8), null);
+            case "CreateAsset":
+            case "UpdateAsset": {
+                String id = param(params, 0);
+                boolean exists = assets.containsKey(id);
+                if (function.equals("CreateAsset") && exists) {
+                    return error("the asset " + id + " already exists");
+                }
+                if (function.equals("UpdateAsset") && !exists) {
+                    return error("the asset " + id + " does not exist");
+                }
+                byte[] asset = assetJson(id, param(params, 1), parseInt(param(params, 2)), param(params, 3), parseInt(param(params, 4)));
+                return ok(new byte[0], state -> state.put(id, asset));
+            }
+            case "DeleteAsset": {
+                String id = param(params, 0);
+                if (!assets.containsKey(id)) {
+                    return error("the asset " + id + " does not exist");
+                }
+                return ok(new byte[0], state -> state.remove(id));
+            }
+            default:
+                return error("unknown function " + function);
+        }
+    }
+
+    private static String param(List<String> params, int index) {
+        return index < params.size() ? params.get(index) : "";
+    }
+
+    private static int parseInt(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static Simulation ok(byte[] payload, Consumer<Map<String, byte[]>> writes) {
+        return new Simulation(Response.newBuilder().setStatus(200).setPayload(ByteString.copyFrom(payload)).build(), writes);
+    }
+
+    private static Simulation error(String message) {
+        return new Simulation(Response.newBuilder().setStatus(500).setMessage(message).build(), null);
+    }
+
+    /**
+     * Wraps a chaincode response in the endorsed transaction envelope the Gateway client expects.
+     */
+    private static Envelope preparedTransaction(String channelId, String transactionId, Response response) {
+        ChaincodeAction chaincodeAction = ChaincodeAction.newBuilder().setResponse(response).build();
+        ProposalResponsePayload responsePayload = ProposalResponsePayload.newBuilder()
+                .setExtension(chaincodeAction.toByteString())
+                .build();
+        ChaincodeActionPayload actionPayload = ChaincodeActionPayload.newBuilder()
+                .setAction(ChaincodeEndorsedAction.newBuilder().setProposalResponsePayload(responsePayload.toByteString()))
+                .build();
+        Transaction transaction = Transaction.newBuilder()
+                .addActions(TransactionAction.newBuilder().setPayload(actionPayload.toByteString()))
+                .build();
+        ChannelHeader channelHeader = ChannelHeader.newBuilder()
+                .setType(HeaderType.ENDORSER_TRANSACTION_VALUE)
+                .setChannelId(channelId)
+                .setTxId(transactionId)
+                .build();
+        Payload payload = Payload.newBuilder()
+                .setHeader(Header.newBuilder().setChannelHeader(channelHeader.toByteString()))
+                .setData(transaction.toByteString())
+                .build();
+        return Envelope.newBuilder().setPayload(payload.toByteString()).build();
+    }
+
+    /**
+     * Completes a unary call after the given delay without blocking a gRPC thread.
+     */
+    private <T> void respond(StreamObserver<T> observer, Duration delay, T value) {
+        Runnable reply = () -> {
+            observer.onNext(value);
+            observer.onCompleted();
+        };
+        if (delay.isZero()) {
+            reply.run();
+        } else {
+            scheduler.schedule(reply, delay.toNanos(), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private class GatewayService extends GatewayGrpc.GatewayImplBase {
+
+        @Override
+        public void evaluate(EvaluateRequest request, StreamObserver<EvaluateResponse> responseObserver) {
+            try {
+                Simulation simulation = simulate(chaincodeArgs(request.getProposedTransaction()));
+                if (simulation.response().getStatus() != 200) {
+                    responseObserver.onError(Status.ABORTED.withDescription(simulation.response().getMessage()).asRuntimeException());
+                    return;
+                }
+                respond(responseObserver, options.evaluateLatency, EvaluateResponse.newBuilder().setResult(simulation.response()).build());
+            } catch (InvalidProtocolBufferException e) {
+                responseObserver.onError(Status.INVALID_ARGUMENT.withDescription(e.getMessage()).asRuntimeException());
+            }
+        }
+
+        @Override
+        public void endorse(EndorseRequest request, StreamObserver<EndorseResponse> responseObserver) {
+            try {
+                Simulation simulation = simulate(chaincodeArgs(request.getProposedTransaction()));
+                if (simulation.response().getStatus() != 200) {
+                    responseObserver.onError(Status.ABORTED.withDescription(simulation.response().getMessage()).asRuntimeException());
+                    return;
+                }
+                if (simulation.writes() != null) {
+                    pendingWrites.put(request.getTransactionId(), simulation.writes());
+                }
+                Envelope envelope = preparedTransaction(request.getChannelId(), request.getTransactionId(), simulation.response());
+                respond(responseObserver, options.endorseLatency, EndorseResponse.newBuilder().setPreparedTransaction(envelope).build());
+            } catch (InvalidProtocolBufferException e) {
+                responseObserver.onError(Status.INVALID_ARGUMENT.withDescription(e.getMessage()).asRuntimeException());
+            }
+        }
+
+        @Override
+        public void submit(SubmitRequest request, StreamObserver<SubmitResponse> responseObserver) {
+            String transactionId = request.getTransactionId();
+            Consumer<Map<String, byte[]>> writes = pendingWrites.remove(transactionId);
+            if (writes != null) {
+                writes.accept(assets);
+            }
+            blockNumbers.put(transactionId, blockNumber.incrementAndGet());
+            commitTimes.put(transactionId, System.nanoTime() + options.submitLatency.toNanos() + options.commitLatency.toNanos());
+            respond(responseObserver, options.submitLatency, SubmitResponse.getDefaultInstance());
+        }
+
+        @Override
+        public void commitStatus(SignedCommitStatusRequest request, StreamObserver<CommitStatusResponse> responseObserver) {
+            try {
+                String transactionId = CommitStatusRequest.parseFrom(request.getRequest()).getTransactionId();
+                Long commitTime = commitTimes.remove(transactionId);
+                Long block = blockNumbers.remove(transactionId);
+                if (commitTime == null || block == null) {
+                    responseObserver.onError(Status.NOT_FOUND.withDescription("unknown transaction " + transactionId).asRuntimeException());
+                    return;
+                }
+                CommitStatusResponse response = CommitStatusResponse.newBuilder()
+                        .setResult(TxValidationCode.VALID)
+                        .setBlockNumber(block)
+                        .build();
+                respond(responseObserver, Duration.ofNanos(Math.max(0, commitTime - System.nanoTime())), response);
+            } catch (InvalidProtocolBufferException e) {
+                responseObserver.onError(Status.INVALID_ARGUMENT.withDescription(e.getMessage()).asRuntimeException());
+            }
+        }
+
+        @Override
+        public void chaincodeEvents(SignedChaincodeEventsRequest request, StreamObserver<ChaincodeEventsResponse> responseObserver) {
+            // Left open without events until the client cancels or the server shuts down.
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int port = 7051;
+        for (String arg : args) {
+            if (arg.startsWith("--port=")) {
+                port = Integer.parseInt(arg.substring("--port=".length()));
+            }
+        }
+        FakeGatewayPeer peer = start(port, Options.parse(args));
+        System.out.println("Fake Fabric Gateway peer listening on " + peer.getEndpoint());
+        Runtime.getRuntime().addShutdownHook(new Thread(peer::close));
+        peer.server.awaitTermination();
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.fabnew.perf;
+
+import com.example.fabnew.FabnewApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * FakeNetwork starts the application wired to a {@link FakeGatewayPeer}: the peer listens on a
+ * free local port and the application's single peer endpoint points at it. The asset cache and
+ * world state mirror are disabled, so every read reaches the (fake) peer.
+ */
+public class FakeNetwork implements Closeable {
+
+    private final FakeGatewayPeer peer;
+    private final ConfigurableApplicationContext context;
+
+    private FakeNetwork(FakeGatewayPeer peer, ConfigurableApplicationContext context) {
+        this.peer = peer;
+        this.context = context;
+    }
+
+    /**
+     * Starts a fake peer and the application.
+     *
+     * @param options    Latency and payload settings of the fake peer.
+     * @param web        Whether to start the embedded web server (on {@code server.port}).
+     * @param properties Additional application properties, as name=value.
+     * @return The running network.
+     */
+    public static FakeNetwork start(FakeGatewayPeer.Options options, boolean web, String... properties) throws IOException {
+        FakeGatewayPeer peer = FakeGatewayPeer.start(0, options);
+        try {
+            List<String> all = new ArrayList<>(List.of(
+                    "fabric.peerEndpoint=" + peer.getEndpoint(),
+                    "fabric.cache.enabled=false",
+                    "fabric.mirror.enabled=false",
+                    "spring.main.banner-mode=off"));
+            all.addAll(List.of(properties));
+            ConfigurableApplicationContext context = new SpringApplicationBuilder(FabnewApplication.class)
+                    .web(web ? WebApplicationType.SERVLET : WebApplicationType.NONE)
+                    .properties(all.toArray(String[]::new))
+                    .run();
+            return new FakeNetwork(peer, context);
+        } catch (RuntimeException e) {
+            peer.close();
+            throw e;
+        }
+    }
+
+    public FakeGatewayPeer getPeer() {
+        return peer;
+    }
+
+    public ConfigurableApplicationContext getContext() {
+        return context;
+    }
+
+    @Override
+    public void close() {
+        context.close();
+        peer.close();
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.fabnew.perf;
+
+import org.hyperledger.fabric.client.identity.Identities;
+import org.hyperledger.fabric.client.identity.Signer;
+import org.hyperledger.fabric.client.identity.Signers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Benchmarks the cost of signing with the {@code Signers.newPrivateKeySigner} signer used for
+ * every proposal, transaction and commit-status request, with User1's ECDSA key from
+ * {@code fabric-network-certs}. {@code sign} measures the signature alone; {@code hashAndSign}
+ * adds the SHA-256 digest of a message of {@code messageBytes}, as the Gateway client does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SignerBenchmark {
+
+    private static final Path KEY_DIR_PATH = Paths.get("fabric-network-certs", "test-network", "organizations",
+            "peerOrganizations", "org1.example.com", "users", "User1@org1.example.com", "msp", "keystore");
+
+    @Param({"512", "16384"})
+    public int messageBytes;
+
+    private Signer signer;
+    private byte[] message;
+    private byte[] digest;
+
+    @Setup
+    public void setUp() throws Exception {
+        Path keyFile;
+        try (Stream<Path> walk = Files.walk(KEY_DIR_PATH, 1)) {
+            keyFile = walk.filter(Files::isRegularFile).findFirst().orElseThrow();
+        }
+        PrivateKey privateKey;
+        try (Reader keyReader = Files.newBufferedReader(keyFile)) {
+            privateKey = Identities.readPrivateKey(keyReader);
+        }
+        signer = Signers.newPrivateKeySigner(privateKey);
+        message = new byte[messageBytes];
+        new Random(42).nextBytes(message);
+        digest = MessageDigest.getInstance("SHA-256").digest(message);
+    }
+
+    @Benchmark
+    public byte[] sign() throws GeneralSecurityException {
+        return signer.sign(digest);
+    }
+
+    @Benchmark
+    public byte[] hashAndSign() throws GeneralSecurityException {
+        return signer.sign(MessageDigest.getInstance("SHA-256").digest(message));
+    }
+}
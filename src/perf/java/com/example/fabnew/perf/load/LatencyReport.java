@@ -0,0 +1,87 @@
+package com.example.fabnew.perf.load;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LatencyReport records response times in HdrHistograms per load phase (warmup, measure) and
+ * operation, counts errors, and writes a summary table plus one percentile distribution file
+ * ({@code .hgrm}, plottable with the HdrHistogram plotter) per phase and operation.
+ * Latencies are recorded in microseconds and reported in milliseconds.
+ */
+class LatencyReport {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(10);
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99};
+
+    private final Map<String, Series> series = new ConcurrentHashMap<>();
+
+    /**
+     * Records one response.
+     *
+     * @param phase     The load phase the request was issued in.
+     * @param operation The operation.
+     * @param nanos     The response time, measured from the request's intended start.
+     * @param success   Whether the response was successful.
+     */
+    void record(String phase, Operation operation, long nanos, boolean success) {
+        Series s = series.computeIfAbsent(phase + "-" + operation.label(), key -> new Series());
+        s.histogram.recordValue(Math.min(HIGHEST_TRACKABLE_MICROS, Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos))));
+        if (!success) {
+            s.errors.increment();
+        }
+    }
+
+    /**
+     * Prints the summary of every phase and operation.
+     *
+     * @param out             The stream to print to.
+     * @param measuredSeconds Length of the measure phase, for the throughput column.
+     */
+    void printSummary(PrintStream out, double measuredSeconds) {
+        out.printf("%-16s %10s %8s %10s %9s %9s %9s %9s %9s %9s%n",
+                "phase-operation", "count", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "p99.99ms", "max ms");
+        for (Map.Entry<String, Series> entry : new TreeMap<>(series).entrySet()) {
+            Histogram histogram = entry.getValue().histogram;
+            long count = histogram.getTotalCount();
+            double rate = entry.getKey().startsWith("measure") && measuredSeconds > 0 ? count / measuredSeconds : Double.NaN;
+            out.printf("%-16s %10d %8d %10.1f", entry.getKey(), count, entry.getValue().errors.sum(), rate);
+            for (double percentile : PERCENTILES) {
+                out.printf(" %9.2f", histogram.getValueAtPercentile(percentile) / 1000.0);
+            }
+            out.printf(" %9.2f%n", histogram.getMaxValue() / 1000.0);
+        }
+    }
+
+    /**
+     * Writes summary.txt and the .hgrm percentile distributions to a directory.
+     */
+    void write(Path directory, String header, double measuredSeconds) throws IOException {
+        Files.createDirectories(directory);
+        try (PrintStream out = new PrintStream(Files.newOutputStream(directory.resolve("summary.txt")))) {
+            out.println(header);
+            out.println();
+            printSummary(out, measuredSeconds);
+        }
+        for (Map.Entry<String, Series> entry : series.entrySet()) {
+            try (PrintStream out = new PrintStream(Files.newOutputStream(directory.resolve(entry.getKey() + ".hgrm")))) {
+                entry.getValue().histogram.outputPercentileDistribution(out, 1000.0);
+            }
+        }
+    }
+
+    private static class Series {
+        private final Histogram histogram = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+        private final LongAdder errors = new LongAdder();
+    }
+}
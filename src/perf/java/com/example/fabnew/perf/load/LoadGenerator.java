@@ -0,0 +1,188 @@
+package com.example.fabnew.perf.load;
+
+import com.example.fabnew.perf.FakeGatewayPeer;
+import com.example.fabnew.perf.FakeNetwork;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * LoadGenerator drives the /api/assets REST API with a configurable workload and reports
+ * HdrHistogram latency percentiles per operation for the warmup and measure phases.
+ * <p>
+ * In closed-loop mode ({@code --mode=closed --concurrency=N}) N clients each send their next
+ * request when the previous response arrives. In open-loop mode ({@code --mode=open --rate=R})
+ * requests are issued on a fixed schedule of R per second whether or not earlier ones have
+ * completed, and each response time is measured from the request's scheduled start, so a
+ * stalled service is not hidden by the generator slowing down (no coordinated omission).
+ * <p>
+ * With {@code --embedded} the application and a {@link FakeGatewayPeer} are started in this JVM,
+ * so releases and settings can be compared on one machine without a Fabric network; otherwise
+ * requests go to {@code --target}. The report is printed and written to
+ * {@code <report>/<timestamp>/}. See {@link LoadOptions} for all options, for example
+ * {@code --embedded --mode=open --rate=500 --mix=read:70,create:10,update:15,delete:5
+ * --distribution=zipfian --keys=10000 --payloadBytes=1024 --commitLatency=PT2S}.
+ */
+public class LoadGenerator {
+
+    private final LoadOptions options;
+    private final Workload workload;
+    private final HttpClient client;
+    private final ExecutorService clientExecutor;
+    private final LatencyReport report = new LatencyReport();
+    private long measureStart;
+    private long end;
+
+    private LoadGenerator(LoadOptions options, String baseUrl) {
+        this.options = options;
+        this.workload = new Workload(options, baseUrl);
+        this.clientExecutor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "loadgen-http");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .executor(clientExecutor)
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadOptions options = LoadOptions.parse(args);
+        FakeNetwork network = null;
+        String baseUrl = options.target;
+        if (options.embedded) {
+            FakeGatewayPeer.Options peerOptions = new FakeGatewayPeer.Options();
+            peerOptions.evaluateLatency = options.evaluateLatency;
+            peerOptions.endorseLatency = options.endorseLatency;
+            peerOptions.commitLatency = options.commitLatency;
+            peerOptions.assetCount = options.keys;
+            peerOptions.payloadBytes = options.payloadBytes;
+            network = FakeNetwork.start(peerOptions, true, "server.port=0");
+            int port = ((WebServerApplicationContext) network.getContext()).getWebServer().getPort();
+            baseUrl = "http://localhost:" + port;
+        }
+        try {
+            new LoadGenerator(options, baseUrl).run();
+        } finally {
+            if (network != null) {
+                network.close();
+            }
+        }
+    }
+
+    private void run() throws Exception {
+        String header = "Load generator: " + options;
+        System.out.println(header);
+        long start = System.nanoTime();
+        measureStart = start + options.warmup.toNanos();
+        end = measureStart + options.duration.toNanos();
+        if (options.mode == LoadOptions.Mode.CLOSED) {
+            runClosedLoop();
+        } else {
+            runOpenLoop(start);
+        }
+        clientExecutor.shutdownNow();
+
+        double measuredSeconds = options.duration.toNanos() / 1e9;
+        System.out.println();
+        report.printSummary(System.out, measuredSeconds);
+        Path directory = Path.of(options.reportDirectory, LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")));
+        report.write(directory, header, measuredSeconds);
+        System.out.println("Report written to " + directory.toAbsolutePath());
+    }
+
+    /**
+     * Runs {@code concurrency} clients that each wait for a response before sending the next request.
+     */
+    private void runClosedLoop() throws InterruptedException {
+        List<Thread> clients = new ArrayList<>();
+        for (int i = 0; i < options.concurrency; i++) {
+            Thread thread = new Thread(this::closedLoopClient, "loadgen-client-" + i);
+            thread.setDaemon(true);
+            clients.add(thread);
+            thread.start();
+        }
+        for (Thread thread : clients) {
+            thread.join();
+        }
+    }
+
+    private void closedLoopClient() {
+        while (System.nanoTime() - end < 0) {
+            Workload.Request request = workload.next();
+            long startedAt = System.nanoTime();
+            boolean success;
+            try {
+                success = isSuccess(client.send(request.httpRequest(), HttpResponse.BodyHandlers.ofString()));
+            } catch (IOException e) {
+                success = false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            completed(request, startedAt, System.nanoTime(), success);
+        }
+    }
+
+    /**
+     * Issues requests on a fixed schedule; response times are measured from the scheduled start.
+     */
+    private void runOpenLoop(long start) throws InterruptedException {
+        long interval = (long) (TimeUnit.SECONDS.toNanos(1) / options.rate);
+        Semaphore outstanding = new Semaphore(options.maxOutstanding);
+        for (long i = 0; ; i++) {
+            long scheduledAt = start + i * interval;
+            if (scheduledAt - end >= 0) {
+                break;
+            }
+            long wait;
+            while ((wait = scheduledAt - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            // Blocking here does not distort the results: latency still counts from scheduledAt.
+            outstanding.acquire();
+            Workload.Request request = workload.next();
+            client.sendAsync(request.httpRequest(), HttpResponse.BodyHandlers.ofString())
+                    .whenComplete((response, error) -> {
+                        completed(request, scheduledAt, System.nanoTime(), error == null && isSuccess(response));
+                        outstanding.release();
+                    });
+        }
+        if (!outstanding.tryAcquire(options.maxOutstanding, 2, TimeUnit.MINUTES)) {
+            System.err.println("Some requests were still outstanding when the run ended");
+        }
+    }
+
+    private void completed(Workload.Request request, long startedAt, long completedAt, boolean success) {
+        workload.completed(request, success);
+        String phase = startedAt - measureStart < 0 ? "warmup" : "measure";
+        report.record(phase, request.operation(), completedAt - startedAt, success);
+    }
+
+    /**
+     * The synchronous write endpoints report Fabric failures with status 200 and an error message,
+     * so the body is checked as well as the status.
+     */
+    private static boolean isSuccess(HttpResponse<String> response) {
+        if (response.statusCode() / 100 != 2) {
+            return false;
+        }
+        String body = response.body();
+        return body == null || !(body.startsWith("Error") || body.startsWith("Connection failed"));
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.fabnew.perf.load;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Command line options of the {@link LoadGenerator}, given as {@code --name=value}.
+ * Durations use the ISO-8601 form (PT30S).
+ */
+class LoadOptions {
+
+    enum Mode { CLOSED, OPEN }
+
+    enum Distribution { UNIFORM, ZIPFIAN }
+
+    // Base URL of a running service; ignored with --embedded.
+    String target = "http://localhost:9091";
+    // Start the application and a fake peer in this JVM instead of using --target.
+    boolean embedded;
+    // Closed loop: a fixed number of clients each waiting for its previous response.
+    // Open loop: requests issued at a fixed rate regardless of responses.
+    Mode mode = Mode.CLOSED;
+    int concurrency = 16;
+    double rate = 200;
+    // Upper bound on requests in flight in open-loop mode; late requests still count from their intended start.
+    int maxOutstanding = 10_000;
+    Duration warmup = Duration.ofSeconds(10);
+    Duration duration = Duration.ofSeconds(60);
+    // Operation mix as relative weights.
+    final Map<Operation, Integer> mix = new EnumMap<>(Map.of(Operation.READ, 80, Operation.CREATE, 10, Operation.UPDATE, 8, Operation.DELETE, 2));
+    // Keys read and updated are asset1..assetN (the ids the fake peer seeds).
+    int keys = 1000;
+    Distribution distribution = Distribution.UNIFORM;
+    double zipfTheta = 0.99;
+    int payloadBytes = 256;
+    // Send writes with ?async=true.
+    boolean asyncWrites;
+    String reportDirectory = "target/loadgen";
+
+    // Fake peer settings used with --embedded.
+    Duration evaluateLatency = Duration.ZERO;
+    Duration endorseLatency = Duration.ZERO;
+    Duration commitLatency = Duration.ZERO;
+
+    static LoadOptions parse(String[] args) {
+        LoadOptions options = new LoadOptions();
+        for (String arg : args) {
+            if (arg.equals("--embedded")) {
+                options.embedded = true;
+                continue;
+            }
+            String[] parts = arg.replaceFirst("^--", "").split("=", 2);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Expected --name=value: " + arg);
+            }
+            String value = parts[1];
+            switch (parts[0]) {
+                case "target" -> options.target = value.replaceAll("/+$", "");
+                case "embedded" -> options.embedded = Boolean.parseBoolean(value);
+                case "mode" -> options.mode = Mode.valueOf(value.toUpperCase());
+                case "concurrency" -> options.concurrency = Integer.parseInt(value);
+                case "rate" -> options.rate = Double.parseDouble(value);
+                case "maxOutstanding" -> options.maxOutstanding = Integer.parseInt(value);
+                case "warmup" -> options.warmup = Duration.parse(value);
+                case "duration" -> options.duration = Duration.parse(value);
+                case "mix" -> options.parseMix(value);
+                case "keys" -> options.keys = Integer.parseInt(value);
+                case "distribution" -> options.distribution = Distribution.valueOf(value.toUpperCase());
+                case "zipfTheta" -> options.zipfTheta = Double.parseDouble(value);
+                case "payloadBytes" -> options.payloadBytes = Integer.parseInt(value);
+                case "asyncWrites" -> options.asyncWrites = Boolean.parseBoolean(value);
+                case "report" -> options.reportDirectory = value;
+                case "evaluateLatency" -> options.evaluateLatency = Duration.parse(value);
+                case "endorseLatency" -> options.endorseLatency = Duration.parse(value);
+                case "commitLatency" -> options.commitLatency = Duration.parse(value);
+                default -> throw new IllegalArgumentException("Unknown option: " + parts[0]);
+            }
+        }
+        if (options.concurrency < 1 || options.rate <= 0 || options.keys < 1) {
+            throw new IllegalArgumentException("concurrency, rate and keys must be positive");
+        }
+        return options;
+    }
+
+    /**
+     * Parses a mix like {@code read:70,create:10,update:15,delete:5}; omitted operations get weight 0.
+     */
+    private void parseMix(String value) {
+        mix.clear();
+        for (String part : value.split(",")) {
+            String[] entry = part.trim().split(":", 2);
+            if (entry.length != 2) {
+                throw new IllegalArgumentException("Expected operation:weight in mix: " + part);
+            }
+            mix.put(Operation.valueOf(entry[0].trim().toUpperCase()), Integer.parseInt(entry[1].trim()));
+        }
+        if (mix.values().stream().mapToInt(Integer::intValue).sum() <= 0) {
+            throw new IllegalArgumentException("The mix needs at least one positive weight");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "mode=" + mode
+                + (mode == Mode.CLOSED ? " concurrency=" + concurrency : " rate=" + rate + "/s")
+                + " warmup=" + warmup + " duration=" + duration
+                + " mix=" + mix + " keys=" + keys + " distribution=" + distribution
+                + (distribution == Distribution.ZIPFIAN ? "(" + zipfTheta + ")" : "")
+                + " payloadBytes=" + payloadBytes + " asyncWrites=" + asyncWrites
+                + (embedded ? " embedded(evaluate=" + evaluateLatency + ", endorse=" + endorseLatency + ", commit=" + commitLatency + ")" : " target=" + target);
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.fabnew.perf.load;
+
+/**
+ * The /api/assets operations issued by the load generator.
+ */
+enum Operation {
+    READ, CREATE, UPDATE, DELETE;
+
+    String label() {
+        return name().toLowerCase();
+    }
+}
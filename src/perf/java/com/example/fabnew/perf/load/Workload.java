@@ -0,0 +1,134 @@
+package com.example.fabnew.perf.load;
+
+import com.google.gson.JsonObject;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Workload turns the configured operation mix, key distribution and payload size into HTTP
+ * requests against the /api/assets endpoints.
+ * <p>
+ * Reads and updates target the existing keys asset1..assetN. Creates use fresh IDs, so they
+ * never collide with existing assets, and deletes remove assets successfully created earlier in
+ * the run; while there is nothing to delete, a delete is issued as a create instead.
+ */
+class Workload {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofMinutes(2);
+
+    /**
+     * A request to send, with the operation it performs.
+     */
+    record Request(Operation operation, String assetId, HttpRequest httpRequest) {
+    }
+
+    private final LoadOptions options;
+    private final String baseUrl;
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+    private final ZipfianGenerator zipfian;
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong created = new AtomicLong();
+    private final ConcurrentLinkedQueue<String> deletable = new ConcurrentLinkedQueue<>();
+
+    Workload(LoadOptions options, String baseUrl) {
+        this.options = options;
+        this.baseUrl = baseUrl + "/api/assets";
+        Map<Operation, Integer> mix = options.mix;
+        this.operations = mix.keySet().toArray(Operation[]::new);
+        this.cumulativeWeights = new int[operations.length];
+        int total = 0;
+        for (int i = 0; i < operations.length; i++) {
+            total += mix.get(operations[i]);
+            cumulativeWeights[i] = total;
+        }
+        this.zipfian = options.distribution == LoadOptions.Distribution.ZIPFIAN
+                ? new ZipfianGenerator(options.keys, options.zipfTheta) : null;
+    }
+
+    Request next() {
+        switch (nextOperation()) {
+            case READ: {
+                String id = nextKey();
+                return new Request(Operation.READ, id, get("/" + id));
+            }
+            case UPDATE: {
+                String id = nextKey();
+                return new Request(Operation.UPDATE, id, send("PUT", "/update", assetBody(id)));
+            }
+            case DELETE: {
+                String id = deletable.poll();
+                if (id != null) {
+                    return new Request(Operation.DELETE, id, send("DELETE", "/" + id, null));
+                }
+                return create();
+            }
+            default:
+                return create();
+        }
+    }
+
+    private Request create() {
+        String id = "load-" + runId + "-" + created.incrementAndGet();
+        return new Request(Operation.CREATE, id, send("POST", "/create", assetBody(id)));
+    }
+
+    /**
+     * Records the outcome of a request; successfully created assets become candidates for deletion.
+     */
+    void completed(Request request, boolean success) {
+        if (success && request.operation() == Operation.CREATE) {
+            deletable.add(request.assetId());
+        }
+    }
+
+    private Operation nextOperation() {
+        int roll = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < operations.length; i++) {
+            if (roll < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        return operations[operations.length - 1];
+    }
+
+    private String nextKey() {
+        long index = zipfian != null ? zipfian.next() : ThreadLocalRandom.current().nextInt(options.keys);
+        return "asset" + (index + 1);
+    }
+
+    /**
+     * Builds an asset request body of roughly payloadBytes, padding the owner field.
+     */
+    private String assetBody(String id) {
+        JsonObject asset = new JsonObject();
+        asset.addProperty("assetID", id);
+        asset.addProperty("color", "blue");
+        asset.addProperty("size", 5);
+        asset.addProperty("appraisedValue", 300);
+        int padding = options.payloadBytes - asset.toString().length() - 20;
+        asset.addProperty("owner", "Load" + ".".repeat(Math.max(0, padding)));
+        return asset.toString();
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(REQUEST_TIMEOUT).GET().build();
+    }
+
+    private HttpRequest send(String method, String path, String body) {
+        String query = options.asyncWrites ? "?async=true" : "";
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path + query)).timeout(REQUEST_TIMEOUT);
+        if (body == null) {
+            return builder.method(method, HttpRequest.BodyPublishers.noBody()).build();
+        }
+        return builder.header("Content-Type", "application/json")
+                .method(method, HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.fabnew.perf.load;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Generates integers in [0, n) following a Zipfian distribution, so a few hot keys receive most
+ * of the traffic. Uses the rejection-free method of Gray et al., "Quickly Generating
+ * Billion-Record Synthetic Databases" (the same as YCSB); item 0 is the hottest.
+ */
+class ZipfianGenerator {
+
+    private final long items;
+    private final double theta;
+    private final double alpha;
+    private final double zetaN;
+    private final double eta;
+
+    /**
+     * @param items The number of items.
+     * @param theta The skew; 0.99 is the YCSB default, values closer to 0 are more uniform.
+     */
+    ZipfianGenerator(long items, double theta) {
+        if (items < 1 || theta <= 0 || theta >= 1) {
+            throw new IllegalArgumentException("Zipfian needs items >= 1 and 0 < theta < 1");
+        }
+        this.items = items;
+        this.theta = theta;
+        this.zetaN = zeta(items, theta);
+        this.alpha = 1.0 / (1.0 - theta);
+        double zeta2 = zeta(2, theta);
+        this.eta = (1 - Math.pow(2.0 / items, 1 - theta)) / (1 - zeta2 / zetaN);
+    }
+
+    private static double zeta(long n, double theta) {
+        double sum = 0;
+        for (long i = 1; i <= n; i++) {
+            sum += 1 / Math.pow(i, theta);
+        }
+        return sum;
+    }
+
+    long next() {
+        double u = ThreadLocalRandom.current().nextDouble();
+        double uz = u * zetaN;
+        if (uz < 1.0) {
+            return 0;
+        }
+        if (uz < 1.0 + Math.pow(0.5, theta)) {
+            return Math.min(1, items - 1);
+        }
+        return Math.min(items - 1, (long) (items * Math.pow(eta * u - eta + 1, alpha)));
+    }
+}
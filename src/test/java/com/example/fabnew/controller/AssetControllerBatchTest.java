@@ -0,0 +1,212 @@
+package com.example.fabnew.controller;
+
+import com.example.fabnew.fabric.AdmissionController;
+import com.example.fabnew.fabric.AssetCache;
+import com.example.fabnew.fabric.BlockCommitTracker;
+import com.example.fabnew.fabric.CommitStatusTracker;
+import com.example.fabnew.fabric.ContractRouter;
+import com.example.fabnew.fabric.FabricExecutors;
+import com.example.fabnew.fabric.FabricMetrics;
+import com.example.fabnew.fabric.FabricTargetProperties;
+import com.example.fabnew.fabric.PeerPool;
+import com.example.fabnew.fabric.SlowTransactionLog;
+import com.example.fabnew.fabric.WriteScheduler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hyperledger.fabric.client.Contract;
+import org.hyperledger.fabric.client.EndorseException;
+import org.hyperledger.fabric.client.Proposal;
+import org.hyperledger.fabric.client.Status;
+import org.hyperledger.fabric.client.SubmittedTransaction;
+import org.hyperledger.fabric.client.Transaction;
+import org.hyperledger.fabric.protos.peer.TxValidationCode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AssetControllerBatchTest {
+
+    private final Map<String, Proposal> proposals = new ConcurrentHashMap<>();
+    private final Contract contract = mock(Contract.class);
+    private final AssetCache assetCache = mock(AssetCache.class);
+    private CommitStatusTracker commitStatusTracker;
+    private ContractRouter.Target target;
+    private AssetController controller;
+    private ExecutorService batchExecutor;
+
+    @BeforeEach
+    void setUp() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        FabricMetrics fabricMetrics = new FabricMetrics(registry, new SlowTransactionLog());
+        BlockCommitTracker blockCommitTracker = new BlockCommitTracker(registry);
+        ReflectionTestUtils.setField(blockCommitTracker, "mode", "rpc");
+        commitStatusTracker = new CommitStatusTracker(new FabricExecutors(), fabricMetrics, blockCommitTracker);
+        ReflectionTestUtils.setField(commitStatusTracker, "commitWaiters", 4);
+
+        WriteScheduler writeScheduler = new WriteScheduler(1024, registry);
+        ReflectionTestUtils.setField(writeScheduler, "lockTimeout", Duration.ofSeconds(10));
+        // Read conflicts are reported rather than resubmitted.
+        ReflectionTestUtils.setField(writeScheduler, "maxRetries", 0);
+
+        AdmissionController admissionController = new AdmissionController(4, 4, 4, 4);
+        ReflectionTestUtils.setField(admissionController, "enabled", true);
+        ReflectionTestUtils.setField(admissionController, "retryAfter", Duration.ofSeconds(1));
+        ReflectionTestUtils.setField(admissionController, "queueTimeout", Duration.ofSeconds(10));
+        ContractRouter router = new ContractRouter(new FabricTargetProperties(), admissionController);
+        ReflectionTestUtils.setField(router, "defaultChannel", "mychannel");
+        ReflectionTestUtils.setField(router, "defaultChaincode", "basic");
+        router.init();
+        target = router.getDefault();
+
+        PeerPool peerPool = mock(PeerPool.class);
+        PeerPool.Peer peer = mock(PeerPool.Peer.class);
+        when(peer.getName()).thenReturn("peer0");
+        when(peerPool.primary()).thenReturn(peer);
+        when(contract.newProposal("CreateAsset")).thenAnswer(invocation -> proposalBuilder());
+
+        controller = new AssetController(peerPool, null, commitStatusTracker, assetCache, null, admissionController,
+                fabricMetrics, null, writeScheduler, blockCommitTracker, null, null, null, null, router, new SlowTransactionLog());
+        // A single batch worker: commit waits must not hold it, or the batch would run one item at a time.
+        batchExecutor = Executors.newFixedThreadPool(1);
+        ReflectionTestUtils.setField(controller, "batchExecutor", batchExecutor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        batchExecutor.shutdownNow();
+        commitStatusTracker.shutdown();
+    }
+
+    @Test
+    void reportsTheOutcomeOfEachItemInRequestOrder() throws Exception {
+        committing("asset1", TxValidationCode.VALID, null);
+        failingEndorsement("asset2");
+        committing("asset3", TxValidationCode.MVCC_READ_CONFLICT, null);
+
+        List<AssetController.BatchItemResult> results = runBatch("asset1", "asset2", "asset3");
+
+        assertThat(results).extracting(result -> result.assetID).containsExactly("asset1", "asset2", "asset3");
+        assertThat(results).extracting(result -> result.status)
+                .containsExactly("COMMITTED", "ENDORSEMENT_FAILED", "MVCC_CONFLICT");
+        assertThat(results.get(0).transactionId).isEqualTo("tx-asset1");
+        assertThat(results.get(1).transactionId).isEqualTo("tx-asset2");
+        verify(assetCache).invalidateAsset("asset1");
+        verify(assetCache, never()).invalidateAsset("asset3");
+    }
+
+    @Test
+    void submitsEveryItemBeforeAnyCommitStatusArrives() throws Exception {
+        CountDownLatch blockCut = new CountDownLatch(1);
+        SubmittedTransaction first = committing("asset1", TxValidationCode.VALID, blockCut);
+        SubmittedTransaction second = committing("asset2", TxValidationCode.VALID, blockCut);
+        SubmittedTransaction third = committing("asset3", TxValidationCode.VALID, blockCut);
+
+        CompletableFuture<List<AssetController.BatchItemResult>> batch =
+                CompletableFuture.supplyAsync(() -> runBatch("asset1", "asset2", "asset3"));
+
+        // All three reach the orderer through the single batch worker while no commit status is known.
+        verify(first, timeout(5000)).getStatus();
+        verify(second, timeout(5000)).getStatus();
+        verify(third, timeout(5000)).getStatus();
+        assertThat(batch).isNotDone();
+
+        blockCut.countDown();
+
+        assertThat(batch.get(5, TimeUnit.SECONDS)).extracting(result -> result.status)
+                .containsExactly("COMMITTED", "COMMITTED", "COMMITTED");
+    }
+
+    private List<AssetController.BatchItemResult> runBatch(String... assetIds) {
+        List<AssetController.AssetCreationRequest> requests = new ArrayList<>();
+        for (String assetId : assetIds) {
+            AssetController.AssetCreationRequest request = new AssetController.AssetCreationRequest();
+            request.assetID = assetId;
+            request.color = "blue";
+            request.size = 5;
+            request.owner = "Tom";
+            request.appraisedValue = 100;
+            requests.add(request);
+        }
+        return ReflectionTestUtils.invokeMethod(controller, "runBatch", target, contract, "CreateAsset", requests);
+    }
+
+    /**
+     * Prepares an item that is endorsed and submitted, and whose commit status is reported once
+     * the latch (if any) is released.
+     */
+    @SuppressWarnings("unchecked")
+    private SubmittedTransaction committing(String assetId, TxValidationCode code, CountDownLatch blockCut) throws Exception {
+        String transactionId = "tx-" + assetId;
+        Status status = mock(Status.class);
+        when(status.getTransactionId()).thenReturn(transactionId);
+        when(status.getBlockNumber()).thenReturn(1L);
+        when(status.getCode()).thenReturn(code);
+        when(status.isSuccessful()).thenReturn(code == TxValidationCode.VALID);
+
+        SubmittedTransaction submitted = mock(SubmittedTransaction.class);
+        when(submitted.getTransactionId()).thenReturn(transactionId);
+        when(submitted.getStatus()).thenAnswer(invocation -> {
+            if (blockCut != null) {
+                blockCut.await(10, TimeUnit.SECONDS);
+            }
+            return status;
+        });
+        Transaction transaction = mock(Transaction.class);
+        when(transaction.submitAsync(any(UnaryOperator.class))).thenReturn(submitted);
+        Proposal proposal = proposal(assetId);
+        when(proposal.endorse(any(UnaryOperator.class))).thenReturn(transaction);
+        return submitted;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void failingEndorsement(String assetId) throws Exception {
+        Proposal proposal = proposal(assetId);
+        when(proposal.endorse(any(UnaryOperator.class)))
+                .thenThrow(new EndorseException("tx-" + assetId, io.grpc.Status.ABORTED.asRuntimeException()));
+    }
+
+    private Proposal proposal(String assetId) {
+        Proposal proposal = mock(Proposal.class);
+        when(proposal.getTransactionId()).thenReturn("tx-" + assetId);
+        proposals.put(assetId, proposal);
+        return proposal;
+    }
+
+    /**
+     * A proposal builder that builds the proposal prepared for the asset named by its first argument.
+     */
+    private Proposal.Builder proposalBuilder() {
+        AtomicReference<String> assetId = new AtomicReference<>();
+        return mock(Proposal.Builder.class, invocation -> {
+            String method = invocation.getMethod().getName();
+            if (method.equals("addArguments") && invocation.getRawArguments()[0] instanceof String[] args) {
+                assetId.set(args[0]);
+            }
+            if (method.equals("build")) {
+                return proposals.get(assetId.get());
+            }
+            return invocation.getMethod().getReturnType().isInstance(invocation.getMock()) ? invocation.getMock() : null;
+        });
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.fabnew.fabric;
+
+import org.hyperledger.fabric.client.ChaincodeEvent;
+import org.hyperledger.fabric.client.ChaincodeEventsRequest;
+import org.hyperledger.fabric.client.CloseableIterator;
+import org.hyperledger.fabric.client.GatewayException;
+import org.hyperledger.fabric.client.Network;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AssetCacheTest {
+
+    private AssetCache cache;
+    private final Map<String, AtomicInteger> loads = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        cache = new AssetCache();
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "maxEntries", 100);
+        ReflectionTestUtils.setField(cache, "ttl", Duration.ofMinutes(5));
+        // As if the chaincode event listener were connected.
+        ReflectionTestUtils.setField(cache, "listening", true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        cache.shutdown();
+    }
+
+    @Test
+    void servesRepeatedReadsFromTheCache() throws GatewayException {
+        assertThat(read("asset1")).isEqualTo("asset1#1");
+        assertThat(read("asset1")).isEqualTo("asset1#1");
+        assertThat(readAll()).isEqualTo("all#1");
+        assertThat(readAll()).isEqualTo("all#1");
+
+        assertThat(cache.getStats()).containsEntry("hits", 2L).containsEntry("misses", 2L).containsEntry("size", 2);
+    }
+
+    @Test
+    void bypassesTheCacheWhileTheEventListenerIsNotConnected() throws GatewayException {
+        ReflectionTestUtils.setField(cache, "listening", false);
+
+        read("asset1");
+
+        assertThat(read("asset1")).isEqualTo("asset1#2");
+        assertThat(cache.getStats()).containsEntry("size", 0);
+    }
+
+    @Test
+    void invalidatesAnAssetAndTheAllAssetsResult() throws GatewayException {
+        read("asset1");
+        read("asset2");
+        readAll();
+
+        cache.invalidateAsset("asset1");
+
+        assertThat(read("asset1")).isEqualTo("asset1#2");
+        assertThat(readAll()).isEqualTo("all#2");
+        assertThat(read("asset2")).isEqualTo("asset2#1");
+    }
+
+    @Test
+    void doesNotStoreAValueLoadedAcrossAnInvalidation() throws GatewayException {
+        cache.readAsset("asset1", () -> {
+            // A write commits while the read is in flight.
+            cache.invalidateAsset("asset1");
+            return load("asset1");
+        });
+
+        assertThat(read("asset1")).isEqualTo("asset1#2");
+    }
+
+    @Test
+    void expiresEntriesAfterTheTtl() throws GatewayException {
+        ReflectionTestUtils.setField(cache, "ttl", Duration.ZERO);
+
+        read("asset1");
+
+        assertThat(read("asset1")).isEqualTo("asset1#2");
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedEntry() throws GatewayException {
+        ReflectionTestUtils.setField(cache, "maxEntries", 2);
+        read("asset1");
+        read("asset2");
+        read("asset1");
+
+        read("asset3");
+
+        assertThat(read("asset1")).isEqualTo("asset1#1");
+        assertThat(read("asset2")).isEqualTo("asset2#2");
+        assertThat((long) cache.getStats().get("evictions")).isGreaterThanOrEqualTo(1);
+    }
+
+    @Test
+    void invalidatesFromChaincodeEvents() throws GatewayException {
+        ReflectionTestUtils.setField(cache, "listening", false);
+        EventStream stream = new EventStream();
+        Network network = mock(Network.class);
+        ChaincodeEventsRequest.Builder builder = mock(ChaincodeEventsRequest.Builder.class, RETURNS_SELF);
+        ChaincodeEventsRequest request = mock(ChaincodeEventsRequest.class);
+        when(network.newChaincodeEventsRequest("basic")).thenReturn(builder);
+        when(builder.build()).thenReturn(request);
+        when(request.getEvents()).thenReturn(stream);
+        cache.start(() -> network, "basic");
+        await(() -> Boolean.TRUE.equals(cache.getStats().get("listening")));
+        read("asset1");
+        read("asset2");
+
+        stream.add(event("{\"ID\":\"asset1\",\"Color\":\"red\"}"));
+        await(() -> (long) cache.getStats().get("invalidations") == 2);
+
+        assertThat(read("asset1")).isEqualTo("asset1#2");
+        assertThat(read("asset2")).isEqualTo("asset2#1");
+
+        // A payload that names no asset invalidates everything.
+        stream.add(event("[1,2]"));
+        await(() -> (long) cache.getStats().get("invalidations") == 3);
+
+        assertThat(read("asset2")).isEqualTo("asset2#2");
+    }
+
+    private String read(String assetId) throws GatewayException {
+        return new String(cache.readAsset(assetId, () -> load(assetId)), StandardCharsets.UTF_8);
+    }
+
+    private String readAll() throws GatewayException {
+        return new String(cache.readAll(() -> load("all")), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return The key and how many times it has been loaded, so a cached value can be told from a fresh one.
+     */
+    private byte[] load(String key) {
+        int count = loads.computeIfAbsent(key, k -> new AtomicInteger()).incrementAndGet();
+        return (key + "#" + count).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static ChaincodeEvent event(String payload) {
+        ChaincodeEvent event = mock(ChaincodeEvent.class);
+        when(event.getBlockNumber()).thenReturn(10L);
+        when(event.getPayload()).thenReturn(payload.getBytes(StandardCharsets.UTF_8));
+        return event;
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met within 10s").isLessThan(deadline);
+            try {
+                TimeUnit.MILLISECONDS.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AssertionError(e);
+            }
+        }
+    }
+
+    /**
+     * A chaincode event stream fed by the test.
+     */
+    private static final class EventStream implements CloseableIterator<ChaincodeEvent> {
+        private final BlockingQueue<ChaincodeEvent> events = new LinkedBlockingQueue<>();
+
+        void add(ChaincodeEvent event) {
+            events.add(event);
+        }
+
+        @Override
+        public boolean hasNext() {
+            // The stream never ends; the listener is stopped by interrupting it.
+            return true;
+        }
+
+        @Override
+        public ChaincodeEvent next() {
+            try {
+                return events.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
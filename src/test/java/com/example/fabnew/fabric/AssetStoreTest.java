@@ -0,0 +1,93 @@
+package com.example.fabnew.fabric;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AssetStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recoversTheLatestValueOfEveryKeyAfterReopening() throws IOException {
+        try (AssetStore store = new AssetStore(directory)) {
+            store.apply(List.of(put("asset1", "blue"), put("asset2", "red"), put("asset3", "green")));
+            store.apply(List.of(put("asset1", "yellow"), delete("asset2")));
+        }
+
+        try (AssetStore store = new AssetStore(directory)) {
+            assertThat(store.size()).isEqualTo(2);
+            assertThat(value(store, "asset1")).isEqualTo("yellow");
+            assertThat(store.get("asset2")).isEmpty();
+            assertThat(value(store, "asset3")).isEqualTo("green");
+            List<String> keys = new ArrayList<>();
+            store.forEach((key, value) -> keys.add(key));
+            assertThat(keys).containsExactly("asset1", "asset3");
+        }
+    }
+
+    @Test
+    void discardsARecordTornByACrash() throws IOException {
+        try (AssetStore store = new AssetStore(directory)) {
+            store.apply(List.of(put("asset1", "blue"), put("asset2", "red")));
+        }
+        long intact = Files.size(log());
+        // The header and key of a record whose value never made it to disk.
+        ByteBuffer torn = ByteBuffer.allocate(8 + 6).putInt(6).putInt(100).put("asset3".getBytes(StandardCharsets.UTF_8));
+        Files.write(log(), torn.array(), StandardOpenOption.APPEND);
+
+        try (AssetStore store = new AssetStore(directory)) {
+            assertThat(Files.size(log())).isEqualTo(intact);
+            assertThat(store.size()).isEqualTo(2);
+            assertThat(store.get("asset3")).isEmpty();
+            store.apply(List.of(put("asset3", "green")));
+        }
+
+        // The record appended after recovery is not hidden behind the torn one.
+        try (AssetStore store = new AssetStore(directory)) {
+            assertThat(value(store, "asset2")).isEqualTo("red");
+            assertThat(value(store, "asset3")).isEqualTo("green");
+        }
+    }
+
+    @Test
+    void discardsAPartialRecordHeader() throws IOException {
+        try (AssetStore store = new AssetStore(directory)) {
+            store.apply(List.of(put("asset1", "blue")));
+        }
+        long intact = Files.size(log());
+        Files.write(log(), new byte[]{0, 0, 0}, StandardOpenOption.APPEND);
+
+        try (AssetStore store = new AssetStore(directory)) {
+            assertThat(value(store, "asset1")).isEqualTo("blue");
+        }
+        assertThat(Files.size(log())).isEqualTo(intact);
+    }
+
+    private Path log() {
+        return directory.resolve("assets.log");
+    }
+
+    private static BlockDecoder.KeyWrite put(String key, String value) {
+        return new BlockDecoder.KeyWrite(key, false, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static BlockDecoder.KeyWrite delete(String key) {
+        return new BlockDecoder.KeyWrite(key, true, null);
+    }
+
+    private static String value(AssetStore store, String key) throws IOException {
+        return new String(store.get(key).orElseThrow(), StandardCharsets.UTF_8);
+    }
+}
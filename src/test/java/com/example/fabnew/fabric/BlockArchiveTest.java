@@ -0,0 +1,172 @@
+package com.example.fabnew.fabric;
+
+import com.google.protobuf.ByteString;
+import org.hyperledger.fabric.protos.common.Block;
+import org.hyperledger.fabric.protos.common.BlockData;
+import org.hyperledger.fabric.protos.common.BlockHeader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BlockArchiveTest {
+
+    // Small enough that a few blocks fill a segment, so ranges span several segments.
+    private static final long SEGMENT_BYTES = 256;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsRangesAcrossSegments() throws IOException {
+        try (BlockArchive archive = open()) {
+            appendBlocks(archive, 10, 29);
+
+            assertThat(archive.getFirstBlock()).isEqualTo(10);
+            assertThat(archive.getLastBlock()).isEqualTo(29);
+            assertThat(segmentCount()).isGreaterThan(1);
+            assertThat(read(archive, 13, 24)).containsExactlyElementsOf(range(13, 24));
+            // Out of range bounds are clamped to the archived blocks.
+            assertThat(read(archive, 0, 100)).containsExactlyElementsOf(range(10, 29));
+            assertThat(read(archive, 30, 40)).isEmpty();
+        }
+    }
+
+    @Test
+    void readsRangesLongerThanOneIndexChunk() throws IOException {
+        // Larger segments, so a run of blocks in one segment crosses the 4096 entry chunk boundary.
+        try (BlockArchive archive = new BlockArchive(directory, 64 * 1024, Deflater.BEST_SPEED)) {
+            appendBlocks(archive, 0, 4199);
+
+            List<Long> numbers = new ArrayList<>();
+            archive.forEachRecord(1, 4198, (number, record) -> numbers.add(number));
+
+            assertThat(numbers).containsExactlyElementsOf(range(1, 4198));
+            assertThat(read(archive, 4090, 4100)).containsExactlyElementsOf(range(4090, 4100));
+        }
+    }
+
+    @Test
+    void ignoresRedeliveredBlocksAndRejectsGaps() throws IOException {
+        try (BlockArchive archive = open()) {
+            appendBlocks(archive, 0, 4);
+
+            assertThat(archive.append(block(3))).isFalse();
+            assertThatThrownBy(() -> archive.append(block(7))).isInstanceOf(IllegalStateException.class);
+            assertThat(archive.getLastBlock()).isEqualTo(4);
+        }
+    }
+
+    @Test
+    void discardsARecordTornByACrash() throws IOException {
+        try (BlockArchive archive = open()) {
+            appendBlocks(archive, 0, 9);
+        }
+        Path lastSegment = lastSegment();
+        long intact = Files.size(lastSegment);
+        // A record written to the segment whose index entry never made it.
+        Files.write(lastSegment, new byte[]{0, 0, 0, 100, 0, 0, 1, 0, 42}, StandardOpenOption.APPEND);
+
+        try (BlockArchive archive = open()) {
+            assertThat(archive.getLastBlock()).isEqualTo(9);
+            assertThat(Files.size(lastSegment)).isEqualTo(intact);
+            assertThat(archive.append(block(10))).isTrue();
+        }
+        try (BlockArchive archive = open()) {
+            assertThat(read(archive, 0, 10)).containsExactlyElementsOf(range(0, 10));
+        }
+    }
+
+    @Test
+    void dropsABlockWhoseRecordIsIncomplete() throws IOException {
+        try (BlockArchive archive = open()) {
+            appendBlocks(archive, 0, 9);
+        }
+        Path lastSegment = lastSegment();
+        try (FileChannel channel = FileChannel.open(lastSegment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 1);
+        }
+        // And a torn index entry after it.
+        Files.write(directory.resolve("blocks.idx"), new byte[]{0, 0, 0}, StandardOpenOption.APPEND);
+
+        try (BlockArchive archive = open()) {
+            assertThat(archive.getLastBlock()).isEqualTo(8);
+            assertThat(read(archive, 0, 9)).containsExactlyElementsOf(range(0, 8));
+            assertThat(archive.append(block(9))).isTrue();
+        }
+        try (BlockArchive archive = open()) {
+            assertThat(read(archive, 0, 9)).containsExactlyElementsOf(range(0, 9));
+        }
+    }
+
+    @Test
+    void readOnlyArchiveLeavesTheFilesAlone() throws IOException {
+        assertThatThrownBy(() -> BlockArchive.openReadOnly(directory)).isInstanceOf(IOException.class);
+        try (BlockArchive archive = open()) {
+            appendBlocks(archive, 0, 4);
+        }
+        Files.write(lastSegment(), new byte[]{1, 2, 3}, StandardOpenOption.APPEND);
+        long size = Files.size(lastSegment());
+
+        try (BlockArchive archive = BlockArchive.openReadOnly(directory)) {
+            assertThat(read(archive, 0, 4)).containsExactlyElementsOf(range(0, 4));
+            assertThatThrownBy(() -> archive.append(block(5))).isInstanceOf(IllegalStateException.class);
+        }
+        assertThat(Files.size(lastSegment())).isEqualTo(size);
+    }
+
+    private BlockArchive open() throws IOException {
+        return new BlockArchive(directory, SEGMENT_BYTES, Deflater.BEST_SPEED);
+    }
+
+    private static void appendBlocks(BlockArchive archive, long first, long last) throws IOException {
+        for (long number = first; number <= last; number++) {
+            assertThat(archive.append(block(number))).isTrue();
+        }
+    }
+
+    private static Block block(long number) {
+        return Block.newBuilder()
+                .setHeader(BlockHeader.newBuilder().setNumber(number))
+                .setData(BlockData.newBuilder().addData(ByteString.copyFromUtf8("transaction in block " + number)))
+                .build();
+    }
+
+    /**
+     * @return The numbers of the blocks read, after checking that each decodes to the block appended.
+     */
+    private static List<Long> read(BlockArchive archive, long from, long to) throws IOException {
+        List<Long> numbers = new ArrayList<>();
+        archive.forEachBlock(from, to, block -> {
+            assertThat(block).isEqualTo(block(block.getHeader().getNumber()));
+            numbers.add(block.getHeader().getNumber());
+        });
+        return numbers;
+    }
+
+    private static List<Long> range(long first, long last) {
+        return LongStream.rangeClosed(first, last).boxed().toList();
+    }
+
+    private long segmentCount() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().startsWith("segment-")).count();
+        }
+    }
+
+    private Path lastSegment() throws IOException {
+        return directory.resolve(String.format("segment-%06d.blk", segmentCount() - 1));
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.fabnew.fabric;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hyperledger.fabric.client.CloseableIterator;
+import org.hyperledger.fabric.client.FilteredBlockEventsRequest;
+import org.hyperledger.fabric.client.Network;
+import org.hyperledger.fabric.client.Status;
+import org.hyperledger.fabric.client.SubmittedTransaction;
+import org.hyperledger.fabric.protos.peer.FilteredBlock;
+import org.hyperledger.fabric.protos.peer.FilteredTransaction;
+import org.hyperledger.fabric.protos.peer.TxValidationCode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BlockCommitTrackerTest {
+
+    private BlockCommitTracker tracker;
+    private FilteredBlockEventsRequest.Builder builder;
+    private ExecutorService executor;
+    private final BlockStream stream = new BlockStream();
+
+    @BeforeEach
+    void setUp() {
+        tracker = new BlockCommitTracker(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(tracker, "mode", "blocks");
+        ReflectionTestUtils.setField(tracker, "lookbackTransactions", 100);
+        ReflectionTestUtils.setField(tracker, "blockEventTimeout", Duration.ofSeconds(10));
+        executor = Executors.newFixedThreadPool(2);
+
+        Network network = mock(Network.class);
+        builder = mock(FilteredBlockEventsRequest.Builder.class, RETURNS_SELF);
+        FilteredBlockEventsRequest request = mock(FilteredBlockEventsRequest.class);
+        when(network.newFilteredBlockEventsRequest()).thenReturn(builder);
+        when(builder.build()).thenReturn(request);
+        when(request.getEvents()).thenReturn(stream);
+        tracker.start(() -> network);
+        await(() -> Boolean.TRUE.equals(tracker.getStatus().get("connected")));
+    }
+
+    @AfterEach
+    void tearDown() {
+        tracker.shutdown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void answersRegisteredTransactionsFromBlockEvents() throws Exception {
+        SubmittedTransaction submitted = submitted("tx1");
+        CompletableFuture<Status> status = tracker.getStatusAsync(submitted, executor);
+        assertThat(status).isNotDone();
+
+        stream.add(block(5, "tx1", TxValidationCode.MVCC_READ_CONFLICT));
+
+        Status committed = status.get(1, TimeUnit.SECONDS);
+        assertThat(committed.getBlockNumber()).isEqualTo(5);
+        assertThat(committed.getCode()).isEqualTo(TxValidationCode.MVCC_READ_CONFLICT);
+        verify(submitted, never()).getStatus();
+        assertThat(tracker.getStatus()).containsEntry("pending", 0);
+    }
+
+    @Test
+    void answersATransactionThatCommittedBeforeItWasRegistered() throws Exception {
+        stream.add(block(5, "tx1", TxValidationCode.VALID));
+        await(() -> (long) tracker.getStatus().get("lastBlock") == 5);
+
+        Status status = tracker.getStatus(submitted("tx1"));
+
+        assertThat(status.isSuccessful()).isTrue();
+        assertThat(status.getBlockNumber()).isEqualTo(5);
+    }
+
+    @Test
+    void fallsBackToACommitStatusCallWithoutABlockEvent() throws Exception {
+        ReflectionTestUtils.setField(tracker, "blockEventTimeout", Duration.ofMillis(50));
+        SubmittedTransaction submitted = submitted("tx1");
+        when(submitted.getStatus()).thenReturn(TestStatus.valid("tx1"));
+
+        Status status = tracker.getStatusAsync(submitted, executor).get(1, TimeUnit.SECONDS);
+
+        assertThat(status.getTransactionId()).isEqualTo("tx1");
+        assertThat(tracker.getStatus()).containsEntry("fallbacks", 1L).containsEntry("pending", 0);
+    }
+
+    @Test
+    void reconnectsFromTheBlockAfterTheLastProcessed() throws Exception {
+        stream.add(block(7, "tx1", TxValidationCode.VALID));
+        await(() -> (long) tracker.getStatus().get("lastBlock") == 7);
+
+        stream.end();
+
+        verify(builder, timeout(5000)).startBlock(8);
+        verify(builder, never()).startBlock(7);
+        // Registrations made while reconnecting are still answered from the stream.
+        CompletableFuture<Status> status = tracker.register("tx2");
+        stream.add(block(8, "tx2", TxValidationCode.VALID));
+        assertThat(status.get(5, TimeUnit.SECONDS).getBlockNumber()).isEqualTo(8);
+    }
+
+    private static SubmittedTransaction submitted(String transactionId) {
+        SubmittedTransaction submitted = mock(SubmittedTransaction.class);
+        when(submitted.getTransactionId()).thenReturn(transactionId);
+        return submitted;
+    }
+
+    private static FilteredBlock block(long number, String transactionId, TxValidationCode code) {
+        return FilteredBlock.newBuilder()
+                .setNumber(number)
+                .addFilteredTransactions(FilteredTransaction.newBuilder().setTxid(transactionId).setTxValidationCode(code))
+                .build();
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met within 10s").isLessThan(deadline);
+            try {
+                TimeUnit.MILLISECONDS.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AssertionError(e);
+            }
+        }
+    }
+
+    /**
+     * A block event stream fed by the test. Ending it makes the tracker reconnect, and the
+     * reconnected stream carries on with the blocks added after that.
+     */
+    private static final class BlockStream implements CloseableIterator<FilteredBlock> {
+        private static final FilteredBlock END = FilteredBlock.getDefaultInstance();
+
+        private final BlockingQueue<FilteredBlock> blocks = new LinkedBlockingQueue<>();
+        private FilteredBlock next;
+
+        void add(FilteredBlock block) {
+            blocks.add(block);
+        }
+
+        void end() {
+            blocks.add(END);
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                try {
+                    next = blocks.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException(e);
+                }
+            }
+            if (next == END) {
+                next = null;
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public FilteredBlock next() {
+            hasNext();
+            FilteredBlock block = next;
+            next = null;
+            return block;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package com.example.fabnew.fabric;
+
+import org.hyperledger.fabric.client.Status;
+import org.hyperledger.fabric.protos.peer.TxValidationCode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BulkImporterTest {
+
+    private static final String CSV = """
+            owner,assetID,color,size,appraisedValue
+            Tom,asset1,blue,5,300
+            Ann,asset2,red,not-a-number,400
+
+            Max,asset3,green,10,500
+            """;
+
+    @TempDir
+    Path directory;
+
+    private BulkImporter importer;
+    private final Set<String> submitted = ConcurrentHashMap.newKeySet();
+
+    @BeforeEach
+    void setUp() {
+        importer = new BulkImporter(new FabricExecutors());
+        ReflectionTestUtils.setField(importer, "defaultParallelism", 4);
+        ReflectionTestUtils.setField(importer, "journalDirectory", directory.toString());
+        ReflectionTestUtils.setField(importer, "maxReportedFailures", 100);
+        ReflectionTestUtils.setField(importer, "maxAttempts", 3);
+        ReflectionTestUtils.setField(importer, "maxConcurrentJobs", 1);
+        ReflectionTestUtils.setField(importer, "retainedJobs", 10);
+        importer.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        importer.shutdown();
+    }
+
+    @Test
+    void importsCsvRowsByHeaderName() throws IOException {
+        BulkImporter.ImportReport report = importer.run("job", new StringReader(CSV), BulkImporter.Format.CSV,
+                "CreateAsset", 4, this::commit);
+
+        assertThat(report.rowsRead).isEqualTo(3);
+        assertThat(report.committed).isEqualTo(2);
+        assertThat(report.failed).isEqualTo(1);
+        assertThat(report.failures).singleElement().satisfies(failure -> {
+            assertThat(failure.row).isEqualTo(3);
+            assertThat(failure.status).isEqualTo("PARSE_ERROR");
+        });
+        assertThat(submitted).containsExactlyInAnyOrder("asset1", "asset3");
+    }
+
+    @Test
+    void resumesWithTheRowsThatDidNotCommit() throws IOException {
+        String input = ndjson(1, 4);
+        BulkImporter.ImportReport first = importer.run("job", new StringReader(input), BulkImporter.Format.NDJSON, "CreateAsset", 2,
+                (assetId, function, args) -> assetId.equals("asset3")
+                        ? new TestStatus("tx-" + assetId, TxValidationCode.MVCC_READ_CONFLICT)
+                        : commit(assetId, function, args));
+        assertThat(first.committed).isEqualTo(3);
+        submitted.clear();
+
+        BulkImporter.ImportReport second = importer.run("job", new StringReader(input), BulkImporter.Format.NDJSON,
+                "CreateAsset", 2, this::commit);
+
+        assertThat(second.resumed).isTrue();
+        assertThat(second.skipped).isEqualTo(3);
+        assertThat(second.committed).isEqualTo(1);
+        assertThat(submitted).containsExactly("asset3");
+    }
+
+    @Test
+    void refusesToResumeWithADifferentInput() throws IOException {
+        importer.run("job", new StringReader(ndjson(1, 4)), BulkImporter.Format.NDJSON, "CreateAsset", 2, this::commit);
+        submitted.clear();
+
+        assertThatThrownBy(() -> importer.run("job", new StringReader(ndjson(2, 5)), BulkImporter.Format.NDJSON,
+                "CreateAsset", 2, this::commit))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("different input");
+        assertThatThrownBy(() -> importer.run("job", new StringReader(ndjson(1, 4)), BulkImporter.Format.NDJSON,
+                "UpdateAsset", 2, this::commit))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(submitted).isEmpty();
+    }
+
+    @Test
+    void refusesAJournalWithoutTheInputFingerprint() throws IOException {
+        Files.writeString(directory.resolve("job.journal"), "1\tCOMMITTED\tasset1\ttx-asset1\t\n");
+
+        assertThatThrownBy(() -> importer.run("job", new StringReader(ndjson(1, 4)), BulkImporter.Format.NDJSON,
+                "CreateAsset", 2, this::commit))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("no input fingerprint");
+        assertThat(submitted).isEmpty();
+    }
+
+    @Test
+    void stopsAtALineChangedBeyondTheFingerprint() throws IOException {
+        // Long enough that the change is past the fingerprinted start of the input.
+        String input = ndjson(1, 3000);
+        assertThat(input.indexOf("\"asset2500\"")).isGreaterThan(64 * 1024);
+        importer.run("job", new StringReader(input), BulkImporter.Format.NDJSON, "CreateAsset", 8, this::commit);
+        submitted.clear();
+
+        String changed = input.replace("\"asset2500\"", "\"other2500\"");
+        assertThatThrownBy(() -> importer.run("job", new StringReader(changed), BulkImporter.Format.NDJSON,
+                "CreateAsset", 8, this::commit))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("line 2500");
+        assertThat(submitted).isEmpty();
+    }
+
+    @Test
+    void journalsRowsInFlightWhenReadingTheInputFails() throws IOException {
+        // Past the fingerprinted start of the input, so the failure hits the row loop.
+        String input = ndjson(1, 2000);
+        Reader failing = new FilterReader(new StringReader(input)) {
+            private int read;
+
+            @Override
+            public int read(char[] buffer, int offset, int length) throws IOException {
+                if (read > 100 * 1024) {
+                    throw new IOException("Connection reset");
+                }
+                int n = super.read(buffer, offset, length);
+                read += Math.max(n, 0);
+                return n;
+            }
+        };
+
+        assertThatThrownBy(() -> importer.run("job", failing, BulkImporter.Format.NDJSON, "CreateAsset", 4,
+                (assetId, function, args) -> {
+                    sleep(20);
+                    return commit(assetId, function, args);
+                }))
+                .isInstanceOf(IOException.class)
+                .hasMessage("Connection reset");
+
+        // Every row that was submitted is journaled, including those still in flight at the failure.
+        try (Stream<String> lines = Files.lines(directory.resolve("job.journal"))) {
+            assertThat(lines.filter(line -> line.contains("\tCOMMITTED\t")).count()).isEqualTo(submitted.size());
+        }
+        assertThat(submitted).isNotEmpty();
+    }
+
+    @Test
+    void runsAsyncImportsAndReportsTheirProgress() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Map<String, Object> started = importer.start("job", input(ndjson(1, 3)), BulkImporter.Format.NDJSON, "CreateAsset", 2,
+                (assetId, function, args) -> {
+                    await(release);
+                    return commit(assetId, function, args);
+                });
+        assertThat(started.get("state")).isIn("QUEUED", "RUNNING");
+
+        // A second run of a job that has not finished would append to the same journal.
+        assertThatThrownBy(() -> importer.start("job", input(ndjson(1, 3)), BulkImporter.Format.NDJSON, "CreateAsset", 2, this::commit))
+                .isInstanceOfSatisfying(AdmissionRejectedException.class,
+                        e -> assertThat(e.getStatus()).isEqualTo(HttpStatus.CONFLICT));
+
+        release.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        // The spooled input is deleted just after the job completes.
+        while (!"COMPLETED".equals(importer.getJobStatus("job").orElseThrow().get("state"))
+                || Files.exists(directory.resolve("job.input"))) {
+            assertThat(System.nanoTime()).as("import not completed within 10s").isLessThan(deadline);
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+
+        Map<String, Object> status = importer.getJobStatus("job").orElseThrow();
+        assertThat(status).containsEntry("committed", 3L);
+        assertThat(((BulkImporter.ImportReport) status.get("report")).committed).isEqualTo(3);
+        assertThat(importer.getJobStatus("unknown")).isEmpty();
+    }
+
+    private Status commit(String assetId, String function, String... args) {
+        submitted.add(assetId);
+        return TestStatus.valid("tx-" + assetId);
+    }
+
+    private static String ndjson(int first, int last) {
+        StringBuilder input = new StringBuilder();
+        for (int i = first; i <= last; i++) {
+            input.append("{\"assetID\":\"asset").append(i).append("\",\"color\":\"blue\",\"size\":5,")
+                    .append("\"owner\":\"Tom\",\"appraisedValue\":").append(i).append("}\n");
+        }
+        return input.toString();
+    }
+
+    private static ByteArrayInputStream input(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.fabnew.fabric;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hyperledger.fabric.client.CommitStatusException;
+import org.hyperledger.fabric.client.Status;
+import org.hyperledger.fabric.client.SubmittedTransaction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CommitStatusTrackerTest {
+
+    private CommitStatusTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        BlockCommitTracker blockCommitTracker = new BlockCommitTracker(registry);
+        ReflectionTestUtils.setField(blockCommitTracker, "mode", "rpc");
+        tracker = new CommitStatusTracker(new FabricExecutors(),
+                new FabricMetrics(registry, new SlowTransactionLog()), blockCommitTracker);
+        ReflectionTestUtils.setField(tracker, "commitWaiters", 2);
+        ReflectionTestUtils.setField(tracker, "maxTracked", 10);
+        ReflectionTestUtils.setField(tracker, "retention", Duration.ofMinutes(10));
+    }
+
+    @AfterEach
+    void tearDown() {
+        tracker.shutdown();
+    }
+
+    @Test
+    void tracksATransactionUntilItsCommitStatusArrives() throws Exception {
+        CountDownLatch commit = new CountDownLatch(1);
+        SubmittedTransaction submitted = submitted("tx1");
+        when(submitted.getStatus()).thenAnswer(invocation -> {
+            commit.await(10, TimeUnit.SECONDS);
+            return TestStatus.valid("tx1");
+        });
+
+        CommitStatusTracker.TrackedTransaction tracked = tracker.track("CreateAsset", null, submitted);
+
+        assertThat(tracked.getTransactionId()).isEqualTo("tx1");
+        assertThat(tracker.lookup("tx1")).containsSame(tracked);
+        assertThat(tracked.getFuture()).isNotDone();
+
+        commit.countDown();
+
+        assertThat(tracked.getFuture().get(1, TimeUnit.SECONDS).isSuccessful()).isTrue();
+        // Still available for polling once complete.
+        assertThat(tracker.lookup("tx1")).containsSame(tracked);
+        assertThat(tracker.lookup("unknown")).isEmpty();
+    }
+
+    @Test
+    void completesExceptionallyWhenTheCommitStatusCannotBeObtained() throws Exception {
+        SubmittedTransaction submitted = submitted("tx1");
+        CommitStatusException failure = new CommitStatusException("tx1", io.grpc.Status.UNAVAILABLE.asRuntimeException());
+        when(submitted.getStatus()).thenThrow(failure);
+
+        CommitStatusTracker.TrackedTransaction tracked = tracker.track("CreateAsset", null, submitted);
+
+        assertThatThrownBy(() -> tracked.getFuture().get(1, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCause(failure);
+    }
+
+    @Test
+    void refusesToTrackMoreThanMaxTrackedPendingTransactions() throws Exception {
+        ReflectionTestUtils.setField(tracker, "maxTracked", 1);
+        CountDownLatch commit = new CountDownLatch(1);
+        SubmittedTransaction first = submitted("tx1");
+        when(first.getStatus()).thenAnswer(invocation -> {
+            commit.await(10, TimeUnit.SECONDS);
+            return TestStatus.valid("tx1");
+        });
+        tracker.track("CreateAsset", null, first);
+
+        assertThatThrownBy(() -> tracker.track("CreateAsset", null, submitted("tx2")))
+                .isInstanceOf(IllegalStateException.class);
+
+        commit.countDown();
+    }
+
+    @Test
+    void evictsCompletedTransactionsAfterTheRetentionPeriod() throws Exception {
+        ReflectionTestUtils.setField(tracker, "maxTracked", 1);
+        ReflectionTestUtils.setField(tracker, "retention", Duration.ZERO);
+        SubmittedTransaction first = submitted("tx1");
+        when(first.getStatus()).thenReturn(TestStatus.valid("tx1"));
+        tracker.track("CreateAsset", null, first).getFuture().get(1, TimeUnit.SECONDS);
+        TimeUnit.MILLISECONDS.sleep(5);
+
+        SubmittedTransaction second = submitted("tx2");
+        when(second.getStatus()).thenReturn(TestStatus.valid("tx2"));
+        tracker.track("CreateAsset", null, second);
+
+        assertThat(tracker.lookup("tx1")).isEmpty();
+        assertThat(tracker.lookup("tx2")).isPresent();
+    }
+
+    @Test
+    void awaitsABatchItemWithoutTrackingIt() throws Exception {
+        SubmittedTransaction submitted = submitted("tx1");
+        when(submitted.getStatus()).thenReturn(TestStatus.valid("tx1"));
+
+        Status status = tracker.awaitCommit("CreateAsset", null, submitted).get(1, TimeUnit.SECONDS);
+
+        assertThat(status.getTransactionId()).isEqualTo("tx1");
+        assertThat(tracker.lookup("tx1")).isEmpty();
+    }
+
+    private static SubmittedTransaction submitted(String transactionId) {
+        SubmittedTransaction submitted = mock(SubmittedTransaction.class);
+        when(submitted.getTransactionId()).thenReturn(transactionId);
+        return submitted;
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.fabnew.fabric;
+
+import com.example.fabnew.controller.AssetController;
+import org.hyperledger.fabric.client.Contract;
+import org.hyperledger.fabric.client.Gateway;
+import org.hyperledger.fabric.client.Network;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ContractRouterTest {
+
+    private AdmissionController admissionController;
+    private ContractRouter router;
+    private MockHttpServletRequest request;
+
+    @BeforeEach
+    void setUp() {
+        admissionController = new AdmissionController(4, 4, 4, 4);
+        ReflectionTestUtils.setField(admissionController, "enabled", true);
+        ReflectionTestUtils.setField(admissionController, "retryAfter", Duration.ofSeconds(1));
+        ReflectionTestUtils.setField(admissionController, "queueTimeout", Duration.ofMillis(10));
+
+        FabricTargetProperties.TargetConfig other = new FabricTargetProperties.TargetConfig();
+        other.setChannel("otherchannel");
+        other.setChaincode("basic");
+        other.setSubmitMaxConcurrent(1);
+        other.setSubmitMaxQueued(0);
+        FabricTargetProperties properties = new FabricTargetProperties();
+        properties.setTargets(List.of(other));
+
+        router = new ContractRouter(properties, admissionController);
+        ReflectionTestUtils.setField(router, "defaultChannel", "mychannel");
+        ReflectionTestUtils.setField(router, "defaultChaincode", "basic");
+        router.init();
+
+        request = new MockHttpServletRequest();
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void routesRequestsWithoutATargetToTheDefault() {
+        ContractRouter.Target target = router.requestedTarget();
+
+        assertThat(target).isSameAs(router.getDefault());
+        assertThat(target.getName()).isEqualTo("mychannel/basic");
+        assertThat(target.isDefault()).isTrue();
+        assertThat(target.lockKey("asset1")).isEqualTo("asset1");
+    }
+
+    @Test
+    void routesRequestsToTheTargetNamedInThePath() {
+        request.setAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE,
+                Map.of("channel", "otherchannel", "chaincode", "basic"));
+
+        ContractRouter.Target target = router.requestedTarget();
+
+        assertThat(target).isSameAs(router.get("otherchannel", "basic"));
+        assertThat(target.isDefault()).isFalse();
+        // Asset IDs are only unique within a target, so writes to the same ID on two targets do not wait on each other.
+        assertThat(target.lockKey("asset1")).isEqualTo("otherchannel/basic/asset1");
+    }
+
+    @Test
+    void rejectsATargetThatIsNotConfigured() {
+        request.setAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE,
+                Map.of("channel", "unknown", "chaincode", "basic"));
+
+        assertThatThrownBy(router::requestedTarget)
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("unknown/basic");
+    }
+
+    @Test
+    void resolvesEachContractOncePerGateway() {
+        Gateway gateway = mock(Gateway.class);
+        Network network = mock(Network.class);
+        Contract contract = mock(Contract.class);
+        when(gateway.getNetwork("otherchannel")).thenReturn(network);
+        when(network.getContract("basic")).thenReturn(contract);
+        ContractRouter.Target target = router.get("otherchannel", "basic");
+
+        assertThat(target.contractFor(gateway)).isSameAs(contract);
+        assertThat(target.contractFor(gateway)).isSameAs(contract);
+
+        verify(gateway, times(1)).getNetwork("otherchannel");
+    }
+
+    @Test
+    void isolatesTheSubmitSlotsOfEachTarget() {
+        ContractRouter.Target other = router.get("otherchannel", "basic");
+
+        try (AdmissionController.Permit held = other.admitSubmit()) {
+            assertThatThrownBy(other::admitSubmit)
+                    .isInstanceOfSatisfying(AdmissionRejectedException.class,
+                            e -> assertThat(e.getStatus()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS));
+            // The default target still has its own slots.
+            router.getDefault().admitSubmit().close();
+        }
+        other.admitSubmit().close();
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> targets = (Map<String, Object>) admissionController.getStatus().get("targets");
+        assertThat(targets).containsOnlyKeys("otherchannel/basic");
+    }
+
+    @Test
+    void buildsLocationsUnderTheTargetPathAndContextPath() {
+        request.setContextPath("/ledger");
+
+        URI defaultLocation = ReflectionTestUtils.invokeMethod(AssetController.class, "targetUri",
+                router.getDefault(), new String[]{"tx", "tx1"});
+        URI otherLocation = ReflectionTestUtils.invokeMethod(AssetController.class, "targetUri",
+                router.get("otherchannel", "basic"), new String[]{"wal", "7"});
+
+        assertThat(defaultLocation).hasToString("http://localhost/ledger/api/assets/tx/tx1");
+        assertThat(otherLocation).hasToString("http://localhost/ledger/api/otherchannel/basic/assets/wal/7");
+    }
+}
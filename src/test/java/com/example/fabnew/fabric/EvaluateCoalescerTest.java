@@ -0,0 +1,149 @@
+package com.example.fabnew.fabric;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hyperledger.fabric.client.GatewayException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EvaluateCoalescerTest {
+
+    private static final String[] ARGS = {"asset1"};
+
+    private EvaluateCoalescer coalescer;
+    private ExecutorService executor;
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        coalescer = new EvaluateCoalescer(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(coalescer, "enabled", true);
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void concurrentIdenticalCallsShareOneLoad() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Future<byte[]> first = executor.submit(() -> evaluate("User1@org1.example.com", ARGS, blockedLoad(release, "one")));
+        await(() -> stat("inFlight") == 1);
+        Future<byte[]> second = executor.submit(() -> evaluate("User1@org1.example.com", ARGS, blockedLoad(release, "two")));
+        Future<byte[]> third = executor.submit(() -> evaluate("User1@org1.example.com", ARGS, blockedLoad(release, "three")));
+        await(() -> stat("coalesced") == 2);
+
+        release.countDown();
+
+        byte[] result = first.get(1, TimeUnit.SECONDS);
+        assertThat(second.get(1, TimeUnit.SECONDS)).isSameAs(result);
+        assertThat(third.get(1, TimeUnit.SECONDS)).isSameAs(result);
+        assertThat(loads).hasValue(1);
+        assertThat(stat("executed")).isEqualTo(1);
+        assertThat(stat("inFlight")).isZero();
+    }
+
+    @Test
+    void doesNotCoalesceCallsWithOtherArgumentsOrIdentities() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Future<byte[]> blocked = executor.submit(() -> evaluate("User1@org1.example.com", ARGS, blockedLoad(release, "one")));
+        await(() -> stat("inFlight") == 1);
+
+        assertThat(evaluate("User1@org1.example.com", new String[]{"asset2"}, () -> load("two"))).isEqualTo("two".getBytes());
+        assertThat(evaluate("User2@org1.example.com", ARGS, () -> load("three"))).isEqualTo("three".getBytes());
+        assertThat(evaluate(null, ARGS, () -> load("four"))).isEqualTo("four".getBytes());
+
+        release.countDown();
+        assertThat(blocked.get(1, TimeUnit.SECONDS)).isEqualTo("one".getBytes());
+        assertThat(stat("coalesced")).isZero();
+    }
+
+    @Test
+    void sharesAFailureAndLoadsAgainAfterwards() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        GatewayException failure = new GatewayException(io.grpc.Status.UNAVAILABLE.asRuntimeException());
+        AssetCache.Loader blocked = blockedLoad(release, "unused");
+        Future<byte[]> first = executor.submit(() -> evaluate("User1@org1.example.com", ARGS, () -> {
+            blocked.load();
+            throw failure;
+        }));
+        await(() -> stat("inFlight") == 1);
+        Future<byte[]> joined = executor.submit(() -> evaluate("User1@org1.example.com", ARGS, () -> load("unused")));
+        await(() -> stat("coalesced") == 1);
+
+        release.countDown();
+
+        assertThatThrownBy(() -> first.get(1, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class).hasCause(failure);
+        assertThatThrownBy(() -> joined.get(1, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class).hasCause(failure);
+        // The failed call is not remembered.
+        assertThat(evaluate("User1@org1.example.com", ARGS, () -> load("fresh"))).isEqualTo("fresh".getBytes());
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void loadsEveryCallWhenDisabled() throws Exception {
+        ReflectionTestUtils.setField(coalescer, "enabled", false);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<byte[]> blocked = executor.submit(() -> evaluate("User1@org1.example.com", ARGS, blockedLoad(release, "one")));
+        await(() -> loads.get() == 1);
+
+        assertThat(evaluate("User1@org1.example.com", ARGS, () -> load("two"))).isEqualTo("two".getBytes());
+
+        release.countDown();
+        assertThat(blocked.get(1, TimeUnit.SECONDS)).isEqualTo("one".getBytes());
+        assertThat(stat("executed")).isZero();
+    }
+
+    private byte[] evaluate(String identity, String[] args, AssetCache.Loader loader) throws GatewayException {
+        return coalescer.evaluate("mychannel/basic", identity, "ReadAsset", args, loader);
+    }
+
+    private AssetCache.Loader blockedLoad(CountDownLatch release, String result) {
+        return () -> {
+            loads.incrementAndGet();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return result.getBytes();
+        };
+    }
+
+    private byte[] load(String result) {
+        loads.incrementAndGet();
+        return result.getBytes();
+    }
+
+    private long stat(String name) {
+        return ((Number) coalescer.getStats().get(name)).longValue();
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met within 10s").isLessThan(deadline);
+            try {
+                TimeUnit.MILLISECONDS.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AssertionError(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.example.fabnew.fabric;
+
+import io.grpc.ConnectivityState;
+import io.grpc.ManagedChannel;
+import org.hyperledger.fabric.client.Gateway;
+import org.hyperledger.fabric.client.GatewayException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PeerPoolTest {
+
+    private PeerPool pool;
+    private ManagedChannel channel0;
+    private ManagedChannel channel1;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        pool = new PeerPool(new FabricPeerProperties(), null, new FabricExecutors(), null);
+        ReflectionTestUtils.setField(pool, "failureThreshold", 3);
+        ReflectionTestUtils.setField(pool, "ejectFor", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(pool, "hedgingEnabled", false);
+        ReflectionTestUtils.setField(pool, "minHedgeDelay", Duration.ofMillis(20));
+        channel0 = channel();
+        channel1 = channel();
+        ReflectionTestUtils.setField(pool, "peers", List.of(peer("peer0", channel0), peer("peer1", channel1)));
+        ReflectionTestUtils.setField(pool, "hedgeExecutor", Executors.newCachedThreadPool());
+        executor = Executors.newFixedThreadPool(2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        pool.shutdown();
+    }
+
+    @Test
+    void routesEvaluatesToThePeerWithFewerOutstandingRequests() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> blocked = executor.submit(() -> pool.evaluate(PeerPool.Peer::getGateway, gateway -> null, (peer, contract) -> {
+            await(() -> release.getCount() == 0);
+            return peer.getName();
+        }));
+        await(() -> outstanding(0) + outstanding(1) == 1);
+        String busy = outstanding(0) == 1 ? "peer0" : "peer1";
+
+        List<String> chosen = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            chosen.add(evaluateOnAnyPeer());
+        }
+
+        assertThat(chosen).doesNotContain(busy);
+        release.countDown();
+        assertThat(blocked.get(1, TimeUnit.SECONDS)).isEqualTo(busy);
+    }
+
+    @Test
+    void ejectsAPeerAfterConsecutiveUnavailableFailures() throws Exception {
+        List<String> chosen = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            try {
+                chosen.add(pool.evaluate(PeerPool.Peer::getGateway, gateway -> null, (peer, contract) -> {
+                    if (peer.getName().equals("peer0")) {
+                        throw unavailable();
+                    }
+                    return peer.getName();
+                }));
+            } catch (GatewayException e) {
+                chosen.add("failed");
+            }
+        }
+
+        assertThat(chosen).filteredOn("failed"::equals).hasSize(3);
+        assertThat(pool.getPeers().get(0).isHealthy()).isFalse();
+        assertThat(pool.primary().getName()).isEqualTo("peer1");
+        for (int i = 0; i < 4; i++) {
+            assertThat(evaluateOnAnyPeer()).isEqualTo("peer1");
+        }
+    }
+
+    @Test
+    void readmitsAnEjectedPeerOnceItsChannelIsReady() throws Exception {
+        ReflectionTestUtils.setField(pool, "ejectFor", Duration.ZERO);
+        when(channel0.getState(true)).thenReturn(ConnectivityState.TRANSIENT_FAILURE);
+        for (int i = 0; i < 3; i++) {
+            ReflectionTestUtils.invokeMethod(pool, "checkHealth");
+        }
+        assertThat(pool.getPeers().get(0).isHealthy()).isFalse();
+
+        when(channel0.getState(true)).thenReturn(ConnectivityState.READY);
+        ReflectionTestUtils.invokeMethod(pool, "checkHealth");
+
+        assertThat(pool.getPeers().get(0).isHealthy()).isTrue();
+        assertThat(pool.getPeers().get(1).isHealthy()).isTrue();
+    }
+
+    @Test
+    void hedgesASlowEvaluateAndCancelsTheLosingCall() throws Exception {
+        ReflectionTestUtils.setField(pool, "hedgingEnabled", true);
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch cancelled = new CountDownLatch(1);
+
+        String winner = pool.evaluate(PeerPool.Peer::getGateway, gateway -> null, (peer, contract) -> {
+            if (calls.incrementAndGet() == 1) {
+                try {
+                    TimeUnit.SECONDS.sleep(10);
+                } catch (InterruptedException e) {
+                    cancelled.countDown();
+                    throw new GatewayException(io.grpc.Status.CANCELLED.asRuntimeException());
+                }
+            }
+            return peer.getName();
+        });
+
+        assertThat(calls).hasValue(2);
+        assertThat(pool.getStatus()).containsEntry("hedgedEvaluates", 1L);
+        // The slow call is interrupted rather than left to hold its peer's outstanding slot.
+        assertThat(cancelled.await(1, TimeUnit.SECONDS)).isTrue();
+        await(() -> outstanding(0) + outstanding(1) == 0);
+        assertThat(winner).isIn("peer0", "peer1");
+    }
+
+    @Test
+    void refusesEvaluatesBeforeAnyPeerIsConnected() {
+        ReflectionTestUtils.setField(pool, "peers", List.of());
+
+        assertThatThrownBy(this::evaluateOnAnyPeer)
+                .isInstanceOfSatisfying(AdmissionRejectedException.class,
+                        e -> assertThat(e.getStatus()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE));
+    }
+
+    @Test
+    void recomputesTheP95EveryIntervalOfSamples() {
+        PeerPool.LatencyWindow window = new PeerPool.LatencyWindow(512);
+        for (int i = 1; i < PeerPool.LatencyWindow.RECOMPUTE_INTERVAL; i++) {
+            window.record(i);
+        }
+        assertThat(window.getP95Nanos()).isZero();
+
+        window.record(PeerPool.LatencyWindow.RECOMPUTE_INTERVAL);
+
+        // 95% of 1..64 is at or below the 61st value.
+        assertThat(window.getP95Nanos()).isEqualTo(61);
+    }
+
+    private String evaluateOnAnyPeer() throws GatewayException {
+        return pool.evaluate(PeerPool.Peer::getGateway, gateway -> null, (peer, contract) -> peer.getName());
+    }
+
+    @SuppressWarnings("unchecked")
+    private int outstanding(int peer) {
+        List<Map<String, Object>> peers = (List<Map<String, Object>>) pool.getStatus().get("peers");
+        return (int) peers.get(peer).get("outstanding");
+    }
+
+    private static GatewayException unavailable() {
+        return new GatewayException(io.grpc.Status.UNAVAILABLE.asRuntimeException());
+    }
+
+    private static ManagedChannel channel() {
+        ManagedChannel channel = mock(ManagedChannel.class);
+        when(channel.getState(false)).thenReturn(ConnectivityState.READY);
+        when(channel.getState(true)).thenReturn(ConnectivityState.READY);
+        when(channel.shutdownNow()).thenReturn(channel);
+        return channel;
+    }
+
+    private static PeerPool.Peer peer(String name, ManagedChannel channel) {
+        return new PeerPool.Peer(name, channel, mock(Gateway.class));
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met within 10s").isLessThan(deadline);
+            try {
+                TimeUnit.MILLISECONDS.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AssertionError(e);
+            }
+        }
+    }
+}
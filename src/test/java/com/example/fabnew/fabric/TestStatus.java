@@ -0,0 +1,34 @@
+package com.example.fabnew.fabric;
+
+import org.hyperledger.fabric.client.Status;
+import org.hyperledger.fabric.protos.peer.TxValidationCode;
+
+/**
+ * A commit status for tests, as a peer would report it for a transaction in block 1.
+ */
+record TestStatus(String transactionId, TxValidationCode code) implements Status {
+
+    static Status valid(String transactionId) {
+        return new TestStatus(transactionId, TxValidationCode.VALID);
+    }
+
+    @Override
+    public String getTransactionId() {
+        return transactionId;
+    }
+
+    @Override
+    public long getBlockNumber() {
+        return 1;
+    }
+
+    @Override
+    public TxValidationCode getCode() {
+        return code;
+    }
+
+    @Override
+    public boolean isSuccessful() {
+        return code == TxValidationCode.VALID;
+    }
+}
@@ -0,0 +1,239 @@
+package com.example.fabnew.fabric;
+
+import org.hyperledger.fabric.client.CommitStatusException;
+import org.hyperledger.fabric.protos.peer.TxValidationCode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WriteAheadLogTest {
+
+    @TempDir
+    Path directory;
+
+    private WriteAheadLog log;
+
+    @AfterEach
+    void tearDown() {
+        if (log != null) {
+            log.shutdown();
+        }
+    }
+
+    @Test
+    void recoversPendingEntriesAfterARestart() throws IOException {
+        log = open(Long.MAX_VALUE);
+        long first = log.append("CreateAsset", "asset1", "asset1", "blue", "5", "Tom", "100").getId();
+        long second = log.append("UpdateAsset", "asset1", "asset1", "red", "5", "Tom", "100").getId();
+        log.shutdown();
+
+        log = open(Long.MAX_VALUE);
+
+        assertThat(log.lookup(first)).get().extracting(WriteAheadLog.Entry::getStatus).isEqualTo(WriteAheadLog.PENDING);
+        assertThat(log.lookup(second)).get().extracting(WriteAheadLog.Entry::getFunction).isEqualTo("UpdateAsset");
+        assertThat(log.append("DeleteAsset", "asset1", "asset1").getId()).isEqualTo(second + 1);
+    }
+
+    @Test
+    void truncatesARecordTornByACrash() throws IOException {
+        log = open(Long.MAX_VALUE);
+        long id = log.append("CreateAsset", "asset1", "asset1", "blue", "5", "Tom", "100").getId();
+        log.shutdown();
+        long intact = Files.size(journal());
+        // The header of a 100 byte record followed by only part of its payload.
+        appendToJournal(ByteBuffer.allocate(18).putInt(100).putInt(0).array());
+
+        log = open(Long.MAX_VALUE);
+
+        assertThat(Files.size(journal())).isEqualTo(intact);
+        assertThat(log.lookup(id)).isPresent();
+        long next = log.append("CreateAsset", "asset2", "asset2", "red", "5", "Ann", "100").getId();
+        log.shutdown();
+
+        // The record appended after recovery is not hidden behind the torn one.
+        log = open(Long.MAX_VALUE);
+        assertThat(log.lookup(next)).isPresent();
+    }
+
+    @Test
+    void discardsALastRecordWithABadChecksum() throws IOException {
+        log = open(Long.MAX_VALUE);
+        long first = log.append("CreateAsset", "asset1", "asset1", "blue", "5", "Tom", "100").getId();
+        long intact = Files.size(journal());
+        long second = log.append("CreateAsset", "asset2", "asset2", "red", "5", "Ann", "100").getId();
+        log.shutdown();
+        try (FileChannel channel = FileChannel.open(journal(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer last = ByteBuffer.allocate(1);
+            channel.read(last, channel.size() - 1);
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) (last.get(0) ^ 0xFF)}), channel.size() - 1);
+        }
+
+        log = open(Long.MAX_VALUE);
+
+        assertThat(log.lookup(first)).isPresent();
+        assertThat(log.lookup(second)).isEmpty();
+        assertThat(Files.size(journal())).isEqualTo(intact);
+    }
+
+    @Test
+    void journalsCommittedEntriesSoTheyAreNotSubmittedAgain() throws IOException {
+        log = open(Long.MAX_VALUE);
+        long id = log.append("CreateAsset", "asset1", "asset1", "blue", "5", "Tom", "100").getId();
+        AtomicInteger submissions = new AtomicInteger();
+        log.startSubmitting((assetId, function, args) -> {
+            submissions.incrementAndGet();
+            return TestStatus.valid("tx1");
+        }, transactionId -> Optional.empty());
+
+        awaitStatus(id, WriteAheadLog.COMMITTED);
+        log.shutdown();
+        log = open(Long.MAX_VALUE);
+
+        WriteAheadLog.Entry entry = log.lookup(id).orElseThrow();
+        assertThat(entry.getStatus()).isEqualTo(WriteAheadLog.COMMITTED);
+        assertThat(entry.getTransactionId()).isEqualTo("tx1");
+        assertThat(log.getStatus()).containsEntry("pending", 0);
+        assertThat(submissions).hasValue(1);
+    }
+
+    @Test
+    void compactionKeepsPendingEntriesAndRequestIds() throws IOException {
+        log = open(1);
+        long first = log.append("CreateAsset", "asset1", "asset1", "blue", "5", "Tom", "100").getId();
+        long second = log.append("CreateAsset", "asset2", "asset2", "red", "5", "Ann", "100").getId();
+        // The last ID issued is still pending when the journal is compacted.
+        long kept = log.append("UpdateAsset", "keep", "keep", "blue", "5", "Tom", "100").getId();
+        long journalBytes = (long) log.getStatus().get("journalBytes");
+        log.startSubmitting((assetId, function, args) -> {
+            if (assetId.equals("keep")) {
+                throw new AdmissionRejectedException("Busy", HttpStatus.TOO_MANY_REQUESTS, 1);
+            }
+            return TestStatus.valid("tx-" + assetId);
+        }, transactionId -> Optional.empty());
+
+        awaitStatus(first, WriteAheadLog.COMMITTED);
+        awaitStatus(second, WriteAheadLog.COMMITTED);
+        await(() -> (long) log.getStatus().get("journalBytes") < journalBytes / 2);
+        log.shutdown();
+        log = open(Long.MAX_VALUE);
+
+        assertThat(log.lookup(kept)).get().extracting(WriteAheadLog.Entry::getStatus).isEqualTo(WriteAheadLog.PENDING);
+        assertThat(log.lookup(first)).isEmpty();
+        assertThat(log.getStatus()).containsEntry("pending", 1);
+        assertThat(log.append("CreateAsset", "asset3", "asset3", "red", "5", "Ann", "100").getId()).isEqualTo(kept + 1);
+    }
+
+    @Test
+    void failsAnEntryThatKeepsLosingReadConflicts() {
+        log = open(Long.MAX_VALUE);
+        long id = log.append("UpdateAsset", "asset1", "asset1", "blue", "5", "Tom", "100").getId();
+        AtomicInteger submissions = new AtomicInteger();
+        log.startSubmitting((assetId, function, args) ->
+                new TestStatus("tx" + submissions.incrementAndGet(), TxValidationCode.MVCC_READ_CONFLICT),
+                transactionId -> Optional.empty());
+
+        awaitStatus(id, WriteAheadLog.FAILED);
+
+        assertThat(submissions).hasValue(3);
+        assertThat(log.lookup(id).orElseThrow().getMessage()).contains("3 attempts lost to read conflicts");
+    }
+
+    @Test
+    void looksUpATransactionWithUnknownStatusInsteadOfResubmitting() {
+        log = open(Long.MAX_VALUE);
+        long id = log.append("CreateAsset", "asset1", "asset1", "blue", "5", "Tom", "100").getId();
+        AtomicInteger submissions = new AtomicInteger();
+        log.startSubmitting((assetId, function, args) -> {
+            if (submissions.incrementAndGet() == 1) {
+                throw new CommitStatusException("tx1", io.grpc.Status.DEADLINE_EXCEEDED.asRuntimeException());
+            }
+            return TestStatus.valid("tx" + submissions.get());
+        }, transactionId -> Optional.of(TestStatus.valid(transactionId)));
+
+        awaitStatus(id, WriteAheadLog.COMMITTED);
+
+        assertThat(log.lookup(id).orElseThrow().getTransactionId()).isEqualTo("tx1");
+        assertThat(submissions).hasValue(1);
+    }
+
+    @Test
+    void resubmitsATransactionMissingFromTheLedgerAfterTheGracePeriod() {
+        log = open(Long.MAX_VALUE);
+        ReflectionTestUtils.setField(log, "unknownStatusGrace", Duration.ZERO);
+        long id = log.append("CreateAsset", "asset1", "asset1", "blue", "5", "Tom", "100").getId();
+        AtomicInteger submissions = new AtomicInteger();
+        log.startSubmitting((assetId, function, args) -> {
+            if (submissions.incrementAndGet() == 1) {
+                throw new CommitStatusException("tx1", io.grpc.Status.UNAVAILABLE.asRuntimeException());
+            }
+            return TestStatus.valid("tx" + submissions.get());
+        }, transactionId -> Optional.empty());
+
+        awaitStatus(id, WriteAheadLog.COMMITTED);
+
+        assertThat(log.lookup(id).orElseThrow().getTransactionId()).isEqualTo("tx2");
+        assertThat(submissions).hasValue(2);
+    }
+
+    private WriteAheadLog open(long compactBytes) {
+        WriteAheadLog wal = new WriteAheadLog(new FabricExecutors());
+        ReflectionTestUtils.setField(wal, "enabled", true);
+        ReflectionTestUtils.setField(wal, "directory", directory.toString());
+        ReflectionTestUtils.setField(wal, "groupMaxRecords", 1024);
+        ReflectionTestUtils.setField(wal, "ackTimeout", Duration.ofSeconds(5));
+        ReflectionTestUtils.setField(wal, "batchSize", 4);
+        ReflectionTestUtils.setField(wal, "retryBackoffBase", Duration.ofMillis(10));
+        ReflectionTestUtils.setField(wal, "retryBackoffMax", Duration.ofMillis(50));
+        ReflectionTestUtils.setField(wal, "maxConflictAttempts", 3);
+        ReflectionTestUtils.setField(wal, "unknownStatusGrace", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(wal, "compactBytes", compactBytes);
+        ReflectionTestUtils.setField(wal, "maxRetained", 100);
+        try {
+            wal.open();
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        return wal;
+    }
+
+    private Path journal() {
+        return directory.resolve("wal.log");
+    }
+
+    private void appendToJournal(byte[] bytes) throws IOException {
+        Files.write(journal(), bytes, StandardOpenOption.APPEND);
+    }
+
+    private void awaitStatus(long id, String status) {
+        await(() -> log.lookup(id).map(entry -> status.equals(entry.getStatus())).orElse(false));
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met within 10s").isLessThan(deadline);
+            try {
+                TimeUnit.MILLISECONDS.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AssertionError(e);
+            }
+        }
+    }
+}
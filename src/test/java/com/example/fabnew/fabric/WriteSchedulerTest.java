@@ -0,0 +1,181 @@
+package com.example.fabnew.fabric;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hyperledger.fabric.client.Status;
+import org.hyperledger.fabric.protos.peer.TxValidationCode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class WriteSchedulerTest {
+
+    private SimpleMeterRegistry registry;
+    private WriteScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        scheduler = new WriteScheduler(1024, registry);
+        ReflectionTestUtils.setField(scheduler, "lockTimeout", Duration.ofMillis(200));
+        ReflectionTestUtils.setField(scheduler, "maxRetries", 3);
+        ReflectionTestUtils.setField(scheduler, "backoffBase", Duration.ofMillis(1));
+        ReflectionTestUtils.setField(scheduler, "backoffMax", Duration.ofMillis(5));
+    }
+
+    @Test
+    void queuesWritesToTheSameKeyInArrivalOrder() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            CompletableFuture<Status> firstCommit = new CompletableFuture<>();
+            List<String> started = new ArrayList<>();
+            CompletableFuture<Status> first = scheduler.executeAsync("asset1", executor, () -> {
+                record(started, "first");
+                return firstCommit;
+            });
+            CompletableFuture<Status> second = scheduler.executeAsync("asset1", executor, () -> {
+                record(started, "second");
+                return CompletableFuture.completedFuture(status("tx2", TxValidationCode.VALID));
+            });
+
+            TimeUnit.MILLISECONDS.sleep(100);
+            assertThat(snapshot(started)).containsExactly("first");
+            assertThat(second).isNotDone();
+
+            firstCommit.complete(status("tx1", TxValidationCode.VALID));
+            assertThat(first.get(1, TimeUnit.SECONDS).getTransactionId()).isEqualTo("tx1");
+            assertThat(second.get(1, TimeUnit.SECONDS).getTransactionId()).isEqualTo("tx2");
+            assertThat(snapshot(started)).containsExactly("first", "second");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void runsWritesToDifferentStripesInParallel() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            // "a" and "b" hash to neighbouring stripes.
+            CompletableFuture<Status> blocked = scheduler.executeAsync("a", executor, CompletableFuture::new);
+            CompletableFuture<Status> other = scheduler.executeAsync("b", executor,
+                    () -> CompletableFuture.completedFuture(status("tx", TxValidationCode.VALID)));
+
+            assertThat(other.get(1, TimeUnit.SECONDS).isSuccessful()).isTrue();
+            assertThat(blocked).isNotDone();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void tryLockRefusesABusyKeyWithConflict() {
+        Runnable unlock = scheduler.tryLock("asset1");
+
+        assertThatThrownBy(() -> scheduler.tryLock("asset1"))
+                .isInstanceOfSatisfying(AdmissionRejectedException.class,
+                        e -> assertThat(e.getStatus()).isEqualTo(HttpStatus.CONFLICT));
+
+        unlock.run();
+        scheduler.tryLock("asset1").run();
+    }
+
+    @Test
+    void lockTimesOutBehindAnUnreleasedWriteWithoutBlockingLaterWriters() {
+        Runnable unlock = scheduler.lock("asset1");
+
+        assertThatThrownBy(() -> scheduler.lock("asset1"))
+                .isInstanceOfSatisfying(AdmissionRejectedException.class,
+                        e -> assertThat(e.getStatus()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE));
+
+        // The abandoned acquisition passes the lock on as soon as it is handed over.
+        unlock.run();
+        scheduler.lock("asset1").run();
+    }
+
+    @Test
+    void retriesReadConflictsUntilTheWriteCommits() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+
+        Status status = scheduler.execute("asset1", () -> attempts.incrementAndGet() < 3
+                ? status("tx" + attempts.get(), TxValidationCode.MVCC_READ_CONFLICT)
+                : status("tx" + attempts.get(), TxValidationCode.VALID));
+
+        assertThat(status.isSuccessful()).isTrue();
+        assertThat(attempts).hasValue(3);
+        assertThat(registry.find("fabric.client.writes.retries").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void stopsRetryingAfterMaxRetries() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+
+        Status status = scheduler.execute("asset1", () -> {
+            attempts.incrementAndGet();
+            return status("tx", TxValidationCode.PHANTOM_READ_CONFLICT);
+        });
+
+        assertThat(status.getCode()).isEqualTo(TxValidationCode.PHANTOM_READ_CONFLICT);
+        assertThat(attempts).hasValue(4);
+        assertThat(registry.find("fabric.client.writes.conflicts.exhausted").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void doesNotRetryOtherValidationFailures() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+
+        Status status = scheduler.execute("asset1", () -> {
+            attempts.incrementAndGet();
+            return status("tx", TxValidationCode.ENDORSEMENT_POLICY_FAILURE);
+        });
+
+        assertThat(status.isSuccessful()).isFalse();
+        assertThat(attempts).hasValue(1);
+    }
+
+    @Test
+    void retriesAsyncWritesAndReleasesTheLock() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            AtomicInteger attempts = new AtomicInteger();
+            CompletableFuture<Status> result = scheduler.executeAsync("asset1", executor,
+                    () -> CompletableFuture.completedFuture(attempts.incrementAndGet() < 2
+                            ? status("tx1", TxValidationCode.MVCC_READ_CONFLICT)
+                            : status("tx2", TxValidationCode.VALID)));
+
+            assertThat(result.get(1, TimeUnit.SECONDS).getTransactionId()).isEqualTo("tx2");
+            assertThat(attempts).hasValue(2);
+            // Released once the write completes; the release may run just after get() returns.
+            scheduler.lock("asset1").run();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void record(List<String> started, String name) {
+        synchronized (started) {
+            started.add(name);
+        }
+    }
+
+    private static List<String> snapshot(List<String> started) {
+        synchronized (started) {
+            return new ArrayList<>(started);
+        }
+    }
+
+    private static Status status(String transactionId, TxValidationCode code) {
+        return new TestStatus(transactionId, code);
+    }
+}